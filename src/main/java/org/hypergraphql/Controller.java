@@ -10,19 +10,28 @@ import org.apache.cxf.jaxrs.JAXRSBindingFactory;
 import org.apache.cxf.jaxrs.JAXRSServerFactoryBean;
 import org.apache.cxf.jaxrs.lifecycle.SingletonResourceProvider;
 import org.hypergraphql.config.system.HGQLConfig;
+import org.hypergraphql.datafetching.ExecutionScheduler;
+import org.hypergraphql.datafetching.QueryPlanCache;
+import org.hypergraphql.services.HGQLMetricsService;
 import org.hypergraphql.services.HGQLRequestService;
+import org.hypergraphql.services.HGQLResponseWriter;
+import org.hypergraphql.util.VirtualThreadPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import spark.ModelAndView;
 import spark.Request;
 import spark.Response;
 import spark.Service;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
 import spark.template.velocity.VelocityTemplateEngine;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.core.StreamingOutput;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -45,6 +54,7 @@ public class Controller {
     private HGQLConfig config;
 
     private static final String SERVER_FRAMEWORK_SPARK = "spark";
+    private static final String SPARK_THREAD_NAME_PREFIX = "ugql-http-";
     private static final String SERVER_FRAMEWORK_JAXRS = "jaxrs";
     private static final String DEFAULT_MIME_TYPE = "RDF/XML";
     private static final String DEFAULT_ACCEPT_TYPE = "application/rdf+xml";
@@ -106,6 +116,8 @@ public class Controller {
         System.out.println("GraphiQL UI available at: http://localhost:" + config.getGraphqlConfig().port() + config.getGraphqlConfig().graphiQLPath());
 
         this.config = config;
+        ExecutionScheduler.configure(config.getExecutionConfig());
+        QueryPlanCache.configure(config.getExecutionConfig());
         if(config.getGraphqlConfig().serverFramwork() != null && config.getGraphqlConfig().serverFramwork().equals(SERVER_FRAMEWORK_JAXRS)){
             startCXF();
         }
@@ -119,6 +131,11 @@ public class Controller {
      */
     private void startSpark() {
 
+        if (ExecutionScheduler.getInstance().usesVirtualThreads()) {
+            // the request handlers are executed on virtual threads, the jetty server of spark is created with a pool of virtual threads
+            EmbeddedServers.add(EmbeddedServers.defaultIdentifier(),
+                    new EmbeddedJettyFactory().withThreadPool(new VirtualThreadPool(SPARK_THREAD_NAME_PREFIX)));
+        }
         hgqlService = Service
                 .ignite()
                 .port(config.getGraphqlConfig().port())
@@ -165,7 +182,7 @@ public class Controller {
 
             Map<String, Object> result = service.results(query, mime);
             List<GraphQLError> errors = (List<GraphQLError>) result.get("errors");
-            if (!errors.isEmpty()) {
+            if (HGQLRequestService.isBadRequest(result)) {   // errors of the execution are returned with the partial data
                 res.status(400);
             }
 
@@ -173,7 +190,9 @@ public class Controller {
 
             ObjectMapper mapper = new ObjectMapper();
             if (graphQLCompatible) {
-                return mapper.readTree(new ObjectMapper().writeValueAsString(result));
+                // the response is streamed, an empty body is returned to Spark to mark the request as handled
+                HGQLResponseWriter.write(result, res.raw().getOutputStream());
+                return "";
             } else {
                 if (result.containsKey("data")) {
                     return result.get("data").toString();
@@ -184,6 +203,18 @@ public class Controller {
             }
         });
 
+        // get method for the execution metrics - only available if a metrics path is configured
+
+        if(config.getGraphqlConfig().metricsPath() != null) {
+            hgqlService.get(config.getGraphqlConfig().metricsPath(), (req, res) -> {
+
+                res.type("application/json");
+                setResponseHeaders(req, res);
+
+                return new ObjectMapper().writeValueAsString(new HGQLMetricsService(config).metrics());
+            });
+        }
+
         //Return the internal HGQL schema representation as rdf.
 
         hgqlService.get(config.getGraphqlConfig().graphQLPath() , (req, res) -> {
@@ -305,24 +336,19 @@ public class Controller {
 
         Map<String, Object> result = service.results(query, mime);
         List<GraphQLError> errors = (List<GraphQLError>) result.get("errors");
-        if (!errors.isEmpty()) {
+        if (HGQLRequestService.isBadRequest(result)) {   // errors of the execution are returned with the partial data
             status = 400;
         }
 
         ObjectMapper mapper = new ObjectMapper();
         if (graphQLCompatible) {
-            JsonNode data = null;
-            try {
-                data = mapper.readTree(new ObjectMapper().writeValueAsString(result));
-            } catch (JsonProcessingException e) {
-                e.printStackTrace();
-            }
+            StreamingOutput data = outputStream -> HGQLResponseWriter.write(result, outputStream);
             return javax.ws.rs.core.Response
                     .status(status)
                     .header("Access-Control-Allow-Headers", StringUtils.join(headersList, ","))
                     .header("Access-Control-Allow-Credentials", "true")
                     .header("Content-Type", type)
-                    .entity(data.toString())
+                    .entity(data)
                     .build();
         } else {
             if (result.containsKey("data")) {
@@ -378,6 +404,39 @@ public class Controller {
                 .build();
     }
 
+    /**
+     * Serves the execution metrics of the HGQL instance under the configured metrics path. The literal paths of the
+     * other resources take precedence over the path template, any other path is answered with 404.
+     * @param path requested path
+     * @return JSON object containing the execution metrics, status 500 if the metrics can not be serialized
+     */
+    @GET
+    @Path("{path: .+}")
+    public javax.ws.rs.core.Response metrics(@PathParam("path") String path){
+        String metricsPath = config.getGraphqlConfig().metricsPath();
+        if(metricsPath == null || !StringUtils.strip(metricsPath, "/").equals(StringUtils.strip(path, "/"))){
+            return javax.ws.rs.core.Response
+                    .status(404)
+                    .build();
+        }
+        String metrics;
+        try {
+            metrics = new ObjectMapper().writeValueAsString(new HGQLMetricsService(config).metrics());
+        } catch (JsonProcessingException e) {
+            LOGGER.error("Serialization of the execution metrics failed", e);
+            return javax.ws.rs.core.Response
+                    .status(500)
+                    .build();
+        }
+        return javax.ws.rs.core.Response
+                .ok()
+                .header("Access-Control-Allow-Headers", StringUtils.join(headersList, ","))
+                .header("Access-Control-Allow-Credentials", "true")
+                .header("Content-Type", "application/json")
+                .entity(metrics)
+                .build();
+    }
+
     /**
      * Serves the GraphiQL interface of the HGQL instance if requested with GET.
      * @return HTML page of GraphiQL of this service
@@ -0,0 +1,144 @@
+package org.hypergraphql.config.system;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hypergraphql.util.VirtualThreads;
+
+/**
+ * Configuration of the query execution. Defines the size of the process-wide execution scheduler that is shared by all
+ * query executions and how much of it a single request is allowed to occupy.
+ * If the execution object is missing in the UGQL config file the default values are used.
+ */
+public class ExecutionConfig {
+
+    public static final int DEFAULT_THREADS = 50;
+    public static final int DEFAULT_QUEUE_SIZE = 10000;
+    public static final int DEFAULT_REQUEST_CONCURRENCY = 20;
+    public static final int DEFAULT_VIRTUAL_REQUEST_CONCURRENCY = 10000;
+    public static final int DEFAULT_PLAN_CACHE_SIZE = 1000;
+    public static final int DEFAULT_BATCH_WINDOW = 0;
+    public static final int DEFAULT_TIMEOUT = 0;
+    public static final int DEFAULT_MANIFOLD_TIMEOUT = 0;
+    public static final String THREAD_MODE_PLATFORM = "platform";
+    public static final String THREAD_MODE_VIRTUAL = "virtual";
+
+    private final int threads;
+    private final int queueSize;
+    private final int requestConcurrency;
+    private final boolean pipelining;
+    private final String threadMode;
+    private final int planCacheSize;
+    private final int batchWindow;
+    private final int timeout;
+    private final int manifoldTimeout;
+    private final boolean limitAware;
+    private final boolean rootBatching;
+
+    /**
+     * Sets up the execution configuration. Values that are not given or not positive are replaced with the defaults,
+     * except for the planCacheSize, batchWindow, timeout and manifoldTimeout which may be 0.
+     * @param threads Number of worker threads of the shared execution scheduler
+     * @param queueSize Maximal number of tasks waiting for a worker thread
+     * @param requestConcurrency Maximal number of tasks one request is allowed to have in the scheduler at the same time,
+     *                           the default is raised to DEFAULT_VIRTUAL_REQUEST_CONCURRENCY if virtual threads are used
+     * @param pipelining If true sub-queries are started with batches of the parent results while the parent query is still running
+     * @param threadMode Kind of threads executing the queries and requests, either "platform" or "virtual"
+     * @param planCacheSize Maximal number of cached query plans, 0 disables the plan cache
+     * @param batchWindow Time in milliseconds equal sub-queries of a request are collected to be executed as one batched query, 0 disables the batching
+     * @param timeout Deadline of a request in milliseconds after which the outstanding queries are aborted, 0 disables the deadline
+     * @param manifoldTimeout Time in milliseconds a field with multiple services waits for the slowest service, 0 waits for all services
+     * @param limitAware If true the chunks and services of a root query with a limit are no longer queried once the limit is satisfied
+     * @param rootBatching If true the root queries of a request to the same service are executed as one query
+     */
+    @JsonCreator
+    public ExecutionConfig(@JsonProperty("threads") Integer threads,
+                           @JsonProperty("queueSize") Integer queueSize,
+                           @JsonProperty("requestConcurrency") Integer requestConcurrency,
+                           @JsonProperty("pipelining") Boolean pipelining,
+                           @JsonProperty("threadMode") String threadMode,
+                           @JsonProperty("planCacheSize") Integer planCacheSize,
+                           @JsonProperty("batchWindow") Integer batchWindow,
+                           @JsonProperty("timeout") Integer timeout,
+                           @JsonProperty("manifoldTimeout") Integer manifoldTimeout,
+                           @JsonProperty("limitAware") Boolean limitAware,
+                           @JsonProperty("rootBatching") Boolean rootBatching
+    ) {
+        this.threads = positiveOrDefault(threads, DEFAULT_THREADS);
+        this.queueSize = positiveOrDefault(queueSize, DEFAULT_QUEUE_SIZE);
+        this.pipelining = pipelining != null && pipelining;
+        this.threadMode = THREAD_MODE_VIRTUAL.equalsIgnoreCase(threadMode) ? THREAD_MODE_VIRTUAL : THREAD_MODE_PLATFORM;
+        // a virtual thread per blocking query is cheap, the budget only has to stop runaway requests
+        this.requestConcurrency = positiveOrDefault(requestConcurrency,
+                useVirtualThreads() && VirtualThreads.isSupported() ? DEFAULT_VIRTUAL_REQUEST_CONCURRENCY : DEFAULT_REQUEST_CONCURRENCY);
+        this.planCacheSize = planCacheSize == null || planCacheSize < 0 ? DEFAULT_PLAN_CACHE_SIZE : planCacheSize;
+        this.batchWindow = batchWindow == null || batchWindow < 0 ? DEFAULT_BATCH_WINDOW : batchWindow;
+        this.timeout = timeout == null || timeout < 0 ? DEFAULT_TIMEOUT : timeout;
+        this.manifoldTimeout = manifoldTimeout == null || manifoldTimeout < 0 ? DEFAULT_MANIFOLD_TIMEOUT : manifoldTimeout;
+        this.limitAware = limitAware != null && limitAware;
+        this.rootBatching = rootBatching != null && rootBatching;
+    }
+
+    /**
+     * Returns an ExecutionConfig containing only default values.
+     * @return default ExecutionConfig
+     */
+    public static ExecutionConfig defaultConfig() {
+        return new ExecutionConfig(null, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public int getRequestConcurrency() {
+        return requestConcurrency;
+    }
+
+    public boolean isPipelining() {
+        return pipelining;
+    }
+
+    public String getThreadMode() {
+        return threadMode;
+    }
+
+    public int getPlanCacheSize() {
+        return planCacheSize;
+    }
+
+    public int getBatchWindow() {
+        return batchWindow;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public int getManifoldTimeout() {
+        return manifoldTimeout;
+    }
+
+    public boolean isLimitAware() {
+        return limitAware;
+    }
+
+    public boolean isRootBatching() {
+        return rootBatching;
+    }
+
+    /**
+     * Indicates if the queries and requests should be executed on virtual threads.
+     * @return True if the thread mode is "virtual", otherwise False
+     */
+    public boolean useVirtualThreads() {
+        return THREAD_MODE_VIRTUAL.equals(threadMode);
+    }
+
+    private static int positiveOrDefault(Integer value, int defaultValue) {
+        return value == null || value <= 0 ? defaultValue : value;
+    }
+}
@@ -12,12 +12,14 @@ public class GraphqlConfig {
     private String graphqlPath;
     private String graphiqlPath;
     private String serverFramework;
+    private String metricsPath;
 
     @JsonCreator
     public GraphqlConfig(@JsonProperty("port") Integer port,
                          @JsonProperty("graphql") String graphqlPath,
                          @JsonProperty("graphiql") String graphiqlPath,
-                         @JsonProperty("framework") String serverFramework
+                         @JsonProperty("framework") String serverFramework,
+                         @JsonProperty("metrics") String metricsPath
     ) {
         if(port == null) {
             this.port = generateRandomPort();
@@ -27,6 +29,7 @@ public class GraphqlConfig {
         this.graphqlPath = graphqlPath;
         this.graphiqlPath = graphiqlPath;
         this.serverFramework = serverFramework;
+        this.metricsPath = metricsPath;
     }
 
     public Integer port() {
@@ -51,4 +54,8 @@ public class GraphqlConfig {
     public String serverFramwork(){
         return  serverFramework;
     }
+
+    public String metricsPath() {
+        return metricsPath;
+    }
 }
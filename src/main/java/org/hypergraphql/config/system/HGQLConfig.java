@@ -26,6 +26,7 @@ public class HGQLConfig {
     private Boolean mutations;
     private String mutationService;
     private Map<String, String> prefixes;
+    private ExecutionConfig executionConfig;
 
     //Additional attributes
     private GraphQLSchema schema;
@@ -40,6 +41,7 @@ public class HGQLConfig {
      * @param services List of services this HGQL endpoint should use
      * @param extraction True if the schema MUST be extracted from the services otherwise False
      * @param mappingFile mapping file
+     * @param executionConfig Configuration of the query execution, if not given the default configuration is used
      */
     @JsonCreator
     private HGQLConfig(
@@ -52,7 +54,8 @@ public class HGQLConfig {
             @JsonProperty("query") String queryFile,
             @JsonProperty("mutations") Boolean mutations,
             @JsonProperty("mutationService") String mutationService,
-            @JsonProperty("prefixes") Map<String, String> prefixes
+            @JsonProperty("prefixes") Map<String, String> prefixes,
+            @JsonProperty("execution") ExecutionConfig executionConfig
     ) {
         this.name = name;
         this.schemaFile = schemaFile;
@@ -64,6 +67,7 @@ public class HGQLConfig {
         this.mutations = mutations;
         this.mutationService = mutationService;
         this.prefixes = prefixes;
+        this.executionConfig = executionConfig != null ? executionConfig : ExecutionConfig.defaultConfig();
     }
 
     /**
@@ -198,6 +202,12 @@ public class HGQLConfig {
     public Map<String, String> getPrefixes(){
         return this.prefixes;
     }
-}
-
 
+    /**
+     * Getter method for the attribute executionConfig. Defines the resources the query execution is allowed to use.
+     * @return Configuration of the query execution
+     */
+    public ExecutionConfig getExecutionConfig(){
+        return this.executionConfig;
+    }
+}
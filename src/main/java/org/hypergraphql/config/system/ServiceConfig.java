@@ -5,6 +5,32 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class ServiceConfig {
 
+    public static final int DEFAULT_CHUNK_SIZE = 100;
+    public static final int DEFAULT_MIN_CHUNK_SIZE = 10;
+    public static final int DEFAULT_MAX_CHUNK_SIZE = 1000;
+    public static final int DEFAULT_CHUNK_LATENCY = 2000;
+    public static final int DEFAULT_CHUNK_RESULT_LIMIT = 10000;
+    public static final int DEFAULT_POST_THRESHOLD = 2048;
+    public static final int DEFAULT_TIMEOUT = 0;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 0;
+    public static final int DEFAULT_QUEUE_SIZE = 1000;
+    public static final int DEFAULT_MAX_CONNECTIONS = 20;
+    public static final int DEFAULT_CONNECT_TIMEOUT = 0;
+    public static final int DEFAULT_KEEP_ALIVE = 30000;
+    public static final int DEFAULT_CACHE_SIZE = 1000;
+    public static final int DEFAULT_CACHE_TTL = 0;
+    public static final int DEFAULT_CACHE_STALE_TIME = 0;
+    public static final String RESULT_FORMAT_XML = "xml";
+    public static final String RESULT_FORMAT_JSON = "json";
+    public static final String RESULT_FORMAT_TSV = "tsv";
+    public static final String RESULT_FORMAT_THRIFT = "thrift";
+    public static final String RESULT_FORMAT_AUTO = "auto";
+    public static final String FETCH_MODE_SELECT = "select";
+    public static final String FETCH_MODE_CONSTRUCT = "construct";
+    public static final String OVERFLOW_QUEUE = "queue";
+    public static final String OVERFLOW_SHED = "shed";
+    public static final String OVERFLOW_DEGRADE = "degrade";
+
     private String id;
     private String type;
     private String url;
@@ -14,7 +40,32 @@ public class ServiceConfig {
     private String filepath;
     private String filetype;
     private boolean exclude_from_extraction;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int minChunkSize = DEFAULT_MIN_CHUNK_SIZE;   // bounded by the chunk size in getMinChunkSize()
+    private int maxChunkSize = DEFAULT_MAX_CHUNK_SIZE;   // bounded by the chunk size in getMaxChunkSize()
+    private int chunkLatency = DEFAULT_CHUNK_LATENCY;
+    private int chunkResultLimit = DEFAULT_CHUNK_RESULT_LIMIT;
+    private int perParentThreshold = -1;   // -1 if not configured, defaults to the maximal chunk size
+    private int postThreshold = DEFAULT_POST_THRESHOLD;
+    private int timeout = DEFAULT_TIMEOUT;
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    private String overflow = OVERFLOW_QUEUE;
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private int keepAlive = DEFAULT_KEEP_ALIVE;
+    private boolean compression = true;
+    private String resultFormat = RESULT_FORMAT_XML;
+    private String fetchMode = FETCH_MODE_SELECT;
+    private int cacheSize = DEFAULT_CACHE_SIZE;
+    private int cacheTtl = DEFAULT_CACHE_TTL;
+    private int cacheStaleTime = DEFAULT_CACHE_STALE_TIME;
 
+    /**
+     * Sets up the configuration of a service from the service entry of the configuration file. The optional execution
+     * options of the service (chunking, bulkhead, connections, result format and cache) are bound by their setters,
+     * options that are not defined or invalid keep their default value.
+     */
     @JsonCreator
     public ServiceConfig(@JsonProperty("id") String id,
                          @JsonProperty("type") String type,
@@ -37,6 +88,117 @@ public class ServiceConfig {
         this.exclude_from_extraction = exclude_from_extraction;
     }
 
+    @JsonProperty("chunkSize")
+    private void setChunkSize(Integer chunkSize) {
+        this.chunkSize = chunkSize == null || chunkSize < 1 ? DEFAULT_CHUNK_SIZE : chunkSize;
+    }
+
+    @JsonProperty("minChunkSize")
+    private void setMinChunkSize(Integer minChunkSize) {
+        this.minChunkSize = minChunkSize == null || minChunkSize < 1 ? DEFAULT_MIN_CHUNK_SIZE : minChunkSize;
+    }
+
+    @JsonProperty("maxChunkSize")
+    private void setMaxChunkSize(Integer maxChunkSize) {
+        this.maxChunkSize = maxChunkSize == null || maxChunkSize < 1 ? DEFAULT_MAX_CHUNK_SIZE : maxChunkSize;
+    }
+
+    @JsonProperty("chunkLatency")
+    private void setChunkLatency(Integer chunkLatency) {
+        this.chunkLatency = chunkLatency == null || chunkLatency < 1 ? DEFAULT_CHUNK_LATENCY : chunkLatency;
+    }
+
+    @JsonProperty("chunkResultLimit")
+    private void setChunkResultLimit(Integer chunkResultLimit) {
+        this.chunkResultLimit = chunkResultLimit == null || chunkResultLimit < 1 ? DEFAULT_CHUNK_RESULT_LIMIT : chunkResultLimit;
+    }
+
+    @JsonProperty("perParentThreshold")
+    private void setPerParentThreshold(Integer perParentThreshold) {
+        this.perParentThreshold = perParentThreshold == null || perParentThreshold < 0 ? -1 : perParentThreshold;
+    }
+
+    @JsonProperty("postThreshold")
+    private void setPostThreshold(Integer postThreshold) {
+        this.postThreshold = postThreshold == null || postThreshold < 0 ? DEFAULT_POST_THRESHOLD : postThreshold;
+    }
+
+    @JsonProperty("timeout")
+    private void setTimeout(Integer timeout) {
+        this.timeout = timeout == null || timeout < 0 ? DEFAULT_TIMEOUT : timeout;
+    }
+
+    @JsonProperty("maxInFlight")
+    private void setMaxInFlight(Integer maxInFlight) {
+        this.maxInFlight = maxInFlight == null || maxInFlight < 0 ? DEFAULT_MAX_IN_FLIGHT : maxInFlight;
+    }
+
+    @JsonProperty("queueSize")
+    private void setQueueSize(Integer queueSize) {
+        this.queueSize = queueSize == null || queueSize < 0 ? DEFAULT_QUEUE_SIZE : queueSize;
+    }
+
+    @JsonProperty("overflow")
+    private void setOverflow(String overflow) {
+        if (OVERFLOW_SHED.equalsIgnoreCase(overflow)) {
+            this.overflow = OVERFLOW_SHED;
+        } else if (OVERFLOW_DEGRADE.equalsIgnoreCase(overflow)) {
+            this.overflow = OVERFLOW_DEGRADE;
+        } else {
+            this.overflow = OVERFLOW_QUEUE;
+        }
+    }
+
+    @JsonProperty("maxConnections")
+    private void setMaxConnections(Integer maxConnections) {
+        this.maxConnections = maxConnections == null || maxConnections < 1 ? DEFAULT_MAX_CONNECTIONS : maxConnections;
+    }
+
+    @JsonProperty("connectTimeout")
+    private void setConnectTimeout(Integer connectTimeout) {
+        this.connectTimeout = connectTimeout == null || connectTimeout < 0 ? DEFAULT_CONNECT_TIMEOUT : connectTimeout;
+    }
+
+    @JsonProperty("keepAlive")
+    private void setKeepAlive(Integer keepAlive) {
+        this.keepAlive = keepAlive == null || keepAlive < 0 ? DEFAULT_KEEP_ALIVE : keepAlive;
+    }
+
+    @JsonProperty("compression")
+    private void setCompression(Boolean compression) {
+        this.compression = compression == null || compression;
+    }
+
+    @JsonProperty("resultFormat")
+    private void setResultFormat(String resultFormat) {
+        this.resultFormat = RESULT_FORMAT_XML;
+        for (String format : new String[]{RESULT_FORMAT_JSON, RESULT_FORMAT_TSV, RESULT_FORMAT_THRIFT, RESULT_FORMAT_AUTO}) {
+            if (format.equalsIgnoreCase(resultFormat)) {
+                this.resultFormat = format;
+            }
+        }
+    }
+
+    @JsonProperty("fetchMode")
+    private void setFetchMode(String fetchMode) {
+        this.fetchMode = FETCH_MODE_CONSTRUCT.equalsIgnoreCase(fetchMode) ? FETCH_MODE_CONSTRUCT : FETCH_MODE_SELECT;
+    }
+
+    @JsonProperty("cacheSize")
+    private void setCacheSize(Integer cacheSize) {
+        this.cacheSize = cacheSize == null || cacheSize < 0 ? DEFAULT_CACHE_SIZE : cacheSize;
+    }
+
+    @JsonProperty("cacheTtl")
+    private void setCacheTtl(Integer cacheTtl) {
+        this.cacheTtl = cacheTtl == null || cacheTtl < 0 ? DEFAULT_CACHE_TTL : cacheTtl;
+    }
+
+    @JsonProperty("cacheStaleTime")
+    private void setCacheStaleTime(Integer cacheStaleTime) {
+        this.cacheStaleTime = cacheStaleTime == null || cacheStaleTime < 0 ? DEFAULT_CACHE_STALE_TIME : cacheStaleTime;
+    }
+
     public String getId() {
         return id;
     }
@@ -70,6 +232,176 @@ public class ServiceConfig {
         return exclude_from_extraction;
     }
 
+    /**
+     * Returns the initial number of IRIs per VALUES clause of the queries to this service.
+     * @return initial chunk size
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Returns the lower bound of the adaptive chunk size.
+     * @return minimal chunk size
+     */
+    public int getMinChunkSize() {
+        return Math.min(chunkSize, minChunkSize);
+    }
+
+    /**
+     * Returns the upper bound of the adaptive chunk size.
+     * @return maximal chunk size
+     */
+    public int getMaxChunkSize() {
+        return Math.max(chunkSize, maxChunkSize);
+    }
+
+    /**
+     * Returns the targeted latency of one query chunk in milliseconds. Slower chunks shrink the chunk size.
+     * @return targeted latency in milliseconds
+     */
+    public int getChunkLatency() {
+        return chunkLatency;
+    }
+
+    /**
+     * Returns the number of results of one query chunk at which the chunk size is reduced, e.g. the maximal number of
+     * rows the endpoint returns for one query.
+     * @return result limit of one chunk
+     */
+    public int getChunkResultLimit() {
+        return chunkResultLimit;
+    }
+
+    /**
+     * Returns the maximal number of parents of a query chunk for which fields with a limit are queried with one subquery
+     * per parent. Chunks with more parents rank the values of all parents in one subquery. Defaults to the maximal
+     * chunk size, so that every chunk of the adaptive chunk size is queried per parent.
+     * @return maximal number of parents that are queried per parent, 0 if the values are always ranked
+     */
+    public int getPerParentThreshold() {
+        return perParentThreshold < 0 ? getMaxChunkSize() : perParentThreshold;
+    }
+
+    /**
+     * Returns the length of the SPARQL query (number of characters) from which on the query is sent with HTTP POST.
+     * @return query length threshold for POST requests
+     */
+    public int getPostThreshold() {
+        return postThreshold;
+    }
+
+    /**
+     * Returns the maximal execution time of one query to this service in milliseconds, 0 if the queries are only
+     * limited by the deadline of the request.
+     * @return query timeout in milliseconds
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Returns the maximal number of queries that are executed concurrently against this service.
+     * @return maximal number of concurrent queries, 0 if the number is not limited
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Returns the maximal number of queries that wait for a free slot of this service if the overflow behaviour is
+     * queue.
+     * @return maximal number of waiting queries
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Returns the behaviour if all slots of this service are occupied: queue (wait for a free slot), shed (reject the
+     * request) or degrade (omit the results of the query).
+     * @return overflow behaviour
+     */
+    public String getOverflow() {
+        return overflow;
+    }
+
+    /**
+     * Returns the maximal number of pooled HTTP connections to this service.
+     * @return maximal number of connections
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Returns the maximal time to establish a HTTP connection to this service in milliseconds, 0 if the connection is
+     * only limited by the timeout of the query.
+     * @return connect timeout in milliseconds
+     */
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * Returns the time in milliseconds an idle HTTP connection to this service is kept open for further queries if the
+     * service does not define a keep-alive time itself.
+     * @return keep-alive time in milliseconds
+     */
+    public int getKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * Indicates if compressed (gzip, deflate) responses are requested from this service.
+     * @return True if the responses may be compressed, otherwise False
+     */
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * Returns the preferred format of the SPARQL results of this service: xml, json, tsv, thrift or auto (most compact
+     * format the service supports).
+     * @return result format
+     */
+    public String getResultFormat() {
+        return resultFormat;
+    }
+
+    /**
+     * Returns the form of the SPARQL queries of this service: select (one solution per combination of the field values)
+     * or construct (the field values are returned as triples and translated with a ConstructGraph).
+     * @return fetch mode
+     */
+    public String getFetchMode() {
+        return fetchMode;
+    }
+
+    /**
+     * Returns the maximal number of SPARQL results of this service that are cached (see ResultCache).
+     * @return size of the result cache, 0 if the results are not cached
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Returns the time in ms a cached SPARQL result of this service is served without querying the service again.
+     * @return time to live of the cached results, 0 if the results are not cached
+     */
+    public int getCacheTtl() {
+        return cacheTtl;
+    }
+
+    /**
+     * Returns the time in ms an expired cached result is still served while it is refreshed in the background.
+     * @return stale time of the cached results, 0 if expired results are queried on the request path
+     */
+    public int getCacheStaleTime() {
+        return cacheStaleTime;
+    }
+
     protected void setUrl(final String url) {
         this.url = url;
     }
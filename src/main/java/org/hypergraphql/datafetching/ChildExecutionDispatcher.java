@@ -0,0 +1,219 @@
+package org.hypergraphql.datafetching;
+
+import org.hypergraphql.datafetching.services.SPARQLEndpointService;
+import org.hypergraphql.datafetching.services.resultmodel.ObjectResult;
+import org.hypergraphql.datafetching.services.resultmodel.Result;
+import org.hypergraphql.datafetching.services.resultmodel.ResultIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Dispatches the sub-queries (childNodes) of an ExecutionTreeNode. The IRIs of the parent query results are collected
+ * per marker (SPARQL variable) and every time the batch size of the marker is reached a FetchingExecution is
+ * submitted for each childNode of the marker. The batch size of a marker is the current chunk size of the services of
+ * its childNodes (see ValuesChunkSizer), so that each batch fills one VALUES chunk of the sub-queries. This allows the sub-queries to start while the results of the parent
+ * query are still streamed from the service. The results of the sub-queries are merged in the order they complete.
+ * IRIs that were already dispatched for a marker are ignored, therefore the same IRI can be dispatched multiple times
+ * (e.g. during the streaming and again with the complete resultSet of the parent query).
+ */
+public class ChildExecutionDispatcher {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ChildExecutionDispatcher.class);
+
+    private final Map<String, ExecutionForest> childrenNodes;
+    private final ExecutionContext context;
+    private final Map<String, Integer> batchSizes = new HashMap<>();   // batch size per marker, no batches if pipelining is disabled
+    private final Map<String, Set<String>> dispatched = new HashMap<>();   // all IRIs accepted per marker
+    private final Map<String, Set<String>> pending = new HashMap<>();   // IRIs per marker that are not yet dispatched
+    private final Set<String> dispatchedMarkers = new HashSet<>();   // markers for which at least one batch was dispatched
+    private final List<CompletableFuture<Result<?>>> futureModels = new ArrayList<>();
+    private boolean flushed = false;   // IRIs dispatched after the flush are ignored as their results are not merged
+    private ResultIndex index;   // index of the merged result, reset if the result is replaced or new entities are merged
+
+    /**
+     * Initializes a dispatcher for the childNodes of one execution of an ExecutionTreeNode.
+     * If pipelining is disabled in the context all IRIs of a marker are dispatched with flush().
+     * @param childrenNodes Map with the marker as key and the ExecutionForest of the sub-queries as value
+     * @param context ExecutionContext of the request
+     */
+    ChildExecutionDispatcher(Map<String, ExecutionForest> childrenNodes, ExecutionContext context) {
+        this.childrenNodes = childrenNodes;
+        this.context = context;
+        childrenNodes.forEach((marker, forest) ->
+                batchSizes.put(marker, context.isPipelining() ? chunkSize(forest) : Integer.MAX_VALUE));
+    }
+
+    /**
+     * Returns the smallest current chunk size of the services of the given childNodes. Services without a chunk sizer
+     * are dispatched with batches of the default chunk size.
+     */
+    private static int chunkSize(ExecutionForest forest) {
+        int chunkSize = Integer.MAX_VALUE;
+        for (ExecutionTreeNode node : forest.getForest()) {
+            if (node.getService() instanceof SPARQLEndpointService) {
+                chunkSize = Math.min(chunkSize, ((SPARQLEndpointService) node.getService()).getChunkSizer().getChunkSize());
+            } else {
+                chunkSize = Math.min(chunkSize, SPARQLEndpointService.VALUES_SIZE_LIMIT);
+            }
+        }
+        return Math.max(1, chunkSize);
+    }
+
+    /**
+     * Returns the number of IRIs of the given marker that are collected before a batch is dispatched.
+     * @param marker SPARQL variable of the parent query
+     * @return batch size of the marker, Integer.MAX_VALUE if pipelining is disabled
+     */
+    int getBatchSize(String marker) {
+        return batchSizes.getOrDefault(marker, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Adds the given IRI of the given marker. If a batch of the marker is full it is dispatched to the childNodes of
+     * the marker. IRIs added after flush() are ignored, e.g. IRIs of a service that exceeded the manifold timeout.
+     * @param marker SPARQL variable of the parent query the IRI is bound to
+     * @param iri IRI of a parent result
+     */
+    public void dispatch(String marker, String iri) {
+        if (iri == null || !hasChildren(marker)) {
+            return;
+        }
+        Set<String> batch = null;
+        synchronized (this) {
+            if (flushed) {
+                return;
+            }
+            if (!dispatched.computeIfAbsent(marker, m -> new HashSet<>()).add(iri)) {
+                return;
+            }
+            Set<String> markerPending = pending.computeIfAbsent(marker, m -> new HashSet<>());
+            markerPending.add(iri);
+            if (markerPending.size() >= getBatchSize(marker)) {
+                batch = markerPending;
+                pending.put(marker, new HashSet<>());
+                dispatchedMarkers.add(marker);
+            }
+        }
+        if (batch != null) {
+            submit(marker, batch);
+        }
+    }
+
+    /**
+     * Adds all IRIs of the given resultSet.
+     * @param resultSet Map with the marker as key and the IRIs of the marker as value
+     */
+    public void dispatchAll(Map<String, Set<String>> resultSet) {
+        resultSet.forEach((marker, iris) -> iris.forEach(iri -> dispatch(marker, iri)));
+    }
+
+    /**
+     * Dispatches the remaining IRIs of all markers. Markers without any dispatched IRIs are dispatched with an empty
+     * set of IRIs, as the childNodes were executed before the pipelining was introduced.
+     * @param markers All markers of the parent query
+     */
+    void flush(Set<String> markers) {
+        Map<String, Set<String>> remaining = new HashMap<>();
+        synchronized (this) {
+            flushed = true;
+            for (String marker : markers) {
+                Set<String> markerPending = pending.remove(marker);
+                if (markerPending != null && !markerPending.isEmpty()) {
+                    remaining.put(marker, markerPending);
+                } else if (!dispatchedMarkers.contains(marker)) {
+                    remaining.put(marker, new HashSet<>());
+                }
+                dispatchedMarkers.add(marker);
+            }
+        }
+        remaining.forEach((marker, batch) -> {
+            if (hasChildren(marker)) {
+                submit(marker, batch);
+            }
+        });
+    }
+
+    /**
+     * Merges the results of all dispatched sub-queries into the given result of the parent query. The results are
+     * merged in the order the sub-queries complete, a failed sub-query is logged and skipped.
+     * Note: Must be called after flush() as sub-queries dispatched afterwards are not considered.
+     * @param parentResult result of the parent query, may be null
+     * @return Future of the merged result
+     */
+    CompletableFuture<Result<?>> mergeResults(Result<?> parentResult) {
+        List<CompletableFuture<Result<?>>> futures;
+        synchronized (this) {
+            futures = new ArrayList<>(futureModels);
+            index = null;
+        }
+        AtomicReference<Result<?>> formatedResult = new AtomicReference<>(parentResult);
+        CompletableFuture<?>[] merges = futures.stream()
+                .map(futureModel -> futureModel.handle((result, e) -> {
+                    if (e != null) {
+                        if (context.isCancelled()) {
+                            LOGGER.debug("Execution aborted due to the cancelled request", e);
+                        } else {
+                            LOGGER.error("Problem adding execution result", e);
+                        }
+                    } else {
+                        merge(formatedResult, result);
+                    }
+                    return null;
+                }))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(merges).thenApply(v -> formatedResult.get());
+    }
+
+    /**
+     * Merges the given result of a sub-query into the given formatedResult.
+     * @param formatedResult result of the parent query and the already merged sub-queries
+     * @param result result of a sub-query
+     */
+    private synchronized void merge(AtomicReference<Result<?>> formatedResult, Result<?> result) {
+        if (formatedResult.get() == null) {
+            formatedResult.set(result);
+            index = null;
+        } else {
+            if(result != null){
+                if (formatedResult.get().getNodeId().equals(result.getNodeId())) {
+                    formatedResult.get().merge(result);
+                    index = null;
+                } else {
+                    if (formatedResult.get() instanceof ObjectResult) {
+                        if (index == null) {
+                            index = new ResultIndex(formatedResult.get());
+                        }
+                        index.merge(result);   // same as deepSubfieldMerge, the levels are only searched once
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean hasChildren(String marker) {
+        ExecutionForest executionChildren = childrenNodes.get(marker);
+        return executionChildren != null && !executionChildren.getForest().isEmpty();
+    }
+
+    private void submit(String marker, Set<String> batch) {
+        ExecutionScheduler scheduler = ExecutionScheduler.getInstance();
+        LOGGER.debug("Dispatch {} IRIs of marker {}", batch.size(), marker);
+        for (ExecutionTreeNode node : childrenNodes.get(marker).getForest()) {
+            CompletableFuture<Result<?>> futureModel = scheduler.submit(new FetchingExecution(batch, node, context), context)
+                    .thenCompose(Function.identity());
+            synchronized (this) {
+                futureModels.add(futureModel);
+            }
+        }
+    }
+}
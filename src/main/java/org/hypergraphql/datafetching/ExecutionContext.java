@@ -0,0 +1,294 @@
+package org.hypergraphql.datafetching;
+
+import org.hypergraphql.config.system.ExecutionConfig;
+import org.hypergraphql.datafetching.services.resultmodel.ResultDictionary;
+import org.hypergraphql.query.pattern.Query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The ExecutionContext holds the state that is shared by all executions of one GraphQL request.
+ * It is created once per request and handed down from the ExecutionForest to the ExecutionTreeNodes and the services.
+ * The context limits the number of tasks the request is allowed to run in parallel on the ExecutionScheduler.
+ * If the request has a deadline the running executions register their abort actions at the context, when the request
+ * is cancelled all registered executions are aborted and no further executions are started. The errors of failed or
+ * aborted executions are collected in the context to be returned with the (partial) results.
+ * In the limit-aware mode the context holds a LimitTracker for each root query with a limit, which stops the executions
+ * of the query once the limit is satisfied.
+ */
+public class ExecutionContext {
+
+    private final Semaphore budget;
+    private final boolean pipelining;
+    private final QueryBatcher batcher;
+    private final long timeout;   // deadline of the request in milliseconds after the creation, 0 if the request has no deadline
+    private final long deadline;   // System.nanoTime() of the deadline
+    private final long manifoldTimeout;
+    private final boolean limitAware;
+    private final boolean rootBatching;
+    private final Map<Query, LimitTracker> limitTrackers = new IdentityHashMap<>();
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final Set<Runnable> abortActions = ConcurrentHashMap.newKeySet();
+    private final List<String> errors = new ArrayList<>();
+    private final Set<Throwable> reportedFailures = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final ResultDictionary dictionary = new ResultDictionary();
+
+    /**
+     * Initializes a context for one request with the given execution configuration.
+     * @param config execution configuration containing the concurrency budget, pipelining, batching, deadline,
+     *               manifold timeout and limit-awareness of the request
+     */
+    public ExecutionContext(ExecutionConfig config) {
+        this(config.getRequestConcurrency(), config);
+    }
+
+    /**
+     * Initializes a context with the given concurrency budget and the default values of all other options, e.g. for
+     * executions that do not belong to a request.
+     * @param maxConcurrency Maximal number of tasks of this request that are executed in parallel by the scheduler
+     */
+    public ExecutionContext(int maxConcurrency) {
+        this(maxConcurrency, ExecutionConfig.defaultConfig());
+    }
+
+    private ExecutionContext(int maxConcurrency, ExecutionConfig config) {
+        this.budget = new Semaphore(maxConcurrency);
+        this.pipelining = config.isPipelining();
+        this.batcher = new QueryBatcher(this, config.getBatchWindow());
+        this.timeout = config.getTimeout();
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        this.manifoldTimeout = config.getManifoldTimeout();
+        this.limitAware = config.isLimitAware();
+        this.rootBatching = config.isRootBatching();
+    }
+
+    /**
+     * Returns the dictionary of the IRIs and literal values of the results of this request.
+     * @return dictionary of the result values
+     */
+    public ResultDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Tries to reserve a slot of the concurrency budget of this request.
+     * @return True if a slot was reserved, otherwise False
+     */
+    boolean tryAcquire() {
+        return budget.tryAcquire();
+    }
+
+    /**
+     * Releases a slot of the concurrency budget that was reserved with tryAcquire().
+     */
+    void release() {
+        budget.release();
+    }
+
+    /**
+     * Number of tasks this request is still allowed to run in parallel.
+     * @return available slots of the concurrency budget
+     */
+    public int getAvailableConcurrency() {
+        return budget.availablePermits();
+    }
+
+    /**
+     * Indicates if the sub-queries of this request are dispatched in batches while the parent query is still running.
+     * @return True if pipelining is enabled, otherwise False
+     */
+    public boolean isPipelining() {
+        return pipelining;
+    }
+
+    /**
+     * Indicates if the root queries of this request to the same service are executed as one query (see
+     * QueryBatcher.executeRootsAsync()).
+     * @return True if root batching is enabled, otherwise False
+     */
+    public boolean isRootBatching() {
+        return rootBatching;
+    }
+
+    /**
+     * Returns the QueryBatcher of this request that executes the queries of the ExecutionTreeNodes.
+     * @return QueryBatcher of the request
+     */
+    QueryBatcher getBatcher() {
+        return batcher;
+    }
+
+    /**
+     * Returns the LimitTracker of the given query. The tracker is shared by all services and VALUES chunks that execute
+     * the query object for this request, e.g. the services of a ManifoldService.
+     * @param query query or sub-query to be executed
+     * @param rootType type of the query root
+     * @return LimitTracker of the query, null if the limit-aware mode is disabled or the query can not be stopped early
+     *         (see LimitTracker.requiredEntities())
+     */
+    public LimitTracker getLimitTracker(Query query, String rootType) {
+        if (!limitAware) {
+            return null;
+        }
+        long required = LimitTracker.requiredEntities(query, rootType);
+        if (required < 0) {
+            return null;
+        }
+        synchronized (limitTrackers) {
+            return limitTrackers.computeIfAbsent(query, q -> new LimitTracker(required));
+        }
+    }
+
+    /**
+     * Indicates if the request has a deadline.
+     * @return True if the request has a deadline, otherwise False
+     */
+    public boolean hasDeadline() {
+        return timeout > 0;
+    }
+
+    /**
+     * Returns the deadline of the request.
+     * @return deadline in milliseconds after the creation of the request, 0 if the request has no deadline
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Returns the time a ManifoldService waits for the results of its services. Services that did not complete within
+     * this time are omitted from the results of the ManifoldService.
+     * @return manifold timeout in milliseconds, 0 if the ManifoldService waits for all services
+     */
+    public long getManifoldTimeout() {
+        return manifoldTimeout;
+    }
+
+    /**
+     * Returns the time left until the deadline of the request.
+     * @return remaining time in milliseconds, Long.MAX_VALUE if the request has no deadline
+     */
+    public long getRemainingMillis() {
+        if (!hasDeadline()) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    /**
+     * Returns the time an execution with the given timeout is allowed to take, i.e. the minimum of the given timeout
+     * and the remaining time of the request.
+     * @param timeout timeout of the execution in milliseconds, 0 if the execution has no own timeout
+     * @return time limit in milliseconds, 0 if the execution is not limited
+     */
+    public long getTimeLimit(long timeout) {
+        long remaining = getRemainingMillis();
+        long limit = timeout > 0 ? Math.min(timeout, remaining) : remaining;
+        if (limit == Long.MAX_VALUE) {
+            return 0;
+        }
+        return Math.max(1, limit);   // 0 would disable the limit
+    }
+
+    /**
+     * Cancels the request: all registered executions are aborted and the given reason is added to the errors of the
+     * request. Executions that are started afterwards fail immediately.
+     * @param reason reason of the cancellation, reported as error of the request
+     */
+    public void cancel(String reason) {
+        if (cancelled.compareAndSet(false, true)) {
+            addError(reason);
+            abortActions.forEach(Runnable::run);
+        }
+    }
+
+    /**
+     * Indicates if the request was cancelled or its deadline has passed.
+     * @return True if no further executions should be started for this request, otherwise False
+     */
+    public boolean isCancelled() {
+        return cancelled.get() || (hasDeadline() && deadline - System.nanoTime() <= 0);
+    }
+
+    /**
+     * Registers the given abort action of a running execution. The action is executed if the request is cancelled
+     * before the action is unregistered.
+     * @param abortAction action that aborts the execution, e.g. aborting the HTTP request
+     * @return False if the request is already cancelled, the execution should not be started in this case
+     */
+    public boolean register(Runnable abortAction) {
+        if (isCancelled()) {
+            return false;
+        }
+        abortActions.add(abortAction);
+        if (cancelled.get()) {
+            abortActions.remove(abortAction);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Unregisters the given abort action after the execution finished.
+     * @param abortAction action that was registered with register()
+     */
+    public void unregister(Runnable abortAction) {
+        abortActions.remove(abortAction);
+    }
+
+    /**
+     * Adds an error to the errors of the request, e.g. a failed or aborted query of a service. Identical errors are
+     * only added once.
+     * @param error error message
+     */
+    public void addError(String error) {
+        synchronized (errors) {
+            if (!errors.contains(error)) {
+                errors.add(error);
+            }
+        }
+    }
+
+    /**
+     * Adds the error of the given failure to the errors of the request and marks the failure as reported, so that the
+     * callers waiting for the failed execution do not report it again (see isReported()).
+     * @param error error message
+     * @param failure cause of the error
+     */
+    public void addError(String error, Throwable failure) {
+        synchronized (errors) {
+            reportedFailures.add(failure);
+        }
+        addError(error);
+    }
+
+    /**
+     * Indicates if the given failure was already added to the errors of the request with addError(error, failure).
+     * @param failure cause of an error
+     * @return True if the failure is already reported, otherwise False
+     */
+    public boolean isReported(Throwable failure) {
+        synchronized (errors) {
+            return reportedFailures.contains(failure);
+        }
+    }
+
+    /**
+     * Returns the errors that occurred during the execution of the request.
+     * @return error messages
+     */
+    public List<String> getErrors() {
+        synchronized (errors) {
+            return new ArrayList<>(errors);
+        }
+    }
+}
@@ -6,19 +6,24 @@ import org.hypergraphql.datafetching.services.resultmodel.Result;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 public class ExecutionForest  {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(ExecutionForest.class);
+    static final long CANCELLATION_GRACE_PERIOD = 1000;   // time in milliseconds aborted executions have to finish after the deadline
     private boolean isRoot;
     private HashSet<ExecutionTreeNode> forest;
 
@@ -36,34 +41,99 @@ public class ExecutionForest  {
         return forest;
     }
 
-    public Result generateModel() {
+    /**
+     * Executes all ExecutionTreeNodes of this forest on the shared ExecutionScheduler and merges their results.
+     * The calling thread waits until the results of all ExecutionTreeNodes are merged. If the request has a deadline
+     * the outstanding queries are aborted at the deadline and the partial results are returned, the errors of the
+     * aborted queries are reported in the context. If the results are not merged within a grace period after the
+     * deadline (e.g. a service that can not be aborted) the request is cancelled without results.
+     * @param context ExecutionContext of the request
+     * @return merged results of all ExecutionTreeNodes of this forest
+     */
+    public Result<?> generateModel(ExecutionContext context) {
+        CompletableFuture<Result<?>> model = generateModelAsync(context);
+        if (!context.hasDeadline()) {
+            return model.join();
+        }
+        try {
+            return model.get(context.getRemainingMillis() + CANCELLATION_GRACE_PERIOD, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            context.cancel(String.format("Request deadline of %d ms exceeded, no results were returned", context.getTimeout()));
+            LOGGER.warn("Results of the request were not merged {} ms after the deadline", CANCELLATION_GRACE_PERIOD);
+            return isRoot ? new QueryRootResult(ExecutionTreeNode.ROOT_TYPE, ExecutionTreeNode.ROOT_TYPE) : null;
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    /**
+     * Executes all ExecutionTreeNodes of this forest on the shared ExecutionScheduler and merges their results in the
+     * order the ExecutionTreeNodes complete.
+     * If root batching is enabled the root ExecutionTreeNodes of the same SPARQLEndpointService are executed as one
+     * query with a UNION branch per root query, the results are demultiplexed per ExecutionTreeNode (see
+     * QueryBatcher.executeRootsAsync()).
+     * @param context ExecutionContext of the request
+     * @return Future of the merged results of all ExecutionTreeNodes of this forest
+     */
+    public CompletableFuture<Result<?>> generateModelAsync(ExecutionContext context) {
 
-        ExecutorService executor = Executors.newFixedThreadPool(10);
+        ExecutionScheduler scheduler = ExecutionScheduler.getInstance();
 //        Model model = ModelFactory.createDefaultModel();
-        AtomicReference<Result> formatedResult = new AtomicReference<>();
+        AtomicReference<Result<?>> formatedResult = new AtomicReference<>();
+        List<CompletableFuture<Result<?>>> futureResults = new ArrayList<>();
+        Set<ExecutionTreeNode> nodes = new HashSet<>(getForest());
         if(isRoot){
             formatedResult.set(new QueryRootResult(ExecutionTreeNode.ROOT_TYPE, ExecutionTreeNode.ROOT_TYPE));
         }
-        Set<Future<Result>> futureModels = new HashSet<>();
-        getForest().forEach(node -> {
-            FetchingExecution fetchingExecution = new FetchingExecution(new HashSet<>(), node);
-            futureModels.add(executor.submit(fetchingExecution));
-        });
-        futureModels.forEach(futureResult -> {
-            try {
-//                model.add(futureModel.get());
-                if(formatedResult.get() == null){
-                    formatedResult.set(futureResult.get());
-                }else{
-                    formatedResult.get().merge(futureResult.get());   //ToDo: This kind of merging does not apply correctly in the case of root queries
-                }
-            } catch (InterruptedException | ExecutionException e) {
-                LOGGER.error("Problem generating model", e);
-            }
+        if(isRoot && context.isRootBatching()){
+            QueryBatcher.rootBatches(nodes).forEach((service, batch) -> {
+                futureResults.addAll(context.getBatcher().executeRootsAsync(service, batch));
+                nodes.removeAll(batch);
+            });
+        }
+        nodes.forEach(node -> {
+            FetchingExecution fetchingExecution = new FetchingExecution(new HashSet<>(), node, context);
+            futureResults.add(scheduler.submit(fetchingExecution, context)
+                    .thenCompose(Function.identity()));
         });
-        executor.shutdown();
-        return formatedResult.get();
+        List<CompletableFuture<?>> futureModels = new ArrayList<>();
+        futureResults.forEach(futureResult -> futureModels.add(futureResult
+                .handle((result, e) -> {
+                    if (e != null) {
+                        if (context.isCancelled()) {
+                            LOGGER.debug("Execution aborted due to the cancelled request", e);
+                        } else {
+                            LOGGER.error("Problem generating model", e);
+                        }
+                        return null;
+                    }
+                    synchronized (formatedResult) {
+//                        model.add(futureModel.get());
+                        if(formatedResult.get() == null){
+                            formatedResult.set(result);
+                        }else{
+                            formatedResult.get().merge(result);   //ToDo: This kind of merging does not apply correctly in the case of root queries
+                        }
+                    }
+                    return null;
+                })));
+        return CompletableFuture.allOf(futureModels.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> formatedResult.get());
     }
+    /**
+     * Binds the given argument values to this ExecutionForest of a query plan.
+     * @param parameters argument values of the query the plan is used for, indexed by their placeholder
+     * @return copy of this ExecutionForest with the given argument values
+     */
+    ExecutionForest bind(List<Object> parameters) {
+        ExecutionForest bound = new ExecutionForest(isRoot);
+        forest.forEach(node -> bound.forest.add(node.bind(parameters)));
+        return bound;
+    }
+
 
     public String toString() {
         return this.toString(0);
@@ -20,16 +20,37 @@ public class ExecutionForestFactory {
 
     /**
      * Generate ExecutionForest for the given query by adding an ExecutionTreeNode to the forest for each field of the
-     * query
+     * query. If the QueryPlanCache is enabled the ExecutionForest is created from the cached plan of the query shape
+     * and only the argument values of the query are bound to the plan.
      * @param queryDocument valid GraphQL query
      * @param schema HGQLSchema of the query
      * @return ExecutionForest that contains ExecutionTreeNode for each field of the query
      */
     public ExecutionForest getExecutionForest(Document queryDocument , HGQLSchema schema) {
 
-        ExecutionForest forest = new ExecutionForest(true);
+        QueryPlanCache planCache = QueryPlanCache.getInstance();
+        if (!planCache.isEnabled()) {
+            return getExecutionForest(selectionSet(queryDocument), schema);
+        }
+        QueryShape shape = QueryShape.of(queryDocument);
+        ExecutionForest plan = planCache.getPlan(schema, shape, () -> getExecutionForest(shape.getSelectionSet(), schema));
+        if (shape.getParameters().isEmpty()) {
+            // the plan is not modified by the execution and can be shared if there is nothing to bind
+            return plan;
+        }
+        return plan.bind(shape.getParameters());
+    }
+
+    /**
+     * Generate ExecutionForest for the given SelectionSet by adding an ExecutionTreeNode to the forest for each field
+     * of the SelectionSet
+     * @param queryFields SelectionSet of a valid GraphQL query
+     * @param schema HGQLSchema of the query
+     * @return ExecutionForest that contains ExecutionTreeNode for each field of the query
+     */
+    private ExecutionForest getExecutionForest(SelectionSet queryFields, HGQLSchema schema) {
 
-        SelectionSet queryFields = selectionSet(queryDocument);
+        ExecutionForest forest = new ExecutionForest(true);
 
         final AtomicInteger counter = new AtomicInteger(0);
         queryFields.getSelections().forEach(child -> { // query fields - why no args?
@@ -41,6 +62,7 @@ public class ExecutionForestFactory {
 
             }
         });
+        LOGGER.debug("Generated execution plan with {} root nodes", forest.getForest().size());
         return forest;
     }
 
@@ -0,0 +1,395 @@
+package org.hypergraphql.datafetching;
+
+import org.hypergraphql.config.system.ExecutionConfig;
+import org.hypergraphql.util.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide scheduler that executes all parts of a query execution (ExecutionTreeNodes and the SPARQL queries of the
+ * services). Instead of creating new thread pools for each node and query chunk all executions share one bounded pool
+ * of named threads. If the virtual thread mode is configured and supported by the JDK each task is executed on its own
+ * virtual thread instead, the virtual threads are neither pooled nor queued.
+ * Each request is limited by the concurrency budget of its ExecutionContext. If the budget of a request is exhausted
+ * the task is executed in the calling thread instead of occupying further threads of the pool.
+ * Submitted tasks are returned as CompletableFutures, the query execution chains the dependent executions (merging,
+ * sub-queries) to these futures so that no thread of the pool is parked while waiting for another task.
+ * Threads that still need to wait for the result of a task that was not yet started execute the task themselves (see
+ * await()). This ensures that nested executions can not deadlock the bounded pool even if the nesting depth of a query
+ * exceeds the number of threads.
+ */
+public class ExecutionScheduler {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ExecutionScheduler.class);
+    private static final String THREAD_NAME_PREFIX = "ugql-exec-";
+    private static final String TIMER_THREAD_NAME_PREFIX = "ugql-timer-";
+    private static final String OVERFLOW_THREAD_NAME_PREFIX = "ugql-overflow-";
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    private static volatile ExecutionScheduler instance;
+
+    private final ExecutionConfig config;
+    private final ExecutorService executor;
+    private final ThreadPoolExecutor pool;   // bounded pool of platform threads, null in the virtual thread mode
+    private final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory(TIMER_THREAD_NAME_PREFIX));
+    // executes the delayed tasks that are rejected by the full pool, the timer thread must stay free for the timeouts
+    private final ThreadPoolExecutor overflow = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), new NamedThreadFactory(OVERFLOW_THREAD_NAME_PREFIX));
+    private final boolean virtualThreads;
+    private final AtomicInteger peakQueueDepth = new AtomicInteger(0);
+    private final AtomicLong submittedTasks = new AtomicLong(0);
+    private final AtomicLong inlineTasks = new AtomicLong(0);   // tasks executed by the caller due to an exhausted request budget
+    private final AtomicLong rejectedTasks = new AtomicLong(0);   // tasks executed by the caller due to a full queue
+    private final AtomicLong overflowTasks = new AtomicLong(0);   // delayed tasks executed by the overflow thread due to a full queue
+    private final AtomicLong helpedTasks = new AtomicLong(0);   // queued tasks executed by a thread waiting for them
+    private final AtomicInteger activeVirtualThreads = new AtomicInteger(0);
+    private final AtomicLong completedVirtualTasks = new AtomicLong(0);
+
+    ExecutionScheduler(ExecutionConfig config) {
+        this.config = config;
+        this.virtualThreads = config.useVirtualThreads() && VirtualThreads.isSupported();
+        if (virtualThreads) {
+            // virtual threads are cheap, therefore each task gets its own thread instead of waiting in a queue
+            this.pool = null;
+            this.executor = VirtualThreads.newThreadPerTaskExecutor(THREAD_NAME_PREFIX);
+        } else {
+            if (config.useVirtualThreads()) {
+                LOGGER.warn("Virtual threads are not supported by the running JDK {}, platform threads are used instead",
+                        System.getProperty("java.version"));
+            }
+            this.pool = new ThreadPoolExecutor(
+                    config.getThreads(),
+                    config.getThreads(),
+                    KEEP_ALIVE_SECONDS,
+                    TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(config.getQueueSize()),
+                    new NamedThreadFactory(THREAD_NAME_PREFIX),
+                    new CallerRunsHandler());
+            this.pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+        }
+        this.timer.setRemoveOnCancelPolicy(true);   // most timeouts are cancelled long before they expire
+        this.overflow.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Configures the process-wide scheduler. The scheduler can only be configured once, if it was already started with
+     * another configuration (e.g. multiple UGQL instances in one process) the existing scheduler is kept.
+     * @param config configuration of the scheduler, if null the default configuration is used
+     */
+    public static synchronized void configure(ExecutionConfig config) {
+        if (instance == null) {
+            instance = new ExecutionScheduler(config == null ? ExecutionConfig.defaultConfig() : config);
+            if (instance.virtualThreads) {
+                LOGGER.info("Execution scheduler started with virtual threads");
+            } else {
+                LOGGER.info("Execution scheduler started with {} threads", instance.config.getThreads());
+            }
+        } else if (config != null && config != instance.config) {
+            LOGGER.warn("Execution scheduler is already running, the execution configuration is ignored");
+        }
+    }
+
+    /**
+     * Returns the process-wide scheduler. If the scheduler was not configured before it is started with the default
+     * configuration.
+     * @return process-wide ExecutionScheduler
+     */
+    public static ExecutionScheduler getInstance() {
+        ExecutionScheduler scheduler = instance;
+        if (scheduler == null) {
+            configure(null);
+            scheduler = instance;
+        }
+        return scheduler;
+    }
+
+    /**
+     * Creates a new ExecutionContext for a request with the configured concurrency budget.
+     * @return new ExecutionContext
+     */
+    public ExecutionContext createContext() {
+        return new ExecutionContext(config);
+    }
+
+    /**
+     * Submits the given task for the request of the given context. If the concurrency budget of the request is exhausted
+     * the task is executed in the calling thread and the returned future is already completed. If the request was
+     * cancelled the task is not executed and the returned future fails with a CancellationException.
+     * The returned CompletableFuture allows to chain further executions to the task without blocking a thread while
+     * waiting for the result.
+     * @param task task to execute
+     * @param context ExecutionContext of the request the task belongs to
+     * @param <T> result type of the task
+     * @return CompletableFuture of the submitted task
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task, ExecutionContext context) {
+        submittedTasks.incrementAndGet();
+        if (context.isCancelled()) {
+            CompletableFuture<T> cancelled = new CompletableFuture<>();
+            cancelled.completeExceptionally(new CancellationException("Request was cancelled"));
+            return cancelled;
+        }
+        if (!context.tryAcquire()) {
+            inlineTasks.incrementAndGet();
+            ScheduledTask<T> inlineTask = new ScheduledTask<>(task, null);
+            inlineTask.run();
+            return inlineTask;
+        }
+        ScheduledTask<T> scheduledTask = new ScheduledTask<>(task, context);
+        execute(scheduledTask);
+        updatePeakQueueDepth();
+        return scheduledTask;
+    }
+
+    /**
+     * Executes the given task on the pool or, in the virtual thread mode, on a new virtual thread.
+     * @param task task to execute
+     */
+    private void execute(Runnable task) {
+        if (pool != null) {
+            pool.execute(task);
+            return;
+        }
+        activeVirtualThreads.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                activeVirtualThreads.decrementAndGet();
+                completedVirtualTasks.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Waits for the result of the given future. If the task of the future is still waiting in the queue it is removed
+     * from the queue and executed in the calling thread.
+     * Note: Only intended for callers that need the result synchronously, executions within the query execution should
+     *       chain their work to the returned CompletableFuture of submit() instead.
+     * @param future Future returned by submit()
+     * @param <T> result type of the task
+     * @return result of the task
+     * @throws InterruptedException if the waiting thread was interrupted
+     * @throws ExecutionException if the task failed
+     */
+    public <T> T await(Future<T> future) throws InterruptedException, ExecutionException {
+        runIfQueued(future);
+        return future.get();
+    }
+
+    /**
+     * If the task of the given future is still waiting in the queue it is removed from the queue and executed in the
+     * calling thread. Used by threads that are about to wait for the given future to make sure that the task does not
+     * wait for a free thread of the pool.
+     * @param future Future returned by submit()
+     */
+    public void runIfQueued(Future<?> future) {
+        if (pool != null && future instanceof ScheduledTask && !future.isDone() && pool.remove((Runnable) future)) {
+            helpedTasks.incrementAndGet();
+            ((ScheduledTask<?>) future).run();
+        }
+    }
+
+    /**
+     * Executes the given task on the pool of the scheduler after the given delay. The task is not bound to the
+     * concurrency budget of a request, therefore it should only start further executions (e.g. a batch of queries
+     * collected during the delay) and not wait for them.
+     * The task is never executed on the timer thread: if the queue of the pool is full the task is queued for the
+     * overflow thread instead of being executed by the caller, so that it can not delay the timeouts of the timer.
+     * @param task task to execute
+     * @param delayMillis delay in milliseconds
+     */
+    public void schedule(Runnable task, long delayMillis) {
+        timer.schedule(() -> execute(new DelayedTask(task)), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes the given action on the timer thread of the scheduler after the given delay unless the returned future
+     * is cancelled before. Intended for short actions like aborting an execution that exceeded its time limit.
+     * @param action short action that does not block
+     * @param delayMillis delay in milliseconds
+     * @return Future of the scheduled action, cancel it if the action is no longer needed
+     */
+    public ScheduledFuture<?> scheduleTimeout(Runnable action, long delayMillis) {
+        return timer.schedule(action, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Indicates if the tasks are executed on virtual threads.
+     * @return True if the scheduler uses virtual threads, otherwise False
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Number of tasks waiting in the queue for a worker thread. Tasks are never queued in the virtual thread mode.
+     * @return current queue depth
+     */
+    public int getQueueDepth() {
+        return pool == null ? 0 : pool.getQueue().size();
+    }
+
+    /**
+     * Highest observed queue depth since the start of the scheduler.
+     * @return peak queue depth
+     */
+    public int getPeakQueueDepth() {
+        return peakQueueDepth.get();
+    }
+
+    /**
+     * Number of worker threads that currently execute a task.
+     * @return number of active threads
+     */
+    public int getActiveThreads() {
+        return pool == null ? activeVirtualThreads.get() : pool.getActiveCount();
+    }
+
+    /**
+     * Returns the current metrics of the scheduler.
+     * @return Map with the metric name as key and the metric value as value
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("threadMode", virtualThreads ? ExecutionConfig.THREAD_MODE_VIRTUAL : ExecutionConfig.THREAD_MODE_PLATFORM);
+        metrics.put("threads", virtualThreads ? getActiveThreads() : config.getThreads());
+        metrics.put("poolSize", pool == null ? getActiveThreads() : pool.getPoolSize());
+        metrics.put("activeThreads", getActiveThreads());
+        metrics.put("queueDepth", getQueueDepth());
+        metrics.put("peakQueueDepth", getPeakQueueDepth());
+        metrics.put("submittedTasks", submittedTasks.get());
+        metrics.put("completedTasks", pool == null ? completedVirtualTasks.get() : pool.getCompletedTaskCount());
+        metrics.put("inlineTasks", inlineTasks.get());
+        metrics.put("rejectedTasks", rejectedTasks.get());
+        metrics.put("overflowTasks", overflowTasks.get());
+        metrics.put("helpedTasks", helpedTasks.get());
+        return metrics;
+    }
+
+    private void updatePeakQueueDepth() {
+        int depth = getQueueDepth();
+        int peak = peakQueueDepth.get();
+        while (depth > peak && !peakQueueDepth.compareAndSet(peak, depth)) {
+            peak = peakQueueDepth.get();
+        }
+    }
+
+    /**
+     * CompletableFuture that is completed by executing its task. Releases the reserved slot of the concurrency budget
+     * of the request after the execution and before the future is completed.
+     * @param <T> result type of the task
+     */
+    private static class ScheduledTask<T> extends CompletableFuture<T> implements Runnable {
+
+        private final Callable<T> task;
+        private final ExecutionContext context;   // null if no slot of the budget was reserved for this task
+        private final AtomicBoolean started = new AtomicBoolean(false);
+
+        ScheduledTask(Callable<T> task, ExecutionContext context) {
+            this.task = task;
+            this.context = context;
+        }
+
+        @Override
+        public void run() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            T result = null;
+            Throwable error = null;
+            try {
+                result = task.call();
+            } catch (Throwable e) {
+                error = e;
+            } finally {
+                if (context != null) {
+                    context.release();   // release before completion so that dependent stages can use the slot
+                }
+            }
+            if (error != null) {
+                completeExceptionally(error);
+            } else {
+                complete(result);
+            }
+        }
+    }
+
+    /**
+     * Task that is submitted by the timer thread after the delay of schedule().
+     */
+    private static class DelayedTask implements Runnable {
+
+        private final Runnable task;
+
+        DelayedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+
+    /**
+     * Executes rejected tasks in the calling thread. Tasks are only rejected if the queue is full. Delayed tasks are
+     * submitted by the timer thread, they are handed to the overflow thread instead.
+     */
+    private class CallerRunsHandler implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                return;
+            }
+            if (runnable instanceof DelayedTask) {
+                overflowTasks.incrementAndGet();
+                overflow.execute(runnable);
+                return;
+            }
+            rejectedTasks.incrementAndGet();
+            runnable.run();
+        }
+    }
+
+    /**
+     * ThreadFactory creating daemon threads with the given name prefix and an increasing number.
+     */
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger(0);
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -10,7 +10,6 @@ import org.hypergraphql.config.schema.HGQLVocabulary;
 import org.hypergraphql.config.schema.TypeConfig;
 import org.hypergraphql.datafetching.services.ManifoldService;
 import org.hypergraphql.datafetching.services.Service;
-import org.hypergraphql.datafetching.services.resultmodel.ObjectResult;
 import org.hypergraphql.datafetching.services.resultmodel.Result;
 import org.hypergraphql.datamodel.HGQLSchema;
 import org.hypergraphql.exception.HGQLConfigurationException;
@@ -23,12 +22,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static org.hypergraphql.config.schema.HGQLVocabulary.HGQL_ID;
@@ -103,6 +99,10 @@ public class ExecutionTreeNode {
 
     public Query getQuery() { return query; }
 
+    public HGQLSchema getHgqlSchema() {
+        return hgqlSchema;
+    }
+
     public String getExecutionId() {
         return executionId;
     }
@@ -190,6 +190,34 @@ public class ExecutionTreeNode {
         this.ldContext.putAll(HGQLVocabulary.JSONLD);
     }
 
+    /**
+     * Creates a copy of the given ExecutionTreeNode of a cached query plan (see QueryPlanCache) in which the
+     * placeholders of the argument values are replaced with the given parameters. The plan itself is not modified,
+     * the copy shares the service, schema and ldContext with the plan.
+     * @param plan ExecutionTreeNode of a query plan
+     * @param parameters argument values of the query the plan is used for, indexed by their placeholder
+     */
+    private ExecutionTreeNode(ExecutionTreeNode plan, List<Object> parameters) {
+
+        this.service = plan.service;
+        this.executionId = plan.executionId;
+        this.childrenNodes = new HashMap<>();
+        plan.childrenNodes.forEach((marker, forest) -> this.childrenNodes.put(marker, forest.bind(parameters)));
+        this.ldContext = plan.ldContext;
+        this.rootType = plan.rootType;
+        this.hgqlSchema = plan.hgqlSchema;
+        this.query = QueryShape.bind(plan.query, parameters);
+    }
+
+    /**
+     * Binds the given argument values to this ExecutionTreeNode of a query plan.
+     * @param parameters argument values of the query the plan is used for, indexed by their placeholder
+     * @return copy of this ExecutionTreeNode and its childrenNodes with the given argument values
+     */
+    ExecutionTreeNode bind(List<Object> parameters) {
+        return new ExecutionTreeNode(this, parameters);
+    }
+
 
     public String toString(int i) {
 
@@ -560,49 +588,52 @@ public class ExecutionTreeNode {
         Map<String, Object> argNode = new HashMap<>();
 
         for (Argument arg : args) {
-
-            Value val = arg.getValue();
-            String type = val.getClass().getSimpleName();
-
-            switch (type) {
-                case "IntValue": {
-                    long value = ((IntValue) val).getValue().longValueExact();
-                    argNode.put(arg.getName(), value);
-                    break;
-                }
-                case "StringValue": {
-                    String value = ((StringValue) val).getValue();
-                    argNode.put(arg.getName(), value);
-                    break;
-                }
-                case "BooleanValue": {
-                    boolean value = ((BooleanValue) val).isValue();
-                    argNode.put(arg.getName(), value);
-                    break;
-                }
-                case "ArrayValue": {
-                    List<Node> nodes = val.getChildren();
-//                    ArrayNode arrayNode = mapper.createArrayNode();
-                    List<String> arrayNode = new ArrayList<>();
-                    for (Node node : nodes)  {
-                        String value = ((StringValue) node).getValue();
-                        arrayNode.add(value);
-                    }
-                    argNode.put(arg.getName(), arrayNode);
-                    break;
-                }
-                case "EnumValue":{
-                    EnumValue enum_value = ((EnumValue) val);
-                    argNode.put(arg.getName(), enum_value.getName());
-                }
+            Object value = getArgValue(arg.getValue());
+            if (value != null) {
+                argNode.put(arg.getName(), value);
             }
-
         }
 
         return argNode;
     }
 
 
+    /**
+     * Maps the given GraphQL argument value to the value used in the JSON representation of the arguments.
+     * @param val GraphQL argument value
+     * @return value of the JSON representation or null if the type of the value is not supported
+     */
+    static Object getArgValue(Value<?> val) {
+
+        String type = val.getClass().getSimpleName();
+
+        switch (type) {
+            case "IntValue": {
+                return ((IntValue) val).getValue().longValueExact();
+            }
+            case "StringValue": {
+                return ((StringValue) val).getValue();
+            }
+            case "BooleanValue": {
+                return ((BooleanValue) val).isValue();
+            }
+            case "ArrayValue": {
+                List<Node> nodes = val.getChildren();
+                List<String> arrayNode = new ArrayList<>();
+                for (Node node : nodes)  {
+                    String value = ((StringValue) node).getValue();
+                    arrayNode.add(value);
+                }
+                return arrayNode;
+            }
+            case "EnumValue":{
+                return ((EnumValue) val).getName();
+            }
+            default:
+                return null;
+        }
+    }
+
     /**
      * Generates a mapping of the services, needed for the selectionSet, to a Set of fields from the selectionSet using
      * these services.
@@ -689,58 +720,42 @@ public class ExecutionTreeNode {
     /**
      * Generates the result for the query of this object by executing the query and requesting the results of the childNodes
      * (sub-queries with different service id). The result of the query and the results of the childNodes are than merged
-     * to a complete result and returned.
+     * to a complete result.
+     * The execution is asynchronous, the childNodes are started when the IRIs of their markers are available and their
+     * results are merged in the order they complete.
+     * If pipelining is enabled in the ExecutionContext the childNodes are dispatched with batches of the chunk size of
+     * their services while the results of the query are still streamed from the service. Otherwise the childNodes are dispatched
+     * with all IRIs after the query is executed.
+     * The query is executed over the QueryBatcher of the request, which may combine it with equal queries of other
+     * ExecutionTreeNodes of the request.
      * @param input Input values (IRIs) of a parent query that limit the results of this query
-     * @return Results for the query and 
+     * @param context ExecutionContext of the request
+     * @return Future of the results for the query and the sub-queries
      */
-    Result generateTreeModel(Set<String> input) {
-
-        TreeExecutionResult executionResult = service.executeQuery(query, input,  childrenNodes.keySet() , rootType, hgqlSchema);
-
-        Map<String,Set<String>> resultSet = executionResult.getResultSet();
-        AtomicReference<Result> formatedResult = new AtomicReference<>(executionResult.getFormatedResult());
-
-        Set<Result> computedModels = new HashSet<>();
-        Set<String> vars = resultSet.keySet();
-
-        ExecutorService executor = Executors.newFixedThreadPool(50);
-        Set<Future<Result>> futureModels = new HashSet<>();
+    CompletableFuture<Result<?>> generateTreeModel(Set<String> input, ExecutionContext context) {
+        return generateTreeModel(context, dispatcher -> context.getBatcher().executeQueryAsync(service, query, input,
+                childrenNodes.keySet(), rootType, hgqlSchema, dispatcher));
+    }
 
-        vars.forEach(var ->{
-            ExecutionForest executionChildren = this.childrenNodes.get(var);
-            if (executionChildren.getForest().size() > 0) {
-                Set<String> values = resultSet.get(var);
-                executionChildren.getForest().forEach(node -> {
-                    FetchingExecution childExecution = new FetchingExecution(values, node);
-                    futureModels.add(executor.submit(childExecution));
+    /**
+     * Generates the result for the query of this object like generateTreeModel(input, context) but with the given
+     * execution of the query, used if the query is executed together with the queries of other ExecutionTreeNodes
+     * (see QueryBatcher.executeRootsAsync()).
+     * @param context ExecutionContext of the request
+     * @param execution Executes the query, receives the dispatcher of the childNodes if pipelining is enabled,
+     *                  otherwise null
+     * @return Future of the results for the query and the sub-queries
+     */
+    CompletableFuture<Result<?>> generateTreeModel(ExecutionContext context, Function<ChildExecutionDispatcher, CompletableFuture<TreeExecutionResult>> execution) {
+
+        ChildExecutionDispatcher dispatcher = new ChildExecutionDispatcher(childrenNodes, context);
+        return execution.apply(context.isPipelining() ? dispatcher : null)
+                .thenCompose(executionResult -> {
+                    Map<String,Set<String>> resultSet = executionResult.getResultSet();
+                    // IRIs that were already dispatched during the streaming are skipped by the dispatcher
+                    dispatcher.dispatchAll(resultSet);
+                    dispatcher.flush(resultSet.keySet());
+                    return dispatcher.mergeResults(executionResult.getFormatedResult());
                 });
-            }
-        });
-
-        futureModels.forEach(futureModel -> {
-            try {
-                computedModels.add(futureModel.get());
-            } catch (InterruptedException
-                    | ExecutionException e) {
-                LOGGER.error("Problem adding execution result", e);
-            }
-        });
-        for (Result result : computedModels) {
-            if (formatedResult.get() == null) {
-                formatedResult.set(result);
-            } else {
-                if(result != null){
-                    if (formatedResult.get().getNodeId().equals(result.getNodeId())) {
-                        formatedResult.get().merge(result);
-                    } else {
-                        if (formatedResult.get() instanceof ObjectResult) {
-                            ((ObjectResult) formatedResult.get()).deepSubfieldMerge(result);
-                        }
-                    }
-                }
-            }
-        }
-        executor.shutdown();
-        return formatedResult.get();
     }
 }
@@ -4,24 +4,27 @@ import org.hypergraphql.datafetching.services.resultmodel.Result;
 
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Wrapper Class for ExecutionTreeNode to make the class a callable class.
- * A call forwards to the generateTreeModel method.
+ * A call forwards to the generateTreeModel method and returns the future of the result of the node.
  */
-public class FetchingExecution implements Callable<Result> {
+public class FetchingExecution implements Callable<CompletableFuture<Result<?>>> {
 
     private Set<String> inputValues;
     private ExecutionTreeNode node;
+    private ExecutionContext context;
 
-    public FetchingExecution(Set<String> inputValues, ExecutionTreeNode node) {
+    public FetchingExecution(Set<String> inputValues, ExecutionTreeNode node, ExecutionContext context) {
 
         this.inputValues = inputValues;
         this.node = node;
+        this.context = context;
     }
-    
+
     @Override
-    public Result call() {
-        return node.generateTreeModel(inputValues);
+    public CompletableFuture<Result<?>> call() {
+        return node.generateTreeModel(inputValues, context);
     }
 }
@@ -0,0 +1,134 @@
+package org.hypergraphql.datafetching;
+
+import org.hypergraphql.datafetching.services.resultmodel.ObjectResult;
+import org.hypergraphql.datafetching.services.resultmodel.Result;
+import org.hypergraphql.query.converters.SPARQLServiceConverter;
+import org.hypergraphql.query.pattern.Query;
+import org.hypergraphql.query.pattern.QueryPattern;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the distinct entities produced by the executions of a root query with a limit. The limit and offset of a root
+ * query are applied to the merged results of all VALUES chunks and services, without order any offset + limit entities
+ * are a valid result. Once the executions produced this many entities the limit is satisfied: executions that did not
+ * start yet are skipped and the running executions are aborted as they are not needed for further entities. The
+ * services of the skipped and aborted executions are recorded, a field with multiple services queries them again for
+ * the selected entities (see ManifoldService), so that their values of these entities are not lost.
+ * Nested fields are not tracked, their limit applies to the values of each parent entity.
+ */
+public class LimitTracker {
+
+    private final long required;
+    private final Set<String> entities = ConcurrentHashMap.newKeySet();
+    private final Set<Runnable> abortActions = ConcurrentHashMap.newKeySet();
+    private final Set<String> skippedServices = ConcurrentHashMap.newKeySet();   // ids of the services with skipped or aborted executions
+    private volatile boolean satisfied = false;
+
+    /**
+     * Initializes a tracker that is satisfied with the given number of distinct entities.
+     * @param required number of entities needed to apply the limit and offset of the query
+     */
+    public LimitTracker(long required) {
+        this.required = required;
+        this.satisfied = required <= 0;
+    }
+
+    /**
+     * Returns the number of distinct entities the given query needs to apply its limit and offset, i.e. offset + limit.
+     * Only root queries with a limit and without order can be stopped early, ordered results depend on all entities.
+     * @param query query or sub-query to be executed
+     * @param rootType type of the query root
+     * @return offset + limit, -1 if the executions of the query can not be stopped early
+     */
+    static long requiredEntities(Query query, String rootType) {
+        if (!ExecutionTreeNode.ROOT_TYPE.equals(rootType) || !(query instanceof QueryPattern)) {
+            return -1;
+        }
+        Map<String, Object> args = ((QueryPattern) query).args;
+        if (args == null || !args.containsKey(SPARQLServiceConverter.LIMIT) || args.containsKey(SPARQLServiceConverter.ORDER)) {
+            return -1;
+        }
+        long offset = args.containsKey(SPARQLServiceConverter.OFFSET) ? ((Number) args.get(SPARQLServiceConverter.OFFSET)).longValue() : 0;
+        return offset + ((Number) args.get(SPARQLServiceConverter.LIMIT)).longValue();
+    }
+
+    /**
+     * Records the entities of the given result of one execution. If the limit is satisfied with these entities the
+     * registered executions are aborted.
+     * @param result result of one execution of the query, may be null
+     */
+    public void record(Result<?> result) {
+        if (satisfied || !(result instanceof ObjectResult)) {
+            return;
+        }
+        entities.addAll(((ObjectResult) result).getObjects());
+        if (entities.size() >= required) {
+            satisfied = true;
+            abortActions.forEach(Runnable::run);
+        }
+    }
+
+    /**
+     * Indicates if the executions of the query produced enough entities.
+     * @return True if further executions of the query are not needed, otherwise False
+     */
+    public boolean isSatisfied() {
+        return satisfied;
+    }
+
+    /**
+     * Returns the distinct entities recorded so far, after the limit is satisfied these are the selected entities.
+     * @return IRIs of the recorded entities
+     */
+    public Set<String> getEntities() {
+        return new HashSet<>(entities);
+    }
+
+    /**
+     * Records that an execution of the given service was skipped or aborted because the limit is satisfied, the
+     * results of the service may lack values of the selected entities.
+     * @param serviceId id of the service
+     */
+    public void skipped(String serviceId) {
+        skippedServices.add(serviceId);
+    }
+
+    /**
+     * Indicates if an execution of the given service was skipped or aborted because the limit is satisfied.
+     * @param serviceId id of the service
+     * @return True if the results of the service may lack values of the selected entities, otherwise False
+     */
+    public boolean isSkipped(String serviceId) {
+        return skippedServices.contains(serviceId);
+    }
+
+    /**
+     * Registers the given abort action of a running execution of the query. The action is executed if the limit is
+     * satisfied before the action is unregistered.
+     * @param abortAction action that aborts the execution, e.g. aborting the HTTP request
+     * @return False if the limit is already satisfied, the execution should not be started in this case
+     */
+    public boolean register(Runnable abortAction) {
+        if (satisfied) {
+            return false;
+        }
+        abortActions.add(abortAction);
+        if (satisfied) {
+            abortActions.remove(abortAction);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Unregisters the given abort action after the execution finished.
+     * @param abortAction action that was registered with register()
+     */
+    public void unregister(Runnable abortAction) {
+        abortActions.remove(abortAction);
+    }
+}
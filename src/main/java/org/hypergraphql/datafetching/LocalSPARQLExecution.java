@@ -7,10 +7,10 @@ import org.apache.jena.query.QueryExecutionFactory;
 import org.apache.jena.query.QueryFactory;
 import org.apache.jena.query.ResultSet;
 import org.apache.jena.rdf.model.Model;
+import org.hypergraphql.datafetching.services.ConstructGraph;
 import org.hypergraphql.datafetching.services.SPARQLEndpointService;
 import org.hypergraphql.datafetching.services.resultmodel.Result;
 import org.hypergraphql.datamodel.HGQLSchema;
-import org.hypergraphql.query.converters.SPARQLServiceConverter;
 import org.hypergraphql.query.pattern.Query;
 
 
@@ -18,6 +18,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -34,7 +35,7 @@ public class LocalSPARQLExecution extends SPARQLEndpointExecution {
     /**
      *
      * @param query query or sub-query to be executed
-     * @param inputSubset Possible IRIs of the parent query that are used to limit the results of this query/sub-query. Should be below the defined value limit (VALUES_SIZE_LIMIT)
+     * @param inputSubset Possible IRIs of the parent query that are used to limit the results of this query/sub-query. Should be below the chunk size of the service
      * @param markers variables for the SPARQL query
      * @param sparqlEndpointService Service object with data model, query is executed on this model
      * @param schema HGQLSchema the query is based on
@@ -48,37 +49,90 @@ public class LocalSPARQLExecution extends SPARQLEndpointExecution {
     }
 
     /**
-     * Executes the query assigned to the object and builds-up the formatted result
+     *
+     * @param query query or sub-query to be executed
+     * @param inputSubset Possible IRIs of the parent query that are used to limit the results of this query/sub-query. Should be below the chunk size of the service
+     * @param markers variables for the SPARQL query
+     * @param sparqlEndpointService Service object with data model, query is executed on this model
+     * @param schema HGQLSchema the query is based on
+     * @param localmodel Local data model the query will be executed on
+     * @param rootType type of the query root
+     * @param dispatcher Dispatcher that receives the IRIs of the markers while the results are streamed, may be null
+     */
+    public LocalSPARQLExecution(Query query, Set<String> inputSubset, Set<String> markers, SPARQLEndpointService sparqlEndpointService, HGQLSchema schema , Dataset localmodel, String rootType, ChildExecutionDispatcher dispatcher) {
+        this(query, inputSubset, markers, sparqlEndpointService, schema, localmodel, rootType);
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Executes the query assigned to the object and builds-up the formatted result.
+     * The query execution is limited by the timeout of the service and the deadline of the request and is aborted if
+     * the request is cancelled. If the limit of the query is satisfied by other executions the execution is skipped or
+     * aborted and returns an empty result.
      * @return Query results and IRIs for underlying queries
      */
     @Override
     public SPARQLExecutionResult call() {
 
+        if (isLimitSatisfied()) {
+            return skippedResult();
+        }
+
         Map<String, Set<String>> resultSet = new HashMap<>();
         markers.forEach(marker -> resultSet.put(marker, new HashSet<>()));
 
-        AtomicReference<Result> formatedResults = new AtomicReference<>();
+        AtomicReference<Result<?>> formatedResults = new AtomicReference<>();
 
-        SPARQLServiceConverter converter = new SPARQLServiceConverter(schema);
-        String sparqlQuery = converter.getSelectQuery(query, inputSubset, rootType, serviceId);
+        String sparqlQuery = getSparqlQuery();
         LOGGER.debug("Service: {}; Query: {}", serviceId,sparqlQuery);
         org.apache.jena.query.Query jenaQuery = QueryFactory.create(sparqlQuery);
 
         QueryExecution qexec = QueryExecutionFactory.create(jenaQuery, model);
-        ResultSet results = qexec.execSelect();
-        results.forEachRemaining(solution -> {
-            markers.stream()
-                    .filter(solution::contains)
-                    .forEach(marker -> resultSet.get(marker).add(solution.get(marker).asResource().getURI()));
-
-            Result partialRes = this.sparqlEndpointService.getModelFromResults(query, solution, schema);
-            if(formatedResults.get() == null){
-                formatedResults.set(partialRes);
-            }else{
-                formatedResults.get().merge(partialRes);
+        long timeLimit = context == null ? sparqlEndpointService.getTimeout() : context.getTimeLimit(sparqlEndpointService.getTimeout());
+        if (timeLimit > 0) {
+            qexec.setTimeout(timeLimit);
+        }
+        Runnable abort = qexec::abort;
+        if (!register(abort)) {
+            qexec.close();
+            if (isLimitSatisfied()) {
+                return skippedResult();
+            }
+            throw new CancellationException("Request was cancelled before the query was executed on service " + serviceId);
+        }
+        try {
+            if (sparqlEndpointService.isConstructMode()) {
+                ConstructGraph graph = new ConstructGraph();
+                qexec.execConstructTriples().forEachRemaining(graph::triple);
+                graph.walk(query, solution -> handleSolution(solution, resultSet, formatedResults));
+                logRowCount(graph.size(), formatedResults.get());
+            } else {
+                ResultSet results = qexec.execSelect();
+                results.forEachRemaining(solution -> handleSolution(solution, resultSet, formatedResults));
+                logRowCount(results.getRowNumber(), formatedResults.get());
+            }
+        } catch (QueryCancelledException e) {
+            if (isLimitSatisfied()) {
+                return skippedResult();
+            }
+            if (context == null || !context.isCancelled() || context.getRemainingMillis() == 0) {
+                onTimeLimitExceeded();   // cancelled by the timeout of the query execution
+            }
+            reportError(e);
+            throw e;
+        } catch (RuntimeException e) {
+            if (isLimitSatisfied()) {
+                return skippedResult();
             }
-        });
-        qexec.close();
+            reportError(e);
+            throw e;
+        } finally {
+            qexec.close();
+            unregister(abort);
+        }
+        if (limitTracker != null) {
+            limitTracker.record(formatedResults.get());
+        }
         return new SPARQLExecutionResult(resultSet, formatedResults.get());
     }
 
@@ -0,0 +1,442 @@
+package org.hypergraphql.datafetching;
+
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.RDFNode;
+import org.hypergraphql.datafetching.services.RowMapper;
+import org.hypergraphql.datafetching.services.SPARQLEndpointService;
+import org.hypergraphql.datafetching.services.Service;
+import org.hypergraphql.datafetching.services.resultmodel.Result;
+import org.hypergraphql.datafetching.services.resultmodel.ResultDictionary;
+import org.hypergraphql.datamodel.HGQLSchema;
+import org.hypergraphql.query.converters.SPARQLServiceConverter;
+import org.hypergraphql.query.pattern.Query;
+import org.hypergraphql.query.pattern.QueryPattern;
+import org.hypergraphql.query.pattern.SubQueriesPattern;
+import org.hypergraphql.query.pattern.UnionPattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DataLoader-style batching of the queries of the ExecutionTreeNodes of one request.
+ * If the same type is queried in several branches of a query (e.g. the author of books and the author of articles)
+ * each branch is an own ExecutionTreeNode that queries the same service with overlapping IRIs. The QueryBatcher
+ * collects the sub-queries of a request with the same service, root type and fields (ignoring aliases and SPARQL
+ * variables) for the configured batch window. The collected sub-queries are executed as one query with the
+ * deduplicated IRIs of all sub-queries. Each solution of this query is handed to the sub-queries whose input contains
+ * the parent IRI of the solution, with the SPARQL variables renamed to the variables of the sub-query, so that each
+ * ExecutionTreeNode receives the same results and marker IRIs as with an own query.
+ * Only sub-queries of SPARQLEndpointServices without limit, offset and order arguments are batched, as the results of
+ * these arguments depend on the whole input of the query. All other queries are directly executed by their service.
+ * The root queries of a request are not restricted by a parent query, the root queries of the same service are
+ * therefore executed as one query with a UNION branch per root query if root batching is enabled (see executeRootsAsync()).
+ */
+public class QueryBatcher {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(QueryBatcher.class);
+
+    private static final AtomicLong BATCHES = new AtomicLong(0);   // executed batches with more than one sub-query
+    private static final AtomicLong BATCHED_QUERIES = new AtomicLong(0);   // sub-queries executed as part of a batch
+    private static final AtomicLong DEDUPLICATED_IRIS = new AtomicLong(0);   // IRIs not queried again due to the batching
+    private static final AtomicLong ROOT_BATCHES = new AtomicLong(0);   // executed queries with more than one root query
+    private static final AtomicLong BATCHED_ROOTS = new AtomicLong(0);   // root queries executed as part of a root batch
+
+    private final ExecutionContext context;
+    private final int window;
+    private final Map<String, Batch> openBatches = new HashMap<>();
+
+    /**
+     * Initializes the batcher of one request.
+     * @param context ExecutionContext of the request
+     * @param window Time in milliseconds the sub-queries are collected before a batch is executed, 0 disables the batching
+     */
+    QueryBatcher(ExecutionContext context, int window) {
+        this.context = context;
+        this.window = window;
+    }
+
+    /**
+     * Executes the given query with the given service. If the query can be batched it is added to the open batch of
+     * equal queries and executed with this batch after the batch window.
+     * @param service Service the query is executed on
+     * @param query query or sub-query to be executed
+     * @param input Possible IRIs of the parent query that are used to limit the results of this query/sub-query
+     * @param markers variables for the SPARQL query
+     * @param rootType type of the query root
+     * @param schema HGQLSchema the query is based on
+     * @param dispatcher Dispatcher of the sub-queries, may be null
+     * @return Future of the query results and IRIs for underlying queries
+     */
+    CompletableFuture<TreeExecutionResult> executeQueryAsync(Service service, Query query, Set<String> input, Set<String> markers, String rootType, HGQLSchema schema, ChildExecutionDispatcher dispatcher) {
+
+        String shape = window > 0 && service instanceof SPARQLEndpointService && !input.isEmpty() ? shape(query) : null;
+        if (shape == null) {
+            return service.executeQueryAsync(query, input, markers, rootType, schema, context, dispatcher);
+        }
+        String key = service.getId() + "|" + rootType + "|" + shape;
+        BatchMember member = new BatchMember(query, input, markers, dispatcher, schema);
+        Batch batch;
+        boolean opened = false;
+        synchronized (openBatches) {
+            batch = openBatches.get(key);
+            if (batch == null) {
+                batch = new Batch((SPARQLEndpointService) service, rootType, schema);
+                openBatches.put(key, batch);
+                opened = true;
+            }
+            batch.members.add(member);
+        }
+        if (opened) {
+            final Batch scheduledBatch = batch;
+            ExecutionScheduler.getInstance().schedule(() -> {
+                synchronized (openBatches) {
+                    openBatches.remove(key, scheduledBatch);
+                }
+                scheduledBatch.execute();
+            }, window);
+        }
+        return member.future;
+    }
+
+    /**
+     * Groups the given root ExecutionTreeNodes of a request by their service. Only services with more than one root
+     * query that can be executed as UNION branch are returned (see isRootBatchable()).
+     * @param nodes root ExecutionTreeNodes of a request
+     * @return Map with the service as key and its root ExecutionTreeNodes as value
+     */
+    static Map<SPARQLEndpointService, List<ExecutionTreeNode>> rootBatches(Collection<ExecutionTreeNode> nodes) {
+
+        Map<SPARQLEndpointService, List<ExecutionTreeNode>> batches = new LinkedHashMap<>();
+        nodes.stream()
+                .filter(node -> isRootBatchable(node.getService(), node.getQuery()))
+                .forEach(node -> batches.computeIfAbsent((SPARQLEndpointService) node.getService(), service -> new ArrayList<>()).add(node));
+        batches.values().removeIf(batch -> batch.size() < 2);
+        return batches;
+    }
+
+    /**
+     * Indicates if the given root query can be executed as UNION branch of a query with other root queries of the
+     * given service. Ordered root queries are merged in order over all VALUES chunks (see ObjectResult.mergeOrdered())
+     * and root queries with more ids than the chunk size of the service are split into several VALUES chunks, both are
+     * executed on their own. Services with the construct fetch mode translate their triples along the fields of one
+     * query, their root queries are also executed on their own. The batched query is only coalesced with equal batched
+     * queries (see SingleFlight.stream()) and bypasses the ResultCache of the service, therefore the root queries of
+     * services with an enabled ResultCache are executed on their own so that each of them is served from the cache.
+     * @param service service of the root query
+     * @param query root query
+     * @return True if the query can be batched, otherwise False
+     */
+    static boolean isRootBatchable(Service service, Query query) {
+
+        if (!(service instanceof SPARQLEndpointService) || ((SPARQLEndpointService) service).isConstructMode()
+                || ((SPARQLEndpointService) service).getResultCache().isEnabled() || !(query instanceof QueryPattern)) {
+            return false;
+        }
+        Map<String, Object> args = ((QueryPattern) query).args;
+        if (args.containsKey(SPARQLServiceConverter.ORDER)) {
+            return false;
+        }
+        Object ids = args.get(SPARQLServiceConverter.ID);
+        return ids == null || (ids instanceof Collection
+                && ((Collection<?>) ids).size() <= ((SPARQLEndpointService) service).getChunkSizer().getChunkSize());
+    }
+
+    /**
+     * Executes the root queries of the given ExecutionTreeNodes as one query of the given service with a UNION branch
+     * per root query (see SPARQLServiceConverter.getSelectRoots()). The SPARQL variables of the root queries are
+     * distinct, each solution of the query is handed to the root query whose root variable is bound. The results of
+     * each root query are built like with an own query and the childNodes of each ExecutionTreeNode are dispatched
+     * with the IRIs of its markers, equal sub-queries of the childNodes are again combined with executeQueryAsync().
+     * @param service Service of the root queries
+     * @param nodes root ExecutionTreeNodes of the service (see rootBatches())
+     * @return Futures of the results of the given ExecutionTreeNodes and their childNodes in the order of the nodes
+     */
+    List<CompletableFuture<Result<?>>> executeRootsAsync(SPARQLEndpointService service, List<ExecutionTreeNode> nodes) {
+
+        List<BatchMember> members = new ArrayList<>();
+        List<QueryPattern> roots = new ArrayList<>();
+        List<CompletableFuture<Result<?>>> results = new ArrayList<>();
+        for (ExecutionTreeNode node : nodes) {
+            results.add(node.generateTreeModel(context, dispatcher -> {
+                BatchMember member = new BatchMember(node.getQuery(), new HashSet<>(), node.getChildrenNodes().keySet(), dispatcher, node.getHgqlSchema());
+                members.add(member);
+                return member.future;
+            }));
+            roots.add((QueryPattern) node.getQuery());
+        }
+        ROOT_BATCHES.incrementAndGet();
+        BATCHED_ROOTS.addAndGet(members.size());
+        LOGGER.debug("Execute {} root queries as one query at service {}", members.size(), service.getId());
+        service.executeSolutionsAsync(new UnionPattern(roots), new HashSet<>(), ExecutionTreeNode.ROOT_TYPE, nodes.get(0).getHgqlSchema(), context, solution -> {
+            for (int i = 0; i < roots.size(); i++) {
+                if (solution.contains(roots.get(i).nodeId)) {
+                    members.get(i).accept(solution, context.getDictionary());
+                    return;
+                }
+            }
+        }).whenComplete((v, e) -> {
+            reportFailure(service, e);
+            members.forEach(BatchMember::complete);
+        });
+        return results;
+    }
+
+    /**
+     * Adds the failure of a batched query to the errors of the request. Failures of the query executions are reported
+     * by the executions themselves (see SPARQLEndpointExecution.reportError()), failures before or outside of the
+     * executions (e.g. query generation or submission) are reported here.
+     * @param service service of the batched query
+     * @param e failure of the batched query, null if the query succeeded
+     */
+    private void reportFailure(SPARQLEndpointService service, Throwable e) {
+        if (e == null || context.isCancelled()) {
+            return;
+        }
+        Throwable cause = e;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (!context.isReported(cause)) {
+            context.addError(String.format("Query at service %s failed: %s", service.getId(), cause.getMessage()), cause);
+        }
+    }
+
+    /**
+     * Returns the metrics of the batching of all requests.
+     * @return Map with the metric name as key and the metric value as value
+     */
+    public static Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("batches", BATCHES.get());
+        metrics.put("batchedQueries", BATCHED_QUERIES.get());
+        metrics.put("deduplicatedIRIs", DEDUPLICATED_IRIS.get());
+        metrics.put("rootBatches", ROOT_BATCHES.get());
+        metrics.put("batchedRoots", BATCHED_ROOTS.get());
+        return metrics;
+    }
+
+    /**
+     * Generates the shape of the given query. Queries with the same shape generate the same SPARQL query apart from the
+     * names of the SPARQL variables.
+     * @param query query or sub-query
+     * @return shape of the query or null if the query can not be batched
+     */
+    static String shape(Query query) {
+
+        if (query == null || !query.isSubQuery()) {
+            return null;   // root queries are not restricted by the IRIs of a parent query
+        }
+        List<Map.Entry<String, QueryPattern>> fields = shapedFields((SubQueriesPattern) query);
+        if (fields == null || fields.isEmpty()) {
+            return null;
+        }
+        return shape(fields);
+    }
+
+    /**
+     * Maps the SPARQL variables of the given leader query to the variables of the given query with the same shape.
+     * @param leader query whose SPARQL query is executed
+     * @param query query with the same shape as the leader
+     * @return Map with the variable of the leader as key and the corresponding variable of the query as value
+     */
+    static Map<String, String> variables(Query leader, Query query) {
+        Map<String, String> variables = new HashMap<>();
+        variables((SubQueriesPattern) leader, (SubQueriesPattern) query, variables);
+        return variables;
+    }
+
+    private static void variables(SubQueriesPattern leader, SubQueriesPattern query, Map<String, String> variables) {
+
+        List<Map.Entry<String, QueryPattern>> leaderFields = shapedFields(leader);
+        List<Map.Entry<String, QueryPattern>> fields = shapedFields(query);
+        for (int i = 0; i < leaderFields.size(); i++) {
+            QueryPattern leaderField = leaderFields.get(i).getValue();
+            QueryPattern field = fields.get(i).getValue();
+            variables.put(leaderField.parentId, field.parentId);
+            variables.put(leaderField.nodeId, field.nodeId);
+            if (leaderField.fields != null) {
+                variables(leaderField.fields, field.fields, variables);
+            }
+        }
+    }
+
+    /**
+     * Returns the given fields with their shape sorted by the shape.
+     * @param query SubQueriesPattern
+     * @return sorted fields or null if a field can not be batched
+     */
+    private static List<Map.Entry<String, QueryPattern>> shapedFields(SubQueriesPattern query) {
+
+        List<Map.Entry<String, QueryPattern>> fields = new ArrayList<>();
+        if (query == null || query.subqueries == null) {
+            return fields;
+        }
+        for (QueryPattern field : query.subqueries) {
+            if (field.args.containsKey(SPARQLServiceConverter.LIMIT)
+                    || field.args.containsKey(SPARQLServiceConverter.OFFSET)
+                    || field.args.containsKey(SPARQLServiceConverter.ORDER)) {
+                return null;
+            }
+            List<Map.Entry<String, QueryPattern>> subfields = shapedFields(field.fields);
+            if (subfields == null) {
+                return null;
+            }
+            String shape = field.name + new TreeMap<>(field.args) + ":" + field.targetType + shape(subfields);
+            fields.add(new AbstractMap.SimpleEntry<>(shape, field));
+        }
+        fields.sort(Comparator.comparing(Map.Entry::getKey));
+        return fields;
+    }
+
+    private static String shape(List<Map.Entry<String, QueryPattern>> fields) {
+        StringBuilder shape = new StringBuilder("[");
+        fields.forEach(field -> shape.append(field.getKey()).append(";"));
+        return shape.append("]").toString();
+    }
+
+    /**
+     * Sub-queries with the same shape that are executed as one query.
+     */
+    private class Batch {
+
+        private final SPARQLEndpointService service;
+        private final String rootType;
+        private final HGQLSchema schema;
+        private final List<BatchMember> members = new ArrayList<>();
+
+        Batch(SPARQLEndpointService service, String rootType, HGQLSchema schema) {
+            this.service = service;
+            this.rootType = rootType;
+            this.schema = schema;
+        }
+
+        void execute() {
+
+            if (members.size() == 1) {
+                BatchMember member = members.get(0);
+                service.executeQueryAsync(member.query, member.input, member.markers, rootType, schema, context, member.dispatcher)
+                        .whenComplete((result, e) -> {
+                            if (e != null) {
+                                member.future.completeExceptionally(e);
+                            } else {
+                                member.future.complete(result);
+                            }
+                        });
+                return;
+            }
+            Query leader = members.get(0).query;
+            String parentVariable = ((SubQueriesPattern) leader).subqueries.get(0).parentId;
+            Set<String> input = new HashSet<>();
+            int requested = 0;
+            for (BatchMember member : members) {
+                member.variables = variables(leader, member.query);
+                input.addAll(member.input);
+                requested += member.input.size();
+            }
+            BATCHES.incrementAndGet();
+            BATCHED_QUERIES.addAndGet(members.size());
+            DEDUPLICATED_IRIS.addAndGet(requested - input.size());
+            LOGGER.debug("Execute {} sub-queries with {} IRIs ({} requested) as one query at service {}",
+                    members.size(), input.size(), requested, service.getId());
+            service.executeSolutionsAsync(leader, input, rootType, schema, context, solution -> {
+                RDFNode parent = solution.get(parentVariable);
+                if (parent == null || !parent.isURIResource()) {
+                    return;
+                }
+                String iri = parent.asResource().getURI();
+                for (BatchMember member : members) {
+                    if (member.input.contains(iri)) {
+                        member.accept(solution, context.getDictionary());
+                    }
+                }
+            }).whenComplete((v, e) -> {
+                reportFailure(service, e);
+                members.forEach(BatchMember::complete);
+            });
+        }
+    }
+
+    /**
+     * Sub-query of an ExecutionTreeNode that is part of a batch. Builds the results of the sub-query from the renamed
+     * solutions of the batched query.
+     */
+    private static class BatchMember {
+
+        private final Query query;
+        private final Set<String> input;
+        private final Set<String> markers;
+        private final ChildExecutionDispatcher dispatcher;
+        private final Map<String, Set<String>> resultSet = new HashMap<>();
+        private final CompletableFuture<TreeExecutionResult> future = new CompletableFuture<>();
+        private Map<String, String> variables;   // variables of the batched query mapped to the variables of this sub-query, null if the variables are equal
+        private final RowMapper rowMapper;
+        private Result<?> result;
+
+        BatchMember(Query query, Set<String> input, Set<String> markers, ChildExecutionDispatcher dispatcher, HGQLSchema schema) {
+            this.query = query;
+            this.input = input;
+            this.markers = markers;
+            this.dispatcher = dispatcher;
+            this.rowMapper = RowMapper.of(query, schema);
+            markers.forEach(marker -> resultSet.put(marker, new HashSet<>()));
+        }
+
+        void accept(QuerySolution batchSolution, ResultDictionary dictionary) {
+
+            QuerySolution solution = variables == null ? batchSolution : rename(batchSolution);
+            Map<String, String> newIRIs = new HashMap<>();
+            synchronized (this) {
+                markers.stream()
+                        .filter(solution::contains)
+                        .forEach(marker -> {
+                            String uri = solution.get(marker).asResource().getURI();
+                            if (resultSet.get(marker).add(uri)) {
+                                newIRIs.put(uri, marker);
+                            }
+                        });
+                result = rowMapper.append(result, solution, dictionary);
+            }
+            if (dispatcher != null) {
+                newIRIs.forEach((uri, marker) -> dispatcher.dispatch(marker, uri));
+            }
+        }
+
+        private QuerySolution rename(QuerySolution batchSolution) {
+            QuerySolutionMap solution = new QuerySolutionMap();
+            variables.forEach((batchVariable, variable) -> {
+                RDFNode node = batchSolution.get(batchVariable);
+                if (node != null) {
+                    solution.add(variable, node);
+                }
+            });
+            return solution;
+        }
+
+        /**
+         * Completes the sub-query with the results received so far. If the batched query failed the failure is reported
+         * to the request and the sub-query keeps the results received before the failure, like the failed chunks of an
+         * unbatched query (see SPARQLEndpointService.mergeFutureResults()).
+         */
+        synchronized void complete() {
+            TreeExecutionResult treeExecutionResult = new TreeExecutionResult();
+            treeExecutionResult.setResultSet(resultSet);
+            treeExecutionResult.setFormatedResult(result);
+            future.complete(treeExecutionResult);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.hypergraphql.datafetching;
+
+import org.hypergraphql.config.system.ExecutionConfig;
+import org.hypergraphql.datamodel.HGQLSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide LRU cache of query plans. A query plan is the ExecutionForest of a normalized query (see QueryShape)
+ * with placeholders instead of the argument values. Repeated queries with the same shape skip the planning
+ * (translation of the query into ExecutionTreeNodes and QueryPatterns) and only bind their argument values to the
+ * cached plan.
+ * The cached plans are never executed directly, therefore they are not modified by the query executions.
+ * The plans are cached per HGQLSchema as the plan depends on the services and types of the schema.
+ */
+public class QueryPlanCache {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(QueryPlanCache.class);
+
+    private static volatile QueryPlanCache instance;
+
+    private final int capacity;
+    private final Map<PlanKey, ExecutionForest> plans;
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+
+    QueryPlanCache(int capacity) {
+        this.capacity = capacity;
+        this.plans = new LinkedHashMap<PlanKey, ExecutionForest>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PlanKey, ExecutionForest> eldest) {
+                if (size() > QueryPlanCache.this.capacity) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Configures the process-wide plan cache. The cache can only be configured once, if it was already created with
+     * another configuration the existing cache is kept.
+     * @param config execution configuration containing the size of the cache, if null the default configuration is used
+     */
+    public static synchronized void configure(ExecutionConfig config) {
+        if (instance == null) {
+            ExecutionConfig executionConfig = config == null ? ExecutionConfig.defaultConfig() : config;
+            instance = new QueryPlanCache(executionConfig.getPlanCacheSize());
+            LOGGER.info("Query plan cache started with a capacity of {} plans", instance.capacity);
+        } else if (config != null && config.getPlanCacheSize() != instance.capacity) {
+            LOGGER.warn("Query plan cache is already running, the configured plan cache size is ignored");
+        }
+    }
+
+    /**
+     * Returns the process-wide plan cache. If the cache was not configured before it is created with the default
+     * configuration.
+     * @return process-wide QueryPlanCache
+     */
+    public static QueryPlanCache getInstance() {
+        QueryPlanCache cache = instance;
+        if (cache == null) {
+            configure(null);
+            cache = instance;
+        }
+        return cache;
+    }
+
+    /**
+     * Indicates if query plans are cached.
+     * @return True if the capacity of the cache is greater than 0, otherwise False
+     */
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /**
+     * Returns the query plan of the given shape and schema. If the plan is not cached it is generated with the given
+     * planner and added to the cache.
+     * Note: Concurrent misses of the same shape may generate the plan multiple times, only one of the plans is cached.
+     * @param schema HGQLSchema the query is based on
+     * @param shape normalized query
+     * @param planner generates the query plan for the given shape
+     * @return query plan of the given shape
+     */
+    ExecutionForest getPlan(HGQLSchema schema, QueryShape shape, Supplier<ExecutionForest> planner) {
+
+        PlanKey key = new PlanKey(schema, shape.getKey());
+        ExecutionForest plan;
+        synchronized (plans) {
+            plan = plans.get(key);
+        }
+        if (plan != null) {
+            hits.incrementAndGet();
+            return plan;
+        }
+        misses.incrementAndGet();
+        plan = planner.get();
+        synchronized (plans) {
+            plans.put(key, plan);
+        }
+        return plan;
+    }
+
+    public int size() {
+        synchronized (plans) {
+            return plans.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the current metrics of the cache.
+     * @return Map with the metric name as key and the metric value as value
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("capacity", capacity);
+        metrics.put("size", size());
+        metrics.put("hits", getHits());
+        metrics.put("misses", getMisses());
+        metrics.put("evictions", evictions.get());
+        return metrics;
+    }
+
+    /**
+     * Key of a cached plan. The schema is compared by identity as HGQLSchema does not define equality.
+     */
+    private static class PlanKey {
+
+        private final HGQLSchema schema;
+        private final String shape;
+
+        PlanKey(HGQLSchema schema, String shape) {
+            this.schema = schema;
+            this.shape = shape;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PlanKey)) {
+                return false;
+            }
+            PlanKey other = (PlanKey) o;
+            return schema == other.schema && shape.equals(other.shape);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(schema) + shape.hashCode();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.hypergraphql.datafetching;
+
+import graphql.language.Argument;
+import graphql.language.AstPrinter;
+import graphql.language.Document;
+import graphql.language.Field;
+import graphql.language.InlineFragment;
+import graphql.language.Selection;
+import graphql.language.SelectionSet;
+import graphql.language.StringValue;
+import org.hypergraphql.query.pattern.Query;
+import org.hypergraphql.query.pattern.QueryPattern;
+import org.hypergraphql.query.pattern.SubQueriesPattern;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Normalized shape of a GraphQL query that is used as key of the QueryPlanCache.
+ * The argument values of the query are replaced with placeholders and collected as the parameters of the query.
+ * Queries that only differ in their argument values, formatting or comments therefore have the same shape and share
+ * one query plan. The plan is generated from the parameterized SelectionSet, so the placeholders end up in the
+ * arguments of the QueryPatterns of the plan and are replaced with the parameters of a query by bind().
+ * Argument values that are not supported by the query translation (see ExecutionTreeNode.getArgValue()) are kept in
+ * the shape.
+ */
+class QueryShape {
+
+    private static final String PLACEHOLDER_PREFIX = "\u0000ugql-arg-";
+
+    private final List<Object> parameters = new ArrayList<>();
+    private final SelectionSet selectionSet;
+    private final String key;
+
+    private QueryShape(SelectionSet selectionSet) {
+        this.selectionSet = parameterize(selectionSet);
+        this.key = AstPrinter.printAst(this.selectionSet);
+    }
+
+    /**
+     * Normalizes the given GraphQL query.
+     * @param queryDocument valid GraphQL query
+     * @return shape of the given query
+     */
+    static QueryShape of(Document queryDocument) {
+        return new QueryShape(ExecutionForestFactory.selectionSet(queryDocument));
+    }
+
+    /**
+     * Returns the normalized query with placeholders instead of the argument values.
+     * @return normalized query
+     */
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the SelectionSet of the query with placeholders instead of the argument values.
+     * @return parameterized SelectionSet
+     */
+    SelectionSet getSelectionSet() {
+        return selectionSet;
+    }
+
+    /**
+     * Returns the argument values of the query in the order of their placeholders.
+     * @return argument values of the query
+     */
+    List<Object> getParameters() {
+        return Collections.unmodifiableList(parameters);
+    }
+
+    private SelectionSet parameterize(SelectionSet selectionSet) {
+
+        if (selectionSet == null) {
+            return null;
+        }
+        List<Selection<?>> selections = new ArrayList<>();
+        for (Selection<?> selection : selectionSet.getSelections()) {
+            if (selection instanceof Field) {
+                Field field = (Field) selection;
+                List<Argument> arguments = parameterize(field.getArguments());
+                SelectionSet subSelectionSet = parameterize(field.getSelectionSet());
+                selections.add(field.transform(builder -> builder.arguments(arguments).selectionSet(subSelectionSet)));
+            } else if (selection instanceof InlineFragment) {
+                InlineFragment inlineFragment = (InlineFragment) selection;
+                SelectionSet subSelectionSet = parameterize(inlineFragment.getSelectionSet());
+                selections.add(inlineFragment.transform(builder -> builder.selectionSet(subSelectionSet)));
+            } else {
+                selections.add(selection);
+            }
+        }
+        return selectionSet.transform(builder -> builder.selections(selections));
+    }
+
+    private List<Argument> parameterize(List<Argument> arguments) {
+
+        List<Argument> result = new ArrayList<>();
+        for (Argument argument : arguments) {
+            Object value = ExecutionTreeNode.getArgValue(argument.getValue());
+            if (value == null) {
+                result.add(argument);
+            } else {
+                StringValue placeholder = StringValue.newStringValue(PLACEHOLDER_PREFIX + parameters.size()).build();
+                parameters.add(value);
+                result.add(argument.transform(builder -> builder.value(placeholder)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates a copy of the given query of a query plan with the placeholders replaced by the given parameters.
+     * @param query SubQueriesPattern or QueryPattern of a query plan, may be null
+     * @param parameters argument values of the query the plan is used for
+     * @return copy of the given query with the argument values
+     */
+    static Query bind(Query query, List<Object> parameters) {
+
+        if (query == null) {
+            return null;
+        } else if (query.isSubQuery()) {
+            return bind((SubQueriesPattern) query, parameters);
+        } else {
+            return bind((QueryPattern) query, parameters);
+        }
+    }
+
+    private static SubQueriesPattern bind(SubQueriesPattern query, List<Object> parameters) {
+
+        if (query == null) {
+            return null;
+        }
+        SubQueriesPattern bound = new SubQueriesPattern();
+        if (query.getSubqueries() != null) {
+            bound.addAll(query.getSubqueries().stream()
+                    .map(subquery -> bind(subquery, parameters))
+                    .collect(Collectors.toList()));
+        }
+        return bound;
+    }
+
+    private static QueryPattern bind(QueryPattern query, List<Object> parameters) {
+        return new QueryPattern(
+                query.name,
+                query.alias,
+                query.nodeId,
+                bind(query.args, parameters),
+                query.targetType,
+                bind(query.fields, parameters),
+                query.parentName,
+                query.parentId,
+                query.parentAlias,
+                bind(query.parentArgs, parameters),
+                query.parentType
+        );
+    }
+
+    private static Map<String, Object> bind(Map<String, Object> args, List<Object> parameters) {
+
+        if (args == null) {
+            return null;
+        }
+        Map<String, Object> bound = new HashMap<>();
+        args.forEach((name, value) -> {
+            if (value instanceof String && ((String) value).startsWith(PLACEHOLDER_PREFIX)) {
+                int index = Integer.parseInt(((String) value).substring(PLACEHOLDER_PREFIX.length()));
+                bound.put(name, parameters.get(index));
+            } else {
+                bound.put(name, value);
+            }
+        });
+        return bound;
+    }
+}
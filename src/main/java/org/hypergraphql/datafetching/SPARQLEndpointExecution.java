@@ -1,29 +1,53 @@
 package org.hypergraphql.datafetching;
 
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.Credentials;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.CredentialsProvider;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
 import org.apache.jena.query.*;
-import org.apache.jena.riot.web.HttpOp;
-import org.apache.jena.sparql.engine.http.QueryEngineHTTP;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.ResultSetMgr;
+import org.apache.jena.sparql.engine.http.HttpParams;
+import org.apache.jena.sparql.engine.http.HttpQuery;
+import org.apache.jena.sparql.engine.http.QueryExceptionHTTP;
+import org.hypergraphql.datafetching.services.ConstructGraph;
+import org.hypergraphql.datafetching.services.ResultFormatNegotiator;
+import org.hypergraphql.datafetching.services.RowMapper;
 import org.hypergraphql.datafetching.services.SPARQLEndpointService;
+import org.hypergraphql.datafetching.services.ValuesChunkSizer;
 import org.hypergraphql.datafetching.services.resultmodel.Result;
+import org.hypergraphql.datafetching.services.resultmodel.ResultDictionary;
 import org.hypergraphql.datamodel.HGQLSchema;
 import org.hypergraphql.query.converters.SPARQLServiceConverter;
 import org.hypergraphql.query.pattern.Query;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 
 /**
@@ -42,11 +66,19 @@ public class SPARQLEndpointExecution implements Callable<SPARQLExecutionResult>
     protected Logger LOGGER = LoggerFactory.getLogger(SPARQLEndpointExecution.class);
     String rootType;
     SPARQLServiceConverter converter;
+    ChildExecutionDispatcher dispatcher;   // optional, receives the IRIs of the markers while the results are streamed
+    Consumer<QuerySolution> solutionConsumer;   // optional, receives the solutions instead of this execution (batched queries)
+    ExecutionContext context;   // optional, context of the request with the deadline of the execution
+    LimitTracker limitTracker;   // optional, stops the execution once the limit of the query is satisfied
+    volatile boolean timedOut = false;   // true if the execution was aborted because of the timeout of the service
+    private ResultDictionary dictionary;   // dictionary of the context, or an own dictionary if the execution has no context
+    private RowMapper rowMapper;   // RowMapper of the query, looked up with the first solution
+    private String sparqlQuery;   // generated with the first call of getSparqlQuery()
 
     /**
      *
      * @param query query or sub-query to be executed
-     * @param inputSubset Possible IRIs of the parent query that are used to limit the results of this query/sub-query. Should be below the defined value limit (VALUES_SIZE_LIMIT)
+     * @param inputSubset Possible IRIs of the parent query that are used to limit the results of this query/sub-query. Should be below the chunk size of the service (see ValuesChunkSizer)
      * @param markers variables for the SPARQL query
      * @param sparqlEndpointService Service object with data model, query is executed on this model
      * @param schema HGQLSchema the query is based on
@@ -63,56 +95,354 @@ public class SPARQLEndpointExecution implements Callable<SPARQLExecutionResult>
     }
 
     /**
-     * Executes the query assigned to the object and builds-up the formatted result
+     *
+     * @param query query or sub-query to be executed
+     * @param inputSubset Possible IRIs of the parent query that are used to limit the results of this query/sub-query. Should be below the chunk size of the service (see ValuesChunkSizer)
+     * @param markers variables for the SPARQL query
+     * @param sparqlEndpointService Service object with data model, query is executed on this model
+     * @param schema HGQLSchema the query is based on
+     * @param rootType type of the query root
+     * @param dispatcher Dispatcher that receives the IRIs of the markers while the results are streamed, may be null
+     */
+    public SPARQLEndpointExecution(Query query, Set<String> inputSubset, Set<String> markers, SPARQLEndpointService sparqlEndpointService, HGQLSchema schema, String rootType, ChildExecutionDispatcher dispatcher) {
+        this(query, inputSubset, markers, sparqlEndpointService, schema, rootType);
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Executes the query assigned to the object and builds-up the formatted result.
+     * The query is limited by the timeout of the service and the deadline of the request. If the execution exceeds its
+     * time limit or the request is cancelled the HTTP request is aborted and the execution fails.
+     * If the limit of the query is satisfied by other executions the execution is skipped or aborted and returns an
+     * empty result.
      * @return Query results and IRIs for underlying queries
      */
     @Override
     public SPARQLExecutionResult call() {
+        if (isLimitSatisfied()) {
+            return skippedResult();
+        }
         Map<String, Set<String>> resultSet = new HashMap<>();
 
         markers.forEach(marker -> resultSet.put(marker, new HashSet<>()));
 
-        AtomicReference<Result> formatedResults = new AtomicReference<>();
+        AtomicReference<Result<?>> formatedResults = new AtomicReference<>();
 
-        String sparqlQuery = converter.getSelectQuery(query, inputSubset, rootType, sparqlEndpointService.getId());
+        String sparqlQuery = getSparqlQuery();
         LOGGER.debug("Execute the following SPARQL query at the service {}: \n{}",sparqlEndpointService.getId(),sparqlQuery);
 
-        CredentialsProvider credsProvider = new BasicCredentialsProvider();
-        Credentials credentials =
-                new UsernamePasswordCredentials(this.sparqlEndpointService.getUser(), this.sparqlEndpointService.getPassword());
-        credsProvider.setCredentials(AuthScope.ANY, credentials);
-        HttpClient httpclient = HttpClients.custom()
-                .setDefaultCredentialsProvider(credsProvider)
-                .build();
-        HttpOp.setDefaultHttpClient(httpclient);
-
-        ARQ.init();
-        org.apache.jena.query.Query jenaQuery = QueryFactory.create(sparqlQuery);
-
-        QueryEngineHTTP qEngine = QueryExecutionFactory.createServiceRequest(this.sparqlEndpointService.getUrl(), jenaQuery);
-        qEngine.setClient(httpclient);
-        ResultSet results = qEngine.execSelect();
-        results.forEachRemaining(solution -> {
-            markers.stream()
-                    .filter(solution::contains)
-                    .forEach(marker -> resultSet.get(marker).add(solution.get(marker).asResource().getURI()));
-
-            Result partialRes = this.sparqlEndpointService.getModelFromResults(query, solution, schema);
-            if(formatedResults.get() == null){
-                formatedResults.set(partialRes);
-            }else{
-                formatedResults.get().merge(partialRes);
+        HttpClient httpclient = sparqlEndpointService.getHttpClient();
+
+        ValuesChunkSizer chunkSizer = sparqlEndpointService.getChunkSizer();
+        long start = System.currentTimeMillis();
+        long solutions;
+        try {
+            solutions = select(sparqlQuery, httpclient, resultSet, formatedResults);
+        } catch (RuntimeException e) {
+            if (isLimitSatisfied()) {
+                return skippedResult();
             }
-        });
+            chunkSizer.recordFailure(inputSubset.size());
+            reportError(e);
+            throw e;
+        }
+        chunkSizer.recordSuccess(inputSubset.size(), System.currentTimeMillis() - start, solutions);
+        logRowCount(solutions, formatedResults.get());
+        if (limitTracker != null) {
+            limitTracker.record(formatedResults.get());
+        }
 
         SPARQLExecutionResult sparqlExecutionResult = new SPARQLExecutionResult(resultSet, formatedResults.get());
         LOGGER.debug("Result: {}", sparqlExecutionResult);
-        qEngine.close();
-        if(!qEngine.isClosed()){
-            qEngine.abort();
-        }
         return sparqlExecutionResult;
     }
 
-}
+    /**
+     * Returns the SPARQL query of this execution, a CONSTRUCT query in the construct fetch mode of the service
+     * otherwise a SELECT query.
+     * @return SPARQL query
+     */
+    public String getSparqlQuery() {
+        if (sparqlQuery == null) {
+            sparqlQuery = sparqlEndpointService.isConstructMode()
+                    ? converter.getConstructQuery(query, inputSubset, rootType, sparqlEndpointService.getId())
+                    : converter.getSelectQuery(query, inputSubset, rootType, sparqlEndpointService.getId());
+        }
+        return sparqlQuery;
+    }
+
+    /**
+     * Sends the given query to the SPARQL endpoint and handles the solutions of the results while they are streamed.
+     * Long queries are sent with HTTP POST (form-encoded like the POST requests of Jena), others with GET.
+     * The result format is negotiated with the ResultFormatNegotiator of the service, if the endpoint rejects the
+     * requested compact format the query is repeated with the standard formats. In the construct fetch mode the
+     * triples are read into a ConstructGraph and the solutions are handled when the graph is complete.
+     * The request is aborted if the execution exceeds its time limit or if the request of the context is cancelled.
+     * @param sparqlQuery SPARQL query
+     * @param httpclient pooled client of the service
+     * @param resultSet Map with the marker as key and the IRIs of the marker as value
+     * @param formatedResults formatted results of the handled solutions
+     * @return number of solutions, number of triples in the construct fetch mode
+     */
+    private long select(String sparqlQuery, HttpClient httpclient, Map<String, Set<String>> resultSet, AtomicReference<Result<?>> formatedResults) {
+
+        long timeLimit = context == null ? sparqlEndpointService.getTimeout() : context.getTimeLimit(sparqlEndpointService.getTimeout());
+        ResultFormatNegotiator negotiator = sparqlEndpointService.getResultFormatNegotiator();
+        HttpRequestBase request = createRequest(sparqlQuery, (int) Math.min(Integer.MAX_VALUE, timeLimit));
+        Runnable abort = request::abort;
+        if (!register(abort)) {
+            throw new CancellationException("Request was cancelled before the query was sent to service " + sparqlEndpointService.getId());
+        }
+        Future<?> timer = timeLimit > 0 ? ExecutionScheduler.getInstance().scheduleTimeout(() -> {
+            onTimeLimitExceeded();
+            request.abort();
+        }, timeLimit) : null;
+        boolean completed = false;
+        try {
+            HttpResponse response = httpclient.execute(request);
+            int status = response.getStatusLine().getStatusCode();
+            if (status == HttpStatus.SC_NOT_ACCEPTABLE && !sparqlEndpointService.isConstructMode() && negotiator.onNotAcceptable(request.getFirstHeader(HttpHeaders.ACCEPT).getValue())) {
+                EntityUtils.consume(response.getEntity());
+                request.setHeader(HttpHeaders.ACCEPT, negotiator.getAcceptHeader());
+                response = httpclient.execute(request);
+                status = response.getStatusLine().getStatusCode();
+            }
+            if (status >= 300) {
+                throw new QueryExceptionHTTP(status, response.getStatusLine().getReasonPhrase());
+            }
+            HttpEntity entity = response.getEntity();
+            ContentType contentType = ContentType.get(entity);
+            if (sparqlEndpointService.isConstructMode()) {
+                Lang graphLang = contentType == null ? null : RDFLanguages.contentTypeToLang(contentType.getMimeType());
+                ConstructGraph graph = new ConstructGraph();
+                RDFDataMgr.parse(graph, entity.getContent(), graphLang == null ? Lang.TURTLE : graphLang);
+                graph.walk(query, solution -> handleSolution(solution, resultSet, formatedResults));
+                EntityUtils.consume(entity);
+                completed = true;
+                return graph.size();
+            }
+            Lang lang = negotiator.getLang(contentType == null ? null : contentType.getMimeType());
+            ResultSet results = null;
+            try {
+                results = ResultSetMgr.read(entity.getContent(), lang);
+                results.forEachRemaining(solution -> handleSolution(solution, resultSet, formatedResults));
+            } catch (RuntimeException e) {
+                if ((results == null || results.getRowNumber() == 0) && !timedOut && (context == null || !context.isCancelled())) {
+                    negotiator.onParseFailure(lang);
+                }
+                throw e;
+            }
+            EntityUtils.consume(entity);
+            completed = true;
+            return results.getRowNumber();
+        } catch (IOException e) {
+            throw new QueryExceptionHTTP(e);
+        } finally {
+            if (!completed) {
+                request.abort();   // closing a partially read response would wait for the rest of the response
+            }
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            unregister(abort);
+        }
+    }
+
+    /**
+     * Creates the HTTP request of the given query. Queries longer than the post threshold of the service or whose URL
+     * would exceed the URL limit of Jena are sent with POST.
+     * @param sparqlQuery SPARQL query
+     * @param timeLimit socket timeout and maximal time to obtain a pooled connection in milliseconds, 0 if the request is not limited
+     * @return GET or POST request of the query
+     */
+    private HttpRequestBase createRequest(String sparqlQuery, int timeLimit) {
+
+        String url = sparqlEndpointService.getUrl();
+        HttpRequestBase request;
+        try {
+            String getUrl = url + (url.contains("?") ? "&" : "?") + HttpParams.pQuery + "=" + URLEncoder.encode(sparqlQuery, "UTF-8");
+            if (sparqlQuery.length() > sparqlEndpointService.getPostThreshold() || getUrl.length() > HttpQuery.urlLimit) {
+                HttpPost post = new HttpPost(url);
+                post.setEntity(new UrlEncodedFormEntity(Collections.singletonList(
+                        new BasicNameValuePair(HttpParams.pQuery, sparqlQuery)), StandardCharsets.UTF_8));
+                request = post;
+            } else {
+                request = new HttpGet(getUrl);
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new QueryExceptionHTTP(e);
+        }
+        request.setHeader(HttpHeaders.ACCEPT, sparqlEndpointService.isConstructMode()
+                ? ConstructGraph.ACCEPT_HEADER
+                : sparqlEndpointService.getResultFormatNegotiator().getAcceptHeader());
+        int connectTimeout = sparqlEndpointService.getConnectTimeout();
+        request.setConfig(RequestConfig.custom()
+                .setConnectTimeout(connectTimeout > 0 && (timeLimit == 0 || connectTimeout < timeLimit) ? connectTimeout : timeLimit)
+                .setConnectionRequestTimeout(timeLimit)
+                .setSocketTimeout(timeLimit)
+                .build());
+        return request;
+    }
+
+    /**
+     * Handles the exceeded time limit of this execution. If the deadline of the request passed the whole request is
+     * cancelled, otherwise only this execution exceeded the timeout of the service.
+     */
+    void onTimeLimitExceeded() {
+        if (context != null && context.hasDeadline() && context.getRemainingMillis() == 0) {
+            context.cancel(String.format("Request deadline of %d ms exceeded, the results are incomplete", context.getTimeout()));
+        } else {
+            timedOut = true;
+        }
+    }
+
+    /**
+     * Registers the given abort action at the context of the request and at the LimitTracker of the query.
+     * @param abort action that aborts the running execution
+     * @return False if the request is cancelled or the limit of the query is satisfied, the execution should not be
+     *         started in this case
+     */
+    boolean register(Runnable abort) {
+        if (limitTracker != null && !limitTracker.register(abort)) {
+            return false;
+        }
+        if (context != null && !context.register(abort)) {
+            if (limitTracker != null) {
+                limitTracker.unregister(abort);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Unregisters the abort action that was registered with register().
+     * @param abort action that aborts the running execution
+     */
+    void unregister(Runnable abort) {
+        if (limitTracker != null) {
+            limitTracker.unregister(abort);
+        }
+        if (context != null) {
+            context.unregister(abort);
+        }
+    }
+
+    /**
+     * Indicates if the limit of the query is satisfied by the results of other executions.
+     * @return True if the results of this execution are no longer needed, otherwise False
+     */
+    boolean isLimitSatisfied() {
+        return limitTracker != null && limitTracker.isSatisfied();
+    }
+
+    /**
+     * Returns the empty result of an execution that was skipped or aborted because the limit of the query is satisfied.
+     * The service is recorded as skipped at the LimitTracker.
+     * @return result without IRIs and formatted results
+     */
+    SPARQLExecutionResult skippedResult() {
+        LOGGER.debug("{}: Limit of the query is satisfied, the execution is skipped", sparqlEndpointService.getId());
+        limitTracker.skipped(sparqlEndpointService.getId());
+        Map<String, Set<String>> resultSet = new HashMap<>();
+        markers.forEach(marker -> resultSet.put(marker, new HashSet<>()));
+        SPARQLExecutionResult result = new SPARQLExecutionResult(resultSet, null);
+        result.setIncomplete(true);
+        return result;
+    }
 
+    /**
+     * Reports the number of received solutions and the number of solutions the query would have returned if all
+     * fields were joined as sibling OPTIONAL clauses (see RowMapper.crossProductRows()).
+     * @param solutions number of received solutions, number of triples in the construct fetch mode
+     * @param result formatted results of the solutions
+     */
+    void logRowCount(long solutions, Result<?> result) {
+        if (LOGGER.isDebugEnabled() && rowMapper != null) {
+            LOGGER.debug("{}: {} {} received, {} solutions with sibling OPTIONAL fields", sparqlEndpointService.getId(),
+                    solutions, sparqlEndpointService.isConstructMode() ? "triples" : "solutions", rowMapper.crossProductRows(result));
+        }
+    }
+
+    /**
+     * Adds the error of this failed execution to the errors of the request. If the request was cancelled the
+     * cancellation is already reported.
+     * @param e cause of the failure
+     */
+    void reportError(Exception e) {
+        if (context == null || context.isCancelled()) {
+            return;
+        }
+        if (timedOut) {
+            context.addError(String.format("Query at service %s exceeded the timeout of %d ms, the results are incomplete",
+                    sparqlEndpointService.getId(), sparqlEndpointService.getTimeout()), e);
+        } else {
+            context.addError(String.format("Query at service %s failed: %s", sparqlEndpointService.getId(), e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Assigns the context of the request this execution belongs to. The execution is limited by the deadline of the
+     * request and is aborted if the request is cancelled.
+     * @param context ExecutionContext of the request
+     */
+    public void setExecutionContext(ExecutionContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Assigns the LimitTracker of the query this execution belongs to. The execution is skipped or aborted once the
+     * limit of the query is satisfied.
+     * @param limitTracker LimitTracker of the query
+     */
+    public void setLimitTracker(LimitTracker limitTracker) {
+        this.limitTracker = limitTracker;
+    }
+
+    /**
+     * Assigns a consumer that receives the solutions of the query results. If a consumer is assigned the solutions are
+     * only handed to the consumer and this execution returns an empty result.
+     * @param solutionConsumer consumer of the query solutions
+     */
+    public void setSolutionConsumer(Consumer<QuerySolution> solutionConsumer) {
+        this.solutionConsumer = solutionConsumer;
+    }
+
+    /**
+     * Handles one solution of the query results. The IRIs of the markers are collected and the solution is added to
+     * the formatted results, or if a solutionConsumer is assigned the solution is handed to the consumer.
+     * @param solution one solution of the query results
+     * @param resultSet Map with the marker as key and the IRIs of the marker as value
+     * @param formatedResults formatted results of the already handled solutions
+     */
+    void handleSolution(QuerySolution solution, Map<String, Set<String>> resultSet, AtomicReference<Result<?>> formatedResults) {
+        if (solutionConsumer != null) {
+            solutionConsumer.accept(solution);
+            return;
+        }
+        collectMarkers(solution, resultSet);
+
+        if (rowMapper == null) {
+            dictionary = context == null ? new ResultDictionary() : context.getDictionary();
+            rowMapper = RowMapper.of(query, schema);
+        }
+        formatedResults.set(rowMapper.append(formatedResults.get(), solution, dictionary));
+    }
+
+    /**
+     * Adds the IRIs of the markers in the given solution to the resultSet. New IRIs are also handed to the dispatcher
+     * if one is assigned to this execution.
+     * @param solution one solution of the query results
+     * @param resultSet Map with the marker as key and the IRIs of the marker as value
+     */
+    void collectMarkers(QuerySolution solution, Map<String, Set<String>> resultSet) {
+        markers.stream()
+                .filter(solution::contains)
+                .forEach(marker -> {
+                    String uri = solution.get(marker).asResource().getURI();
+                    if (resultSet.get(marker).add(uri) && dispatcher != null) {
+                        dispatcher.dispatch(marker, uri);
+                    }
+                });
+    }
+}
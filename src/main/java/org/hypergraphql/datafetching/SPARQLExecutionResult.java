@@ -13,7 +13,8 @@ import java.util.Set;
 public class SPARQLExecutionResult {
 
    private  Map<String, Set<String>> resultSet;   // containing the IRIs for the queries one level deeper
-   private Result result;   // containing the query results
+   private Result<?> result;   // containing the query results
+   private boolean incomplete = false;   // results were omitted, e.g. because the service is overloaded
 //   private Model model;
 
     /**
@@ -34,10 +35,23 @@ public class SPARQLExecutionResult {
      * Getter method for the query results stored in this object.
      * @return Returns the query results.
      */
-    public Result getResult(){
+    public Result<?> getResult(){
         return this.result;
     }
 
+    /**
+     * Indicates if results of the query were omitted, e.g. because the service was overloaded or the limit of the
+     * query was already satisfied. Incomplete results are not cached (see ResultCache).
+     * @return True if the results are incomplete, otherwise False
+     */
+    public boolean isIncomplete() {
+        return incomplete;
+    }
+
+    public void setIncomplete(boolean incomplete) {
+        this.incomplete = incomplete;
+    }
+
 //    public void setModel(Model model) {
 //        this.model = model;
 //    }
@@ -47,7 +61,7 @@ public class SPARQLExecutionResult {
      * @param resultSet Map with the field name as key and queried IRIs as values.
      * @param result Query results
      */
-    public SPARQLExecutionResult(Map<String, Set<String>> resultSet, Result result) {
+    public SPARQLExecutionResult(Map<String, Set<String>> resultSet, Result<?> result) {
 
         this.resultSet = resultSet;
         this.result = result;
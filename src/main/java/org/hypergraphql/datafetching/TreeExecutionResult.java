@@ -15,7 +15,7 @@ public class TreeExecutionResult {
 
 //    private Model model;
 
-    private Result formatedResult;   // containing the query results
+    private Result<?> formatedResult;   // containing the query results
     private Map<String, Set<String>> resultSet;   // containing the IRIs for the queries one level deeper
 
 //    public Model getModel() {
@@ -48,7 +48,7 @@ public class TreeExecutionResult {
      * Setter method for the formattedResult attribute
      * @param result
      */
-    public void setFormatedResult(Result result) {
+    public void setFormatedResult(Result<?> result) {
         this.formatedResult = result;
     }
 
@@ -56,7 +56,7 @@ public class TreeExecutionResult {
      * Getter method for the query results stored in this object.
      * @return Returns the query results.
      */
-    public Result getFormatedResult() {
+    public Result<?> getFormatedResult() {
         return formatedResult;
     }
 
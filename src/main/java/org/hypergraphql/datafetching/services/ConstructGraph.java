@@ -0,0 +1,122 @@
+package org.hypergraphql.datafetching.services;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.hypergraphql.query.converters.SPARQLServiceConverter;
+import org.hypergraphql.query.pattern.Query;
+import org.hypergraphql.query.pattern.QueryPattern;
+import org.hypergraphql.query.pattern.SubQueriesPattern;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.hypergraphql.config.schema.HGQLVocabulary.HGQL_SCALAR_LITERAL_GQL_NAME;
+import static org.hypergraphql.config.schema.HGQLVocabulary.JSONLD;
+
+/**
+ * Index of the triples returned by a CONSTRUCT query of the construct fetch mode (see
+ * SPARQLServiceConverter.getConstructQuery()). Each triple links an entity or value to its parent entity with the
+ * predicate of the SPARQL variable of the field, the index maps each subject and variable to its objects. Unlike the
+ * solutions of a SELECT query the triples are not repeated for every combination of the values of sibling fields.
+ * The index is walked along the fields of the query and produces one solution per path from an entity of the query
+ * root to a value, these solutions are translated into the Result like the solutions of a SELECT query (see RowMapper).
+ * A ConstructGraph is not thread-safe, the triples of one query must be added sequentially.
+ */
+public class ConstructGraph extends StreamRDFBase {
+
+    public static final String ACCEPT_HEADER = "application/n-triples, text/turtle;q=0.9, application/rdf+xml;q=0.5";
+
+    private final Map<Node, Map<String, Set<Node>>> index = new LinkedHashMap<>();   // subject -> variable -> objects
+    private final Model model = ModelFactory.createDefaultModel();   // only used to wrap the nodes of the solutions
+    private long size = 0;
+
+    @Override
+    public void triple(Triple triple) {
+        String variable = SPARQLServiceConverter.constructVariable(triple.getPredicate());
+        if (variable == null) {
+            return;
+        }
+        Set<Node> objects = index.computeIfAbsent(triple.getSubject(), k -> new HashMap<>(2))
+                .computeIfAbsent(variable, k -> new LinkedHashSet<>(2));
+        if (objects.add(triple.getObject())) {
+            size++;
+        }
+    }
+
+    /**
+     * Returns the number of distinct triples in the index.
+     * @return number of triples
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Walks the index along the fields of the given query and hands one solution per path from an entity of the query
+     * root to a value to the given consumer. Entities without values are handed over as solution of the entity only.
+     * @param query query or sub-query the CONSTRUCT query was generated from
+     * @param consumer consumer of the solutions
+     */
+    public void walk(Query query, Consumer<QuerySolutionMap> consumer) {
+        String rootId;
+        List<QueryPattern> fields;
+        if (query instanceof QueryPattern) {
+            rootId = ((QueryPattern) query).nodeId;
+            fields = subfields((QueryPattern) query);
+        } else if (query instanceof SubQueriesPattern && !((SubQueriesPattern) query).getSubqueries().isEmpty()) {
+            fields = ((SubQueriesPattern) query).getSubqueries();
+            rootId = fields.get(0).parentId;
+        } else {
+            return;
+        }
+        for (Map.Entry<Node, Map<String, Set<Node>>> entity : index.entrySet()) {
+            if (entity.getValue().containsKey(rootId)) {   // the entities of the root are linked to themselves
+                Map<String, Node> bindings = new LinkedHashMap<>();
+                bindings.put(rootId, entity.getKey());
+                walk(entity.getKey(), fields, bindings, consumer);
+            }
+        }
+    }
+
+    private void walk(Node parent, List<QueryPattern> fields, Map<String, Node> bindings, Consumer<QuerySolutionMap> consumer) {
+        boolean bound = false;
+        Map<String, Set<Node>> values = index.getOrDefault(parent, Collections.emptyMap());
+        for (QueryPattern field : fields) {
+            if (JSONLD.containsKey(field.name)) {
+                continue;
+            }
+            for (Node value : values.getOrDefault(field.nodeId, Collections.emptySet())) {
+                bindings.put(field.nodeId, value);
+                walk(value, subfields(field), bindings, consumer);
+                bindings.remove(field.nodeId);
+                bound = true;
+            }
+        }
+        if (!bound) {
+            QuerySolutionMap solution = new QuerySolutionMap();
+            bindings.forEach((variable, node) -> solution.add(variable, model.asRDFNode(node)));
+            consumer.accept(solution);
+        }
+    }
+
+    /**
+     * Returns the subfields of the given field that are linked in the index, the values of literal fields have no
+     * subfields.
+     */
+    private static List<QueryPattern> subfields(QueryPattern field) {
+        if (field.targetType.equals(HGQL_SCALAR_LITERAL_GQL_NAME) || field.fields == null || field.fields.getSubqueries() == null) {
+            return Collections.emptyList();
+        }
+        return field.fields.getSubqueries();
+    }
+}
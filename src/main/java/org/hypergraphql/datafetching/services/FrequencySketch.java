@@ -0,0 +1,90 @@
+package org.hypergraphql.datafetching.services;
+
+/**
+ * Count-min sketch that estimates how often keys were accessed recently (TinyLFU). Each key is counted in one 4-bit
+ * counter per row, the estimate is the minimum of these counters. Each row has 16 counters per entry of the cache to
+ * keep the collisions of the keys rare. The counters are halved once the sketch has counted ten times as many accesses
+ * as the cache has entries, so that the estimates follow the recent popularity of the keys instead of their
+ * popularity since the start.
+ * The sketch is not thread-safe, the caller has to synchronize the access.
+ */
+class FrequencySketch {
+
+    private static final int[] SEEDS = {0x97cb3127, 0xb3f4c9e1, 0x85ebca6b, 0xc2b2ae35};   // one hash seed per row
+    private static final int MAX_COUNT = 15;
+    private static final int COUNTERS_PER_ENTRY = 16;
+    private static final int SAMPLE_FACTOR = 10;
+    private static final int MAX_ENTRIES = 1 << 20;   // bounds the sketch to 64 MB for very large caches
+
+    private final byte[][] counters;
+    private final int mask;
+    private final int sampleSize;
+    private int additions = 0;
+
+    /**
+     * Creates a sketch for a cache of the given capacity.
+     * @param capacity maximal number of entries of the cache
+     */
+    FrequencySketch(int capacity) {
+        int entries = Math.max(16, Math.min(capacity, MAX_ENTRIES));
+        int width = Integer.highestOneBit(entries * COUNTERS_PER_ENTRY * 2 - 1);   // next power of two
+        this.counters = new byte[SEEDS.length][width];
+        this.mask = width - 1;
+        this.sampleSize = SAMPLE_FACTOR * entries;
+    }
+
+    /**
+     * Counts an access of the given key.
+     * @param key accessed key
+     */
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            int index = index(hash, row);
+            if (counters[row][index] < MAX_COUNT) {
+                counters[row][index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            age();
+        }
+    }
+
+    /**
+     * Returns the estimated number of recent accesses of the given key.
+     * @param key key
+     * @return estimated frequency, at most 15
+     */
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < SEEDS.length; row++) {
+            frequency = Math.min(frequency, counters[row][index(hash, row)]);
+        }
+        return frequency;
+    }
+
+    /**
+     * Halves all counters.
+     */
+    private void age() {
+        for (byte[] row : counters) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = (byte) (row[i] >>> 1);
+            }
+        }
+        additions /= 2;
+    }
+
+    private int index(int hash, int row) {
+        int h = (hash + SEEDS[row]) * SEEDS[row];
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -9,6 +9,7 @@ import com.mashape.unirest.http.exceptions.UnirestException;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.hypergraphql.config.system.ServiceConfig;
+import org.hypergraphql.datafetching.ExecutionContext;
 import org.hypergraphql.datafetching.TreeExecutionResult;
 import org.hypergraphql.datamodel.HGQLSchema;
 import org.hypergraphql.query.converters.HGraphQLConverter;
@@ -29,7 +30,7 @@ public class HGraphQLService extends Service {
     private final static Logger LOGGER = LoggerFactory.getLogger(HGraphQLService.class);
 
     @Override
-    public TreeExecutionResult executeQuery(Query query, Set<String> input, Set<String> markers , String rootType, HGQLSchema schema) {
+    public TreeExecutionResult executeQuery(Query query, Set<String> input, Set<String> markers , String rootType, HGQLSchema schema, ExecutionContext context) {
 
         Model model;
         Map<String, Set<String>> resultSet;
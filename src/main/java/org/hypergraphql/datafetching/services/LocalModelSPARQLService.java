@@ -9,10 +9,9 @@ import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.update.UpdateAction;
 import org.hypergraphql.config.system.ServiceConfig;
+import org.hypergraphql.datafetching.ChildExecutionDispatcher;
 import org.hypergraphql.datafetching.LocalSPARQLExecution;
-import org.hypergraphql.datafetching.SPARQLExecutionResult;
-import org.hypergraphql.datafetching.TreeExecutionResult;
-import org.hypergraphql.datafetching.services.resultmodel.Result;
+import org.hypergraphql.datafetching.SPARQLEndpointExecution;
 import org.hypergraphql.datamodel.HGQLSchema;
 import org.hypergraphql.exception.HGQLConfigurationException;
 import org.hypergraphql.query.pattern.Query;
@@ -22,10 +21,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.stream.Collectors;
 
 /**
  *  This Service class is initialized with a local dataset. Queries that are executed on this service are evaluated against
@@ -43,53 +38,20 @@ public class LocalModelSPARQLService extends SPARQLEndpointService{
     protected String fileType;
 
     /**
-     * Executes the given query on the dataset of this object.
-     * If more IRIs are provided in input then defined in VALUES_SIZE_LIMIT as limit the values are distributed over multiple queries to sta below the limit.
-     * If the amount of input is to large the resulting queries are executed in parallel.
+     * Creates the execution of the given query on the dataset of this object for one subset of the input values.
+     * If more IRIs are provided in input than the configured chunk size the values are distributed over multiple
+     * executions that are executed in parallel (see SPARQLEndpointService).
      * @param query query or sub-query to be executed
-     * @param input Possible IRIs of the parent query that are used to limit the results of this query/sub-query
+     * @param inputSubset IRIs of the parent query, at most the chunk size
      * @param markers variables for the SPARQL query
-     * @param rootType type of the query root
      * @param schema HGQLSchema the query is based on
-     * @return Query results and IRIs for underlying queries
+     * @param rootType type of the query root
+     * @param dispatcher Dispatcher of the sub-queries, may be null
+     * @return Execution of the query on the local dataset
      */
     @Override
-    public TreeExecutionResult executeQuery(Query query, Set<String> input, Set<String> markers , String rootType , HGQLSchema schema) {
-
-        LOGGER.debug(String.format("%s: Start query execution", this.getId()));
-        Map<String, Set<String>> resultSet = new HashMap<>();
-//        Model unionModel = ModelFactory.createDefaultModel();
-
-        Set<Future<SPARQLExecutionResult>> futureSPARQLresults = new HashSet<>();
-
-        List<String> inputList = getStrings(query, input, markers, rootType, schema, resultSet);
-        List<ExecutorService> executors = new ArrayList<>();
-
-        do {
-
-            Set<String> inputSubset = new HashSet<>();
-            if(!inputList.isEmpty()){
-                int size = Math.min(inputList.size(), VALUES_SIZE_LIMIT);
-                inputSubset = inputList.stream().limit(size).collect(Collectors.toSet());
-                inputList = inputList.stream().skip(size).collect(Collectors.toList());
-            }
-
-            ExecutorService executor = Executors.newFixedThreadPool(50);
-            executors.add(executor);
-            LocalSPARQLExecution execution = new LocalSPARQLExecution(query,inputSubset,markers,this, schema , this.dataset, rootType);
-            futureSPARQLresults.add(executor.submit(execution));
-
-        } while (inputList.size()>0);
-
-        Result result = iterateFutureResults(futureSPARQLresults, resultSet);
-
-        TreeExecutionResult treeExecutionResult = new TreeExecutionResult();
-        treeExecutionResult.setResultSet(resultSet);
-//        treeExecutionResult.setModel(unionModel);
-        treeExecutionResult.setFormatedResult(result);
-        executors.forEach(executorService -> executorService.shutdown());
-
-        return treeExecutionResult;
+    protected SPARQLEndpointExecution createExecution(Query query, Set<String> inputSubset, Set<String> markers, HGQLSchema schema, String rootType, ChildExecutionDispatcher dispatcher) {
+        return new LocalSPARQLExecution(query, inputSubset, markers, this, schema, this.dataset, rootType, dispatcher);
     }
 
     /**
@@ -129,6 +91,9 @@ public class LocalModelSPARQLService extends SPARQLEndpointService{
 
         ARQ.init();
 
+        // the local dataset has no round trips to save, the chunks are only used to parallelize the query
+        int chunkSize = serviceConfig.getChunkSize();
+        this.chunkSizer = new ValuesChunkSizer(chunkSize, chunkSize, chunkSize, serviceConfig.getChunkLatency(), serviceConfig.getChunkResultLimit());
         this.id = serviceConfig.getId();
         this.filepath = serviceConfig.getFilepath();
         this.fileType = serviceConfig.getFiletype();
@@ -1,22 +1,32 @@
 package org.hypergraphql.datafetching.services;
 
-import org.apache.jena.rdf.model.Model;
-import org.apache.jena.rdf.model.ModelFactory;
 import org.hypergraphql.config.system.ServiceConfig;
+import org.hypergraphql.datafetching.ChildExecutionDispatcher;
+import org.hypergraphql.datafetching.ExecutionContext;
+import org.hypergraphql.datafetching.ExecutionScheduler;
+import org.hypergraphql.datafetching.LimitTracker;
 import org.hypergraphql.datafetching.TreeExecutionResult;
+import org.hypergraphql.datafetching.services.resultmodel.ObjectResult;
 import org.hypergraphql.datafetching.services.resultmodel.Result;
 import org.hypergraphql.datamodel.HGQLSchema;
+import org.hypergraphql.query.converters.SPARQLServiceConverter;
 import org.hypergraphql.query.pattern.Query;
+import org.hypergraphql.query.pattern.QueryPattern;
+import org.hypergraphql.query.pattern.QueryPatternBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.concurrent.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
- * The ManifoldService represents a set of multiple services. Incoming queries are forwarded to all services of this object and executed.
- * Returning results are merged and returned.
+ * The ManifoldService represents a set of multiple services. Incoming queries are forwarded to all services of this object and executed concurrently.
+ * Returning results are merged in the order the services complete and returned.
  * Note: This class is not intended to be used as a service type in the UGQL config file and will only be created internally
  *       if multiple service ids are assigned to one schema entity.
  */
@@ -45,39 +55,51 @@ public class ManifoldService extends Service {
      * @param markers variables for the SPARQL query
      * @param rootType type of the query root
      * @param schema HGQLSchema the query is based on
+     * @param context ExecutionContext of the request the query belongs to
      * @return Query results and IRIs for underlying queries
      */
     @Override
-    public TreeExecutionResult executeQuery(Query query, Set<String> input, Set<String> markers, String rootType, HGQLSchema schema) {
+    public TreeExecutionResult executeQuery(Query query, Set<String> input, Set<String> markers, String rootType, HGQLSchema schema, ExecutionContext context) {
+        return executeQueryAsync(query, input, markers, rootType, schema, context, null).join();
+    }
+
+    /**
+     * Executes the query with all services of this object concurrently on the ExecutionScheduler. The results of the
+     * services are merged in the order the services complete. If the ExecutionContext defines a manifold timeout the
+     * results of the services that did not complete within the timeout are omitted and reported as error.
+     * If the context tracks the limit of the query (see LimitTracker) the services that did not start yet are skipped
+     * once the limit is satisfied. The services that were skipped, aborted or are still running are then queried again
+     * for the selected entities only, as they may hold values of these entities.
+     * @param query query or sub-query to be executed
+     * @param input Possible IRIs of the parent query that are used to limit the results of this query/sub-query
+     * @param markers variables for the SPARQL query
+     * @param rootType type of the query root
+     * @param schema HGQLSchema the query is based on
+     * @param context ExecutionContext of the request the query belongs to
+     * @param dispatcher Dispatcher of the sub-queries, handed to each service
+     * @return Future of the merged query results and IRIs for underlying queries
+     */
+    @Override
+    public CompletableFuture<TreeExecutionResult> executeQueryAsync(Query query, Set<String> input, Set<String> markers, String rootType, HGQLSchema schema, ExecutionContext context, ChildExecutionDispatcher dispatcher) {
         LOGGER.debug(String.format("%s: Start query execution for all services", this.getId()));
-        TreeExecutionResult treeExecutionResult = new TreeExecutionResult();
-        Map<String, Set<String>> resultSet = new HashMap<>();
-        Model model = ModelFactory.createDefaultModel();
-        Result formatedResult = null;
-//        Set<Future<TreeExecutionResult>> futureResults = new HashSet<>();
-        for( Service service : services){
-              TreeExecutionResult res_part = service.executeQuery(query, input, markers, rootType, schema);
-              res_part.getResultSet().forEach((var, uri) ->{
-                  if(resultSet.get(var)== null){
-                      resultSet.put(var, uri);
-                  }else{
-                      resultSet.get(var).addAll(uri);
-                  }
-              });
-//              model.add(res_part.getModel());
-              if(formatedResult == null){
-                  formatedResult = res_part.getFormatedResult();
-              }else{
-                  formatedResult.merge(res_part.getFormatedResult());
-              }
-//            ExecutorService executor = Executors.newFixedThreadPool(5);
-//            CallableService execution = new CallableService(service, query, input, strings,rootType, schema);
-//            futureResults.add(executor.submit(execution));
+        ExecutionScheduler scheduler = ExecutionScheduler.getInstance();
+        LimitTracker limitTracker = context.getLimitTracker(query, rootType);
+        Map<Service, CompletableFuture<TreeExecutionResult>> futureResults = new LinkedHashMap<>();
+        for (Service service : services) {
+            Set<String> serviceInput = new HashSet<>(input);   // services add the IRIs of the id argument to their input
+            futureResults.put(service, scheduler.submit(() -> {
+                if (limitTracker != null && limitTracker.isSatisfied()) {
+                    limitTracker.skipped(service.getId());
+                    return CompletableFuture.completedFuture(skippedResult(markers));
+                }
+                return service.executeQueryAsync(query, serviceInput, markers, rootType, schema, context, dispatcher);
+            }, context).thenCompose(Function.identity()));
         }
-        treeExecutionResult.setFormatedResult(formatedResult);
-        treeExecutionResult.setResultSet(resultSet);
-        LOGGER.debug("Merge Service results");
-        return treeExecutionResult;
+        // once the limit is satisfied the incomplete services are queried for the selected entities
+        Function<Service, CompletableFuture<TreeExecutionResult>> selection = service -> scheduler.submit(() ->
+                service.executeQueryAsync(selectedQuery(query, limitTracker.getEntities()), new HashSet<>(), markers,
+                        rootType, schema, context, dispatcher), context).thenCompose(Function.identity());
+        return mergeFutureResults(futureResults, context, limitTracker, selection, getRootOrder(query, rootType), query);
     }
 
     @Override
@@ -133,64 +155,194 @@ public class ManifoldService extends Service {
     }
 
     /**
-     * Merge the given futureResults to one TreeExecutionResult
-     * @param futureResults set of future results that should be merged
-     * @param resultUnion TreeExecutionResult object to store the merged result
+     * Merges the results of the given services in the order the services complete. A failed service is logged and
+     * skipped. If the ExecutionContext defines a manifold timeout the merged results are completed after the timeout
+     * without the services that are still running.
+     * Once the given LimitTracker is satisfied the services that are still running and the services whose executions were
+     * skipped or aborted by the LimitTracker are queried with the given selection instead, their further results are
+     * ignored. The entities of the query are selected at this point, but these services may hold values of them.
+     * The results of an ordered root query are merged in order when the merged results are completed, only the first
+     * offset + limit entities of all services are kept (see ObjectResult.mergeOrdered()).
+     * @param futureResults Map with the service as key and the future of its results as value
+     * @param context ExecutionContext of the request
+     * @param limitTracker LimitTracker of the query, may be null
+     * @param selection Queries the given service for the selected entities of the satisfied LimitTracker
+     * @param order order of the entities of the query, null if the results are merged without order
+     * @param query executed query
+     * @return Future of the merged results
      */
-    private void iterateFutureResults(final Set<Future<TreeExecutionResult>> futureResults, TreeExecutionResult resultUnion){
-        for (Future<TreeExecutionResult> futureExecutionResult : futureResults) {
-            try {
-                TreeExecutionResult result = futureExecutionResult.get();
-//                resultUnion.getModel().add(result.getModel());
-                if(resultUnion.getFormatedResult() == null){
-                    resultUnion.setFormatedResult(result.getFormatedResult());
-                }else{
-                    resultUnion.getFormatedResult().merge(result.getFormatedResult());
+    private CompletableFuture<TreeExecutionResult> mergeFutureResults(Map<Service, CompletableFuture<TreeExecutionResult>> futureResults, ExecutionContext context,
+                                                                      LimitTracker limitTracker, Function<Service, CompletableFuture<TreeExecutionResult>> selection,
+                                                                      Comparator<String> order, Query query) {
+        TreeExecutionResult resultUnion = new TreeExecutionResult();
+        resultUnion.setResultSet(new HashMap<>());
+        List<Result<?>> orderedResults = order == null ? null : new ArrayList<>();
+        Supplier<TreeExecutionResult> finish = () -> {
+            synchronized (resultUnion) {
+                if (order != null) {
+                    resultUnion.setFormatedResult(ObjectResult.mergeOrdered(orderedResults, order, getRootWindow(query)));
                 }
-                resultUnion.getResultSet().putAll(result.getResultSet());
-            } catch (InterruptedException
-                    | ExecutionException e) {
-                e.printStackTrace();
+                return resultUnion;
             }
+        };
+        Set<Service> pending = new HashSet<>(futureResults.keySet());   // services whose results are awaited
+        AtomicBoolean closed = new AtomicBoolean(false);   // set when the manifold timeout expired
+        AtomicBoolean selected = new AtomicBoolean(false);   // set when the limit is satisfied and the selection is queried
+        CompletableFuture<TreeExecutionResult> mergedResult = new CompletableFuture<>();
+        CompletableFuture<?>[] merges = futureResults.entrySet().stream()
+                .map(entry -> entry.getValue().handle((result, e) -> {
+                    Set<Service> incomplete = null;
+                    synchronized (resultUnion) {
+                        if (closed.get() || selected.get()) {
+                            return null;
+                        }
+                        pending.remove(entry.getKey());
+                        if (e != null) {
+                            logFailure(entry.getKey(), e, context);
+                        } else {
+                            merge(resultUnion, result, orderedResults);
+                            if (limitTracker != null) {
+                                limitTracker.record(result.getFormatedResult());
+                                if (limitTracker.isSatisfied()) {
+                                    incomplete = new HashSet<>(pending);
+                                    futureResults.keySet().stream()
+                                            .filter(service -> limitTracker.isSkipped(service.getId()))
+                                            .forEach(incomplete::add);
+                                    selected.set(!incomplete.isEmpty());
+                                    pending.addAll(incomplete);
+                                }
+                            }
+                        }
+                    }
+                    if (incomplete != null && !incomplete.isEmpty()) {
+                        LOGGER.debug("{}: Limit of the query is satisfied, {} services are queried for the selected entities", getId(), incomplete.size());
+                        CompletableFuture.allOf(incomplete.stream()
+                                .map(service -> selection.apply(service).handle((selectionResult, selectionError) -> {
+                                    synchronized (resultUnion) {
+                                        if (closed.get()) {
+                                            return null;
+                                        }
+                                        pending.remove(service);
+                                        if (selectionError != null) {
+                                            logFailure(service, selectionError, context);
+                                        } else {
+                                            merge(resultUnion, selectionResult, orderedResults);
+                                        }
+                                    }
+                                    return null;
+                                }))
+                                .toArray(CompletableFuture[]::new))
+                                .thenRun(() -> mergedResult.complete(finish.get()));
+                    }
+                    return null;
+                }))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(merges).thenRun(() -> {
+            if (!selected.get()) {
+                mergedResult.complete(finish.get());
+            }
+        });
+        if (context.getManifoldTimeout() > 0) {
+            long timeLimit = context.getTimeLimit(context.getManifoldTimeout());
+            ExecutionScheduler scheduler = ExecutionScheduler.getInstance();
+            // the merged result is completed on the pool, the timer thread must not execute the dependent executions
+            ScheduledFuture<?> timer = scheduler.scheduleTimeout(() -> scheduler.schedule(() -> {
+                synchronized (resultUnion) {
+                    if (mergedResult.isDone()) {
+                        return;
+                    }
+                    closed.set(true);
+                    pending.forEach(service -> context.addError(String.format(
+                            "Results of service %s are omitted, the service exceeded the manifold timeout of %d ms",
+                            service.getId(), context.getManifoldTimeout())));
+                }
+                LOGGER.debug("{}: Manifold timeout exceeded by {} services", getId(), pending.size());
+                mergedResult.complete(finish.get());
+            }, 0), timeLimit);
+            mergedResult.whenComplete((result, e) -> timer.cancel(false));
         }
-        LOGGER.debug("Result:");
-        LOGGER.debug(resultUnion.getResultSet().toString());
+        return mergedResult;
     }
 
-    public String getLevel() {
-        return level;
+    /**
+     * Logs the given failure of the given service.
+     * @param service failed service
+     * @param e failure of the service
+     * @param context ExecutionContext of the request
+     */
+    private void logFailure(Service service, Throwable e, ExecutionContext context) {
+        if (context.isCancelled()) {
+            LOGGER.debug("Execution aborted due to the cancelled request", e);
+        } else {
+            LOGGER.error("Problem executing query at service " + service.getId(), e);
+        }
     }
 
-    public void setLevel(String level) {
-        this.level = level;
+    /**
+     * Returns the given root query restricted to the given selected entities. The entities are queried by their IRIs
+     * (_id argument) without limit and offset, as they were already selected.
+     * @param query root query with a limit
+     * @param entities IRIs of the selected entities
+     * @return query for the values of the selected entities
+     */
+    static QueryPattern selectedQuery(Query query, Set<String> entities) {
+        QueryPattern pattern = (QueryPattern) query;
+        Map<String, Object> args = new HashMap<>(pattern.args);
+        args.remove(SPARQLServiceConverter.LIMIT);
+        args.remove(SPARQLServiceConverter.OFFSET);
+        args.put(SPARQLServiceConverter.ID, new ArrayList<>(entities));
+        return new QueryPatternBuilder()
+                .setName(pattern.name)
+                .setAlias(pattern.alias)
+                .setNodeId(pattern.nodeId)
+                .setArgs(args)
+                .setTargetType(pattern.targetType)
+                .setFields(pattern.fields)
+                .setParentName(pattern.parentName)
+                .setParentId(pattern.parentId)
+                .setParentAlias(pattern.parentAlias)
+                .setParentArgs(pattern.parentArgs)
+                .setParentType(pattern.parentType)
+                .createQueryPattern();
     }
 
     /**
-     * Wrapper class for Service classes to make the executeQuery() method Callable.
+     * Returns the empty result of a service that is skipped because the limit of the query is satisfied.
+     * @param markers variables for the SPARQL query
+     * @return result without IRIs and formatted results
      */
-    private class CallableService implements Callable<TreeExecutionResult> {
-
-        private Service service;
-        private Query query;
-        private Set<String> input;
-        private Set<String> strings;
-        private String rootType;
-        private HGQLSchema schema;
-
-
-        public CallableService(Service service, Query query, Set<String> input, Set<String> strings, String rootType, HGQLSchema schema) {
-            this.service = service;
-            this.query = query;
-            this.input = input;
-            this.strings = strings;
-            this.rootType = rootType;
-            this.schema = schema;
+    private TreeExecutionResult skippedResult(Set<String> markers) {
+        TreeExecutionResult result = new TreeExecutionResult();
+        Map<String, Set<String>> resultSet = new HashMap<>();
+        markers.forEach(marker -> resultSet.put(marker, new HashSet<>()));
+        result.setResultSet(resultSet);
+        return result;
+    }
+
+    /**
+     * Merges the given result of one service into the given resultUnion.
+     * @param resultUnion TreeExecutionResult object to store the merged result
+     * @param result result of one service
+     * @param orderedResults list the formatted result is added to if the results are merged in order, otherwise null
+     */
+    private void merge(TreeExecutionResult resultUnion, TreeExecutionResult result, List<Result<?>> orderedResults) {
+        if (orderedResults != null) {
+            orderedResults.add(result.getFormatedResult());
+        } else if (resultUnion.getFormatedResult() == null) {
+            resultUnion.setFormatedResult(result.getFormatedResult());
+        } else if (result.getFormatedResult() != null) {
+            resultUnion.getFormatedResult().merge(result.getFormatedResult());
         }
+        result.getResultSet().forEach((var, uris) -> resultUnion.getResultSet()
+                .computeIfAbsent(var, v -> new HashSet<>())
+                .addAll(uris));
+    }
 
+    public String getLevel() {
+        return level;
+    }
 
-        @Override
-        public TreeExecutionResult call() throws Exception {
-            return this.service.executeQuery(query,input,strings,rootType,schema);
-        }
+    public void setLevel(String level) {
+        this.level = level;
     }
 }
@@ -0,0 +1,192 @@
+package org.hypergraphql.datafetching.services;
+
+import org.hypergraphql.config.system.ServiceConfig;
+import org.hypergraphql.datafetching.SPARQLExecutionResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the SPARQL results of one service. The results are cached under the key of their execution (see
+ * SPARQLEndpointService.flightKey()) for the configured time to live (cacheTtl). Expired results are still served for
+ * the configured stale time (cacheStaleTime) while the query is executed again in the background
+ * (stale-while-revalidate), so that hot results are refreshed without delaying the requests that read them. Results
+ * that expired longer ago are dropped and executed on the request path.
+ * Each caller receives an own deep copy of the cached result, the cached results are never modified. Failed executions
+ * and incomplete results (see SPARQLExecutionResult.isIncomplete()) are not cached.
+ * If the cache is full a new result is only admitted if its key was queried more often recently than the key of the
+ * least recently used result, which is then evicted (TinyLFU admission, see FrequencySketch). Otherwise the new result
+ * is not cached, so that a scan over many distinct queries does not evict the frequently used results.
+ * The cache is disabled if its size or its time to live is 0.
+ */
+public class ResultCache {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ResultCache.class);
+
+    private final String serviceId;
+    private final int capacity;
+    private final long ttl;
+    private final long staleTime;
+    private final LongSupplier clock;
+    private final Map<String, CachedResult> entries;   // in access order, the first entry is the least recently used
+    private final FrequencySketch sketch;
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong staleHits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong refreshes = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+    private final AtomicLong rejections = new AtomicLong(0);
+
+    /**
+     * Initializes the result cache of the given service.
+     * @param serviceConfig configuration of the service containing the size, time to live and stale time of the cache
+     */
+    public ResultCache(ServiceConfig serviceConfig) {
+        this(serviceConfig.getId(), serviceConfig.getCacheSize(), serviceConfig.getCacheTtl(), serviceConfig.getCacheStaleTime(), System::currentTimeMillis);
+    }
+
+    /**
+     * Initializes a result cache.
+     * @param serviceId id of the service
+     * @param capacity maximal number of cached results, 0 disables the cache
+     * @param ttl time in ms a result is served without refreshing it, 0 disables the cache
+     * @param staleTime time in ms an expired result is still served while it is refreshed in the background
+     * @param clock current time in ms
+     */
+    ResultCache(String serviceId, int capacity, long ttl, long staleTime, LongSupplier clock) {
+        this.serviceId = serviceId;
+        this.capacity = ttl > 0 ? capacity : 0;
+        this.ttl = ttl;
+        this.staleTime = staleTime;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.sketch = new FrequencySketch(this.capacity);
+    }
+
+    /**
+     * Indicates if results are cached.
+     * @return True if the capacity and the time to live of the cache are greater than 0, otherwise False
+     */
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /**
+     * Returns the result of the query with the given key. If a fresh result is cached a copy of it is returned without
+     * executing the query. If a stale result is cached a copy of it is returned and the query is refreshed in the
+     * background with the given refresh, at most one refresh per key runs at a time. Otherwise the query is executed
+     * with the given execution and its result is cached.
+     * @param key key of the query, executions with the same key must return the same results
+     * @param execution starts the execution of the query on the request path
+     * @param refresh starts the execution of the query in the background, independent of the request
+     * @return Future of the result of the query, the result is not shared with other callers
+     */
+    public CompletableFuture<SPARQLExecutionResult> execute(String key, Supplier<CompletableFuture<SPARQLExecutionResult>> execution,
+                                                            Supplier<CompletableFuture<SPARQLExecutionResult>> refresh) {
+
+        if (!isEnabled()) {
+            return execution.get();
+        }
+        CachedResult entry;
+        synchronized (entries) {
+            sketch.increment(key);
+            entry = entries.get(key);
+        }
+        long now = clock.getAsLong();
+        if (entry != null && now < entry.expires) {
+            hits.incrementAndGet();
+            return CompletableFuture.completedFuture(SingleFlight.copy(entry.result));
+        }
+        if (entry != null && now < entry.expires + staleTime) {
+            staleHits.incrementAndGet();
+            if (entry.refreshing.compareAndSet(false, true)) {
+                refreshes.incrementAndGet();
+                LOGGER.debug("{}: Cached result is stale, refreshing it in the background", serviceId);
+                try {
+                    load(key, refresh.get()).whenComplete((result, e) -> {
+                        if (e != null) {
+                            LOGGER.debug("{}: Refresh of a cached result failed: {}", serviceId, e.getMessage());
+                        }
+                        entry.refreshing.set(false);   // a failed refresh is retried by the next stale hit
+                    });
+                } catch (RuntimeException e) {
+                    entry.refreshing.set(false);
+                    LOGGER.debug("{}: Refresh of a cached result failed: {}", serviceId, e.getMessage());
+                }
+            }
+            return CompletableFuture.completedFuture(SingleFlight.copy(entry.result));
+        }
+        misses.incrementAndGet();
+        return load(key, execution.get());
+    }
+
+    /**
+     * Caches a copy of the result of the given execution once it is complete. If the cache is full the result is only
+     * cached if its key is more frequent than the key of the least recently used result.
+     */
+    private CompletableFuture<SPARQLExecutionResult> load(String key, CompletableFuture<SPARQLExecutionResult> execution) {
+        return execution.thenApply(result -> {
+            if (result != null && !result.isIncomplete()) {
+                CachedResult entry = new CachedResult(SingleFlight.copy(result), clock.getAsLong() + ttl);
+                synchronized (entries) {
+                    if (!entries.containsKey(key) && entries.size() >= capacity) {
+                        String victim = entries.keySet().iterator().next();
+                        if (sketch.frequency(key) <= sketch.frequency(victim)) {
+                            rejections.incrementAndGet();
+                            return result;
+                        }
+                        entries.remove(victim);
+                        evictions.incrementAndGet();
+                    }
+                    entries.put(key, entry);
+                }
+            }
+            return result;
+        });
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns the current metrics of the cache.
+     * @return Map with the metric name as key and the metric value as value
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("capacity", capacity);
+        metrics.put("size", size());
+        metrics.put("hits", hits.get());
+        metrics.put("staleHits", staleHits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("refreshes", refreshes.get());
+        metrics.put("evictions", evictions.get());
+        metrics.put("rejections", rejections.get());
+        return metrics;
+    }
+
+    /**
+     * Cached result and the time in ms at which it expires.
+     */
+    private static class CachedResult {
+
+        private final SPARQLExecutionResult result;
+        private final long expires;
+        private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        CachedResult(SPARQLExecutionResult result, long expires) {
+            this.result = result;
+            this.expires = expires;
+        }
+    }
+}
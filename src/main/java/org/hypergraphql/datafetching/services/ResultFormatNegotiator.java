@@ -0,0 +1,167 @@
+package org.hypergraphql.datafetching.services;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.WebContent;
+import org.apache.jena.riot.resultset.ResultSetLang;
+import org.hypergraphql.config.system.ServiceConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Negotiates the format of the SPARQL results of one endpoint.
+ * The configured result format of the service is requested with the highest preference followed by the SPARQL XML
+ * and JSON results as fallback, therefore an endpoint that does not support the compact format answers with one of the
+ * standard formats and the results are parsed according to the content type of the response.
+ * If the endpoint rejects the Accept header (406) or returns a compact format that can not be parsed, the compact
+ * format is marked as unsupported and the following queries only request the standard formats.
+ * CSV results are not offered since they do not distinguish IRIs from literals and lose language tags and datatypes.
+ */
+public class ResultFormatNegotiator {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ResultFormatNegotiator.class);
+
+    static final String STANDARD_ACCEPT_HEADER = WebContent.contentTypeResultsXML + "," + WebContent.contentTypeResultsJSON + ";q=0.9";
+
+    private final String serviceId;
+    private final String format;
+    private final String acceptHeader;
+    private volatile boolean compactUnsupported = false;
+    private final Map<String, Long> responses = new TreeMap<>();
+
+    /**
+     * Initializes the negotiator with the result format of the given service configuration.
+     * @param serviceConfig configuration of the service
+     */
+    public ResultFormatNegotiator(ServiceConfig serviceConfig) {
+        this(serviceConfig.getId(), serviceConfig.getResultFormat());
+    }
+
+    /**
+     * Initializes the negotiator.
+     * @param serviceId id of the service
+     * @param format requested result format, one of the ServiceConfig.RESULT_FORMAT_* constants
+     */
+    public ResultFormatNegotiator(String serviceId, String format) {
+        this.serviceId = serviceId;
+        this.format = format == null ? ServiceConfig.RESULT_FORMAT_XML : format;
+        this.acceptHeader = acceptHeader(this.format);
+    }
+
+    /**
+     * Returns the Accept header for the next query to the endpoint.
+     * @return Accept header with the preferred result formats
+     */
+    public String getAcceptHeader() {
+        return compactUnsupported ? STANDARD_ACCEPT_HEADER : acceptHeader;
+    }
+
+    /**
+     * Indicates if a rejected request should be repeated with the standard formats, which is the case if the endpoint
+     * may have rejected the requested compact format.
+     * @param acceptHeader Accept header of the rejected request
+     * @return True if the request should be repeated with getAcceptHeader(), otherwise False
+     */
+    public boolean onNotAcceptable(String acceptHeader) {
+        if (STANDARD_ACCEPT_HEADER.equals(acceptHeader)) {
+            return false;
+        }
+        markCompactUnsupported("the endpoint rejected the Accept header");
+        return true;
+    }
+
+    /**
+     * Handles a query whose results in the given format could not be parsed. If the format is a compact format the
+     * following queries request the standard formats.
+     * @param lang format of the results
+     */
+    public void onParseFailure(Lang lang) {
+        if (lang != null && !isStandard(lang)) {
+            markCompactUnsupported("results in " + lang.getLabel() + " could not be parsed");
+        }
+    }
+
+    /**
+     * Returns the result format of the given content type of a response and counts the response.
+     * Responses with an unknown content type are parsed as SPARQL XML results.
+     * @param contentType content type of the response, may be null
+     * @return result format of the response
+     */
+    public Lang getLang(String contentType) {
+        Lang lang = toLang(contentType);
+        synchronized (responses) {
+            responses.merge(lang.getLabel(), 1L, Long::sum);
+        }
+        return lang;
+    }
+
+    /**
+     * Returns the configured format, if the compact format is supported and the number of responses per format.
+     * @return Map with the metric name as key and the metric value as value
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("resultFormat", format);
+        metrics.put("compactUnsupported", compactUnsupported);
+        synchronized (responses) {
+            metrics.put("responses", new TreeMap<>(responses));
+        }
+        return metrics;
+    }
+
+    private void markCompactUnsupported(String reason) {
+        if (!compactUnsupported) {
+            compactUnsupported = true;
+            LOGGER.warn("Service {} does not support the result format {} ({}), falling back to SPARQL XML/JSON results", serviceId, format, reason);
+        }
+    }
+
+    /**
+     * Maps the content type of a response to the result format, unknown content types are parsed as XML results.
+     */
+    private static Lang toLang(String contentType) {
+        if (contentType == null) {
+            return ResultSetLang.SPARQLResultSetXML;
+        }
+        switch (contentType.toLowerCase()) {
+            case WebContent.contentTypeResultsJSON:
+            case WebContent.contentTypeJSON:
+                return ResultSetLang.SPARQLResultSetJSON;
+            case WebContent.contentTypeTextTSV:
+                return ResultSetLang.SPARQLResultSetTSV;
+            case WebContent.contentTypeResultsThrift:
+                return ResultSetLang.SPARQLResultSetThrift;
+            default:
+                return ResultSetLang.SPARQLResultSetXML;
+        }
+    }
+
+    private static boolean isStandard(Lang lang) {
+        return lang.equals(ResultSetLang.SPARQLResultSetXML) || lang.equals(ResultSetLang.SPARQLResultSetJSON);
+    }
+
+    /**
+     * Builds the Accept header of the given result format. The requested formats are followed by the standard formats
+     * with a lower preference.
+     */
+    static String acceptHeader(String format) {
+        switch (format) {
+            case ServiceConfig.RESULT_FORMAT_JSON:
+                return WebContent.contentTypeResultsJSON + "," + WebContent.contentTypeResultsXML + ";q=0.9";
+            case ServiceConfig.RESULT_FORMAT_TSV:
+                return WebContent.contentTypeTextTSV + "," + WebContent.contentTypeResultsXML + ";q=0.9,"
+                        + WebContent.contentTypeResultsJSON + ";q=0.8";
+            case ServiceConfig.RESULT_FORMAT_THRIFT:
+                return WebContent.contentTypeResultsThrift + "," + WebContent.contentTypeResultsXML + ";q=0.9,"
+                        + WebContent.contentTypeResultsJSON + ";q=0.8";
+            case ServiceConfig.RESULT_FORMAT_AUTO:
+                return WebContent.contentTypeResultsThrift + "," + WebContent.contentTypeTextTSV + ";q=0.9,"
+                        + WebContent.contentTypeResultsXML + ";q=0.8," + WebContent.contentTypeResultsJSON + ";q=0.7";
+            default:
+                return STANDARD_ACCEPT_HEADER;
+        }
+    }
+}
@@ -0,0 +1,509 @@
+package org.hypergraphql.datafetching.services;
+
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.rdf.model.RDFNode;
+import org.hypergraphql.config.schema.FieldOfTypeConfig;
+import org.hypergraphql.config.schema.TypeConfig;
+import org.hypergraphql.datafetching.services.resultmodel.ObjectResult;
+import org.hypergraphql.datafetching.services.resultmodel.Result;
+import org.hypergraphql.datafetching.services.resultmodel.ResultDictionary;
+import org.hypergraphql.datafetching.services.resultmodel.StringResult;
+import org.hypergraphql.datamodel.HGQLSchema;
+import org.hypergraphql.query.converters.SPARQLServiceConverter;
+import org.hypergraphql.query.pattern.Query;
+import org.hypergraphql.query.pattern.QueryPattern;
+import org.hypergraphql.query.pattern.SubQueriesPattern;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import static org.hypergraphql.config.schema.HGQLVocabulary.*;
+
+/**
+ * Translates the solutions of the SPARQL results of a query into the Result of the query.
+ * The query is compiled once into a tree of field mappers that hold the SPARQL variables, names, arguments and output
+ * types of the query fields, which were looked up in the query and schema for every solution before. Each solution is
+ * appended directly to the accumulated Result of the query: the entities and field results of the solution are looked
+ * up in the accumulated Result and only created if they do not exist yet, no Result is built per solution and merged.
+ * A RowMapper is immutable and shared by all executions of the same query object (see of()), but the solutions of one
+ * Result must be appended sequentially.
+ */
+public class RowMapper {
+
+    private final static Map<Query, RowMapper> MAPPERS = new WeakHashMap<>();   // compiled mappers per query object
+
+    private final List<FieldMapper> fields;   // fields of the query (root fields or fields of the parent entity)
+    private final String parentId;   // SPARQL variable of the parent entity, null if the query has no parent
+    private final String parentName;
+    private final String parentAlias;
+    private final boolean parentIsList;
+    private final String rootName;   // name of the field returned as Result<?> if the query has no parent, null if no Result<?> is returned
+
+    private RowMapper(List<FieldMapper> fields, QueryPattern parent, boolean parentIsList) {
+        this.fields = fields;
+        this.parentId = parent == null ? null : parent.parentId;
+        this.parentName = parent == null ? null : parent.parentName;
+        this.parentAlias = parent == null ? null : parent.parentAlias;
+        this.parentIsList = parentIsList;
+        Set<String> names = new LinkedHashSet<>();
+        fields.forEach(field -> names.add(field.name));
+        this.rootName = parent == null && names.size() == 1 ? names.iterator().next() : null;
+    }
+
+    /**
+     * Returns the RowMapper of the given query. The mapper is compiled once per query object, further calls (e.g. for
+     * the other VALUES chunks, the members of a batch or a cached query plan) reuse the compiled mapper.
+     * @param query Query or sub-query containing the variables of the SPARQL query
+     * @param schema HGQLSchema the query is based on
+     * @return RowMapper of the query
+     */
+    public static RowMapper of(Query query, HGQLSchema schema) {
+
+        synchronized (MAPPERS) {
+            return MAPPERS.computeIfAbsent(query, q -> compile(q, schema));
+        }
+    }
+
+    /**
+     * Compiles the given query into a RowMapper.
+     * @param query Query or sub-query containing the variables of the SPARQL query
+     * @param schema HGQLSchema the query is based on
+     * @return RowMapper of the query
+     */
+    public static RowMapper compile(Query query, HGQLSchema schema) {
+
+        List<FieldMapper> fields = new ArrayList<>();
+        QueryPattern parent = null;
+        for (QueryPattern pattern : patterns(query)) {
+            fields.add(compileField(pattern, schema, null));
+            if (pattern.parentName != null) {
+                parent = pattern;
+            }
+        }
+        boolean parentIsList = true;   // parent field is a query field or unknown -> list
+        if (parent != null && schema.getFields().containsKey(parent.parentType)
+                && schema.getTypes().get(parent.parentType).getFields().containsKey(parent.parentName)) {
+            parentIsList = schema.getTypes().get(parent.parentType).getField(parent.parentName).isList();
+        }
+        return new RowMapper(fields, parent, parentIsList);
+    }
+
+    /**
+     * Appends the given solution to the given Result.
+     * If the query is a sub-query of a parent query the Result is an ObjectResult of the parent field containing the
+     * parent entities, otherwise it is the Result of the queried field. If the query has multiple fields but no parent
+     * no Result is built and null is returned.
+     * @param result accumulated Result of the previous solutions, null for the first solution
+     * @param solution solution of the query results
+     * @param dictionary Dictionary of the request the IRIs and literal values of the results are interned in
+     * @return accumulated Result including the given solution
+     */
+    public Result<?> append(Result<?> result, QuerySolution solution, ResultDictionary dictionary) {
+
+        if (parentName != null) {
+            if (result == null) {
+                result = new ObjectResult(parentId, parentName, parentAlias);
+                result.isList(parentIsList);
+            }
+            RDFNode parent = solution.get(parentId);
+            if (parent != null && result instanceof ObjectResult) {
+                Map<String, Result<?>> entity = ((ObjectResult) result).addObject(dictionary.intern(parent.toString()));
+                for (FieldMapper field : fields) {
+                    field.appendTo(entity, solution, dictionary);
+                }
+            }
+            return result;
+        }
+        if (rootName == null) {
+            return result;
+        }
+        for (FieldMapper field : fields) {
+            if (result == null) {
+                result = field.create();
+            }
+            if (field.accepts(result)) {
+                field.append(result, solution, dictionary);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Estimates the number of solutions the query would return if all fields were joined as sibling OPTIONAL clauses,
+     * i.e. the cross product of the values of the fields of each entity. Used to report the solutions saved by
+     * querying multi-valued sibling fields as UNION branches (see SPARQLServiceConverter.getSubQueries()).
+     * @param result Result accumulated by this RowMapper
+     * @return estimated number of solutions, 0 if the result is null or unknown
+     */
+    public long crossProductRows(Result<?> result) {
+        if (result == null) {
+            return 0;
+        }
+        if (parentName != null) {
+            return result instanceof ObjectResult ? entityRows((ObjectResult) result, fields.toArray(new FieldMapper[0])) : 0;
+        }
+        for (FieldMapper field : fields) {
+            if (field.accepts(result)) {
+                return field.rows(result);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Sum of the cross products of the field values of each entity of the given result.
+     */
+    private static long entityRows(ObjectResult result, FieldMapper[] fields) {
+        long rows = 0;
+        for (String iri : result.getObjects()) {
+            Map<String, Result<?>> entity = result.getSubfiedldsOfObject(iri);
+            long entityRows = 1;
+            for (FieldMapper field : fields) {
+                Result<?> value = entity.get(field.name);
+                entityRows *= value == null ? 1 : field.rows(value);
+            }
+            rows += entityRows;
+        }
+        return rows;
+    }
+
+    private static List<QueryPattern> patterns(Query query) {
+        if (query instanceof SubQueriesPattern) {
+            List<QueryPattern> subqueries = ((SubQueriesPattern) query).getSubqueries();
+            return subqueries == null ? Collections.emptyList() : subqueries;
+        } else if (query instanceof QueryPattern) {
+            return Collections.singletonList((QueryPattern) query);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Compiles a queried field. The parent is the field the given field is a subfield of, null for the root fields of
+     * the query.
+     */
+    private static FieldMapper compileField(QueryPattern pattern, HGQLSchema schema, QueryPattern parent) {
+
+        boolean isList = true;   // root query field -> always list
+        if (parent != null) {
+            if (parent.targetType.equals(HGQL_SCALAR_LITERAL_GQL_NAME)) {
+                isList = false;
+            } else {
+                TypeConfig parentType = schema.getTypes().get(parent.targetType);
+                FieldOfTypeConfig field = parentType == null ? null : parentType.getField(pattern.name);
+                isList = field == null || field.isList();   // unknown field -> assume list
+            }
+        }
+        boolean populate = schema.getFields().get(pattern.name) != null
+                && !pattern.name.equals(HGQL_SCALAR_LITERAL_VALUE_GQL_NAME);
+        if (pattern.targetType.equals("String")) {
+            boolean literal = populate && !pattern.parentId.equals("null") && schema.getTypes().get(pattern.targetType) == null;
+            return new StringMapper(pattern, isList, literal);
+        } else if (pattern.targetType.equals(HGQL_SCALAR_LITERAL_GQL_NAME)) {
+            return new LiteralMapper(pattern, isList, populate);
+        }
+        List<FieldMapper> subfields = new ArrayList<>();
+        if (pattern.fields != null) {
+            for (QueryPattern subfield : patterns(pattern.fields)) {
+                FieldMapper mapper = compileSubfield(subfield, schema, pattern);
+                if (mapper != null) {
+                    subfields.add(mapper);
+                }
+            }
+        }
+        return new ObjectMapper(pattern, isList, subfields);
+    }
+
+    /**
+     * Compiles a subfield of an object field, the internal fields _id and _type are resolved from the parent.
+     * Returns null if the subfield has no results.
+     */
+    private static FieldMapper compileSubfield(QueryPattern pattern, HGQLSchema schema, QueryPattern parent) {
+
+        if (JSONLD.containsKey(pattern.name)) {
+            if (pattern.name.equals(SPARQLServiceConverter.ID)) {
+                return new IdMapper(pattern);
+            } else if (pattern.name.equals(SPARQLServiceConverter.TYPE)) {
+                TypeConfig parentType = schema.getTypes().get(parent.targetType);
+                String typeId = parentType == null ? null : parentType.getId();
+                return typeId == null ? null : new TypeMapper(pattern, typeId);
+            }
+        }
+        if (pattern.name.equals(HGQL_SCALAR_LITERAL_VALUE_GQL_NAME)) {
+            return null;
+        }
+        return compileField(pattern, schema, parent);
+    }
+
+    /**
+     * Compiled field of the query. The field result of an entity is created with the first solution of the entity,
+     * the following solutions are appended to it.
+     */
+    private abstract static class FieldMapper {
+
+        final String nodeId;   // SPARQL variable of the field
+        final String name;
+
+        FieldMapper(String nodeId, String name) {
+            this.nodeId = nodeId;
+            this.name = name;
+        }
+
+        /**
+         * Creates the empty Result of this field.
+         */
+        abstract Result<?> create();
+
+        /**
+         * Appends the given solution to the given Result of this field.
+         */
+        abstract void append(Result<?> result, QuerySolution solution, ResultDictionary dictionary);
+
+        /**
+         * Returns true if the given result can hold the results of this field.
+         */
+        abstract boolean accepts(Result<?> result);
+
+        /**
+         * Returns the number of solutions the given Result of this field contributes to the cross product of the
+         * fields of its entity (see crossProductRows()), at least 1 as the fields are optional.
+         */
+        long rows(Result<?> result) {
+            return 1;
+        }
+
+        /**
+         * Appends the given solution to the Result of this field in the given subfields of an entity.
+         */
+        void appendTo(Map<String, Result<?>> entity, QuerySolution solution, ResultDictionary dictionary) {
+            Result<?> result = entity.get(name);
+            if (result == null) {
+                result = create();
+                entity.put(name, result);
+            }
+            if (accepts(result)) {
+                append(result, solution, dictionary);
+            }
+        }
+    }
+
+    /**
+     * Field with an object type as output type, the subfields are appended to the entity of the solution.
+     */
+    private static class ObjectMapper extends FieldMapper {
+
+        private final String alias;
+        private final Map<String, Object> args;
+        private final boolean isList;
+        private final FieldMapper[] subfields;
+
+        ObjectMapper(QueryPattern pattern, boolean isList, List<FieldMapper> subfields) {
+            super(pattern.nodeId, pattern.name);
+            this.alias = pattern.alias;
+            this.args = pattern.args;
+            this.isList = isList;
+            this.subfields = subfields.toArray(new FieldMapper[0]);
+        }
+
+        @Override
+        Result<?> create() {
+            Result<?> result = new ObjectResult(nodeId, name, alias, args);
+            result.isList(isList);
+            return result;
+        }
+
+        @Override
+        void append(Result<?> result, QuerySolution solution, ResultDictionary dictionary) {
+            RDFNode object = solution.get(nodeId);
+            if (object != null) {
+                Map<String, Result<?>> entity = ((ObjectResult) result).addObject(dictionary.intern(object.toString()));
+                for (FieldMapper subfield : subfields) {
+                    subfield.appendTo(entity, solution, dictionary);
+                }
+            }
+        }
+
+        @Override
+        boolean accepts(Result<?> result) {
+            return result instanceof ObjectResult;
+        }
+
+        @Override
+        long rows(Result<?> result) {
+            return result instanceof ObjectResult ? Math.max(1, entityRows((ObjectResult) result, subfields)) : 1;
+        }
+    }
+
+    /**
+     * Field with a String as output type.
+     */
+    private static class StringMapper extends FieldMapper {
+
+        private final String alias;
+        private final Map<String, Object> args;
+        private final boolean isList;
+        private final boolean literal;   // false if the field has no values, e.g. the field is not defined in the schema
+
+        StringMapper(QueryPattern pattern, boolean isList, boolean literal) {
+            super(pattern.nodeId, pattern.name);
+            this.alias = pattern.alias;
+            this.args = pattern.args;
+            this.isList = isList;
+            this.literal = literal;
+        }
+
+        @Override
+        Result<?> create() {
+            Result<?> result = new StringResult(nodeId, name, alias, args);
+            result.isList(isList);
+            return result;
+        }
+
+        @Override
+        void append(Result<?> result, QuerySolution solution, ResultDictionary dictionary) {
+            if (literal) {
+                RDFNode object = solution.get(nodeId);
+                if (object != null) {
+                    ((StringResult) result).addString(dictionary.intern(object.asLiteral().getString()));
+                }
+            }
+        }
+
+        @Override
+        boolean accepts(Result<?> result) {
+            return result instanceof StringResult;
+        }
+
+        @Override
+        long rows(Result<?> result) {
+            return result instanceof StringResult ? Math.max(1, ((StringResult) result).size()) : 1;
+        }
+    }
+
+    /**
+     * Field with the output type Literal. The values are stored with their language tag or datatype as field _value of
+     * a placeholder entity.
+     */
+    private static class LiteralMapper extends FieldMapper {
+
+        private final String alias;
+        private final Map<String, Object> args;
+        private final boolean isList;
+        private final boolean populate;
+        private final String placeholder;
+
+        LiteralMapper(QueryPattern pattern, boolean isList, boolean populate) {
+            super(pattern.nodeId, pattern.name);
+            this.alias = pattern.alias;
+            this.args = pattern.args;
+            this.isList = isList;
+            this.populate = populate;
+            this.placeholder = HGQL_QUERY_NAMESPACE + nodeId.hashCode();
+        }
+
+        @Override
+        Result<?> create() {
+            ObjectResult result = new ObjectResult(nodeId, name, alias, args);
+            result.isList(isList);
+            result.addObject(placeholder);
+            return result;
+        }
+
+        @Override
+        void append(Result<?> result, QuerySolution solution, ResultDictionary dictionary) {
+            RDFNode value = populate ? solution.get(nodeId) : null;
+            if (value != null) {
+                Map<String, Result<?>> entity = ((ObjectResult) result).addObject(placeholder);
+                Result<?> literalValue = entity.get(HGQL_SCALAR_LITERAL_VALUE_GQL_NAME);
+                if (literalValue == null) {
+                    literalValue = new StringResult(nodeId, HGQL_SCALAR_LITERAL_VALUE_GQL_NAME);
+                    literalValue.isList(true);
+                    entity.put(HGQL_SCALAR_LITERAL_VALUE_GQL_NAME, literalValue);
+                }
+                if (literalValue instanceof StringResult) {
+                    ((StringResult) literalValue).addString(dictionary.intern(value.toString()));
+                }
+            }
+        }
+
+        @Override
+        boolean accepts(Result<?> result) {
+            return result instanceof ObjectResult;
+        }
+
+        @Override
+        long rows(Result<?> result) {
+            Map<String, Result<?>> entity = result instanceof ObjectResult ? ((ObjectResult) result).getSubfiedldsOfObject(placeholder) : null;
+            Result<?> literalValue = entity == null ? null : entity.get(HGQL_SCALAR_LITERAL_VALUE_GQL_NAME);
+            return literalValue instanceof StringResult ? Math.max(1, ((StringResult) literalValue).size()) : 1;
+        }
+    }
+
+    /**
+     * Internal field _id, the IRI of the parent entity.
+     */
+    private static class IdMapper extends FieldMapper {
+
+        private final String parentId;
+
+        IdMapper(QueryPattern pattern) {
+            super(pattern.nodeId, pattern.name);
+            this.parentId = pattern.parentId;
+        }
+
+        @Override
+        Result<?> create() {
+            Result<?> result = new StringResult(nodeId, name);
+            result.isList(false);
+            return result;
+        }
+
+        @Override
+        void append(Result<?> result, QuerySolution solution, ResultDictionary dictionary) {
+            RDFNode parent = solution.get(parentId);
+            if (parent != null) {
+                ((StringResult) result).addString(dictionary.intern(parent.toString()));
+            }
+        }
+
+        @Override
+        boolean accepts(Result<?> result) {
+            return result instanceof StringResult;
+        }
+    }
+
+    /**
+     * Internal field _type, the type IRI of the parent field.
+     */
+    private static class TypeMapper extends FieldMapper {
+
+        private final String typeId;
+
+        TypeMapper(QueryPattern pattern, String typeId) {
+            super(pattern.nodeId, pattern.name);
+            this.typeId = typeId;
+        }
+
+        @Override
+        Result<?> create() {
+            StringResult result = new StringResult(nodeId, name);
+            result.isList(false);
+            result.addString(typeId);
+            return result;
+        }
+
+        @Override
+        void append(Result<?> result, QuerySolution solution, ResultDictionary dictionary) {
+            // the type is added when the result is created
+        }
+
+        @Override
+        boolean accepts(Result<?> result) {
+            return result instanceof StringResult;
+        }
+    }
+}
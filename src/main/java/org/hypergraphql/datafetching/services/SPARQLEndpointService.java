@@ -1,35 +1,41 @@
 package org.hypergraphql.datafetching.services;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.Credentials;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.CredentialsProvider;
-import org.apache.http.client.HttpClient;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.apache.jena.query.QuerySolution;
 import org.apache.jena.riot.WebContent;
-import org.apache.jena.riot.web.HttpOp;
 import org.hypergraphql.config.schema.HGQLVocabulary;
 import org.hypergraphql.config.system.ServiceConfig;
+import org.hypergraphql.datafetching.ChildExecutionDispatcher;
+import org.hypergraphql.datafetching.ExecutionContext;
+import org.hypergraphql.datafetching.ExecutionScheduler;
 import org.hypergraphql.datafetching.ExecutionTreeNode;
+import org.hypergraphql.datafetching.LimitTracker;
 import org.hypergraphql.datafetching.SPARQLEndpointExecution;
 import org.hypergraphql.datafetching.SPARQLExecutionResult;
 import org.hypergraphql.datafetching.TreeExecutionResult;
+import org.hypergraphql.datafetching.services.resultmodel.ObjectResult;
 import org.hypergraphql.datafetching.services.resultmodel.Result;
 import org.hypergraphql.datamodel.HGQLSchema;
 import org.hypergraphql.query.converters.SPARQLServiceConverter;
 import org.hypergraphql.query.pattern.Query;
 import org.hypergraphql.query.pattern.QueryPattern;
+import org.hypergraphql.query.pattern.SubQueriesPattern;
+import org.hypergraphql.util.HttpUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class SPARQLEndpointService extends SPARQLService {
 
@@ -37,7 +43,23 @@ public class SPARQLEndpointService extends SPARQLService {
     private String url;
     private String user;
     private String password;
-    final static int VALUES_SIZE_LIMIT = 100;
+    public final static int VALUES_SIZE_LIMIT = ServiceConfig.DEFAULT_CHUNK_SIZE;   // default chunk size, the chunk size of a service is adapted by its chunkSizer
+    protected ValuesChunkSizer chunkSizer = new ValuesChunkSizer(VALUES_SIZE_LIMIT, VALUES_SIZE_LIMIT, VALUES_SIZE_LIMIT,
+            ServiceConfig.DEFAULT_CHUNK_LATENCY, ServiceConfig.DEFAULT_CHUNK_RESULT_LIMIT);
+    private int perParentThreshold = VALUES_SIZE_LIMIT;
+    private int postThreshold = ServiceConfig.DEFAULT_POST_THRESHOLD;
+    private int timeout = ServiceConfig.DEFAULT_TIMEOUT;
+    private int maxConnections = ServiceConfig.DEFAULT_MAX_CONNECTIONS;
+    private int connectTimeout = ServiceConfig.DEFAULT_CONNECT_TIMEOUT;
+    private int keepAlive = ServiceConfig.DEFAULT_KEEP_ALIVE;
+    private boolean compression = true;
+    private ResultFormatNegotiator resultFormatNegotiator = new ResultFormatNegotiator(null, ServiceConfig.RESULT_FORMAT_XML);
+    private boolean constructMode = false;
+    private CloseableHttpClient httpClient;   // created with the first request, local services never use it
+    private ServiceBulkhead bulkhead = new ServiceBulkhead(null, ServiceConfig.DEFAULT_MAX_IN_FLIGHT,
+            ServiceConfig.DEFAULT_QUEUE_SIZE, ServiceConfig.OVERFLOW_QUEUE);
+    private SingleFlight singleFlight = new SingleFlight(null);
+    private ResultCache resultCache = new ResultCache(null, 0, 0, 0, System::currentTimeMillis);
 
     public String getUrl() {
         return url;
@@ -51,50 +73,299 @@ public class SPARQLEndpointService extends SPARQLService {
         return password== null? "" : password;
     }
 
+    /**
+     * Returns the adaptive chunk size of the VALUES clauses of the queries to this service.
+     * @return chunk sizer of this service
+     */
+    public ValuesChunkSizer getChunkSizer() {
+        return chunkSizer;
+    }
+
+    /**
+     * Returns the maximal time to establish a HTTP connection to the endpoint.
+     * @return connect timeout in milliseconds, 0 if the connection is only limited by the timeout of the query
+     */
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * Returns the HTTP client of this service. The client is created with the first call and reused for all requests
+     * to the endpoint, its connections are pooled and kept alive between the requests.
+     * @return pooled HTTP client with the credentials of this service
+     */
+    public synchronized CloseableHttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = HttpUtils.createPooledClient(user, password, maxConnections, keepAlive, compression);
+        }
+        return httpClient;
+    }
+
+    /**
+     * Returns the negotiator of the result format of the SPARQL results of this service.
+     * @return result format negotiator of this service
+     */
+    public ResultFormatNegotiator getResultFormatNegotiator() {
+        return resultFormatNegotiator;
+    }
+
+    /**
+     * Indicates if the queries of this service are sent as CONSTRUCT queries (see ConstructGraph).
+     * @return True if the service uses the construct fetch mode, False for SELECT queries
+     */
+    public boolean isConstructMode() {
+        return constructMode;
+    }
+
+    /**
+     * Returns the bulkhead that limits the concurrent queries to this service.
+     * @return bulkhead of this service
+     */
+    public ServiceBulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    /**
+     * Returns the single-flight layer that coalesces identical concurrent queries to this service.
+     * @return single-flight layer of this service
+     */
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * Returns the cache of the SPARQL results of this service.
+     * @return result cache of this service
+     */
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Returns the maximal number of parents of a query chunk for which fields with a limit are queried with one
+     * subquery per parent (see SPARQLQueryTemplate).
+     * @return maximal number of parents that are queried per parent
+     */
+    public int getPerParentThreshold() {
+        return perParentThreshold;
+    }
+
+    /**
+     * Returns the length of the SPARQL query from which on the query is sent with HTTP POST.
+     * @return query length threshold for POST requests
+     */
+    public int getPostThreshold() {
+        return postThreshold;
+    }
+
+    /**
+     * Returns the maximal execution time of one query to this service.
+     * @return timeout in milliseconds, 0 if the queries are only limited by the deadline of the request
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
     /**
      * Executes the given query against the SPARQL endpoint assigned to this object.
      * If the remote SPARQL endpoint needs authentication the configured username and password are used for a HTTP authentication.
-     * If more IRIs are provided in input then defined in VALUES_SIZE_LIMIT as limit the values are distributed over multiple queries to sta below the limit.
+     * If more IRIs are provided in input than the current chunk size of the service the values are distributed over multiple queries to stay below the chunk size.
      * @param query query or sub-query to be executed
      * @param input Possible IRIs of the parent query that are used to limit the results of this query/sub-query
      * @param markers variables for the SPARQL query
      * @param rootType type of the query root
      * @param schema HGQLSchema the query is based on
+     * @param context ExecutionContext of the request the query belongs to
      * @return Query results and IRIs for underlying queries
      */
     @Override
-    public TreeExecutionResult executeQuery(Query query, Set<String> input, Set<String> markers , String rootType , HGQLSchema schema) {
+    public TreeExecutionResult executeQuery(Query query, Set<String> input, Set<String> markers , String rootType , HGQLSchema schema, ExecutionContext context) {
+
+        Map<String, Set<String>> resultSet = new HashMap<>();
+        List<CompletableFuture<SPARQLExecutionResult>> futureSPARQLresults = submitExecutions(query, input, markers, rootType, schema, context, null, null, resultSet);
+        // the calling thread waits for the results, therefore it executes the queries that did not yet start itself
+        ExecutionScheduler scheduler = ExecutionScheduler.getInstance();
+        futureSPARQLresults.forEach(scheduler::runIfQueued);
+        return mergeFutureResults(futureSPARQLresults, resultSet, getRootOrder(query, rootType), query).join();
+    }
+
+    /**
+     * Executes the given query like executeQuery(query, input, markers, rootType, schema, context) without blocking the
+     * calling thread. The IRIs of the markers are handed to the given dispatcher while the results are streamed from
+     * the service and the results of the individual queries are merged in the order they complete.
+     * @param query query or sub-query to be executed
+     * @param input Possible IRIs of the parent query that are used to limit the results of this query/sub-query
+     * @param markers variables for the SPARQL query
+     * @param rootType type of the query root
+     * @param schema HGQLSchema the query is based on
+     * @param context ExecutionContext of the request the query belongs to
+     * @param dispatcher Dispatcher of the sub-queries, if null the IRIs are only returned with the result
+     * @return Future of the query results and IRIs for underlying queries
+     */
+    @Override
+    public CompletableFuture<TreeExecutionResult> executeQueryAsync(Query query, Set<String> input, Set<String> markers , String rootType , HGQLSchema schema, ExecutionContext context, ChildExecutionDispatcher dispatcher) {
 
-        LOGGER.debug(String.format("%s: Start query execution", this.getId()));
         Map<String, Set<String>> resultSet = new HashMap<>();
-        Set<Future<SPARQLExecutionResult>> futureSPARQLresults = new HashSet<>();
+        List<CompletableFuture<SPARQLExecutionResult>> futureSPARQLresults = submitExecutions(query, input, markers, rootType, schema, context, dispatcher, null, resultSet);
+        return mergeFutureResults(futureSPARQLresults, resultSet, getRootOrder(query, rootType), query);
+    }
+
+    /**
+     * Executes the given query and hands the solutions of the query results to the given consumer instead of building
+     * the results of the query. Used to execute the queries of multiple ExecutionTreeNodes as one batched query whose
+     * solutions are distributed to the ExecutionTreeNodes (see QueryBatcher).
+     * Note: The consumer is called concurrently by the executions of the individual VALUES chunks.
+     * @param query query or sub-query to be executed
+     * @param input Possible IRIs of the parent query that are used to limit the results of this query/sub-query
+     * @param rootType type of the query root
+     * @param schema HGQLSchema the query is based on
+     * @param context ExecutionContext of the request the query belongs to
+     * @param solutionConsumer consumer of the query solutions
+     * @return Future that completes when all solutions are handed to the consumer, fails with the first failure of the
+     *         executions once all executions are finished
+     */
+    public CompletableFuture<Void> executeSolutionsAsync(Query query, Set<String> input, String rootType, HGQLSchema schema, ExecutionContext context, Consumer<QuerySolution> solutionConsumer) {
+
+        List<CompletableFuture<SPARQLExecutionResult>> futureSPARQLresults;
+        try {
+            futureSPARQLresults = submitExecutions(query, input, new HashSet<>(), rootType, schema, context, null, solutionConsumer, new HashMap<>());
+        } catch (RuntimeException e) {
+            LOGGER.error("Problem submitting query at service " + getId(), e);
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CompletableFuture<?>[] executions = futureSPARQLresults.stream()
+                .map(futureExecutionResult -> futureExecutionResult.handle((result, e) -> {
+                    if (e != null) {
+                        LOGGER.error("Problem executing query at service " + getId(), e);
+                        failure.compareAndSet(null, e);
+                    }
+                    return null;
+                }))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(executions).thenRun(() -> {
+            Throwable e = failure.get();
+            if (e != null) {
+                throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Submits the executions of the given query to the ExecutionScheduler. If more IRIs are provided in input than the
+     * current chunk size of the service (see ValuesChunkSizer) the values are distributed over multiple executions.
+     * The executions are started as soon as the bulkhead of the service has a free slot (see ServiceBulkhead).
+     * If the context tracks the limit of the query (see LimitTracker) no further chunks are submitted once the limit is
+     * satisfied, the chunks that are already submitted are skipped or aborted.
+     * Executions whose SPARQL query and result fields equal an execution of another request that is in flight share the
+     * result of this execution (see SingleFlight), if the result cache of the service is enabled they are answered from
+     * the cache (see ResultCache). Executions of batched queries (solutionConsumer) share the solutions of an equal
+     * batched execution in flight (see SingleFlight.stream()) but are not cached. Executions tracking a limit depend on
+     * the state of their request and are always executed on their own.
+     * @param query query or sub-query to be executed
+     * @param input Possible IRIs of the parent query that are used to limit the results of this query/sub-query
+     * @param markers variables for the SPARQL query
+     * @param rootType type of the query root
+     * @param schema HGQLSchema the query is based on
+     * @param context ExecutionContext of the request the query belongs to
+     * @param dispatcher Dispatcher of the sub-queries, may be null
+     * @param solutionConsumer Consumer of the query solutions, may be null (see executeSolutionsAsync())
+     * @param resultSet A Map where the markers are inserted as keys with an empty set as value
+     * @return Futures of the submitted executions
+     */
+    List<CompletableFuture<SPARQLExecutionResult>> submitExecutions(Query query, Set<String> input, Set<String> markers, String rootType, HGQLSchema schema, ExecutionContext context, ChildExecutionDispatcher dispatcher, Consumer<QuerySolution> solutionConsumer, Map<String, Set<String>> resultSet) {
+
+        LOGGER.debug(String.format("%s: Start query execution", this.getId()));
+        List<CompletableFuture<SPARQLExecutionResult>> futureSPARQLresults = new ArrayList<>();
 
         List<String> inputList = getStrings(query, input, markers, rootType, schema, resultSet);
 
-        // run the query but if the id restriction form _GET_BY_ID has more then VALUES_SIZE_LIMIT URIS then run multiple queries with each query having maximum of VALUES_SIZE_LIMIT IDds
-        List<ExecutorService> executors = new ArrayList<>();
+        // run the query but if the id restriction form _GET_BY_ID has more IRIs than the chunk size then run multiple queries with each query having at most chunk size IRIs
+        int chunkSize = chunkSizer.getChunkSize();
+        LimitTracker limitTracker = context == null || solutionConsumer != null ? null : context.getLimitTracker(query, rootType);
+        int from = 0;
         do {
-
-            Set<String> inputSubset = new HashSet<>();
-            if(!inputList.isEmpty()){
-                int size = Math.min(inputList.size(), VALUES_SIZE_LIMIT);
-                inputSubset = inputList.stream().limit(size).collect(Collectors.toSet());
-                inputList = inputList.stream().skip(size).collect(Collectors.toList());
+            if (limitTracker != null && limitTracker.isSatisfied()) {
+                LOGGER.debug("{}: Limit of the query is satisfied, {} values are not queried", getId(), inputList.size() - from);
+                limitTracker.skipped(getId());
+                break;
+            }
+            int to = Math.min(inputList.size(), from + chunkSize);
+            Set<String> inputSubset = new HashSet<>(inputList.subList(from, to));
+            SPARQLEndpointExecution execution = createExecution(query, inputSubset, markers, schema, rootType, dispatcher);
+            execution.setExecutionContext(context);
+            execution.setLimitTracker(limitTracker);
+            Supplier<CompletableFuture<SPARQLExecutionResult>> submission = () -> bulkhead.submit(execution, context, () -> degradedResult(markers));
+            if (solutionConsumer == null && limitTracker == null) {
+                String key = flightKey(query, markers, execution.getSparqlQuery());
+                futureSPARQLresults.add(resultCache.execute(key,
+                        () -> singleFlight.execute(key, submission),
+                        () -> singleFlight.execute(key, () -> refresh(query, inputSubset, markers, schema, rootType))));
+            } else if (solutionConsumer != null) {
+                String key = flightKey(query, markers, execution.getSparqlQuery());
+                futureSPARQLresults.add(singleFlight.stream(key, solutionConsumer, consumer -> {
+                    execution.setSolutionConsumer(consumer);
+                    return submission.get();
+                }));
+            } else {
+                futureSPARQLresults.add(submission.get());
             }
-            ExecutorService executor = Executors.newFixedThreadPool(50);
-            executors.add(executor);
-            SPARQLEndpointExecution execution = new SPARQLEndpointExecution(query,inputSubset,markers,this, schema, rootType);
-            futureSPARQLresults.add(executor.submit(execution));
+            from = to;
+
+        } while (from < inputList.size());
+
+        return futureSPARQLresults;
+    }
+
+    /**
+     * Generates the key of an execution for the SingleFlight. Executions with the same SPARQL query build the same
+     * results only if the markers and the aliases and arguments of the fields are equal as well, which are therefore
+     * part of the key.
+     * @param query query or sub-query to be executed
+     * @param markers variables for the SPARQL query
+     * @param sparqlQuery SPARQL query of the execution
+     * @return key of the execution
+     */
+    static String flightKey(Query query, Set<String> markers, String sparqlQuery) {
+        StringBuilder key = new StringBuilder(sparqlQuery.length() + 64);
+        key.append(new TreeSet<>(markers)).append('\n');
+        if (query instanceof QueryPattern) {
+            fieldKey((QueryPattern) query, key);
+        } else if (query instanceof SubQueriesPattern) {
+            fieldsKey((SubQueriesPattern) query, key);
+        }
+        return key.append('\n').append(sparqlQuery).toString();
+    }
 
-        } while (inputList.size()>0);
+    private static void fieldsKey(SubQueriesPattern fields, StringBuilder key) {
+        if (fields == null || fields.subqueries == null) {
+            return;
+        }
+        key.append('{');
+        fields.subqueries.forEach(field -> fieldKey(field, key));
+        key.append('}');
+    }
 
-        Result result = iterateFutureResults(futureSPARQLresults, resultSet);
+    private static void fieldKey(QueryPattern field, StringBuilder key) {
+        key.append(field.nodeId).append(':').append(field.name).append(':').append(field.alias).append(':')
+                .append(field.targetType).append(new TreeMap<>(field.args));
+        fieldsKey(field.fields, key);
+    }
 
-        TreeExecutionResult treeExecutionResult = new TreeExecutionResult();
-        treeExecutionResult.setResultSet(resultSet);
-        treeExecutionResult.setFormatedResult(result);
-        executors.forEach(executorService -> executorService.shutdown());
-        return treeExecutionResult;
+    /**
+     * Creates the execution of the given query for one subset of the input values.
+     * @param query query or sub-query to be executed
+     * @param inputSubset IRIs of the parent query, at most the chunk size
+     * @param markers variables for the SPARQL query
+     * @param schema HGQLSchema the query is based on
+     * @param rootType type of the query root
+     * @param dispatcher Dispatcher of the sub-queries, may be null
+     * @return Execution of the query
+     */
+    protected SPARQLEndpointExecution createExecution(Query query, Set<String> inputSubset, Set<String> markers, HGQLSchema schema, String rootType, ChildExecutionDispatcher dispatcher) {
+        return new SPARQLEndpointExecution(query, inputSubset, markers, this, schema, rootType, dispatcher);
     }
 
     /**
@@ -104,51 +375,115 @@ public class SPARQLEndpointService extends SPARQLService {
      * @return True if the update succeeds otherwise False
      */
     public Boolean executeUpdate(String update){
+        HttpPost request = new HttpPost(getUrl() + "/update");
+        request.setEntity(new StringEntity(update, ContentType.create(WebContent.contentTypeSPARQLUpdate, "UTF-8")));
         try{
-            CredentialsProvider credsProvider = new BasicCredentialsProvider();
-            Credentials credentials =
-                    new UsernamePasswordCredentials(this.getUser(), this.getPassword());
-            credsProvider.setCredentials(AuthScope.ANY, credentials);
-            HttpClient httpclient = HttpClients.custom()
-                    .setDefaultCredentialsProvider(credsProvider)
-                    .build();
-            HttpOp.setDefaultHttpClient(httpclient);
-
-            HttpOp.execHttpPost(getUrl() + "/update", WebContent.contentTypeSPARQLUpdate, update, null, null);
+            HttpResponse response = getHttpClient().execute(request);
+            EntityUtils.consume(response.getEntity());
+            int status = response.getStatusLine().getStatusCode();
+            if (status >= 300) {
+                LOGGER.error(String.format("Update at service %s failed: %d %s", getId(), status, response.getStatusLine().getReasonPhrase()));
+                return false;
+            }
             return true;
         }catch(Exception e){
+            request.abort();
             e.printStackTrace();
             return false;
         }
     }
 
-    Result iterateFutureResults (
-            final Set<Future<SPARQLExecutionResult>> futureSPARQLResults,
-            Map<String, Set<String>> resultSet
+    /**
+     * Merges the results of the given executions in the order the executions complete. A failed execution is logged
+     * and skipped.
+     * If the query is an ordered root query the entities of each execution are ordered by the SPARQL query, the results
+     * are then merged in order once all executions completed and only the first offset + limit entities are kept
+     * (see ObjectResult.mergeOrdered()).
+     * @param futureSPARQLResults Futures of the executions
+     * @param resultSet Map the IRIs of the markers are added to
+     * @param order order of the entities of the query, null if the results are merged without order
+     * @param query executed query
+     * @return Future of the merged results and IRIs
+     */
+    CompletableFuture<TreeExecutionResult> mergeFutureResults (
+            final List<CompletableFuture<SPARQLExecutionResult>> futureSPARQLResults,
+            Map<String, Set<String>> resultSet,
+            Comparator<String> order,
+            Query query
     ) {
-        Result res = null;
-        for (Future<SPARQLExecutionResult> futureExecutionResult : futureSPARQLResults) {
-            try {
-                SPARQLExecutionResult result = futureExecutionResult.get();
-                if(res == null){
-                    res = result.getResult();
-                }else{
-                    res.merge(result.getResult());
-                }
-                result.getResultSet().forEach((var, uris) ->{
-                    if(resultSet.get(var)== null){
-                        resultSet.put(var, uris);
-                    }else{
-                        resultSet.get(var).addAll(uris);
+        AtomicReference<Result<?>> res = new AtomicReference<>();
+        List<Result<?>> orderedResults = new ArrayList<>();
+        CompletableFuture<?>[] merges = futureSPARQLResults.stream()
+                .map(futureExecutionResult -> futureExecutionResult.handle((result, e) -> {
+                    if (e != null) {
+                        LOGGER.error("Problem executing query at service " + getId(), e);
+                        return null;
                     }
-                } );
-//                resultSet.putAll(result.getResultSet());
-            } catch (InterruptedException
-                    | ExecutionException e) {
-                e.printStackTrace();
-            }
-        }
-        return res;
+                    synchronized (resultSet) {
+                        if(order != null){
+                            orderedResults.add(result.getResult());
+                        }else if(res.get() == null){
+                            res.set(result.getResult());
+                        }else{
+                            res.get().merge(result.getResult());
+                        }
+                        result.getResultSet().forEach((var, uris) ->{
+                            if(resultSet.get(var)== null){
+                                resultSet.put(var, uris);
+                            }else{
+                                resultSet.get(var).addAll(uris);
+                            }
+                        } );
+                    }
+                    return null;
+                }))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(merges).thenApply(v -> {
+            TreeExecutionResult treeExecutionResult = new TreeExecutionResult();
+            treeExecutionResult.setResultSet(resultSet);
+            treeExecutionResult.setFormatedResult(order == null ? res.get() : ObjectResult.mergeOrdered(orderedResults, order, getRootWindow(query)));
+            return treeExecutionResult;
+        });
+    }
+
+    /**
+     * Submits an execution of the given query that refreshes a cached result in the background. The execution does not
+     * belong to a request, it is neither limited by the deadline of a request nor are its sub-queries dispatched.
+     * @param query query or sub-query to be executed
+     * @param inputSubset IRIs of the parent query that are used to limit the results of this query/sub-query
+     * @param markers variables for the SPARQL query
+     * @param schema HGQLSchema the query is based on
+     * @param rootType type of the query root
+     * @return Future of the result of the execution
+     */
+    private CompletableFuture<SPARQLExecutionResult> refresh(Query query, Set<String> inputSubset, Set<String> markers, HGQLSchema schema, String rootType) {
+        ExecutionContext context = new ExecutionContext(1);
+        SPARQLEndpointExecution execution = createExecution(query, inputSubset, markers, schema, rootType, null);
+        execution.setExecutionContext(context);
+        return bulkhead.submit(execution, context, () -> degradedResult(markers));
+    }
+
+    /**
+     * Returns the incomplete result of an execution that is omitted because the service is overloaded.
+     * @param markers variables for the SPARQL query
+     * @return result without IRIs and formatted results
+     */
+    private SPARQLExecutionResult degradedResult(Set<String> markers) {
+        SPARQLExecutionResult result = new SPARQLExecutionResult(emptyResultSet(markers), null);
+        result.setIncomplete(true);
+        return result;
+    }
+
+    /**
+     * Returns a resultSet without IRIs for the given markers, used for the executions that are omitted because the
+     * service is overloaded.
+     * @param markers variables for the SPARQL query
+     * @return Map with the markers as keys and empty sets as values
+     */
+    private Map<String, Set<String>> emptyResultSet(Set<String> markers) {
+        Map<String, Set<String>> resultSet = new HashMap<>();
+        markers.forEach(marker -> resultSet.put(marker, new HashSet<>()));
+        return resultSet;
     }
 
     /**
@@ -166,11 +501,11 @@ public class SPARQLEndpointService extends SPARQLService {
         for (String marker : markers) {
             resultSet.put(marker, new HashSet<>());
         }
-        //ToDo: Handle the _GET_BY_ID to function if the argument id is given and is not null
-        if (rootType.equals(ExecutionTreeNode.ROOT_TYPE)&&schema.getQueryFields().get(((QueryPattern)query).name).type().equals(HGQLVocabulary.HGQL_QUERY_GET_BY_ID_FIELD)) {
+        // the ids of a root query are filled into the VALUES clause of the query (see SPARQLServiceConverter.getSelectRoot_GET_BY_ID)
+        if (rootType.equals(ExecutionTreeNode.ROOT_TYPE) && query instanceof QueryPattern && ((QueryPattern)query).args != null && ((QueryPattern)query).args.containsKey(SPARQLServiceConverter.ID)) {
 
-            Set<String> ids = (Set<String>) ((QueryPattern)query).args.get(SPARQLServiceConverter.ID);
-            ids.forEach(input::add);
+            Collection<?> ids = (Collection<?>) ((QueryPattern)query).args.get(SPARQLServiceConverter.ID);
+            ids.forEach(id -> input.add(id.toString()));
         }
         return new ArrayList<>(input);
     }
@@ -185,6 +520,19 @@ public class SPARQLEndpointService extends SPARQLService {
         this.user = serviceConfig.getUser();
         this.graph = serviceConfig.getGraph();
         this.password = serviceConfig.getPassword();
+        this.chunkSizer = new ValuesChunkSizer(serviceConfig);
+        this.perParentThreshold = serviceConfig.getPerParentThreshold();
+        this.postThreshold = serviceConfig.getPostThreshold();
+        this.timeout = serviceConfig.getTimeout();
+        this.bulkhead = new ServiceBulkhead(serviceConfig);
+        this.singleFlight = new SingleFlight(serviceConfig.getId());
+        this.resultCache = new ResultCache(serviceConfig);
+        this.maxConnections = serviceConfig.getMaxConnections();
+        this.connectTimeout = serviceConfig.getConnectTimeout();
+        this.keepAlive = serviceConfig.getKeepAlive();
+        this.compression = serviceConfig.isCompression();
+        this.resultFormatNegotiator = new ResultFormatNegotiator(serviceConfig);
+        this.constructMode = ServiceConfig.FETCH_MODE_CONSTRUCT.equals(serviceConfig.getFetchMode());
 
     }
 }
@@ -6,10 +6,13 @@ import org.apache.jena.rdf.model.*;
 import org.hypergraphql.config.schema.FieldConfig;
 import org.hypergraphql.config.schema.TypeConfig;
 import org.hypergraphql.config.system.ServiceConfig;
+import org.hypergraphql.datafetching.ChildExecutionDispatcher;
+import org.hypergraphql.datafetching.ExecutionContext;
+import org.hypergraphql.datafetching.ExecutionTreeNode;
 import org.hypergraphql.datafetching.TreeExecutionResult;
 import org.hypergraphql.datafetching.services.resultmodel.ObjectResult;
 import org.hypergraphql.datafetching.services.resultmodel.Result;
-import org.hypergraphql.datafetching.services.resultmodel.StringResult;
+import org.hypergraphql.datafetching.services.resultmodel.ResultDictionary;
 import org.hypergraphql.datamodel.HGQLSchema;
 import org.hypergraphql.datamodel.QueryNode;
 import org.hypergraphql.query.converters.SPARQLServiceConverter;
@@ -18,6 +21,7 @@ import org.hypergraphql.query.pattern.QueryPattern;
 import org.hypergraphql.query.pattern.SubQueriesPattern;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import static org.hypergraphql.config.schema.HGQLVocabulary.*;
 
@@ -45,345 +49,84 @@ public abstract class Service {
         this.id = id;
     }
 
-    public abstract TreeExecutionResult executeQuery(Query query, Set<String> input, Set<String> strings, String rootType, HGQLSchema schema);
-
-    public abstract void setParameters(ServiceConfig serviceConfig);
-
     /**
-     * Translates the given results for the given query into a Results object. Allowing to generate a JSON object form that object.
-     * @param query Query or sub-query containing the variables for the SPARQL query
-     * @param results Results of the query
+     * Executes the given query with this service.
+     * @param query query or sub-query to be executed
+     * @param input Possible IRIs of the parent query that are used to limit the results of this query/sub-query
+     * @param strings variables for the SPARQL query
+     * @param rootType type of the query root
      * @param schema HGQLSchema the query is based on
-     * @return Returns the given results translated into a Result object (This object allows to generate a JSON object form it)
+     * @param context ExecutionContext of the request the query belongs to
+     * @return Query results and IRIs for underlying queries
      */
-    public Result getModelFromResults(Query query, QuerySolution results , HGQLSchema schema) {
-
-        Result res = null; // ToDo: Initalize res properly i.e. parent npde
-        Map<String, Result> subfields = new TreeMap<>();
-        if (query == null) {
-            return res;
-        }
-        String parentName = null;
-        String parentAlias = null;
-        String parentType = null;
-        Map<String, Object> parentArgs = null;
-        String parentId = null;
-
-        if (query.isSubQuery()) { // selectionSet with multiple fields
-
-            for(QueryPattern currentNode : ((SubQueriesPattern) query).getSubqueries()){
-                Result subRes = buildModel(results, currentNode, schema, null);
-                if(subRes instanceof ObjectResult && results.contains(currentNode.nodeId)) {
-                    getModelFromResults(currentNode.fields,
-                            results,
-                            schema,
-                            ((ObjectResult) subRes).getSubfiedldsOfObject(results.get(currentNode.nodeId).toString()),
-                            query);
-                }
-                addAndMerge(subfields, currentNode.name, subRes);
-                if(currentNode.parentName != null){
-                    parentName = currentNode.parentName;
-                    parentAlias = currentNode.parentAlias;
-                    parentType = currentNode.parentType;
-                    parentArgs = currentNode.parentArgs;
-                    parentId = currentNode.parentId;
-                }
-            }
-//            Iterator<JsonNode> nodesIterator = query.elements();
-//            while (nodesIterator.hasNext()) {
-//                JsonNode currentNode = nodesIterator.next();
-//                Result subRes = buildModel(results, currentNode, schema, null);
-//                if(subRes instanceof ObjectResult) {
-//                    getModelFromResults(currentNode.get("fields"),
-//                            results,
-//                            schema,
-//                            ((ObjectResult) subRes).getSubfiedldsOfObject(results.get(currentNode.get("nodeId").asText()).toString()),
-//                            query);
-//                }
-//                addAndMerge(subfields, currentNode.get("name").asText(), subRes);
-//                if(parentName == null && currentNode.has("parentName")){
-//                    parentName = currentNode.get("parentName").asText();
-//                    parentAlias = currentNode.get("parentAlias").asText();
-//                    parentType = currentNode.get("parentType").asText();
-//                    parentArgs = currentNode.get("parentArgs").asText();
-//                    parentId = currentNode.get("parentId").asText();
-//                }
-//            }
-        } else {
-            QueryPattern queryPattern = (QueryPattern) query;
-            Result subRes = buildModel(results, queryPattern, schema, null);
-            if(subRes instanceof ObjectResult){
-                getModelFromResults(queryPattern.fields,
-                        results,
-                        schema,
-                        ((ObjectResult) subRes).getSubfiedldsOfObject(results.get(queryPattern.nodeId).toString()),
-                        queryPattern);
-            }
-            subfields.put(queryPattern.name, subRes);
-
-            if(queryPattern.parentName != null){
-                parentName = queryPattern.parentName;
-                parentAlias = queryPattern.parentAlias;
-                parentType = queryPattern.parentType;
-                parentArgs = queryPattern.parentArgs;
-                parentId = queryPattern.parentId;
-            }
-        }
-
-        if(parentName != null){
-            // If the parentTypeName is not null then the query is as subquery and depending on the object of the overlaying query
-            res = new ObjectResult(parentId, parentName, parentAlias);
-//            res.setNodeId(parentId);
-            if(schema.getFields().containsKey(parentType) && schema.getTypes().get(parentType).getFields().containsKey(parentName)){
-                // parent field is normal field
-                res.isList(schema.getTypes().get(parentType).getField(parentName).isList());
-            }else if(schema.getQueryFields().containsKey(parentName)){
-                // parent field is query field -> always list
-                res.isList(true);
-            }else{
-                // parent field unkown -> assume list to avoid conflicts
-                res.isList(true);
-            }
-
-            ((ObjectResult)res).addObject(results.get(parentId).toString(), subfields);
-            return res;
-        }
-        if(subfields.size() == 1){
-            return subfields.values().iterator().next();
-        }else if(subfields.isEmpty()){
-            return null;
-        }
-        return res;
-
-    }
+    public abstract TreeExecutionResult executeQuery(Query query, Set<String> input, Set<String> strings, String rootType, HGQLSchema schema, ExecutionContext context);
 
     /**
-     * Translates the given results for the given query/sub-query into the given subfield object. In the case that the query
-     * contains multiple fields the results for all fields are translated accordingly to a Result object and inserted
-     * into the given subfields object.
-     * @param query Query corresponding to the given results containing the name of the field and the used SPARQL variable name
-     * @param results Results of the given query
+     * Executes the given query asynchronously with this service and hands the IRIs of the markers to the given dispatcher
+     * as soon as they are available. Services that are not able to execute their queries asynchronously execute the
+     * query in the calling thread and return the completed result, the IRIs are then dispatched by the
+     * ExecutionTreeNode after the execution.
+     * @param query query or sub-query to be executed
+     * @param input Possible IRIs of the parent query that are used to limit the results of this query/sub-query
+     * @param strings variables for the SPARQL query
+     * @param rootType type of the query root
      * @param schema HGQLSchema the query is based on
-     * @param subfields Result object were the translated results are inserted into
-     * @param parentQuery ParentQuery of the given query. The given query is a field/sub-query of the parentQuery
+     * @param context ExecutionContext of the request the query belongs to
+     * @param dispatcher Dispatcher of the sub-queries that depend on the IRIs of the markers, may be null
+     * @return Future of the query results and IRIs for underlying queries
      */
-    private void getModelFromResults(Query query, QuerySolution results , HGQLSchema schema, Map<String, Result> subfields, Query parentQuery) {
-
-        if (query == null) {
-            return;
-        }
-
-        if (query.isSubQuery()) { // selectionSet with multiple fields
-
-            for(QueryPattern currentNode : ((SubQueriesPattern)query).subqueries){
-                if(JSONLD.containsKey(currentNode.name)){
-                    //Internal field result to these fields is resolved differently
-                    if(currentNode.name.equals(SPARQLServiceConverter.ID)){
-                        final StringResult id = new StringResult(currentNode.nodeId, currentNode.name);
-                        id.isList(false);
-//                        id.setNodeId(currentNode.nodeId);
-                        if(results.contains(currentNode.parentId)){
-                            id.addString(results.get(currentNode.parentId).toString());
-                        }
-                        subfields.put(currentNode.name,id);
-                        continue;
-                    }else if(currentNode.name.equals(SPARQLServiceConverter.TYPE)){
-                        if(parentQuery instanceof QueryPattern){
-                            String typeId = schema.getTypes().get(((QueryPattern) parentQuery).targetType).getId();  // ToDo: add existences check
-                            if(typeId != null){
-                                final StringResult type = new StringResult(currentNode.nodeId, currentNode.name);
-//                                type.setNodeId(currentNode.nodeId);
-                                type.isList(false);
-                                type.addString(typeId);
-                                subfields.put(currentNode.name, type);
-                            }
-                        }else{
-                            //ToDo: Handle this case
-                        }
-                        continue;
-                    }
-                }
-                if((currentNode.name.equals(HGQL_SCALAR_LITERAL_VALUE_GQL_NAME))){
-                    continue;
-                }
-                Result subRes = null;
-                if(parentQuery.isSubQuery()){
-                    final Optional<QueryPattern> parent = ((SubQueriesPattern) parentQuery).subqueries.stream().filter(queryPattern -> queryPattern.nodeId.equals(currentNode.parentId)).findAny();
-                    if(parent.isPresent()){
-                        subRes = buildModel(results, currentNode, schema, (QueryPattern) parent.get());
-                    }else{
-                        //error this stat should not be reached
-                    }
-
-                }else{
-                    subRes = buildModel(results, currentNode, schema, (QueryPattern) parentQuery);
-                }
-
-                if(subRes instanceof ObjectResult && !currentNode.targetType.equals(HGQL_SCALAR_LITERAL_GQL_NAME)) {
-                    String nodeId = currentNode.nodeId;
-                    if(results.contains(nodeId)){
-                        getModelFromResults(currentNode.fields,
-                                results,
-                                schema,
-                                ((ObjectResult) subRes).getSubfiedldsOfObject(results.get(nodeId).toString()),
-                                currentNode);
-                    }
-                }
-                addAndMerge(subfields, currentNode.name, subRes);
-            }
-
-//            Iterator<JsonNode> nodesIterator = query.elements();
-//
-//            while (nodesIterator.hasNext()) {
-//                JsonNode currentNode = nodesIterator.next();
-//                if(JSONLD.containsKey(currentNode.get("name").asText())){
-//                    //Internal field result to these fields is resolved differently
-//                    if(currentNode.get("name").asText().equals(SPARQLServiceConverter.ID)){
-//                        final StringResult id = new StringResult(currentNode.get("name").asText());
-//                        id.isList(false);
-//                        id.setNodeId(currentNode.get("nodeId").asText());
-//                        if(results.contains(currentNode.get("parentId").asText())){
-//                            id.addString(results.get(currentNode.get("parentId").asText()).toString());
-//                        }
-//                        subfields.put(currentNode.get("name").asText(),id);
-//                        continue;
-//                    }else if(currentNode.get("name").asText().equals(SPARQLServiceConverter.TYPE)){
-//                        String typeId = schema.getTypes().get(parentQuery.get("targetName")).getId();  // ToDo: add existences check
-//                        if(typeId != null){
-//                            final StringResult type = new StringResult(currentNode.get("name").asText());
-//                            type.setNodeId(currentNode.get("nodeId").asText());
-//                            type.isList(false);
-//                            type.addString(typeId);
-//                            subfields.put(currentNode.get("name").asText(), type);
-//                        }
-//                        continue;
-//                    }
-//                }
-//                if((currentNode.get("name").asText().equals(HGQL_SCALAR_LITERAL_VALUE_GQL_NAME))){
-//                    continue;
-//                }
-//                Result subRes = buildModel(results, currentNode, schema, parentQuery);
-//                if(subRes instanceof ObjectResult && !currentNode.get("targetName").asText().equals(HGQL_SCALAR_LITERAL_GQL_NAME)) {
-//                    String nodeId = currentNode.get("nodeId").asText();
-//                    if(results.contains(nodeId)){
-//                        getModelFromResults(currentNode.get("fields"),
-//                                results,
-//                                schema,
-//                                ((ObjectResult) subRes).getSubfiedldsOfObject(results.get(nodeId).toString()),
-//                                currentNode);
-//                    }
-//                }
-//                addAndMerge(subfields, currentNode.get("name").asText(), subRes);
-//            }
-        } else {
-            QueryPattern queryPattern = (QueryPattern) query;
-            if(JSONLD.containsKey(queryPattern.name)){
-                //Internal field result to these fields is resolved differently
-                if(queryPattern.name.equals(SPARQLServiceConverter.ID)){
-                    final StringResult id = new StringResult(queryPattern.nodeId, queryPattern.name);
-                    id.isList(false);
-//                    id.setNodeId(queryPattern.nodeId);
-                    if(results.contains(queryPattern.parentId)){
-                        id.addString(results.get(queryPattern.parentId).toString());
-                    }
-                    subfields.put(queryPattern.name,id);
-                    return;
-                }else if(queryPattern.name.equals(SPARQLServiceConverter.TYPE)){
-                    if(parentQuery instanceof QueryPattern){
-                        String typeId = schema.getTypes().get(((QueryPattern) parentQuery).targetType).getId();  //ToDo: Add existence check
-                        if(typeId != null){
-                            final StringResult type = new StringResult(queryPattern.nodeId, queryPattern.name);
-                            type.isList(false);
-//                            type.setNodeId(queryPattern.nodeId);
-                            type.addString(typeId);
-                            subfields.put(queryPattern.name, type);
-                        }
-                    }else{
-                        //Todo: handle this case
-                    }
-
-                    return;
-                }
-            }
-            Result subRes = buildModel(results, queryPattern, schema, (QueryPattern) parentQuery);
-            if(subRes instanceof ObjectResult){
-                getModelFromResults(queryPattern.fields,
-                        results,
-                        schema,
-                        ((ObjectResult) subRes).getSubfiedldsOfObject(results.get(queryPattern.nodeId).toString()),
-                        query);
-            }
-            addAndMerge(subfields, queryPattern.name, subRes);
+    public CompletableFuture<TreeExecutionResult> executeQueryAsync(Query query, Set<String> input, Set<String> strings, String rootType, HGQLSchema schema, ExecutionContext context, ChildExecutionDispatcher dispatcher) {
+        CompletableFuture<TreeExecutionResult> result = new CompletableFuture<>();
+        try {
+            result.complete(executeQuery(query, input, strings, rootType, schema, context));
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
         }
-
+        return result;
     }
 
     /**
-     * Adds the given results to the corresponding subfield in subfields. If the subfield of the results does not exist
-     * the subfield and results are added to the subfields otherwise the results of the corresponding subfield are merged.
-     * @param subfields subfields with results of an object that should be extended
-     * @param subfield Subfield name that corresponds to the given results
-     * @param result Results that should be added to the given subfields
+     * Returns the order of the entities of the given query if the results of its executions have to be merged in order
+     * (see ObjectResult.mergeOrdered()). Only root queries are ordered across the VALUES chunks and services, the
+     * entities of nested fields are ordered per parent entity in the result model.
+     * @param query query or sub-query to be executed
+     * @param rootType type of the query root
+     * @return order of the entity IRIs, null if the results are merged without order
      */
-    private void addAndMerge(Map<String, Result> subfields, String subfield, Result result){
-        if(subfields.containsKey(subfield)){
-            // Field already in list merge result sets
-            subfields.get(subfield).merge(result);
-        }else{
-            subfields.put(subfield, result);
+    protected static Comparator<String> getRootOrder(Query query, String rootType) {
+        if (!ExecutionTreeNode.ROOT_TYPE.equals(rootType) || !(query instanceof QueryPattern)) {
+            return null;
         }
+        return ObjectResult.entityOrder(((QueryPattern) query).args);
     }
 
     /**
-     * Translates the given results for the given query/sub-query into a Result object.
-     * The actual Result type that is returned is depending on the output type of the given query.
-     * @param results Results of the query
-     * @param currentNode Query or sub-query containing the variables for the SPARQL query
-     * @param schema HGQLSchema
-     * @return Returns a model containing schema information of the query variables
+     * Returns the number of entities the given root query needs to apply its offset and limit.
+     * @param query root query
+     * @return offset + limit, Long.MAX_VALUE if the query has no limit
      */
-    private Result buildModel(QuerySolution results, QueryPattern currentNode , HGQLSchema schema, QueryPattern parentNode) {
-        //ToDo: Check if buildModel and populateModel can be merged together
-
-
-        FieldConfig propertyString = schema.getFields().get(currentNode.name);
-        TypeConfig targetTypeString = schema.getTypes().get(currentNode.targetType);   // field output type
-        Result res;
-        String field = currentNode.name;
-        String alias = currentNode.alias;
-        if(currentNode.targetType.equals("String")){
-            res = new StringResult(currentNode.nodeId, field, alias, currentNode.args);
-//            res.setNodeId(currentNode.nodeId);
-        }else if(currentNode.targetType.equals(HGQL_SCALAR_LITERAL_GQL_NAME)) {
-//            String nodeId = currentNode.nodeId;
-            res = new ObjectResult(currentNode.nodeId, field, alias, currentNode.args);
-//            res.setNodeId(nodeId);
-            ((ObjectResult)res).addObject(HGQL_QUERY_NAMESPACE + currentNode.nodeId.hashCode()); // Add Literal Placeholder object
-
-        }else{
-            res = new ObjectResult(currentNode.nodeId, field, alias, currentNode.args);
-//            String nodeId = currentNode.nodeId;
-//            res.setNodeId(nodeId);
-            if(results.contains(currentNode.nodeId)) {
-                ((ObjectResult) res).addObject(results.get(currentNode.nodeId).toString());
-            }
-        }
-        if(parentNode == null){
-            // root query field
-            res.isList(true);
-        }else{
-            final String targetName = parentNode.targetType;
-            if(targetName.equals(HGQL_SCALAR_LITERAL_GQL_NAME)){
-                res.isList(false);
-            }else{
-                res.isList(schema.getTypes().get(targetName).getField(field).isList());
-            }
+    protected static long getRootWindow(Query query) {
+        Map<String, Object> args = ((QueryPattern) query).args;
+        if (args == null || !args.containsKey(SPARQLServiceConverter.LIMIT)) {
+            return Long.MAX_VALUE;
         }
+        long offset = args.containsKey(SPARQLServiceConverter.OFFSET) ? ((Number) args.get(SPARQLServiceConverter.OFFSET)).longValue() : 0;
+        return offset + ((Number) args.get(SPARQLServiceConverter.LIMIT)).longValue();
+    }
 
-        // insert the actual results in to the object that were created above
-        populateModel(results, currentNode, res, propertyString, targetTypeString);
+    public abstract void setParameters(ServiceConfig serviceConfig);
 
-        return res;
+    /**
+     * Translates the given results for the given query into a Results object. Allowing to generate a JSON object form that object.
+     * @param query Query or sub-query containing the variables for the SPARQL query
+     * @param results Results of the query
+     * @param schema HGQLSchema the query is based on
+     * @param dictionary Dictionary of the request the IRIs and literal values of the results are interned in
+     * @return Returns the given results translated into a Result object (This object allows to generate a JSON object form it)
+     * @see RowMapper to translate multiple results of the same query into one Result
+     */
+    public Result<?> getModelFromResults(Query query, QuerySolution results , HGQLSchema schema, ResultDictionary dictionary) {
+        return RowMapper.of(query, schema).append(null, results, dictionary);
     }
 
     //only used by HGraphQLService
@@ -538,63 +281,6 @@ public abstract class Service {
         }
     }
 
-    /**
-     * Adds the query results (given in results) for the currentNode into the given Result res.
-     * The insertions into res are depending on the output type of the query/sub-query meaning that either a ObjectResult
-     * or StringResult is added.
-     * ToDo: Change names of the parameter, the suffix "String" is misleading.
-     * @param results Results of the query
-     * @param currentNode Query or subquery containing the variables for the SPARQL query
-     * @param res Result object to insert the solutions of the given query
-     * @param propertyString FieldConfig of the field which is the root of the currentNode
-     * @param targetTypeString TypeConfig of the field of which is the root of the currentNode
-     */
-    private void populateModel(
-            final QuerySolution results,
-            final QueryPattern currentNode,
-            final Result res,
-            final FieldConfig propertyString,
-            final TypeConfig targetTypeString
-    ) {
-        if(currentNode.name.equals(HGQL_SCALAR_LITERAL_VALUE_GQL_NAME)){
-            return;
-        }
-        if(propertyString != null && currentNode.targetType.equals(HGQL_SCALAR_LITERAL_GQL_NAME)){
-            String nodeId = currentNode.nodeId;
-            if(results.contains(nodeId)){
-                RDFNode value = results.get(nodeId);
-
-                final StringResult literalValue = new StringResult(currentNode.nodeId, HGQL_SCALAR_LITERAL_VALUE_GQL_NAME);
-//                literalValue.setNodeId(currentNode.nodeId);
-                literalValue.addString(value.toString());
-                literalValue.isList(true);
-                Map<String, Result> literalValueField = new TreeMap<>();
-                literalValueField.put(HGQL_SCALAR_LITERAL_VALUE_GQL_NAME, literalValue);
-                if(res instanceof ObjectResult){
-                    ((ObjectResult) res).addObject(HGQL_QUERY_NAMESPACE + nodeId.hashCode(), literalValueField);
-                }
-            }
-            return;
-        }
-
-        if (propertyString != null && !(currentNode.parentId.equals("null"))) {
-            RDFNode object = results.get(currentNode.nodeId);
-            if(object != null){
-                // object exists
-                final TreeMap<String, Result> subfields = new TreeMap<>();
-                if (targetTypeString == null) {
-                    // object is literal
-                    if(res instanceof  StringResult){
-                        ((StringResult) res).addString(object.asLiteral().getString());
-                        res.setNodeId(currentNode.nodeId);
-                    }
-                }
-                if(res instanceof ObjectResult){
-                    ((ObjectResult) res).addObject(object.toString(), subfields);
-                }
-            }
-        }
-    }
 }
 
 
@@ -0,0 +1,194 @@
+package org.hypergraphql.datafetching.services;
+
+import org.hypergraphql.config.system.ServiceConfig;
+import org.hypergraphql.datafetching.ExecutionContext;
+import org.hypergraphql.datafetching.ExecutionScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of queries that are executed concurrently against one service.
+ * A query is started if one of the maxInFlight slots of the service is free. Otherwise the overflow behaviour of the
+ * service decides what happens with the query:
+ *  - queue: The query waits in a FIFO queue of at most queueSize queries and is started as soon as a slot is freed.
+ *           If the queue is full the query is handled like with degrade.
+ *  - shed: The whole request is cancelled.
+ *  - degrade: The query is not executed and the request continues without its results.
+ * The queries of all requests share the slots of the service, therefore a slow or overloaded service can not occupy
+ * more than its slots of the ExecutionScheduler.
+ */
+public class ServiceBulkhead {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ServiceBulkhead.class);
+
+    private final String serviceId;
+    private final int maxInFlight;
+    private final int queueSize;
+    private final String overflow;
+    private final Deque<PendingExecution<?>> queue = new ArrayDeque<>();
+    private int inFlight = 0;
+    private int peakInFlight = 0;
+    private int peakQueued = 0;
+    private long queuedExecutions = 0;
+    private long shedExecutions = 0;
+    private long degradedExecutions = 0;
+
+    /**
+     * Initializes the bulkhead with the concurrency settings of the given service configuration.
+     * @param serviceConfig configuration of the service
+     */
+    public ServiceBulkhead(ServiceConfig serviceConfig) {
+        this(serviceConfig.getId(), serviceConfig.getMaxInFlight(), serviceConfig.getQueueSize(), serviceConfig.getOverflow());
+    }
+
+    /**
+     * Initializes the bulkhead.
+     * @param serviceId id of the service
+     * @param maxInFlight maximal number of concurrent queries, 0 if the number is not limited
+     * @param queueSize maximal number of waiting queries
+     * @param overflow overflow behaviour, one of ServiceConfig.OVERFLOW_QUEUE, OVERFLOW_SHED or OVERFLOW_DEGRADE
+     */
+    public ServiceBulkhead(String serviceId, int maxInFlight, int queueSize, String overflow) {
+        this.serviceId = serviceId;
+        this.maxInFlight = Math.max(0, maxInFlight);
+        this.queueSize = Math.max(0, queueSize);
+        this.overflow = overflow == null ? ServiceConfig.OVERFLOW_QUEUE : overflow;
+    }
+
+    /**
+     * Submits the given query execution to the ExecutionScheduler as soon as a slot of the service is free.
+     * @param task query execution
+     * @param context ExecutionContext of the request the query belongs to
+     * @param degradedResult supplier of the result that is used if the query is omitted because the service is overloaded
+     * @param <T> result type of the execution
+     * @return Future of the execution, fails if the request is shed or cancelled while the query waits for a slot
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task, ExecutionContext context, Supplier<T> degradedResult) {
+
+        if (maxInFlight == 0) {
+            return ExecutionScheduler.getInstance().submit(task, context);
+        }
+        boolean slot = true;
+        boolean shed;
+        synchronized (this) {
+            if (inFlight < maxInFlight) {
+                inFlight++;
+                peakInFlight = Math.max(peakInFlight, inFlight);
+                shed = false;
+            } else if (ServiceConfig.OVERFLOW_QUEUE.equals(overflow) && queue.size() < queueSize) {
+                PendingExecution<T> pending = new PendingExecution<>(task, context);
+                queue.add(pending);
+                queuedExecutions++;
+                peakQueued = Math.max(peakQueued, queue.size());
+                return pending.future;
+            } else {
+                shed = ServiceConfig.OVERFLOW_SHED.equals(overflow);
+                if (shed) {
+                    shedExecutions++;
+                } else {
+                    degradedExecutions++;
+                }
+                slot = false;
+            }
+        }
+        if (slot) {
+            return start(task, context);   // started outside of the lock since the execution may run in this thread
+        }
+        if (shed) {
+            LOGGER.debug("Service {} is overloaded, request is shed", serviceId);
+            context.cancel(String.format("Service %s is overloaded, the request was rejected", serviceId));
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new RejectedExecutionException("Service " + serviceId + " is overloaded"));
+            return rejected;
+        }
+        LOGGER.debug("Service {} is overloaded, query is omitted", serviceId);
+        context.addError(String.format("Service %s is overloaded, some of its results are omitted", serviceId));
+        return CompletableFuture.completedFuture(degradedResult.get());
+    }
+
+    /**
+     * Returns the occupancy of the service and the number of queued, shed and degraded queries.
+     * @return Map with the metric name as key and the metric value as value
+     */
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("maxInFlight", maxInFlight);
+        metrics.put("inFlight", inFlight);
+        metrics.put("peakInFlight", peakInFlight);
+        metrics.put("queueSize", queueSize);
+        metrics.put("queued", queue.size());
+        metrics.put("peakQueued", peakQueued);
+        metrics.put("overflow", overflow);
+        metrics.put("queuedExecutions", queuedExecutions);
+        metrics.put("shedExecutions", shedExecutions);
+        metrics.put("degradedExecutions", degradedExecutions);
+        return metrics;
+    }
+
+    /**
+     * Submits the given execution that already holds a slot and releases the slot when the execution completes.
+     */
+    private <T> CompletableFuture<T> start(Callable<T> task, ExecutionContext context) {
+        CompletableFuture<T> execution = ExecutionScheduler.getInstance().submit(task, context);
+        execution.whenComplete((result, e) -> release());
+        return execution;
+    }
+
+    /**
+     * Hands the slot of a completed execution over to the next waiting execution or frees it.
+     * The next execution is started on the pool of the ExecutionScheduler to not nest the executions in the stack of
+     * the completing execution.
+     */
+    private void release() {
+        PendingExecution<?> next;
+        synchronized (this) {
+            next = queue.poll();
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+        }
+        ExecutionScheduler.getInstance().schedule(next::start, 0);
+    }
+
+    /**
+     * Query execution waiting for a free slot of the service.
+     * @param <T> result type of the execution
+     */
+    private class PendingExecution<T> {
+
+        private final Callable<T> task;
+        private final ExecutionContext context;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private PendingExecution(Callable<T> task, ExecutionContext context) {
+            this.task = task;
+            this.context = context;
+        }
+
+        private void start() {
+            if (context.isCancelled()) {
+                future.completeExceptionally(new CancellationException("Request was cancelled"));
+                release();
+                return;
+            }
+            ServiceBulkhead.this.start(task, context).whenComplete((result, e) -> {
+                if (e != null) {
+                    future.completeExceptionally(e);
+                } else {
+                    future.complete(result);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.hypergraphql.datafetching.services;
+
+import org.apache.jena.query.QuerySolution;
+import org.hypergraphql.datafetching.SPARQLExecutionResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces the identical queries of concurrent requests to one service (single-flight).
+ * Under burst load many requests generate the same SPARQL query for the same service, e.g. the same VALUES chunk of
+ * popular entities or the same root query. The first execution of a query is in flight until its result is complete,
+ * further executions of the same query that are started in the meantime do not query the service again but wait for
+ * the result of the execution in flight. Each caller receives an own deep copy of the result, so that the results can
+ * be merged independently into the results of the requests.
+ * If the execution in flight fails (e.g. because the request that started it is cancelled) the waiting callers execute
+ * their query on their own.
+ * Executions that stream their solutions to a consumer instead of building a result (batched queries, see
+ * QueryBatcher) are coalesced separately with stream(): the solutions of the execution in flight are recorded and
+ * replayed to the consumers of the waiting callers once the execution is complete.
+ */
+public class SingleFlight {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(SingleFlight.class);
+
+    private final String serviceId;
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+    private final Map<String, Flight> streams = new ConcurrentHashMap<>();   // streamed executions in flight
+    private final AtomicLong executions = new AtomicLong(0);
+    private final AtomicLong coalescedExecutions = new AtomicLong(0);
+
+    /**
+     * Initializes the single-flight layer of one service.
+     * @param serviceId id of the service
+     */
+    public SingleFlight(String serviceId) {
+        this.serviceId = serviceId;
+    }
+
+    /**
+     * Executes the query with the given key. If an execution with the same key is in flight the result of this
+     * execution is used instead of starting the given execution.
+     * @param key key of the query, executions with the same key must return the same results
+     * @param execution starts the execution of the query
+     * @return Future of the result of the query, the result is not shared with other callers
+     */
+    public CompletableFuture<SPARQLExecutionResult> execute(String key, Supplier<CompletableFuture<SPARQLExecutionResult>> execution) {
+
+        Flight flight = new Flight();
+        Flight running = flights.compute(key, (k, inFlight) -> {
+            if (inFlight == null) {
+                return flight;
+            }
+            inFlight.followers.incrementAndGet();
+            return inFlight;
+        });
+        if (running != flight) {
+            coalescedExecutions.incrementAndGet();
+            LOGGER.debug("{}: Query is already in flight, waiting for its result", serviceId);
+            return running.result
+                    .handle((result, e) -> e == null
+                            ? CompletableFuture.completedFuture(copy(result))
+                            : execution.get())
+                    .thenCompose(Function.identity());
+        }
+        executions.incrementAndGet();
+        CompletableFuture<SPARQLExecutionResult> future;
+        try {
+            future = execution.get();
+        } catch (RuntimeException e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+        future.whenComplete((result, e) -> {
+            flights.remove(key, flight);   // no further callers can follow, the number of followers is final
+            if (e != null) {
+                flight.result.completeExceptionally(e);
+            } else {
+                flight.result.complete(result);
+            }
+        });
+        // the result is only handed over without copy if no other caller reads it
+        return flight.result.thenApply(result -> flight.followers.get() == 0 ? result : copy(result));
+    }
+
+    /**
+     * Executes the streamed query with the given key, the solutions of the query are handed to the given consumer. If
+     * a streamed execution with the same key is in flight the solutions of this execution are handed to the consumer
+     * once it is complete instead of starting the given execution. If the execution in flight fails or its result is
+     * incomplete (e.g. degraded by the bulkhead) the given execution is started on its own.
+     * @param key key of the query, executions with the same key must return the same solutions
+     * @param consumer consumer of the solutions of the query
+     * @param execution starts the execution of the query with the given consumer
+     * @return Future of the result of the execution, null if the solutions were taken from another execution
+     */
+    public CompletableFuture<SPARQLExecutionResult> stream(String key, Consumer<QuerySolution> consumer,
+                                                           Function<Consumer<QuerySolution>, CompletableFuture<SPARQLExecutionResult>> execution) {
+
+        Flight flight = new Flight();
+        Flight running = streams.compute(key, (k, inFlight) -> {
+            if (inFlight == null) {
+                return flight;
+            }
+            inFlight.followers.incrementAndGet();
+            return inFlight;
+        });
+        if (running != flight) {
+            coalescedExecutions.incrementAndGet();
+            LOGGER.debug("{}: Batched query is already in flight, waiting for its solutions", serviceId);
+            return running.result
+                    .handle((result, e) -> {
+                        if (e != null || (result != null && result.isIncomplete())) {
+                            return execution.apply(consumer);
+                        }
+                        running.solutions.forEach(consumer);
+                        return CompletableFuture.<SPARQLExecutionResult>completedFuture(null);
+                    })
+                    .thenCompose(Function.identity());
+        }
+        executions.incrementAndGet();
+        CompletableFuture<SPARQLExecutionResult> future;
+        try {
+            // the solutions are only read by the followers after the execution is complete
+            future = execution.apply(solution -> {
+                flight.solutions.add(solution);
+                consumer.accept(solution);
+            });
+        } catch (RuntimeException e) {
+            streams.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+        future.whenComplete((result, e) -> {
+            streams.remove(key, flight);
+            if (e != null) {
+                flight.result.completeExceptionally(e);
+            } else {
+                flight.result.complete(result);
+            }
+        });
+        return flight.result;
+    }
+
+    /**
+     * Returns the number of executed and coalesced queries of this service.
+     * @return Map with the metric name as key and the metric value as value
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("inFlight", flights.size() + streams.size());
+        metrics.put("executions", executions.get());
+        metrics.put("coalescedExecutions", coalescedExecutions.get());
+        return metrics;
+    }
+
+    /**
+     * Creates a copy of the given result whose IRIs and results can be modified without changing the given result.
+     * @param result result of an execution
+     * @return copy of the result
+     */
+    static SPARQLExecutionResult copy(SPARQLExecutionResult result) {
+        Map<String, Set<String>> resultSet = new HashMap<>();
+        result.getResultSet().forEach((marker, iris) -> resultSet.put(marker, new HashSet<>(iris)));
+        SPARQLExecutionResult copy = new SPARQLExecutionResult(resultSet, result.getResult() == null ? null : result.getResult().copy());
+        copy.setIncomplete(result.isIncomplete());
+        return copy;
+    }
+
+    /**
+     * Execution of a query that is in flight.
+     */
+    private static class Flight {
+
+        private final CompletableFuture<SPARQLExecutionResult> result = new CompletableFuture<>();
+        private final AtomicInteger followers = new AtomicInteger(0);   // callers that wait for the result
+        private final List<QuerySolution> solutions = new ArrayList<>();   // solutions of a streamed execution
+    }
+}
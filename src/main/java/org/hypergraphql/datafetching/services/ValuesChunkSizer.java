@@ -0,0 +1,109 @@
+package org.hypergraphql.datafetching.services;
+
+import org.hypergraphql.config.system.ServiceConfig;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Adaptive size of the VALUES chunks of the queries to one service.
+ * The chunk size starts at the configured chunk size and is adapted to the observed executions of the chunks:
+ * Fast chunks grow the chunk size, chunks slower than the targeted latency shrink it proportionally and failed chunks
+ * or chunks that reach the result limit of the service halve it. The chunk size always stays between the configured
+ * minimal and maximal chunk size.
+ */
+public class ValuesChunkSizer {
+
+    static final double GROWTH = 1.25;   // growth factor after a fast chunk
+    static final double MAX_DECREASE = 0.5;   // lowest factor the chunk size is reduced with after one chunk
+
+    private final int minSize;
+    private final int maxSize;
+    private final long targetLatency;
+    private final long resultLimit;
+    private double size;
+    private long successes = 0;
+    private long failures = 0;
+
+    /**
+     * Initializes the chunk sizer with the chunk settings of the given service configuration.
+     * @param serviceConfig configuration of the service
+     */
+    public ValuesChunkSizer(ServiceConfig serviceConfig) {
+        this(serviceConfig.getChunkSize(), serviceConfig.getMinChunkSize(), serviceConfig.getMaxChunkSize(),
+                serviceConfig.getChunkLatency(), serviceConfig.getChunkResultLimit());
+    }
+
+    /**
+     * Initializes the chunk sizer.
+     * @param size initial chunk size
+     * @param minSize minimal chunk size
+     * @param maxSize maximal chunk size, if equal to minSize and size the chunk size is fixed
+     * @param targetLatency targeted latency of one chunk in milliseconds
+     * @param resultLimit number of results of one chunk at which the chunk size is reduced
+     */
+    public ValuesChunkSizer(int size, int minSize, int maxSize, long targetLatency, long resultLimit) {
+        this.minSize = Math.max(1, minSize);
+        this.maxSize = Math.max(this.minSize, maxSize);
+        this.size = Math.max(this.minSize, Math.min(this.maxSize, size));
+        this.targetLatency = targetLatency;
+        this.resultLimit = resultLimit;
+    }
+
+    /**
+     * Returns the number of IRIs of the next VALUES chunks.
+     * @return chunk size
+     */
+    public synchronized int getChunkSize() {
+        return (int) size;
+    }
+
+    /**
+     * Adapts the chunk size to a successfully executed chunk.
+     * @param inputSize number of IRIs in the VALUES clause of the chunk
+     * @param latency execution time of the chunk in milliseconds including the streaming of the results
+     * @param results number of solutions of the chunk
+     */
+    public synchronized void recordSuccess(int inputSize, long latency, long results) {
+
+        successes++;
+        if (inputSize == 0) {
+            return;   // queries without VALUES clause say nothing about the chunk size
+        }
+        double observed = Math.min(size, inputSize);
+        if (results >= resultLimit) {
+            resize(observed * MAX_DECREASE);   // the results are likely truncated by the service
+        } else if (latency > targetLatency) {
+            resize(observed * Math.max(MAX_DECREASE, (double) targetLatency / latency));
+        } else if (latency * 2 <= targetLatency && inputSize * 2 >= size) {
+            resize(Math.max(size + 1, size * GROWTH));   // only chunks near the current size indicate headroom
+        }
+    }
+
+    /**
+     * Adapts the chunk size to a failed chunk.
+     * @param inputSize number of IRIs in the VALUES clause of the chunk
+     */
+    public synchronized void recordFailure(int inputSize) {
+        failures++;
+        resize((inputSize == 0 ? size : Math.min(size, inputSize)) * MAX_DECREASE);
+    }
+
+    /**
+     * Returns the current chunk size and the number of observed chunks.
+     * @return Map with the metric name as key and the metric value as value
+     */
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("chunkSize", getChunkSize());
+        metrics.put("minChunkSize", minSize);
+        metrics.put("maxChunkSize", maxSize);
+        metrics.put("successfulChunks", successes);
+        metrics.put("failedChunks", failures);
+        return metrics;
+    }
+
+    private void resize(double newSize) {
+        size = Math.max(minSize, Math.min(maxSize, newSize));
+    }
+}
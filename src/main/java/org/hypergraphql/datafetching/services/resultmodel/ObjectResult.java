@@ -1,9 +1,11 @@
 package org.hypergraphql.datafetching.services.resultmodel;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.hypergraphql.query.converters.SPARQLServiceConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -15,7 +17,7 @@ import java.util.stream.Collectors;
 public class ObjectResult extends Result<Map<String, Object>> {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(ObjectResult.class);
-    Map<String, Map<String, Result>> subfields = new HashMap<>();   // subfields for each queried entity, first string is the ID of the object second String indicates the subfield.
+    Map<String, Map<String, Result<?>>> subfields = new LinkedHashMap<>(2);   // subfields for each queried entity in the order they are added (order of the SPARQL results), first string is the ID of the object second String indicates the subfield.
 
     /**
      * Initalize ObjectResult with nodeId and name, both are mandatory for all ObjectResults
@@ -62,7 +64,7 @@ public class ObjectResult extends Result<Map<String, Object>> {
      * @param iri IRI, the identifier of the object results
      * @return Returns the subfiedls and corresponding results for the given iri that are contained in this object
      */
-    public Map<String, Result> getSubfiedldsOfObject(String iri){
+    public Map<String, Result<?>> getSubfiedldsOfObject(String iri){
         if(this.subfields.containsKey(iri)){
             return this.subfields.get(iri);
         }else{
@@ -70,17 +72,27 @@ public class ObjectResult extends Result<Map<String, Object>> {
         }
     }
 
+    /**
+     * Returns the IRIs of the object entities contained in this object.
+     * @return IRIs of the entities, backed by this object
+     */
+    public Set<String> getObjects(){
+        return this.subfields.keySet();
+    }
+
     /**
      * Adds a empty object entity to the object.
      * If this object already contains this entity nothing is done.
      * @param iri Id of the added object
+     * @return Subfields of the entity, new subfield results can be added to the returned map
      */
-    public void addObject(String iri){
-        if(this.subfields.containsKey(iri)){
-            // Already in the list -> do nothing
-        }else{
-            this.subfields.put(iri, new HashMap<>());
+    public Map<String, Result<?>> addObject(String iri){
+        Map<String, Result<?>> object = this.subfields.get(iri);
+        if(object == null){
+            object = new SubfieldMap();
+            this.subfields.put(iri, object);
         }
+        return object;
     }
 
     /**
@@ -91,10 +103,10 @@ public class ObjectResult extends Result<Map<String, Object>> {
      * @param iri IRI that identifies the given subfields
      * @param subfields Subfield results for the given IRI
      */
-    public void addObject(String iri, Map<String, Result> subfields){
+    public void addObject(String iri, Map<String, Result<?>> subfields){
         if(this.subfields.containsKey(iri)){
-            final Map<String, Result> obj = this.subfields.get(iri);
-            for(Map.Entry<String, Result> entry : subfields.entrySet()){
+            final Map<String, Result<?>> obj = this.subfields.get(iri);
+            for(Map.Entry<String, Result<?>> entry : subfields.entrySet()){
                 if(obj.containsKey(entry.getKey())){
                     obj.get(entry.getKey()).merge(entry.getValue());
                 }else {
@@ -103,15 +115,14 @@ public class ObjectResult extends Result<Map<String, Object>> {
             }
 
         }else {
-            this.subfields.put(iri, subfields);
+            this.subfields.put(iri, subfields instanceof SubfieldMap ? subfields : new SubfieldMap(subfields));
         }
     }
 
     @Override
     public Map<String, Object> generateJSON() {
-        List<Object> subfields = new ArrayList<>();
         Map<String, Object> field = new HashMap<>();
-        String fieldName = this.alias == null ? this.name : this.alias;
+        String fieldName = getFieldName();
         if(!isList()){
             if(this.subfields.size()<=1){
                 if(this.subfields.isEmpty()){
@@ -133,41 +144,12 @@ public class ObjectResult extends Result<Map<String, Object>> {
                 this.errors += "Schema Error for "+ this.name + ": Only one result should exist, all queried values are returned in a list.";
             }
         }
-        try {
-            if (this.args != null && this.args.get(SPARQLServiceConverter.ORDER) != null) {
-                Comparator comparator = null;
-                // If new order features are added extend the comparator cases here
-                switch (this.args.get(SPARQLServiceConverter.ORDER).toString()) {
-                    case SPARQLServiceConverter.ORDER_ASC:
-                        comparator = Map.Entry.comparingByKey();
-                        break;
-                    case SPARQLServiceConverter.ORDER_DESC:
-                        comparator = Map.Entry.comparingByKey(Comparator.reverseOrder());
-                        break;
-                    default:
-                        throw new IllegalStateException("Unexpected value: " + this.args.get(SPARQLServiceConverter.ORDER));
-                }
-                if (comparator != null) {
-                    Map<String, Map<String, Result>> subfields_sorted = new HashMap<>();
-                    this.subfields.entrySet().stream()
-                            .sorted(comparator)
-                            .forEachOrdered(o -> subfields_sorted.put(((Map.Entry<String, Map<String, Result>>) o).getKey(), ((Map.Entry<String, Map<String, Result>>) o).getValue()));
-                    this.subfields = subfields_sorted;
-                }
-            }
-        }catch (ClassCastException e){
-            this.errors += "Casting exception for the arguments of field " + this.name + ". ";
-            LOGGER.error(e.getMessage());
-            e.printStackTrace();
-        }
-        subfields = this.subfields.values().stream()
-                .skip(args == null || args.get(SPARQLServiceConverter.OFFSET) == null ? 0 : ((Number) args.get(SPARQLServiceConverter.OFFSET)).longValue())   // offset interferes with multiple services limiter.
-                .limit(args == null || args.get(SPARQLServiceConverter.LIMIT) == null ? this.subfields.size() : ((Number) args.get(SPARQLServiceConverter.LIMIT)).longValue())
+        List<Object> subfields = selectObjects().stream()
                 .map(objectEntry -> {
                     Map<String,Object> object = new HashMap<>();
-                    for (Map.Entry<String, Result> entry : objectEntry.entrySet()) {
+                    for (Map.Entry<String, Result<?>> entry : objectEntry.entrySet()) {
                         String key = entry.getKey();
-                        Result values = entry.getValue();
+                        Result<?> values = entry.getValue();
                         String name = values.alias == null ? key : values.alias;
                         if(values instanceof ObjectResult){
                             object.put(name,((ObjectResult) values).generateJSON().get(name));
@@ -184,7 +166,224 @@ public class ObjectResult extends Result<Map<String, Object>> {
     }
 
     @Override
-    public void merge(Result result) {
+    public void writeJSON(JsonGenerator generator) throws IOException {
+        if(!isList()){
+            if(this.subfields.size()<=1){
+                if(this.subfields.isEmpty()){
+                    generator.writeNull();
+                }else{
+                    generator.writeStartObject();
+                    for(Map.Entry<String, Result<?>> entry : this.subfields.values().iterator().next().entrySet()){
+                        writeSubfield(generator, entry.getKey(), entry.getValue());
+                    }
+                    generator.writeEndObject();
+                }
+                return;
+            }else{
+                this.errors += "Schema Error for "+ this.name + ": Only one result should exist, all queried values are returned in a list.";
+            }
+        }
+        generator.writeStartArray();
+        for(Map<String, Result<?>> object : selectObjects()){
+            generator.writeStartObject();
+            for (Map.Entry<String, Result<?>> entry : object.entrySet()) {
+                Result<?> values = entry.getValue();
+                writeSubfield(generator, values.alias == null ? entry.getKey() : values.alias, values);
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    /**
+     * Writes the given subfield result under the given name. As in generateJSON() the value of an ObjectResult is only
+     * written if the name matches the field name of the result, otherwise null is written.
+     */
+    private void writeSubfield(JsonGenerator generator, String name, Result<?> result) throws IOException {
+        generator.writeFieldName(name);
+        if(result instanceof ObjectResult && !name.equals(result.getFieldName())){
+            generator.writeNull();
+        }else{
+            result.writeJSON(generator);
+        }
+        this.errors += result.errors;
+    }
+
+    /**
+     * Orders the object entities according to the order argument and applies the offset and limit arguments.
+     * If a limit is defined only the first offset + limit entities are selected in order, the other entities are not
+     * sorted.
+     * @return Object entities of the result in the order they are returned
+     */
+    private List<Map<String, Result<?>>> selectObjects() {
+        long offset = args == null || args.get(SPARQLServiceConverter.OFFSET) == null ? 0 : ((Number) args.get(SPARQLServiceConverter.OFFSET)).longValue();   // offset interferes with multiple services limiter.
+        long limit = args == null || args.get(SPARQLServiceConverter.LIMIT) == null ? this.subfields.size() : ((Number) args.get(SPARQLServiceConverter.LIMIT)).longValue();
+        Collection<String> iris = this.subfields.keySet();
+        try {
+            Comparator<String> order = entityOrder(this.args);
+            if (order != null) {
+                iris = firstOrdered(iris, order, offset + limit);
+            }
+        }catch (ClassCastException e){
+            this.errors += "Casting exception for the arguments of field " + this.name + ". ";
+            LOGGER.error("Casting exception for the arguments of field " + this.name, e);
+        }
+        return iris.stream()
+                .skip(offset)
+                .limit(limit)
+                .map(this.subfields::get)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the order of the object entities defined by the order argument of the given arguments. The entities are
+     * ordered by their IRI as the SPARQL queries order them by the IRI of the node variable (see SPARQLServiceConverter).
+     * @param args arguments of the field, may be null
+     * @return Comparator of the IRIs, null if no order is defined
+     */
+    public static Comparator<String> entityOrder(Map<String, Object> args) {
+        if (args == null || args.get(SPARQLServiceConverter.ORDER) == null) {
+            return null;
+        }
+        // If new order features are added extend the comparator cases here
+        switch (args.get(SPARQLServiceConverter.ORDER).toString()) {
+            case SPARQLServiceConverter.ORDER_ASC:
+                return Comparator.naturalOrder();
+            case SPARQLServiceConverter.ORDER_DESC:
+                return Comparator.reverseOrder();
+            default:
+                throw new IllegalStateException("Unexpected value: " + args.get(SPARQLServiceConverter.ORDER));
+        }
+    }
+
+    /**
+     * Returns the first n of the given IRIs in the given order. Only the selected IRIs are sorted, the others are
+     * discarded while the IRIs are scanned once with a bounded heap.
+     * @param iris IRIs of the entities
+     * @param order order of the IRIs
+     * @param n number of IRIs to select
+     * @return first n IRIs in order
+     */
+    static List<String> firstOrdered(Collection<String> iris, Comparator<String> order, long n) {
+        List<String> first;
+        if (n >= iris.size()) {
+            first = new ArrayList<>(iris);
+        } else {
+            PriorityQueue<String> heap = new PriorityQueue<>((int) n + 1, order.reversed());   // head is the last selected IRI
+            for (String iri : iris) {
+                if (heap.size() < n) {
+                    heap.add(iri);
+                } else if (n > 0 && order.compare(iri, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(iri);
+                }
+            }
+            first = new ArrayList<>(heap);
+        }
+        first.sort(order);
+        return first;
+    }
+
+    /**
+     * Merges the given results of the executions of one query into one result with the first limit entities in the
+     * given order. The entities of each result are expected in this order, as the SPARQL queries order the entities
+     * (see SPARQLServiceConverter), so that the results are merged with a k-way merge that stops after the first limit
+     * distinct entities. Entities with the same IRI in multiple results are merged. A result whose entities are not in
+     * order is sorted first.
+     * @param results results of the executions, e.g. the VALUES chunks or the services of a ManifoldService; may contain null
+     * @param order order of the entity IRIs
+     * @param limit number of entities needed by the query (offset + limit), Long.MAX_VALUE if the query has no limit
+     * @return merged result, null if no result contains entities
+     */
+    public static Result<?> mergeOrdered(List<Result<?>> results, Comparator<String> order, long limit) {
+        List<ObjectResult> runs = new ArrayList<>();
+        for (Result<?> result : results) {
+            if (result instanceof ObjectResult) {
+                runs.add((ObjectResult) result);
+            } else if (result != null) {
+                LOGGER.error("Only ObjectResults can be merged in order, the result of {} is omitted", result.name);
+            }
+        }
+        if (runs.isEmpty()) {
+            return null;
+        }
+        PriorityQueue<Run> heads = new PriorityQueue<>(runs.size(), (a, b) -> order.compare(a.iri, b.iri));
+        for (ObjectResult run : runs) {
+            Run head = new Run(run, order);
+            if (head.next()) {
+                heads.add(head);
+            }
+        }
+        Map<String, Map<String, Result<?>>> merged = new LinkedHashMap<>();
+        while (!heads.isEmpty()) {
+            Run head = heads.poll();
+            Map<String, Result<?>> entity = merged.get(head.iri);
+            if (entity != null) {
+                for (Map.Entry<String, Result<?>> field : head.subfields.entrySet()) {
+                    Result<?> existing = entity.get(field.getKey());
+                    if (existing != null) {
+                        existing.merge(field.getValue());
+                    } else {
+                        entity.put(field.getKey(), field.getValue());
+                    }
+                }
+            } else if (merged.size() < limit) {
+                merged.put(head.iri, head.subfields);
+            } else {
+                break;   // all remaining entities are ordered after the selected entities
+            }
+            if (head.next()) {
+                heads.add(head);
+            }
+        }
+        ObjectResult result = runs.get(0);
+        result.subfields = merged;
+        return result;
+    }
+
+    /**
+     * Iterator over the entities of one result in the order of the merge (see mergeOrdered()).
+     */
+    private static class Run {
+
+        private final Iterator<Map.Entry<String, Map<String, Result<?>>>> entities;
+        private String iri;
+        private Map<String, Result<?>> subfields;
+
+        private Run(ObjectResult result, Comparator<String> order) {
+            Map<String, Map<String, Result<?>>> entities = result.subfields;
+            if (!isOrdered(entities.keySet(), order)) {
+                Map<String, Map<String, Result<?>>> sorted = new TreeMap<>(order);
+                sorted.putAll(entities);
+                entities = sorted;
+            }
+            this.entities = entities.entrySet().iterator();
+        }
+
+        private boolean next() {
+            if (!entities.hasNext()) {
+                return false;
+            }
+            Map.Entry<String, Map<String, Result<?>>> entity = entities.next();
+            iri = entity.getKey();
+            subfields = entity.getValue();
+            return true;
+        }
+
+        private static boolean isOrdered(Collection<String> iris, Comparator<String> order) {
+            String previous = null;
+            for (String iri : iris) {
+                if (previous != null && order.compare(previous, iri) > 0) {
+                    return false;
+                }
+                previous = iri;
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public void merge(Result<?> result) {
         if(result == null){
             // Nothing needs to be merged
             return;
@@ -193,10 +392,10 @@ public class ObjectResult extends Result<Map<String, Object>> {
             for(String entry : ((ObjectResult) result).subfields.keySet()){
                 if(this.subfields.containsKey(entry)){
                     // Merge values
-                    Map<String, Result> subResult = this.subfields.get(entry);
-                    for(Map.Entry<String, Result> fieldEntry : ((ObjectResult) result).subfields.get(entry).entrySet()){
+                    Map<String, Result<?>> subResult = this.subfields.get(entry);
+                    for(Map.Entry<String, Result<?>> fieldEntry : ((ObjectResult) result).subfields.get(entry).entrySet()){
                         String key = fieldEntry.getKey();
-                        Result values = fieldEntry.getValue();
+                        Result<?> values = fieldEntry.getValue();
                         if(subResult.containsKey(key)){
                             // object  result share same field -> merge
                             subResult.get(key).merge(values);
@@ -213,50 +412,35 @@ public class ObjectResult extends Result<Map<String, Object>> {
         }
     }
 
+    @Override
+    public ObjectResult copy() {
+        ObjectResult copy = copyStateTo(new ObjectResult(nodeId, name, alias, args));
+        subfields.forEach((iri, fields) -> {
+            Map<String, Result<?>> copiedFields = copy.addObject(iri);
+            fields.forEach((field, result) -> copiedFields.put(field, result == null ? null : result.copy()));
+        });
+        return copy;
+    }
+
     /**
      * Functions similarly to the merge method but checks the level of the result.
-     * If the given subfield results are not on the same level as this object the subfield is forwarded one level deeper
-     * to ensure that the results/subfields are merged correctly.
+     * If the given subfield results are not on the same level as this object the subfields are merged into the entities
+     * of the ObjectResults below this object that have the same nodeId as the given result.
      * Furthermore this method only adds new data to result entities that already exist. Contrary to the merge method here,
      * only the existing entities are extended with further data but NO new entity is added.
      * This is due to the handling and execution of multiple queries where a query result may contain data for an entity
      * queried from another service but it also is possible that other data is also in the result for other entities.
      * The deepSubfieldMerge means here that the result entities from this object and below (result is tree structure)
      * only pick there data from the given subfield result to extend there data.
+     * To merge multiple results into the same object use a ResultIndex, which searches the levels of this object only once.
      * @param subfields Potential results for the subfields of this object
      */
-    public void deepSubfieldMerge(Result subfields){
-        if(nodeId.equals(subfields.getNodeId())){
-            // same level merge results on matching ids
-            if(subfields instanceof ObjectResult){
-                for(Map.Entry<String,Map<String,Result>> x : this.subfields.entrySet()){
-                    if(((ObjectResult) subfields).subfields.containsKey(x.getKey())){
-                        final Map<String, Result> resultMap = this.subfields.get(x.getKey());
-                        for(Map.Entry<String,Result> y :  ((ObjectResult) subfields).subfields.get(x.getKey()).entrySet()){
-                            if(resultMap.containsKey(y.getKey())){
-                                resultMap.get(y.getKey()).merge(y.getValue());
-                            }else{
-                                resultMap.put(y.getKey(), y.getValue());
-                            }
-                        }
-                    }
-                }
-            }else{
-                LOGGER.error("");
-            }
-        }else{
-            // different level forward to deeper level
-            for (Map<String, Result> stringResultMap : this.subfields.values()) {
-                if (stringResultMap.containsKey(subfields.name)) {
-                    Result res = stringResultMap.get(subfields.name);
-                    if(res instanceof ObjectResult){
-                        ((ObjectResult) res).deepSubfieldMerge(subfields);
-                    }else {
-                        res.merge(subfields);
-                    }
-                }
-            }
+    public void deepSubfieldMerge(Result<?> subfields){
+        if(!(subfields instanceof ObjectResult)){
+            LOGGER.error("Only ObjectResults can be merged into the subfields of {}", this.name);
+            return;
         }
+        new ResultIndex(this).merge(subfields);
     }
 
 
@@ -1,6 +1,10 @@
 package org.hypergraphql.datafetching.services.resultmodel;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -9,7 +13,7 @@ import java.util.Map;
  */
 public class QueryRootResult extends Result<Map<String, Object>> {
 
-    Map<String, Result> root_result;   // As key the nodeId (SPARQL variable is used to allow multiple queries with different selection sets without merging them)
+    Map<String, Result<?>> root_result;   // As key the nodeId (SPARQL variable is used to allow multiple queries with different selection sets without merging them)
 
     /**
      * Initialize Result object with a id and name
@@ -32,7 +36,7 @@ public class QueryRootResult extends Result<Map<String, Object>> {
     @Override
     public Map<String, Object> generateJSON() {
         Map<String, Object> field = new HashMap<>();
-        for(Map.Entry<String, Result> entry : this.root_result.entrySet()){
+        for(Map.Entry<String, Result<?>> entry : this.root_result.entrySet()){
             String name = entry.getValue().alias == null ? entry.getValue().name : entry.getValue().alias;
             if(entry.getValue() instanceof ObjectResult){
                 field.putAll(((ObjectResult)entry.getValue()).generateJSON());
@@ -45,16 +49,42 @@ public class QueryRootResult extends Result<Map<String, Object>> {
         return field;
     }
 
+    @Override
+    public void writeJSON(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        for(Result<?> result : getRootFields().values()){
+            generator.writeFieldName(result.getFieldName());
+            result.writeJSON(generator);
+            this.errors += result.errors;
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Returns the results of the root query fields with the field name as key. As in generateJSON() only object results
+     * are returned and if multiple results have the same field name the last one is returned.
+     * @return Results of the root query fields
+     */
+    public Map<String, Result<?>> getRootFields() {
+        Map<String, Result<?>> fields = new LinkedHashMap<>();
+        for(Result<?> result : this.root_result.values()){
+            if(result instanceof ObjectResult){
+                fields.put(result.getFieldName(), result);
+            }
+        }
+        return fields;
+    }
+
     /**
      * Given result is merged into this result object if they are the result for the same queried field.
      *
      * @param result Result to be merged into this object.
      */
     @Override
-    public void merge(Result result) {
+    public void merge(Result<?> result) {
         if(result instanceof QueryRootResult){
             // This case is not the intended way to use this method but to fail safe the result sets are merged
-            for(Map.Entry<String, Result> entry : ((QueryRootResult) result).root_result.entrySet()){
+            for(Map.Entry<String, Result<?>> entry : ((QueryRootResult) result).root_result.entrySet()){
                 // add all results to the current result set through recursion
                 this.merge(entry.getValue());
             }
@@ -66,4 +96,15 @@ public class QueryRootResult extends Result<Map<String, Object>> {
             }
         }
     }
+
+    /**
+     * Creates a deep copy of this object with copies of the results of all root query fields.
+     * @return copy of this object
+     */
+    @Override
+    public QueryRootResult copy() {
+        QueryRootResult copy = copyStateTo(new QueryRootResult(nodeId, name));
+        root_result.forEach((rootNodeId, result) -> copy.root_result.put(rootNodeId, result.copy()));
+        return copy;
+    }
 }
@@ -1,14 +1,21 @@
 package org.hypergraphql.datafetching.services.resultmodel;
 
-import java.util.HashMap;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+import java.util.Collections;
 import java.util.Map;
 
 /**
  *  The Result class defines attributes and methods a result object needs to be able to insert, merge and finally
  *  generate the JSON result. The content of the result object correspond to the results of a queried field.
+ *  Serialized with Jackson the result writes the JSON value of the field directly to the generator (see writeJSON).
  * @param <T> Output type of the JSON object this object generates
  */
-public abstract class Result <T>{
+public abstract class Result <T> implements JsonSerializable {
 
     String nodeId = null;   // unique id generated during the query translation for each field in the query
     String name = null;   // name of the query field
@@ -26,7 +33,7 @@ public abstract class Result <T>{
         this.nodeId = nodeId;
         this.name = name;
         this.alias = null;
-        this.args = new HashMap<>();
+        this.args = Collections.emptyMap();
     }
 
     /**
@@ -39,7 +46,7 @@ public abstract class Result <T>{
         this.nodeId = nodeId;
         this.name = name;
         this.alias = alias;
-        this.args = new HashMap<>();
+        this.args = Collections.emptyMap();
     }
 
     /**
@@ -110,6 +117,14 @@ public abstract class Result <T>{
         this.nodeId = nodeId;
     }
 
+    /**
+     * Getter method for the name of the field in the JSON result, which is the alias if one is defined otherwise the name.
+     * @return Name of the field in the JSON result
+     */
+    public String getFieldName() {
+        return alias == null ? name : alias;
+    }
+
     /**
      * Generates a JSON representation of the content stored in the object. Result format depends on the type of the result.
      * If isList attribute is false but more than one entity is in the list than an error message is added to the error
@@ -118,11 +133,48 @@ public abstract class Result <T>{
      */
     public abstract T generateJSON();
 
+    /**
+     * Creates a deep copy of this object. Merging other results into the copy does not change this object and vice versa.
+     * @return copy of this object
+     */
+    public abstract Result<T> copy();
+
+    /**
+     * Copies the list flag and the errors of this object to the given copy.
+     * @param copy copy of this object
+     * @return the given copy
+     */
+    <R extends Result<?>> R copyStateTo(R copy) {
+        copy.isList = isList;
+        copy.errors = errors;
+        return copy;
+    }
+
+    /**
+     * Writes the JSON value of the field to the given generator. The written value is the same as the value generateJSON()
+     * returns for this field, including the added error messages, but no intermediate maps and lists are created.
+     * The name of the field is not written, for an ObjectResult this is the value stored under the field name in the
+     * map returned by generateJSON().
+     * @param generator JSON generator the value is written to
+     * @throws IOException if the value could not be written
+     */
+    public abstract void writeJSON(JsonGenerator generator) throws IOException;
+
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider serializers) throws IOException {
+        writeJSON(generator);
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator generator, SerializerProvider serializers, TypeSerializer typeSer) throws IOException {
+        writeJSON(generator);
+    }
+
     /**
      * Given result is merged into this result object if they are the result for the same queried field.
      * @param result Result to be merged into this object.
      */
-    public abstract void merge(Result result);
+    public abstract void merge(Result<?> result);
 
 }
 
@@ -0,0 +1,37 @@
+package org.hypergraphql.datafetching.services.resultmodel;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary of the IRIs and literal values of the results of one request.
+ * Every solution of the SPARQL results creates new strings for its values, although the same IRI is used as the key
+ * of the entity, as value of the _id field and in the results of every entity referencing it. The dictionary returns
+ * one canonical string per value, so the result model of a request only holds one copy of each value and the copies
+ * of the solutions are released after the solution was added.
+ * The dictionary is used concurrently by the executions of the request and is released with the request.
+ */
+public class ResultDictionary {
+
+    private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the canonical string of the given value.
+     * @param value IRI or literal value, may be null
+     * @return string equal to the given value that is shared by all results of the request
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String canonical = values.putIfAbsent(value, value);
+        return canonical == null ? value : canonical;
+    }
+
+    /**
+     * Returns the number of distinct values in the dictionary.
+     * @return number of distinct values
+     */
+    public int size() {
+        return values.size();
+    }
+}
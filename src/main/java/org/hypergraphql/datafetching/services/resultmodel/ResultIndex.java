@@ -0,0 +1,86 @@
+package org.hypergraphql.datafetching.services.resultmodel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the entities of a result tree by the nodeId of their ObjectResult and their IRI.
+ * The results of the sub-queries of an ExecutionTreeNode are ObjectResults with the nodeId of the marker (SPARQL
+ * variable of the parent query) and one entity per parent IRI. Instead of searching the whole result tree for every
+ * sub-query result, the entities of a nodeId are indexed once with the first result of that nodeId and every result
+ * is joined with the index on the IRIs of its entities. Merging the sub-query results is therefore linear in the size
+ * of the results.
+ * The index is only valid as long as no entities are added to the indexed levels of the result tree. This holds for
+ * the results of sub-queries as they only contain nodeIds of the sub-query, which are never part of the parent query.
+ */
+public class ResultIndex {
+
+    private final Result<?> root;
+    private final Map<String, Map<String, List<Map<String, Result<?>>>>> levels = new HashMap<>();   // nodeId -> IRI -> subfields of the entities
+
+    /**
+     * Initializes an empty index of the given result tree, the levels of the tree are indexed when they are first used.
+     * @param root Result tree the results are merged into
+     */
+    public ResultIndex(Result<?> root) {
+        this.root = root;
+    }
+
+    /**
+     * Merges the subfields of the entities of the given result into the entities with the same IRI and the same nodeId
+     * in the indexed result tree. Only existing entities are extended, entities of the given result that are not
+     * contained in the result tree are ignored (see ObjectResult.deepSubfieldMerge).
+     * @param result Result of a sub-query
+     */
+    public void merge(Result<?> result) {
+        if (!(result instanceof ObjectResult)) {
+            return;
+        }
+        Map<String, List<Map<String, Result<?>>>> level = level(result.getNodeId());
+        for (Map.Entry<String, Map<String, Result<?>>> entity : ((ObjectResult) result).subfields.entrySet()) {
+            for (Map<String, Result<?>> target : level.getOrDefault(entity.getKey(), Collections.emptyList())) {
+                for (Map.Entry<String, Result<?>> subfield : entity.getValue().entrySet()) {
+                    Result<?> existing = target.get(subfield.getKey());
+                    if (existing != null) {
+                        existing.merge(subfield.getValue());
+                    } else {
+                        target.put(subfield.getKey(), subfield.getValue());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the entities of all ObjectResults with the given nodeId, the level is indexed on the first call.
+     */
+    private Map<String, List<Map<String, Result<?>>>> level(String nodeId) {
+        Map<String, List<Map<String, Result<?>>>> level = levels.get(nodeId);
+        if (level == null) {
+            level = new HashMap<>();
+            index(root, nodeId, level);
+            levels.put(nodeId, level);
+        }
+        return level;
+    }
+
+    private static void index(Result<?> result, String nodeId, Map<String, List<Map<String, Result<?>>>> level) {
+        if (!(result instanceof ObjectResult)) {
+            return;
+        }
+        Map<String, Map<String, Result<?>>> entities = ((ObjectResult) result).subfields;
+        if (nodeId.equals(result.getNodeId())) {
+            // nodeIds are unique in the query, the subfields of this level can not contain the nodeId again
+            entities.forEach((iri, subfields) -> level.computeIfAbsent(iri, k -> new ArrayList<>(1)).add(subfields));
+            return;
+        }
+        for (Map<String, Result<?>> subfields : entities.values()) {
+            for (Result<?> subfield : subfields.values()) {
+                index(subfield, nodeId, level);
+            }
+        }
+    }
+}
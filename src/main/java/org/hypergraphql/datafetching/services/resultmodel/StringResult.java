@@ -1,10 +1,12 @@
 package org.hypergraphql.datafetching.services.resultmodel;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.hypergraphql.query.converters.SPARQLServiceConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -17,7 +19,7 @@ public class StringResult extends Result<Object> {
     private final static Logger LOGGER = LoggerFactory.getLogger(StringResult.class);
 
 
-    Set<String> values = new HashSet<>();   // contains the literal values (results) of this field
+    Set<String> values = new ValueSet();   // contains the literal values (results) of this field
 
     /**
      * Initalize ObjectResult with nodeId and name, both are mandatory for all StringResults
@@ -71,21 +73,50 @@ public class StringResult extends Result<Object> {
 
     @Override
     public Object generateJSON() {
-        List values = new ArrayList(this.values);
         if(!isList()){
-            if(values.size() <=1){
-                if (values.isEmpty()) {
+            if(this.values.size() <=1){
+                if (this.values.isEmpty()) {
                     return null;
                 }
-                return values.get(0);
+                return this.values.iterator().next();
             }else{
                 this.errors += "Schema Error for "+ this.name + ": Only one result should exist, all queried values are returned in a list.";
             }
         }
+        return selectValues();
+    }
+
+    @Override
+    public void writeJSON(JsonGenerator generator) throws IOException {
+        if(!isList()){
+            if(this.values.size() <=1){
+                if (this.values.isEmpty()) {
+                    generator.writeNull();
+                } else {
+                    generator.writeString(this.values.iterator().next());
+                }
+                return;
+            }else{
+                this.errors += "Schema Error for "+ this.name + ": Only one result should exist, all queried values are returned in a list.";
+            }
+        }
+        generator.writeStartArray();
+        for(String value : selectValues()){
+            generator.writeString(value);
+        }
+        generator.writeEndArray();
+    }
+
+    /**
+     * Orders the values according to the order argument and applies the offset and limit arguments.
+     * @return Values of the result in the order they are returned
+     */
+    private List<String> selectValues() {
+        List<String> values = new ArrayList<>(this.values);
         if(this.args != null && this.args.get(SPARQLServiceConverter.ORDER) != null) {
 
             // sort results
-            Comparator comparator = null;
+            Comparator<String> comparator = null;
             String order = (String) this.args.get(SPARQLServiceConverter.ORDER);   //ToDo: If new order features are implemented the type of order might change
             switch (order) {
                 case SPARQLServiceConverter.ORDER_ASC:
@@ -98,14 +129,14 @@ public class StringResult extends Result<Object> {
                     throw new IllegalStateException("Unexpected value: " + this.args.get("order"));
             }
             if(comparator != null){
-                values = (List) values.stream()
+                values = values.stream()
                         .sorted(comparator)
                         .collect(Collectors.toList());
             }
 
             // apply limiters
             try {
-                values = (List) values.stream()
+                values = values.stream()
                         .skip(args == null || args.get("offset") == null ? 0 : ((Number) args.get(SPARQLServiceConverter.OFFSET)).longValue())  // Currently limit and offset not applied to Literal values therefore applied here  -> offset interferes with multiple services limiter. offset is therefore only applied on the SPARQL queries and not on the final result build up
                         .limit(args == null || args.get("limit") == null ? this.values.size() : ((Number) args.get(SPARQLServiceConverter.LIMIT)).longValue())
                         .collect(Collectors.toList());
@@ -119,7 +150,7 @@ public class StringResult extends Result<Object> {
     }
 
     @Override
-    public void merge(Result result) {
+    public void merge(Result<?> result) {
         if(result instanceof  StringResult){
             if(!this.name.equals(result.name)){
                 LOGGER.error("Tried to merge fields with different names");
@@ -131,6 +162,21 @@ public class StringResult extends Result<Object> {
         }
     }
 
+    @Override
+    public StringResult copy() {
+        StringResult copy = copyStateTo(new StringResult(nodeId, name, alias, args));
+        copy.values.addAll(values);
+        return copy;
+    }
+
+    /**
+     * Returns the number of literal values stored in this object.
+     * @return number of values
+     */
+    public int size() {
+        return values.size();
+    }
+
     /**
      * Getter method to get the literal values stored in this object
      * @return Literal values of this stored object
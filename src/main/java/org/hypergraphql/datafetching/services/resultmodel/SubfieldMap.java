@@ -0,0 +1,171 @@
+package org.hypergraphql.datafetching.services.resultmodel;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map of the subfield results of one object entity of an ObjectResult.
+ * An entity only has the few subfields selected in the query, therefore the subfields are stored in two arrays that
+ * are searched linearly instead of the table and entry objects of a HashMap. The field names are the names of the
+ * query fields and are shared by all entities, so the lookup mostly succeeds on the reference comparison.
+ * The subfields are iterated in the order they were added.
+ */
+class SubfieldMap extends AbstractMap<String, Result<?>> {
+
+    private static final String[] EMPTY_KEYS = new String[0];
+    private static final Result<?>[] EMPTY_VALUES = new Result<?>[0];
+
+    private String[] keys = EMPTY_KEYS;
+    private Result<?>[] values = EMPTY_VALUES;
+    private int size = 0;
+
+    SubfieldMap() {
+    }
+
+    /**
+     * Initializes the map with the given subfields.
+     * @param subfields subfields of the entity
+     */
+    SubfieldMap(Map<String, Result<?>> subfields) {
+        this.keys = new String[subfields.size()];
+        this.values = new Result<?>[subfields.size()];
+        for (Map.Entry<String, Result<?>> entry : subfields.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Result<?> get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public Result<?> put(String key, Result<?> value) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            Result<?> previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+        if (size == keys.length) {
+            int capacity = Math.max(2, size + (size >> 1) + 1);
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+        return null;
+    }
+
+    @Override
+    public Result<?> remove(Object key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        Result<?> previous = values[index];
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Result<?>>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Result<?>>>() {
+            @Override
+            public Iterator<Map.Entry<String, Result<?>>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        if (key != null) {
+            for (int i = 0; i < size; i++) {
+                if (key.equals(keys[i])) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int index) {
+        int moved = size - index - 1;
+        System.arraycopy(keys, index + 1, keys, index, moved);
+        System.arraycopy(values, index + 1, values, index, moved);
+        size--;
+        keys[size] = null;
+        values[size] = null;
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<String, Result<?>>> {
+
+        private int next = 0;
+        private int last = -1;
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public Map.Entry<String, Result<?>> next() {
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            final int index = last;
+            return new AbstractMap.SimpleEntry<String, Result<?>>(keys[index], values[index]) {
+                @Override
+                public Result<?> setValue(Result<?> value) {
+                    values[index] = value;
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.hypergraphql.datafetching.services.resultmodel;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Set of the literal values of a StringResult.
+ * Most fields have a single value per entity, therefore the values are stored in an array instead of a HashSet and
+ * duplicates are detected by a linear search. Only if the number of values exceeds INDEX_THRESHOLD a hash index is
+ * built for the duplicate detection.
+ * The values are iterated in the order they were added.
+ */
+class ValueSet extends AbstractSet<String> {
+
+    static final int INDEX_THRESHOLD = 8;
+    private static final String[] EMPTY = new String[0];
+
+    private String[] values = EMPTY;
+    private int size = 0;
+    private Set<String> index = null;   // only used for sets with more than INDEX_THRESHOLD values
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        if (index != null) {
+            return index.contains(value);
+        }
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(values[i], value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean add(String value) {
+        if (contains(value)) {
+            return false;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(1, size + (size >> 1) + 1));
+        }
+        values[size++] = value;
+        if (index != null) {
+            index.add(value);
+        } else if (size > INDEX_THRESHOLD) {
+            index = new HashSet<>(Arrays.asList(values).subList(0, size));
+        }
+        return true;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+
+            private int next = 0;
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public String next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                last = next++;
+                return values[last];
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                if (index != null) {
+                    index.remove(values[last]);
+                }
+                System.arraycopy(values, last + 1, values, last, size - last - 1);
+                values[--size] = null;
+                next = last;
+                last = -1;
+            }
+        };
+    }
+}
@@ -0,0 +1,145 @@
+package org.hypergraphql.query.converters;
+
+import org.hypergraphql.config.system.ServiceConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Precompiled SPARQL query of a query or sub-query (see SPARQLServiceConverter.compileSelectQuery()).
+ * The template contains the complete SPARQL query including the schema lookups, sameAs expansion and the limit, offset
+ * and order modifiers of the query. Only the VALUES clause that restricts the query to the IRIs of the parent query is
+ * left as slot, which is filled in for each VALUES chunk with fill().
+ * Fields with a limit that are restricted by the input can contain a per-parent clause (see perParentClause()): if the
+ * input has at most perParentThreshold IRIs (see ServiceConfig.getPerParentThreshold()) the clause is filled with one
+ * subquery per IRI, otherwise with the alternative subquery that selects the values of all parents at once.
+ */
+public class SPARQLQueryTemplate {
+
+    static final String VALUES_SLOT = "\u0000VALUES\u0000";   // placeholder of the VALUES clause in the generated query
+    static final String PARENT_SLOT = "\u0000PARENT\u0000";   // placeholder of the parent IRI in the subquery of a per-parent clause
+    private static final String PER_PARENT_START = "\u0000PARENTS\u0000";
+    private static final String PER_PARENT_ELSE = "\u0000ELSE\u0000";
+    private static final String PER_PARENT_END = "\u0000END\u0000";
+
+    private final String[] segments;
+    private final String valuesVariable;
+    private final int length;
+    private final int perParentThreshold;   // maximal number of subqueries of a per-parent clause
+    private final List<String> texts = new ArrayList<>();   // text around the per-parent clauses
+    private final List<String[]> parentQueries = new ArrayList<>();   // subquery per parent of each clause, split at PARENT_SLOT
+    private final List<String> alternatives = new ArrayList<>();   // subquery of each clause for many parents
+
+    /**
+     * Creates a template without slot, the given query is used for all inputs.
+     * @param query SPARQL query
+     */
+    SPARQLQueryTemplate(String query) {
+        this(query, null);
+    }
+
+    /**
+     * Creates a template from the given query where each VALUES_SLOT is replaced with the VALUES clause of the input.
+     * @param query SPARQL query containing VALUES_SLOT placeholders
+     * @param valuesVariable id of the SPARQL variable that is restricted by the VALUES clause
+     */
+    SPARQLQueryTemplate(String query, String valuesVariable) {
+        this(query, valuesVariable, ServiceConfig.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a template from the given query where each VALUES_SLOT is replaced with the VALUES clause of the input.
+     * @param query SPARQL query containing VALUES_SLOT placeholders
+     * @param valuesVariable id of the SPARQL variable that is restricted by the VALUES clause
+     * @param perParentThreshold maximal number of input IRIs for which the per-parent clauses are filled per parent
+     */
+    SPARQLQueryTemplate(String query, String valuesVariable, int perParentThreshold) {
+        this.segments = query.split(Pattern.quote(VALUES_SLOT), -1);
+        this.valuesVariable = valuesVariable;
+        this.length = query.length();
+        this.perParentThreshold = perParentThreshold;
+        int from = 0;
+        int start;
+        while ((start = query.indexOf(PER_PARENT_START, from)) >= 0) {
+            int alternative = query.indexOf(PER_PARENT_ELSE, start);
+            int end = query.indexOf(PER_PARENT_END, alternative);
+            texts.add(query.substring(from, start));
+            parentQueries.add(query.substring(start + PER_PARENT_START.length(), alternative).split(Pattern.quote(PARENT_SLOT), -1));
+            alternatives.add(query.substring(alternative + PER_PARENT_ELSE.length(), end));
+            from = end + PER_PARENT_END.length();
+        }
+        texts.add(query.substring(from));
+    }
+
+    /**
+     * Generates a per-parent clause, which is filled with the given parentQuery for each input IRI if the input is small
+     * enough, otherwise with the given query.
+     * @param parentQuery subquery for one parent, the IRI of the parent is filled into PARENT_SLOT
+     * @param query subquery for all parents
+     * @return per-parent clause
+     */
+    static String perParentClause(String parentQuery, String query) {
+        return PER_PARENT_START + parentQuery + PER_PARENT_ELSE + query + PER_PARENT_END;
+    }
+
+    /**
+     * Generates the SPARQL query for the given input values.
+     * @param input IRIs the VALUES clause is restricted to
+     * @return SPARQL query
+     */
+    public String fill(Set<String> input) {
+
+        if (!parentQueries.isEmpty()) {
+            return fillPerParent(input);
+        }
+        if (segments.length == 1) {
+            return segments[0];
+        }
+        String values = SPARQLServiceConverter.valuesClause(valuesVariable, input);
+        StringBuilder query = new StringBuilder(length + (segments.length - 1) * values.length());
+        query.append(segments[0]);
+        for (int i = 1; i < segments.length; i++) {
+            query.append(values).append(segments[i]);
+        }
+        return query.toString();
+    }
+
+    /**
+     * Generates the SPARQL query for the given input values from a template with per-parent clauses.
+     */
+    private String fillPerParent(Set<String> input) {
+
+        boolean perParent = !input.isEmpty() && input.size() <= perParentThreshold;
+        StringBuilder query = new StringBuilder(length);
+        for (int i = 0; i < parentQueries.size(); i++) {
+            query.append(texts.get(i));
+            if (perParent) {
+                String[] parentQuery = parentQueries.get(i);
+                query.append("{ ");
+                String union = "";
+                for (String iri : input) {
+                    query.append(union).append(parentQuery[0]);
+                    for (int j = 1; j < parentQuery.length; j++) {
+                        query.append(iri).append(parentQuery[j]);
+                    }
+                    union = " UNION ";
+                }
+                query.append(" } ");
+            } else {
+                query.append(alternatives.get(i));
+            }
+        }
+        query.append(texts.get(texts.size() - 1));
+        return query.toString().replace(VALUES_SLOT, SPARQLServiceConverter.valuesClause(valuesVariable, input));
+    }
+
+    /**
+     * Returns the number of VALUES clauses filled into the template.
+     * @return number of slots
+     */
+    public int getSlots() {
+        return segments.length - 1;
+    }
+}
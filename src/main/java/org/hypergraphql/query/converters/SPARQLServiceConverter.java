@@ -1,8 +1,11 @@
 package org.hypergraphql.query.converters;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.jena.graph.Node;
 import org.hypergraphql.config.schema.HGQLVocabulary;
+import org.hypergraphql.config.schema.FieldOfTypeConfig;
 import org.hypergraphql.config.schema.QueryFieldConfig;
+import org.hypergraphql.config.schema.TypeConfig;
 import org.hypergraphql.datafetching.ExecutionTreeNode;
 import org.hypergraphql.datafetching.services.ManifoldService;
 import org.hypergraphql.datafetching.services.SPARQLEndpointService;
@@ -11,8 +14,13 @@ import org.hypergraphql.datamodel.HGQLSchema;
 import org.hypergraphql.query.pattern.Query;
 import org.hypergraphql.query.pattern.QueryPattern;
 import org.hypergraphql.query.pattern.SubQueriesPattern;
+import org.hypergraphql.query.pattern.UnionPattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static org.hypergraphql.config.schema.HGQLVocabulary.HGQL_SCALAR_LITERAL_GQL_NAME;
@@ -24,6 +32,7 @@ import static org.hypergraphql.config.schema.HGQLVocabulary.HGQL_SCALAR_LITERAL_
  */
 public class SPARQLServiceConverter {
 
+    private final static Logger LOGGER = LoggerFactory.getLogger(SPARQLServiceConverter.class);
     private final static String RDF_TYPE_URI = "<http://www.w3.org/1999/02/22-rdf-syntax-ns#type>";
     private final static String NAME = "name";
     private final static String URIS = "uris";
@@ -42,6 +51,8 @@ public class SPARQLServiceConverter {
     public final static String TYPE = "_type";
     private final static String SAMEAS = "sameas";
 
+    private final static Map<Query, Map<String, SPARQLQueryTemplate>> TEMPLATES = new WeakHashMap<>();   // compiled templates per query object and root type + service
+
     private final HGQLSchema schema;
 
 
@@ -102,25 +113,15 @@ public class SPARQLServiceConverter {
      * @param input List of values id should match
      * @return Corresponding VALUES clause
      */
-    private String valuesClause(String id, Set<String> input) {
-        String var = toVar(id);
-        Set<String> uris = new HashSet<>();
-        input.forEach(uri -> uris.add(uriToResource(uri)));
-
-        String urisConcat = String.join(" ", uris);
-
-        return  "VALUES " + var + " { " + urisConcat + " } ";
-    }
-
-    private String filterClause(final String id, final Set<String> input) {
-
-        String var = toVar(id);
-        Set<String> uris = new HashSet<>();
-        input.forEach(uri -> uris.add(uriToResource(uri)));
-
-        String urisConcat = String.join(" , ", uris);
-
-        return "FILTER ( " + var + " IN ( " + urisConcat + " ) )";
+    static String valuesClause(String id, Set<String> input) {
+        // the input is a set, therefore the resources are unique without collecting them in another set
+        StringBuilder values = new StringBuilder(input.size() * 48).append("VALUES ").append(toVar(id)).append(" { ");
+        String separator = "";
+        for (String uri : input) {
+            values.append(separator).append('<').append(uri).append('>');
+            separator = " ";
+        }
+        return values.append(" } ").toString();
     }
 
     /**
@@ -133,22 +134,14 @@ public class SPARQLServiceConverter {
     }
 
     /**
-     * Generates the LIMIT and OFFSET clauses if they are defined in the given field/type (jsonQuery).
-     * @param query
-     * @return
+     * Generates the LIMIT clause of a root query. The offset and limit of a root query are applied to the merged results
+     * of all VALUES chunks and services, therefore each query selects the first offset + limit entities without OFFSET.
+     * @param query root query
+     * @return LIMIT clause, empty String if the query has no limit
      */
-    private String limitOffsetClause(QueryPattern query) {
-        String limit = "";
-        String offset = "";
-        if (query.args != null) {
-            if (query.args.containsKey(LIMIT)) {
-                limit = limitClause((long)query.args.get(LIMIT));
-            }
-            if (query.args.containsKey(OFFSET)) {
-                offset = offsetClause((long)query.args.get(OFFSET));
-            }
-        }
-        return offset + limit;
+    private String rootLimitClause(QueryPattern query) {
+        long window = windowSize(query);
+        return window < 0 ? "" : limitClause(window);
     }
 
     /**
@@ -160,24 +153,26 @@ public class SPARQLServiceConverter {
         return "LIMIT " + limit + " ";
     }
 
-    /**
-     * Wraps the SPARQL OFFSET clause around the given offset
-     * @param offset
-     * @return
-     */
-    private String offsetClause(long offset) {
-        return "OFFSET " + offset + " ";
+    private String orderClause(QueryPattern query){
+        return orderClause(query, query.nodeId);
     }
 
-
-    private String orderClause(QueryPattern query){
+    /**
+     * Generates the ORDER BY clause of the order argument of the given field for the given node variable. The values are
+     * ordered by their lexical form as the results are ordered in the result model, e.g. the language tag of a literal
+     * is not part of the order.
+     * @param query field or literal value with the order argument
+     * @param nodeId variable that is ordered
+     * @return ORDER BY clause, empty String if no order is defined
+     */
+    private String orderClause(QueryPattern query, String nodeId){
         String order = "";
         if(query.args != null && query.args.containsKey(ORDER)){
             order = (String) query.args.get(ORDER);
             if(order.equals(ORDER_DESC)){
-                return  "ORDER  BY DESC(" + toVar(query.nodeId) + ")";
+                return  "ORDER  BY DESC(STR(" + toVar(nodeId) + "))";
             }else if(order.equals(ORDER_ASC)){
-                return  "ORDER  BY ASC(" + toVar(query.nodeId) + ")";
+                return  "ORDER  BY ASC(STR(" + toVar(nodeId) + "))";
             }
         }
         return "";
@@ -213,12 +208,13 @@ public class SPARQLServiceConverter {
     }
 
     /**
-     * Returns a SPARQL language filter for the given field if the LANG argument is defined.
+     * Returns a SPARQL language filter for the given node variable if the LANG argument of the given field is defined.
      * @param field
+     * @param nodeId variable the filter is applied to
      * @return If LANG argument is defined return SPARQL language filter else empty String.
      */
-    private String langFilterClause(QueryPattern field) {
-        String nodeVar = toVar(field.nodeId);
+    private String langFilterClause(QueryPattern field, String nodeId) {
+        String nodeVar = toVar(nodeId);
         return (field.args.containsKey(LANG)) ? "FILTER (lang(" + nodeVar + ") = \"" + (String)field.args.get(LANG) + "\") . " : "";
     }
 
@@ -247,7 +243,108 @@ public class SPARQLServiceConverter {
      * @return
      */
     public String getSelectQuery(Query query, Set<String> input, String rootType, String serviceId) {
+        return getSelectTemplate(query, rootType, serviceId).fill(input);
+    }
+
+    /**
+     * Generates a CONSTRUCT query for the given query for the construct fetch mode of a service. The WHERE clause is
+     * the SELECT query of the given query, the template links the value of each field to its parent entity with the
+     * predicate of the SPARQL variable of the field (see constructPredicate()) and the entities of the query root to
+     * themselves. The triples are translated into the Result with a ConstructGraph.
+     * @param query query or sub-query
+     * @param input IRIs that are filled into the VALUES clause of the query
+     * @param rootType type of the query root
+     * @param serviceId id of the service that called this method. Used to select the right service from a ManifoldService
+     * @return SPARQL CONSTRUCT query
+     */
+    public String getConstructQuery(Query query, Set<String> input, String rootType, String serviceId) {
+        StringBuilder template = new StringBuilder();
+        if (query instanceof QueryPattern) {
+            String nodeId = ((QueryPattern) query).nodeId;
+            template.append(constructTriple(nodeId, nodeId));
+            constructTemplate(((QueryPattern) query).fields, template);
+        } else if (query instanceof SubQueriesPattern && !((SubQueriesPattern) query).subqueries.isEmpty()) {
+            String parentId = ((SubQueriesPattern) query).subqueries.get(0).parentId;
+            template.append(constructTriple(parentId, parentId));
+            constructTemplate((SubQueriesPattern) query, template);
+        }
+        return "CONSTRUCT { " + template + "} WHERE { " + getSelectQuery(query, input, rootType, serviceId) + "} ";
+    }
+
+    /**
+     * Appends the triples of the given fields and their subfields to the CONSTRUCT template.
+     */
+    private void constructTemplate(SubQueriesPattern fields, StringBuilder template) {
+        if (fields == null || fields.subqueries == null) {
+            return;
+        }
+        for (QueryPattern field : fields.subqueries) {
+            if (HGQLVocabulary.JSONLD.containsKey(field.name)) {
+                continue;
+            }
+            template.append(constructTriple(field.parentId, field.nodeId));
+            if (!field.targetType.equals(HGQL_SCALAR_LITERAL_GQL_NAME)) {   // the literal value is bound to the node variable of the field
+                constructTemplate(field.fields, template);
+            }
+        }
+    }
+
+    private String constructTriple(String parentId, String nodeId) {
+        return toTriple(toVar(parentId), uriToResource(constructPredicate(nodeId)), toVar(nodeId)) + " ";
+    }
+
+    /**
+     * Returns the predicate of the CONSTRUCT template that links the values of the given SPARQL variable to their
+     * parent entity.
+     * @param nodeId SPARQL variable of a field
+     * @return IRI of the predicate
+     */
+    public static String constructPredicate(String nodeId) {
+        return HGQLVocabulary.HGQL_QUERY_NAMESPACE + nodeId;
+    }
+
+    /**
+     * Returns the SPARQL variable the given predicate of a CONSTRUCT template stands for (see constructPredicate()).
+     * @param predicate predicate of a triple of the CONSTRUCT query results
+     * @return SPARQL variable, null if the predicate is not a predicate of the CONSTRUCT template
+     */
+    public static String constructVariable(Node predicate) {
+        if (!predicate.isURI() || !predicate.getURI().startsWith(HGQLVocabulary.HGQL_QUERY_NAMESPACE)) {
+            return null;
+        }
+        return predicate.getURI().substring(HGQLVocabulary.HGQL_QUERY_NAMESPACE.length());
+    }
+
+    /**
+     * Returns the SPARQLQueryTemplate of the given query. The template is compiled once per query object, root type
+     * and service, further calls (e.g. for the other VALUES chunks or a cached query plan) reuse the compiled template.
+     * @param query query or sub-query
+     * @param rootType type of the query root
+     * @param serviceId id of the service that called this method. Used to select the right service from a ManifoldService
+     * @return SPARQLQueryTemplate of the given query
+     */
+    public SPARQLQueryTemplate getSelectTemplate(Query query, String rootType, String serviceId) {
+
+        Map<String, SPARQLQueryTemplate> queryTemplates;
+        synchronized (TEMPLATES) {
+            queryTemplates = TEMPLATES.computeIfAbsent(query, q -> new ConcurrentHashMap<>());
+        }
+        return queryTemplates.computeIfAbsent(rootType + " " + serviceId, key -> compileSelectQuery(query, rootType, serviceId));
+    }
 
+    /**
+     * Compiles the given query into a SPARQLQueryTemplate. The template contains the complete SPARQL query with a slot
+     * for the VALUES clause of the input, so that the query only needs to be generated once for all VALUES chunks.
+     * @param query query or sub-query
+     * @param rootType type of the query root
+     * @param serviceId id of the service that called this method. Used to select the right service from a ManifoldService
+     * @return SPARQLQueryTemplate of the given query
+     */
+    public SPARQLQueryTemplate compileSelectQuery(Query query, String rootType, String serviceId) {
+
+        if (query instanceof UnionPattern) {
+            return new SPARQLQueryTemplate(getSelectRoots((UnionPattern) query, serviceId));
+        }
         Map<String, QueryFieldConfig> queryFields = schema.getQueryFields();
 
         boolean root = (!query.isSubQuery() && queryFields.containsKey(((QueryPattern)query).name));
@@ -256,10 +353,10 @@ public class SPARQLServiceConverter {
             Map<String, Object> args = ((QueryPattern)query).args;
             if (args != null) {
                 if (args.containsKey(ID)) {
-                    return getSelectRoot_GET_BY_ID((QueryPattern) query, serviceId);
+                    return new SPARQLQueryTemplate(getSelectRoot_GET_BY_ID((QueryPattern) query, serviceId), ((QueryPattern) query).nodeId);
                 }
             }
-            return getSelectRoot_GET((QueryPattern) query, serviceId);
+            return new SPARQLQueryTemplate(getSelectRoot_GET((QueryPattern) query, serviceId));
 
 //            if (queryFields.get(jsonQuery.get(NAME).asText()).type().equals(HGQLVocabulary.HGQL_QUERY_GET_FIELD)) { // ToDo: Do NOT check the name, check the arguments for _id
 //                return getSelectRoot_GET(jsonQuery);
@@ -267,32 +364,30 @@ public class SPARQLServiceConverter {
 //                return getSelectRoot_GET_BY_ID(jsonQuery);
 //            }
         } else {
-            return getSelectNonRoot((SubQueriesPattern) query, input, rootType, serviceId);
+            return getSelectNonRoot((SubQueriesPattern) query, rootType, serviceId);
         }
     }
 
     /**
      * Generates A SPARQL query from a given GraphQl SelectionSet where the root is restricted by a list of given ids.
+     * The ids are filled into the VALUES slot of the query per VALUES chunk (see SPARQLEndpointService.getStrings()),
+     * each chunk query selects the first offset + limit entities of its ids in order.
      * @param queryField
      * @param serviceId id of the service that called this method. Used to select the right service from a ManifoldService
      * @return
      */
     private String getSelectRoot_GET_BY_ID(QueryPattern queryField, String serviceId) {
 
-        List<String> urisIter = (List<String>) queryField.args.get(ID);
-
-        Set<String> uris = new HashSet<>(urisIter); // convert to set to remove duplicates
-
         String targetName = queryField.targetType;
         String targetURI = schema.getTypes().get(targetName).getId();
 
         String graphID = getGraphId(queryField, serviceId);
         String nodeId = queryField.nodeId;
-        String limitOffsetSTR = limitOffsetClause(queryField);
+        String limitSTR = rootLimitClause(queryField);
         String orderSTR = orderClause(queryField);
         String selectTriple ="";
         if(hasSameAsTypes(targetName)){
-            Set<String> values = getSameAsTypes(targetName);
+            Set<String> values = new HashSet<>(getSameAsTypes(targetName));   // copy, the sameAs types of the schema are shared
             values.add(targetName);
             values = values.stream()
                     .map(s -> schema.getTypes().get(s).getId())
@@ -302,12 +397,12 @@ public class SPARQLServiceConverter {
         }else{
             selectTriple = toTriple(toVar(nodeId), RDF_TYPE_URI, uriToResource(targetURI));
         }
-        String valueSTR = valuesClause(nodeId, uris);
-        String filterSTR = filterClause(nodeId, uris);   // NOT used ?? -> same as valuesClause?
+        String valueSTR = SPARQLQueryTemplate.VALUES_SLOT;   // restrict the root to the ids of the chunk
 
-        String subQuery = getSubQueries(queryField.fields, valueSTR);
+        String subQuery = getSubQueries(queryField.fields, valueSTR, nodeId);
 
-        return selectQueryClause(valueSTR + selectTriple + subQuery, graphID) + orderSTR + limitOffsetSTR;
+        String rootSTR = limitSTR.equals("") ? valueSTR + selectTriple : selectSubqueryClause(nodeId, valueSTR + selectTriple, orderSTR + limitSTR);   // the limit applies to the entities, not to the solutions
+        return selectQueryClause(rootSTR + subQuery, graphID) + orderSTR;
     }
 
     /**
@@ -322,11 +417,11 @@ public class SPARQLServiceConverter {
         String targetURI = schema.getTypes().get(targetName).getId();
         String graphID = getGraphId(queryField, serviceId);  // The Graph is defined over the HGQL Schema directive service
         String nodeId = queryField.nodeId;   // SPARQL variable
-        String limitOffsetSTR = limitOffsetClause(queryField);
+        String limitSTR = rootLimitClause(queryField);
         String orderSTR = orderClause(queryField);
         String selectTriple ="";
         if(hasSameAsTypes(targetName)){
-            Set<String> values = getSameAsTypes(targetName);
+            Set<String> values = new HashSet<>(getSameAsTypes(targetName));   // copy, the sameAs types of the schema are shared
             values.add(targetName);
             values = values.stream()
                     .map(s -> schema.getTypes().get(s).getId())
@@ -337,50 +432,70 @@ public class SPARQLServiceConverter {
         }else{
             selectTriple = toTriple(toVar(nodeId), RDF_TYPE_URI, uriToResource(targetURI));
         }
-        String rootSubquery = selectSubqueryClause(nodeId, selectTriple, orderSTR + limitOffsetSTR);
+        String rootSubquery = selectSubqueryClause(nodeId, selectTriple, orderSTR + limitSTR);
 
         String whereClause = getSubQueries(queryField.fields, "");
 
-        return selectQueryClause(rootSubquery + whereClause, graphID);   //ToDo: The generated Query is here only evalluated in one graph. If multiple endpoints have to be queried this has to be changed.
+        return selectQueryClause(rootSubquery + whereClause, graphID) + orderSTR;   // the order of the subquery is not kept by the joins of the subfields   //ToDo: The generated Query is here only evalluated in one graph. If multiple endpoints have to be queried this has to be changed.
+    }
+
+    /**
+     * Generates a SPARQL query in which the SPARQL query of each given root query is one UNION branch. The ids of root
+     * queries with an id argument are filled into the query of their branch. The SPARQL variables of the root queries
+     * are distinct, therefore each solution of the query belongs to the root query whose root variable is bound.
+     * @param union root queries of the same service
+     * @param serviceId id of the service that called this method. Used to select the right service from a ManifoldService
+     * @return SPARQL query
+     */
+    private String getSelectRoots(UnionPattern union, String serviceId) {
+
+        List<String> branches = new ArrayList<>();
+        for (QueryPattern root : union.roots) {
+            Set<String> ids = new HashSet<>();
+            if (root.args.containsKey(ID)) {
+                ((Collection<?>) root.args.get(ID)).forEach(id -> ids.add(id.toString()));
+            }
+            branches.add(getSelectQuery(root, ids, ExecutionTreeNode.ROOT_TYPE, serviceId));
+        }
+        return "SELECT * WHERE { " + unionClause(branches) + " } ";
     }
 
     /**
-     * Generates a SPARQL query that queries each given field in jsonQuery and restricts the result to the list given in input.
-     * This means only results with one of the input values as subject are left in.
+     * Generates a SPARQL query template that queries each given field in jsonQuery and restricts the result to the input
+     * values filled into the template. This means only results with one of the input values as subject are left in.
      * @param queries Multiple field elements
-     * @param input Set of values which the result of the query should match in the subject of a triple
      * @param rootType type from which the graph is used
      * @param serviceId id of the service that called this method. Used to select the right service from a ManifoldService
-     * @return
+     * @return SPARQL query template with the VALUES clause of the input as slot
      */
-    private String getSelectNonRoot(SubQueriesPattern queries, Set<String> input, String rootType, String serviceId) {
+    private SPARQLQueryTemplate getSelectNonRoot(SubQueriesPattern queries, String rootType, String serviceId) {
 
-        final ListIterator<QueryPattern> listIterator = queries.subqueries.listIterator();
-        QueryPattern firstField = listIterator.next();
+        QueryPattern firstField = queries.subqueries.get(0);
         Service service =  schema.getTypes().get(rootType).getFields().get(firstField.name).getService();
         if(service instanceof ManifoldService){
             service = ((ManifoldService) service).getService(serviceId);
         }
         String graphID = ((SPARQLEndpointService) service).getGraph();
+        int perParentThreshold = ((SPARQLEndpointService) service).getPerParentThreshold();
         String parentId = firstField.parentId;
-        String valueSTR = valuesClause(parentId, input);   // restrict the ?parentId to the values defined in the input list
+        String valueSTR = SPARQLQueryTemplate.VALUES_SLOT;   // restrict the ?parentId to the values defined in the input list - filled in per VALUES chunk
 
-        StringBuilder whereClause = new StringBuilder();
-        whereClause.append(getFieldSubquery(firstField, valueSTR));   //ToDo: Review this line -> effect on query results
-//        queries.elements().forEachRemaining(field -> whereClause.append(getFieldSubquery(field)));
-        while(listIterator.hasNext()){
-            whereClause.append(getFieldSubquery(listIterator.next(), valueSTR));
-        }
-        return selectQueryClause(valueSTR + (whereClause.toString()), graphID);
+        String whereClause = getSubQueries(queries, valueSTR, parentId);
+        return new SPARQLQueryTemplate(selectQueryClause(valueSTR + whereClause, graphID), parentId, perParentThreshold);
     }
 
 
     /**
-     * Generates a SPARQL query for the given field and also for the subfields of the field.
+     * Generates the SPARQL pattern of the given field and also of the subfields of the field, without the OPTIONAL
+     * clause around it (see getSubQueries).
+     * The limit and offset of the field are applied per parent entity (see windowClause and SPARQLQueryTemplate.perParentClause).
      * @param field
-     * @return
+     * @param rootValues VALUES clause restricting the parent of the query
+     * @param valuesVariable id of the variable that is restricted by the VALUES_SLOT of the template, if the parent of
+     *                       the field is this variable the parents are known when the template is filled; null otherwise
+     * @return SPARQL pattern of the field, empty String for the internal fields
      */
-    private String getFieldSubquery(QueryPattern field, String rootValues) {
+    private String getFieldPattern(QueryPattern field, String rootValues, String valuesVariable) {
 
         String fieldName = field.name;
 
@@ -403,27 +518,21 @@ public class SPARQLServiceConverter {
         String parentId = field.parentId;
         String nodeId = field.nodeId;
 
-        //ToDo: Temporal fix by setting limit for subqueries to an empty string
-        // -> Problem by limit and offset: if applied the limitation is not on a per subject entity basis but limits all
-        // results leading to incomplete results. Possible solve: Querying all entities separately.
-        // Analyze tradeoff between more results and more or mor complex queries.
-        String limitOffsetSTR = "";//field.targetType.equals("String") ? "" : limitOffsetClause(field);
-        String langFilter = langFilterClause(field);   // Add language filter if defined
+        // The limit and offset of nested fields apply to the values of each parent entity, a LIMIT clause on the
+        // subquery would limit the values of all parents together. Therefore the first offset + limit values are
+        // selected per parent entity and the offset and limit are applied to them in the result model.
+        QueryPattern modifiers = field;   // field with the limit, offset, order and lang arguments
         String orderSTR = orderClause(field);
-        String valueSTR = "";
-        if(field.args.containsKey(ID)){
-            List<String> urisIter = (List<String>) field.args.get(ID);
-            Set<String> uris = new HashSet<>(urisIter); // convert to set to remove duplicates
-            valueSTR = valuesClause(nodeId, uris);
-        }
+        @SuppressWarnings("unchecked")   // the _id argument is a list of IRIs (see ExecutionTreeNode.getArgValue)
+        final Set<String> uris = field.args.containsKey(ID) ? new LinkedHashSet<>((List<String>) field.args.get(ID)) : null;   // convert to set to remove duplicates
 
-        String fieldPattern = "";
+        Function<String, String> pattern;   // SPARQL pattern of the field for a given node variable
         String rest = "";
 
         if(targetName.equals(HGQL_SCALAR_LITERAL_GQL_NAME)){
             // field queries the String placeholder object -> query directly the string/Literal and ignore the subfields and type checking for the object
-            fieldPattern = toTriple(toVar(parentId), fieldURI, toVar(nodeId));
-            rest = isLiteralClause(nodeId);
+            final String literalFieldURI = fieldURI;
+            pattern = node -> toTriple(toVar(parentId), literalFieldURI, toVar(node)) + isLiteralClause(node) + " ";
             // overwrite the field arguments with the literal value arguments
             Query literal_value = field.fields;
             for(int i = 0; i< ((SubQueriesPattern) literal_value).subqueries.size(); i++){
@@ -433,35 +542,118 @@ public class SPARQLServiceConverter {
                     break;
                 }
             }
-            langFilter =  langFilterClause((QueryPattern) literal_value);
-            limitOffsetSTR = limitOffsetClause((QueryPattern) literal_value);
-            orderSTR = orderClause((QueryPattern) literal_value);
+            modifiers = (QueryPattern) literal_value;
+            orderSTR = orderClause(modifiers, nodeId);   // the literal value is bound to the node variable of the field
         }else{
             String typeURI = (schema.getTypes().containsKey(targetName)) ? schema.getTypes().get(targetName).getId() : "";  // If the output type (targetName) is a type of the schema then typeURI is the Id of this type
+            final String objectFieldURI = fieldURI;
             if(hasSameAsTypes(targetName)) {
-                Set<String> values = getSameAsTypes(targetName);
+                Set<String> values = new HashSet<>(getSameAsTypes(targetName));   // copy, the sameAs types of the schema are shared
                 values.add(targetName);
-                values = values.stream()
+                final Set<String> typeURIs = values.stream()
                         .map(s -> schema.getTypes().get(s).getId())
                         .collect(Collectors.toSet());
-                String var_sameas = SAMEAS + "_" + nodeId;
-                String value = valuesClause(var_sameas, values);
-                fieldPattern = value + fieldPattern(parentId, nodeId, fieldURI, toVar(var_sameas));
+                pattern = node -> valuesClause(SAMEAS + "_" + node, typeURIs) + fieldPattern(parentId, node, objectFieldURI, toVar(SAMEAS + "_" + node));
             }else{
-                fieldPattern = fieldPattern(parentId, nodeId, fieldURI, typeURI.equals("")? "" : uriToResource(typeURI));  // SPARQL query for only the field
+                pattern = node -> fieldPattern(parentId, node, objectFieldURI, typeURI.equals("")? "" : uriToResource(typeURI));  // SPARQL query for only the field
             }
 
             rest = getSubQueries(field.fields, rootValues);   // SPARQL query for the SelectionSet of the field (subfields)
         }
+        final QueryPattern langField = modifiers;
+        Function<String, String> restriction = node -> (uris == null ? "" : valuesClause(node, uris))   // SPARQL pattern of the field restricted by the _id and lang arguments
+                + pattern.apply(node) + langFilterClause(langField, node);
 
         String selectField = "";
-        if(!limitOffsetSTR.equals("") || !orderSTR.equals("") || !valueSTR.equals("")){   // Select wrapping is only needed if limit, offset, order or _id restrictions are defined
-            selectField = "{ "+ selectQueryClause(rootValues + valueSTR + fieldPattern + langFilter , "") + orderSTR + limitOffsetSTR + " }" + rest;
+        long window = windowSize(modifiers);
+        if(window >= 0){
+            String windowSTR = windowClause(field, modifiers, rootValues, restriction, window);
+            if(valuesVariable != null && valuesVariable.equals(parentId)){
+                // the parents are known when the template is filled -> one subquery per parent if there are few parents,
+                // without order argument the values are ordered as ranked by the windowClause
+                String parentOrderSTR = orderSTR.equals("") ? "ORDER BY STR(" + toVar(nodeId) + ")" : orderSTR;
+                String parentSTR = "{ " + selectQueryClause(valuesClause(parentId, Collections.singleton(SPARQLQueryTemplate.PARENT_SLOT)) + restriction.apply(nodeId), "") + parentOrderSTR + " " + limitClause(window) + " }";
+                windowSTR = SPARQLQueryTemplate.perParentClause(parentSTR, windowSTR);
+            }
+            selectField = windowSTR + rest;
+        }else if(!orderSTR.equals("") || uris != null){   // Select wrapping is only needed if order or _id restrictions are defined
+            selectField = "{ "+ selectQueryClause(rootValues + restriction.apply(nodeId), "") + orderSTR + " }" + rest;
         }else{
-            selectField = fieldPattern + langFilter + rest;
+            selectField = restriction.apply(nodeId) + rest;
         }
 
-        return optionalClause(selectField); // Whole query for the field
+        return selectField; // Whole query for the field
+    }
+
+    /**
+     * Indicates if the given field may have multiple solutions per parent entity, i.e. the field is a list or one of
+     * its subfields may have multiple solutions. Fields that are not defined for the parent type are assumed to be lists.
+     * @param field queried field
+     * @return True if the field may multiply the solutions of its sibling fields, otherwise False
+     */
+    private boolean isMultiValued(QueryPattern field) {
+        TypeConfig parentType = field.parentType == null ? null : schema.getTypes().get(field.parentType);
+        FieldOfTypeConfig fieldOfType = parentType == null ? null : parentType.getField(field.name);
+        if (fieldOfType == null || fieldOfType.isList() == null || fieldOfType.isList()) {
+            return true;
+        }
+        if (field.targetType.equals(HGQL_SCALAR_LITERAL_GQL_NAME) || field.fields == null || field.fields.subqueries == null) {
+            return false;
+        }
+        return field.fields.subqueries.stream()
+                .anyMatch(subfield -> !HGQLVocabulary.JSONLD.containsKey(subfield.name) && isMultiValued(subfield));
+    }
+
+    /**
+     * Returns the number of values that have to be queried per parent entity to apply the limit and offset of the given
+     * field, i.e. offset + limit.
+     * @param field field or literal value with the limit and offset arguments
+     * @return offset + limit, -1 if the field has no limit
+     */
+    private long windowSize(QueryPattern field) {
+        if (field.args == null || !field.args.containsKey(LIMIT)) {
+            return -1;
+        }
+        long offset = field.args.containsKey(OFFSET) ? ((Number) field.args.get(OFFSET)).longValue() : 0;
+        return offset + ((Number) field.args.get(LIMIT)).longValue();
+    }
+
+    /**
+     * Generates a subquery that selects the first window values of the given field for each parent entity without
+     * knowing the parents. SPARQL 1.1 has no window functions, therefore the rank of a value is emulated by counting the
+     * values of the same parent that are ordered before or equal to it, and only values with a rank of at most window
+     * are selected. The values are ranked by their string value in the order of the order argument, ascending if no
+     * order is defined. Distinct values with the same string value, e.g. literals with different language tags or
+     * datatypes, are ranked by their language tag and datatype so that they do not share a rank.
+     * The ranking joins the values of a parent with each other, i.e. n² solutions for a parent with n values, therefore
+     * the per-parent subqueries of SPARQLQueryTemplate are preferred whenever the parents are known.
+     * @param field queried field
+     * @param modifiers field or literal value with the order argument
+     * @param rootValues VALUES clause restricting the parent of the query
+     * @param restriction SPARQL pattern of the field for a given node variable
+     * @param window number of values per parent
+     * @return Subquery selecting the parent and node variable of the field
+     */
+    private String windowClause(QueryPattern field, QueryPattern modifiers, String rootValues, Function<String, String> restriction, long window) {
+        String node = toVar(field.nodeId);
+        String rankId = field.nodeId + "_rank";
+        String rank = toVar(rankId);
+        String comparison = ORDER_DESC.equals(modifiers.args.get(ORDER)) ? " > " : " < ";
+        return "{ SELECT " + toVar(field.parentId) + " " + node + " WHERE { " + rootValues
+                + restriction.apply(field.nodeId) + restriction.apply(rankId)
+                + "FILTER(STR(" + rank + ")" + comparison + "STR(" + node + ") || sameTerm(" + rank + ", " + node + ") || "
+                + "(STR(" + rank + ") = STR(" + node + ") && " + termKey(rank) + " < " + termKey(node) + ")) } "
+                + "GROUP BY " + toVar(field.parentId) + " " + node
+                + " HAVING (COUNT(DISTINCT " + toVar(rankId) + ") <= " + window + ") } ";
+    }
+
+    /**
+     * Generates an expression that distinguishes literals with the same string value by their language tag and datatype.
+     * @param variable SPARQL variable of a literal
+     * @return SPARQL expression
+     */
+    private String termKey(String variable) {
+        return "CONCAT(LANG(" + variable + "), \"^^\", STR(DATATYPE(" + variable + ")))";
     }
 
     /**
@@ -470,17 +662,60 @@ public class SPARQLServiceConverter {
      * @return
      */
     private String getSubQueries(SubQueriesPattern subfields, String rootValues) {
+        return getSubQueries(subfields, rootValues, null);
+    }
+
+    /**
+     * Generates for each field of the given subfields a corresponding SPARQL query.
+     * Sibling fields in separate OPTIONAL clauses are joined, the solutions of an entity are the cross product of the
+     * values of its fields. Therefore fields that may have multiple values (see isMultiValued()) are combined as UNION
+     * branches in one OPTIONAL clause, each solution binds the values of one branch and the number of solutions is
+     * the sum of the values instead of the product. Single-valued fields are still joined with each solution.
+     * @param subfields
+     * @param rootValues VALUES clause restricting the parent of the query
+     * @param valuesVariable id of the variable that is restricted by the VALUES_SLOT of the template, null if the query has no slot
+     * @return
+     */
+    private String getSubQueries(SubQueriesPattern subfields, String rootValues, String valuesVariable) {
 
         if (subfields == null || subfields.subqueries == null || subfields.subqueries.isEmpty()) {
             return "";
         }
         StringBuilder whereClause = new StringBuilder();
+        List<String> branches = new ArrayList<>();
+        List<String> branchFields = new ArrayList<>();
         for(QueryPattern field : subfields.subqueries){
-            whereClause.append(getFieldSubquery(field, rootValues));
+            String fieldSTR = getFieldPattern(field, rootValues, valuesVariable);
+            if (fieldSTR.equals("")) {
+                continue;
+            }
+            if (isMultiValued(field)) {
+                branches.add(fieldSTR);
+                branchFields.add(field.nodeId);
+            } else {
+                whereClause.append(optionalClause(fieldSTR));
+            }
+        }
+        if (branches.size() == 1) {
+            whereClause.append(optionalClause(branches.get(0)));
+        } else if (branches.size() > 1) {
+            LOGGER.debug("Multi-valued sibling fields {} are queried as UNION branches", branchFields);
+            whereClause.append(optionalClause(unionClause(branches)));
         }
         return whereClause.toString();
     }
 
+    /**
+     * Combines the given SPARQL patterns as UNION branches.
+     * @param branches SPARQL patterns
+     * @return SPARQL UNION of the patterns
+     */
+    private String unionClause(List<String> branches) {
+        return branches.stream()
+                .map(branch -> "{ " + branch + " }")
+                .collect(Collectors.joining(" UNION "));
+    }
+
     /**
      * Returns the graph of the service that is responsible for the given queryField. If the responsible service is a
      * ManifoldService then select the service by the given serviceId.
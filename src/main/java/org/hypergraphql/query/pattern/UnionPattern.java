@@ -0,0 +1,26 @@
+package org.hypergraphql.query.pattern;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Root queries of the same service that are executed as one SPARQL query, each root query is one UNION branch of
+ * the query (see QueryBatcher.executeRootsAsync()).
+ */
+public class UnionPattern implements Query {
+
+    public final List<QueryPattern> roots;
+
+    public UnionPattern(List<QueryPattern> roots) {
+        this.roots = new ArrayList<>(roots);
+    }
+
+    public List<QueryPattern> getRoots() {
+        return roots;
+    }
+
+    @Override
+    public boolean isSubQuery() {
+        return false;
+    }
+}
@@ -1,23 +1,23 @@
 package org.hypergraphql.schemaextraction;
 
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.Credentials;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.CredentialsProvider;
-import org.apache.http.client.HttpClient;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.jena.fuseki.main.FusekiServer;
 import org.apache.jena.query.*;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
-import org.apache.jena.riot.web.HttpOp;
+import org.apache.jena.sparql.engine.http.Service;
+import org.apache.jena.sparql.util.Context;
 import org.apache.jena.update.UpdateAction;
+import org.apache.jena.update.UpdateExecutionFactory;
+import org.apache.jena.update.UpdateFactory;
+import org.hypergraphql.config.system.ServiceConfig;
+import org.hypergraphql.util.HttpUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 
 /**
  * A SPARQLExtraction  obtains the mapping configuration and the extraction query and is then able to extract the RDF
@@ -75,20 +75,20 @@ public class SPARQLExtraction {
             password = "";
         }
         Model upModel = ModelFactory.createDefaultModel();
-        //Auth
+        String query = engine.buildQuery(service, graph);
+        //Auth: the SERVICE requests of the extraction use a client with the credentials of the endpoint
         if(!username.equals("") || !password.equals("")){
-            CredentialsProvider credsProvider = new BasicCredentialsProvider();
-            Credentials credentials = new UsernamePasswordCredentials(username, password);
-            credsProvider.setCredentials(AuthScope.ANY, credentials);
-            HttpClient httpclient = HttpClients.custom()
-                    .setDefaultCredentialsProvider(credsProvider)
-                    .build();
-            HttpOp.setDefaultHttpClient(httpclient);
+            try (CloseableHttpClient httpclient = HttpUtils.createPooledClient(username, password,
+                    ServiceConfig.DEFAULT_MAX_CONNECTIONS, ServiceConfig.DEFAULT_KEEP_ALIVE, true)) {
+                Context context = ARQ.getContext().copy();
+                context.set(Service.queryClient, httpclient);
+                UpdateExecutionFactory.create(UpdateFactory.create(query), DatasetFactory.wrap(upModel), context).execute();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to close the HTTP client of the extraction", e);
+            }
         }else{
-            HttpOp.setDefaultHttpClient(HttpOp.initialDefaultHttpClient);
+            UpdateAction.parseExecute(query, upModel);
         }
-        String query = engine.buildQuery(service, graph);
-        UpdateAction.parseExecute(query, upModel);
 //        Query queryFactory = QueryFactory.create(query) ;
 //        QueryExecution qexec = QueryExecutionFactory.createServiceRequest(service, queryFactory) ;
 //        Model resultModel = qexec.execConstruct() ;
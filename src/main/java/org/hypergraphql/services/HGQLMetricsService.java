@@ -0,0 +1,63 @@
+package org.hypergraphql.services;
+
+import org.hypergraphql.config.system.HGQLConfig;
+import org.hypergraphql.datafetching.ExecutionScheduler;
+import org.hypergraphql.datafetching.QueryBatcher;
+import org.hypergraphql.datafetching.QueryPlanCache;
+import org.hypergraphql.datafetching.services.SPARQLEndpointService;
+import org.hypergraphql.datafetching.services.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the runtime metrics of the query execution of an UGQL instance.
+ * The metrics are served over the metrics path of the server if it is defined in the configuration.
+ */
+public class HGQLMetricsService {
+
+    private final HGQLConfig config;
+
+    public HGQLMetricsService(HGQLConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Returns the current metrics of the query execution.
+     * @return Map with the metric group as key and the metrics of the group as value
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("name", config.getName());
+        metrics.put("scheduler", ExecutionScheduler.getInstance().getMetrics());
+        metrics.put("planCache", QueryPlanCache.getInstance().getMetrics());
+        metrics.put("batching", QueryBatcher.getMetrics());
+        metrics.put("services", serviceMetrics());
+        return metrics;
+    }
+
+    /**
+     * Returns the metrics of the individual services, e.g. the current VALUES chunk size and the
+     * occupancy of the bulkhead of SPARQL endpoints.
+     * @return Map with the service id as key and the metrics of the service as value
+     */
+    private Map<String, Object> serviceMetrics() {
+        Map<String, Object> metrics = new TreeMap<>();
+        if (config.getHgqlSchema() == null) {
+            return metrics;
+        }
+        for (Service service : config.getHgqlSchema().getServiceList().values()) {
+            if (service instanceof SPARQLEndpointService) {
+                Map<String, Object> endpointMetrics = new LinkedHashMap<>();
+                endpointMetrics.put("chunking", ((SPARQLEndpointService) service).getChunkSizer().getMetrics());
+                endpointMetrics.put("bulkhead", ((SPARQLEndpointService) service).getBulkhead().getMetrics());
+                endpointMetrics.put("results", ((SPARQLEndpointService) service).getResultFormatNegotiator().getMetrics());
+                endpointMetrics.put("coalescing", ((SPARQLEndpointService) service).getSingleFlight().getMetrics());
+                endpointMetrics.put("cache", ((SPARQLEndpointService) service).getResultCache().getMetrics());
+                metrics.put(service.getId(), endpointMetrics);
+            }
+        }
+        return metrics;
+    }
+}
@@ -5,13 +5,13 @@ import graphql.*;
 import graphql.language.*;
 import graphql.schema.GraphQLSchema;
 import org.hypergraphql.config.system.HGQLConfig;
+import org.hypergraphql.datafetching.ExecutionContext;
 import org.hypergraphql.datafetching.ExecutionForest;
 import org.hypergraphql.datafetching.ExecutionForestFactory;
+import org.hypergraphql.datafetching.ExecutionScheduler;
 import org.hypergraphql.datafetching.services.LocalModelSPARQLService;
 import org.hypergraphql.datafetching.services.SPARQLEndpointService;
 import org.hypergraphql.datafetching.services.Service;
-import org.hypergraphql.datafetching.services.resultmodel.ObjectResult;
-import org.hypergraphql.datafetching.services.resultmodel.QueryRootResult;
 import org.hypergraphql.datafetching.services.resultmodel.Result;
 import org.hypergraphql.datamodel.HGQLSchema;
 import org.hypergraphql.mutation.SPARQLMutationConverter;
@@ -97,7 +97,8 @@ public class HGQLMutationService {
                 new ExecutionForestFactory().getExecutionForest(document, hgqlSchema);
 
 //        ModelContainer client = new ModelContainer(queryExecutionForest.generateModel());
-        Result formattedResult = queryExecutionForest.generateModel();
+        ExecutionContext executionContext = ExecutionScheduler.getInstance().createContext();
+        Result<?> formattedResult = queryExecutionForest.generateModel(executionContext);
 //        ObjectMapper mapper = new ObjectMapper();
         if (acceptType == null) {
 //            executionInput = ExecutionInput.newExecutionInput()
@@ -108,12 +109,7 @@ public class HGQLMutationService {
 //
 //            qlResult = graphql.execute(executionInput);
 
-            if(formattedResult instanceof ObjectResult || formattedResult instanceof QueryRootResult){
-                Map<String, Object> json = (Map<String, Object>) (formattedResult).generateJSON();
-                data.putAll(json);
-            }else{
-                LOGGER.error("Result of query should not be a single JSON Array");
-            }
+            HGQLQueryService.putResults(data, formattedResult);
             data.put("@context", queryExecutionForest.getFullLdContext());
 
             if (data != null) {
@@ -131,6 +127,10 @@ public class HGQLMutationService {
                     .build();
             errors.add(graphQLError);
         }
+        // errors of failed or aborted queries, the results of these queries are missing
+        executionContext.getErrors().forEach(error -> errors.add(GraphqlErrorBuilder.newError()
+                .message(error)
+                .build()));
 
         return result;
     }
@@ -6,8 +6,10 @@ import graphql.language.Definition;
 import graphql.language.OperationDefinition;
 import graphql.schema.GraphQLSchema;
 import org.hypergraphql.config.system.HGQLConfig;
+import org.hypergraphql.datafetching.ExecutionContext;
 import org.hypergraphql.datafetching.ExecutionForest;
 import org.hypergraphql.datafetching.ExecutionForestFactory;
+import org.hypergraphql.datafetching.ExecutionScheduler;
 import org.hypergraphql.datafetching.services.resultmodel.ObjectResult;
 import org.hypergraphql.datafetching.services.resultmodel.QueryRootResult;
 import org.hypergraphql.datafetching.services.resultmodel.Result;
@@ -76,7 +78,8 @@ public class HGQLQueryService {
             ExecutionForest queryExecutionForest =
                     new ExecutionForestFactory().getExecutionForest(validatedQuery.getParsedQuery(), hgqlSchema);
 //            ModelContainer client = new ModelContainer(queryExecutionForest.generateModel());
-            Result formattedResult = queryExecutionForest.generateModel();
+            ExecutionContext executionContext = ExecutionScheduler.getInstance().createContext();
+            Result<?> formattedResult = queryExecutionForest.generateModel(executionContext);
 
 //            ObjectMapper mapper = new ObjectMapper();
 //            double endTime = System.nanoTime();
@@ -92,17 +95,7 @@ public class HGQLQueryService {
 //                endTime = System.nanoTime();
 //                LOGGER.info("Time to query GraphQL response from result pool: {}", endTime - startTime);
 //                data.putAll(qlResult.getData());
-                if(formattedResult instanceof ObjectResult){
-                    Map<String, Object> json = ((ObjectResult)formattedResult).generateJSON();
-                    LOGGER.debug("Transformed JSON result: " + json);
-                    data.putAll(json);
-                }else if(formattedResult instanceof QueryRootResult){
-                    Map<String, Object> json = ((QueryRootResult)formattedResult).generateJSON();
-                    LOGGER.debug("Transformed JSON result: " + json);
-                    data.putAll(json);
-                }else{
-                    LOGGER.error("Result of query should not be a single JSON Array");
-                }
+                putResults(data, formattedResult);
                 data.put("@context", queryExecutionForest.getFullLdContext());
             } else {
                 result.put("data", formattedResult.generateJSON());
@@ -114,6 +107,10 @@ public class HGQLQueryService {
                         .build();
                 errors.add(graphQLError);
             }
+            // errors of failed or aborted queries, the results of these queries are missing
+            executionContext.getErrors().forEach(error -> errors.add(GraphqlErrorBuilder.newError()
+                    .message(error)
+                    .build()));
 //            client.close();
         }
         if (data != null) {
@@ -126,5 +123,21 @@ public class HGQLQueryService {
         return result;
     }
 
-
+    /**
+     * Adds the results of the root query fields to the given data. The results are added as Result objects that are
+     * transformed to JSON while the response is written (see HGQLResponseWriter), the errors of the transformation
+     * are therefore not contained in the errors of the request result. They do not change the HTTP status of the
+     * response (see HGQLRequestService.isBadRequest()) and are appended to the errors of the written response.
+     * @param data data of the request result
+     * @param formattedResult result of the query execution
+     */
+    static void putResults(Map<String, Object> data, Result<?> formattedResult) {
+        if(formattedResult instanceof ObjectResult){
+            data.put(formattedResult.getFieldName(), formattedResult);
+        }else if(formattedResult instanceof QueryRootResult){
+            data.putAll(((QueryRootResult)formattedResult).getRootFields());
+        }else{
+            LOGGER.error("Result of query should not be a single JSON Array");
+        }
+    }
 }
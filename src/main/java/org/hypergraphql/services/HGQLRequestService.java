@@ -72,4 +72,16 @@ public class HGQLRequestService {
 
         return result;
     }
+
+    /**
+     * Indicates if the given request result is the result of an invalid request. Only invalid queries are answered
+     * without data, errors of the query execution (failed, aborted or timed out services) and of the result
+     * transformation are returned together with the (partial) data.
+     * @param result result of a GraphQL request (see results())
+     * @return True if the request failed the validation and has to be answered with status 400, otherwise False
+     */
+    public static boolean isBadRequest(Map<String, Object> result) {
+        Object errors = result.get("errors");
+        return !result.containsKey("data") && errors instanceof List && !((List<?>) errors).isEmpty();
+    }
 }
@@ -0,0 +1,84 @@
+package org.hypergraphql.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import org.hypergraphql.datafetching.services.resultmodel.Result;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the result of a GraphQL request as JSON to an output stream.
+ * The query results are contained in the data of the request result as Result objects which write their values
+ * directly to the JSON generator, therefore the JSON response is streamed to the output stream without building the
+ * response as maps, strings or JSON trees first.
+ * The data is written before the errors since the errors of the result transformation (see Result.getErrors()) are
+ * only known after the results are written. The status of the response is already sent at that point, therefore
+ * transformation errors are returned with the status of the request result like the errors of the query execution
+ * (see HGQLRequestService.isBadRequest()).
+ */
+public class HGQLResponseWriter {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Writes the given request result (see HGQLRequestService.results()) to the given output stream. The output stream
+     * is not closed.
+     * @param result result of the GraphQL request
+     * @param outputStream stream the JSON response is written to
+     * @throws IOException if the response could not be written
+     */
+    public static void write(Map<String, Object> result, OutputStream outputStream) throws IOException {
+
+        JsonGenerator generator = MAPPER.getFactory().createGenerator(outputStream);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try {
+            generator.writeStartObject();
+            Object data = result.get("data");
+            if (result.containsKey("data")) {
+                generator.writeFieldName("data");
+                MAPPER.writeValue(generator, data);
+            }
+            if (result.containsKey("errors")) {
+                generator.writeFieldName("errors");
+                MAPPER.writeValue(generator, errors(result.get("errors"), data));
+            }
+            for (Map.Entry<String, Object> entry : result.entrySet()) {
+                if (!entry.getKey().equals("data") && !entry.getKey().equals("errors")) {
+                    generator.writeFieldName(entry.getKey());
+                    MAPPER.writeValue(generator, entry.getValue());
+                }
+            }
+            generator.writeEndObject();
+        } finally {
+            generator.close();
+        }
+    }
+
+    /**
+     * Returns the given errors extended by the errors of the result transformation of the written results.
+     */
+    private static List<Object> errors(Object errors, Object data) {
+
+        List<Object> allErrors = new ArrayList<>();
+        if (errors instanceof List) {
+            allErrors.addAll((List<?>) errors);
+        }
+        if (data instanceof Map) {
+            for (Object value : ((Map<?, ?>) data).values()) {
+                if (value instanceof Result && !((Result) value).getErrors().isEmpty()) {
+                    final GraphQLError graphQLError = GraphqlErrorBuilder.newError()
+                            .message(((Result) value).getErrors())
+                            .build();
+                    allErrors.add(graphQLError);
+                }
+            }
+        }
+        return allErrors;
+    }
+}
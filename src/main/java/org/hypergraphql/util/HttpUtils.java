@@ -0,0 +1,53 @@
+package org.hypergraphql.util;
+
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the HTTP clients used to query remote SPARQL endpoints.
+ * The clients pool their connections and keep them alive between the queries, therefore a client should be created
+ * once per endpoint and reused for all queries to the endpoint instead of setting a global default client.
+ */
+public class HttpUtils {
+
+    /**
+     * Creates a pooled HTTP client with keep-alive connections.
+     * @param user username for the HTTP authentication, null or empty if the endpoint needs no authentication
+     * @param password password for the HTTP authentication
+     * @param maxConnections maximal number of pooled connections
+     * @param keepAlive time in milliseconds an idle connection is kept open if the server does not define a keep-alive time
+     * @param compression if true gzip and deflate compressed responses are requested and decoded
+     * @return HTTP client, must be closed when it is no longer needed
+     */
+    public static CloseableHttpClient createPooledClient(final String user, final String password, final int maxConnections,
+                                                         final long keepAlive, final boolean compression) {
+
+        final ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            final long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverKeepAlive > 0 ? serverKeepAlive : keepAlive;
+        };
+        final HttpClientBuilder builder = HttpClients.custom()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .evictIdleConnections(Math.max(1, keepAlive), TimeUnit.MILLISECONDS);
+        if (user != null && !user.isEmpty()) {
+            final CredentialsProvider credsProvider = new BasicCredentialsProvider();
+            credsProvider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(user, password == null ? "" : password));
+            builder.setDefaultCredentialsProvider(credsProvider);
+        }
+        if (!compression) {
+            builder.disableContentCompression();
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,67 @@
+package org.hypergraphql.util;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Jetty ThreadPool that executes each job in a new virtual thread. Used to run the request handlers of the spark
+ * server on virtual threads.
+ * The pool is started and stopped with the jetty server it is assigned to.
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+
+    private final ThreadFactory threadFactory;
+    private final AtomicInteger activeThreads = new AtomicInteger(0);
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    /**
+     * Creates a pool for virtual threads named with the given prefix.
+     * @param prefix name prefix of the threads
+     * @throws UnsupportedOperationException if the running JDK does not support virtual threads
+     */
+    public VirtualThreadPool(final String prefix) {
+        this.threadFactory = VirtualThreads.threadFactory(prefix);
+    }
+
+    @Override
+    public void execute(final Runnable job) {
+        activeThreads.incrementAndGet();
+        threadFactory.newThread(() -> {
+            try {
+                job.run();
+            } finally {
+                activeThreads.decrementAndGet();
+            }
+        }).start();
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        stopped.await();
+    }
+
+    @Override
+    public int getThreads() {
+        return activeThreads.get();
+    }
+
+    @Override
+    public int getIdleThreads() {
+        return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        stopped.countDown();
+        super.doStop();
+    }
+}
@@ -0,0 +1,78 @@
+package org.hypergraphql.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to the virtual threads of the JDK (JDK 21 and later).
+ * The virtual threads are accessed over reflection to keep the code compatible with the Java 8 build, on older JDKs
+ * isSupported() returns false.
+ */
+public class VirtualThreads {
+
+    private static final ThreadFactoryCreator CREATOR = initCreator();
+
+    /**
+     * Checks if the running JDK supports virtual threads.
+     * @return True if virtual threads are supported, otherwise False
+     */
+    public static boolean isSupported() {
+        return CREATOR != null;
+    }
+
+    /**
+     * Creates a ThreadFactory that creates virtual threads named with the given prefix and an increasing number.
+     * @param prefix name prefix of the threads
+     * @return ThreadFactory creating virtual threads
+     * @throws UnsupportedOperationException if the running JDK does not support virtual threads
+     */
+    public static ThreadFactory threadFactory(final String prefix) {
+        if (CREATOR == null) {
+            throw new UnsupportedOperationException("Virtual threads require JDK 21 or later, running on JDK " + System.getProperty("java.version"));
+        }
+        return CREATOR.create(prefix);
+    }
+
+    /**
+     * Creates an ExecutorService that starts a new virtual thread for each task (Executors.newThreadPerTaskExecutor()).
+     * Virtual threads are not pooled, the executor neither queues tasks nor limits the number of threads.
+     * @param prefix name prefix of the threads
+     * @return ExecutorService executing each task on its own virtual thread
+     * @throws UnsupportedOperationException if the running JDK does not support virtual threads
+     */
+    public static ExecutorService newThreadPerTaskExecutor(final String prefix) {
+        final ThreadFactory threadFactory = threadFactory(prefix);
+        try {
+            final Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new UnsupportedOperationException("Unable to create virtual thread executor", e);
+        }
+    }
+
+    private static ThreadFactoryCreator initCreator() {
+        try {
+            final Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            final Class<?> builderClass = ofVirtual.getReturnType();
+            final Method name = builderClass.getMethod("name", String.class, long.class);
+            final Method factory = builderClass.getMethod("factory");
+            return prefix -> {
+                try {
+                    final Object builder = name.invoke(ofVirtual.invoke(null), prefix, 1L);
+                    return (ThreadFactory) factory.invoke(builder);
+                } catch (ReflectiveOperationException e) {
+                    throw new UnsupportedOperationException("Unable to create virtual thread factory", e);
+                }
+            };
+        } catch (NoSuchMethodException | SecurityException e) {
+            return null;
+        }
+    }
+
+    private interface ThreadFactoryCreator {
+        ThreadFactory create(String prefix);
+    }
+}
@@ -0,0 +1,151 @@
+package org.hypergraphql.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hypergraphql.datafetching.services.resultmodel.ObjectResult;
+import org.hypergraphql.datafetching.services.resultmodel.Result;
+import org.hypergraphql.datafetching.services.resultmodel.ResultDictionary;
+import org.hypergraphql.datafetching.services.resultmodel.StringResult;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Benchmark of the heap used by the result model of a query.
+ * The results are built solution by solution as the RowMapper of the query does: the entities and fields of each
+ * solution are appended to the result of the previous solutions. The values are copied per solution to
+ * resemble the strings created while parsing the SPARQL results, and are interned in a ResultDictionary as the
+ * services do (the model without dictionary is reported for comparison).
+ * The simulated query is {Person{_id name address{_id street city{_id label}}}}, each person has an own address and
+ * the cities are shared by the persons.
+ * Reported are the retained heap of the result model per person with and without dictionary, the heap of the materialized JSON maps
+ * (generateJSON) per person and the time to write the results with writeJSON.
+ * Run with: gradle benchmark -Pbenchmark=ResultModelBenchmark [-Pa=persons,cities]
+ */
+public class ResultModelBenchmark {
+
+    private static final String IRI = "http://www.example.org/";
+    private static final Map<String, Object> ARGS = Collections.emptyMap();
+
+    public static void main(String[] args) throws IOException {
+
+        int persons = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int cities = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        // warm-up
+        ObjectResult warmUp = build(Math.min(persons, 10000), cities, new ResultDictionary());
+        warmUp.writeJSON(new ObjectMapper().getFactory().createGenerator(NULL_STREAM));
+        warmUp.generateJSON();
+
+        long before = usedHeap();
+        ObjectResult result = build(persons, cities, null);
+        long withoutDictionary = usedHeap() - before;
+        result = null;
+
+        before = usedHeap();
+        ResultDictionary dictionary = new ResultDictionary();   // lives as long as the request, included in the heap
+        result = build(persons, cities, dictionary);
+        long model = usedHeap() - before;
+
+        long start = System.nanoTime();
+        JsonGenerator generator = new ObjectMapper().getFactory().createGenerator(NULL_STREAM);
+        result.writeJSON(generator);
+        generator.flush();
+        long write = System.nanoTime() - start;
+
+        before = usedHeap();
+        Map<String, Object> json = result.generateJSON();
+        long materialized = usedHeap() - before;
+
+        System.out.println(String.format("Persons: %d, cities: %d, dictionary values: %d", persons, cities, dictionary.size()));
+        System.out.println(String.format("%-36s %10d", "Result<?> model (bytes/person)", model / persons));
+        System.out.println(String.format("%-36s %10d", "Without dictionary (bytes/person)", withoutDictionary / persons));
+        System.out.println(String.format("%-36s %10d", "generateJSON (bytes/person)", materialized / persons));
+        System.out.println(String.format("%-36s %10.1f", "writeJSON (ms)", write / 1e6));
+    }
+
+    private static ObjectResult build(int persons, int cities, ResultDictionary dictionary) {
+
+        ObjectResult result = object("x_1", "Person", true);
+        for (int i = 0; i < persons; i++) {
+            String person = value(dictionary, IRI + "person/" + i);
+            String address = value(dictionary, IRI + "address/" + i);
+            String city = value(dictionary, IRI + "city/" + i % cities);
+
+            Map<String, Result<?>> personFields = result.addObject(person);
+            string(personFields, "x_1_1", "_id", value(dictionary, person));
+            string(personFields, "x_1_3", "name", value(dictionary, "Person " + i));
+            Map<String, Result<?>> addressFields = object(personFields, "x_1_2", "address").addObject(address);
+            string(addressFields, "x_1_2_1", "_id", value(dictionary, address));
+            string(addressFields, "x_1_2_3", "street", value(dictionary, i + " Evergreen Terrace"));
+            Map<String, Result<?>> cityFields = object(addressFields, "x_1_2_2", "city").addObject(city);
+            string(cityFields, "x_1_2_2_1", "_id", value(dictionary, city));
+            string(cityFields, "x_1_2_2_2", "label", value(dictionary, "City " + i % cities));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ObjectResult of the given field of an entity, created if the entity does not have the field yet.
+     */
+    private static ObjectResult object(Map<String, Result<?>> entity, String nodeId, String name) {
+        Result<?> result = entity.get(name);
+        if (result == null) {
+            result = object(nodeId, name, false);
+            entity.put(name, result);
+        }
+        return (ObjectResult) result;
+    }
+
+    /**
+     * Adds the value to the StringResult of the given field of an entity, created if the entity does not have the field yet.
+     */
+    private static void string(Map<String, Result<?>> entity, String nodeId, String name, String value) {
+        Result<?> result = entity.get(name);
+        if (result == null) {
+            result = new StringResult(nodeId, name, null, ARGS);
+            result.isList(false);
+            entity.put(name, result);
+        }
+        ((StringResult) result).addString(value);
+    }
+
+    private static ObjectResult object(String nodeId, String name, boolean isList) {
+        ObjectResult result = new ObjectResult(nodeId, name, null, ARGS);
+        result.isList(isList);
+        return result;
+    }
+
+    /**
+     * Returns a copy of the given value as it is created by the parser, interned if a dictionary is given.
+     */
+    private static String value(ResultDictionary dictionary, String value) {
+        String copy = new String(value.toCharArray());
+        return dictionary == null ? copy : dictionary.intern(copy);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static final OutputStream NULL_STREAM = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+}
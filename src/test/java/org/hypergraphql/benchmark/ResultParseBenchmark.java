@@ -0,0 +1,101 @@
+package org.hypergraphql.benchmark;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.query.ResultSetFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.ResultSetMgr;
+import org.apache.jena.riot.resultset.ResultSetLang;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.binding.BindingMap;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Benchmark of the parsing of SPARQL results in the formats that can be requested from SPARQL endpoints
+ * (see ResultFormatNegotiator). The results resemble the results of a nested sub-query: the IRI of the parent, the IRI
+ * of the child, a literal with language tag and a typed literal per row.
+ * CSV is included for comparison only, it does not distinguish IRIs from literals and is therefore never requested.
+ * Run with: gradle benchmark -Pbenchmark=ResultParseBenchmark [-Pa=rows,iterations]
+ */
+public class ResultParseBenchmark {
+
+    private static final List<String> VARIABLES = Arrays.asList("x", "x_1", "x_1_1", "x_1_2");
+    private static final Lang[] FORMATS = {ResultSetLang.SPARQLResultSetXML, ResultSetLang.SPARQLResultSetJSON,
+            ResultSetLang.SPARQLResultSetTSV, ResultSetLang.SPARQLResultSetThrift, ResultSetLang.SPARQLResultSetCSV};
+
+    public static void main(String[] args) {
+
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        List<Binding> bindings = bindings(rows);
+        System.out.println(String.format("Rows: %d, iterations: %d", rows, iterations));
+        System.out.println(String.format("%-22s %12s %20s", "Format", "Size (KB)", "Parse (ms/100k rows)"));
+        for (Lang format : FORMATS) {
+            byte[] results = write(bindings, format);
+            // warm-up
+            parse(results, format, rows, Math.max(1, iterations / 2));
+            long duration = parse(results, format, rows, iterations);
+            double perHundredThousand = duration / 1e6 / iterations * 100000 / rows;
+            System.out.println(String.format("%-22s %12d %20.1f", format.getLabel(), results.length / 1024, perHundredThousand));
+        }
+    }
+
+    private static long parse(byte[] results, Lang format, int rows, int iterations) {
+
+        long start = System.nanoTime();
+        long values = 0;
+        for (int i = 0; i < iterations; i++) {
+            ResultSet resultSet = ResultSetMgr.read(new ByteArrayInputStream(results), format);
+            while (resultSet.hasNext()) {
+                QuerySolution solution = resultSet.next();
+                for (String variable : VARIABLES) {
+                    if (solution.get(variable) != null) {
+                        values++;
+                    }
+                }
+            }
+            if (resultSet.getRowNumber() != rows) {
+                throw new IllegalStateException(format.getLabel() + " returned " + resultSet.getRowNumber() + " rows");
+            }
+        }
+        long duration = System.nanoTime() - start;
+        if (values == 0) {
+            throw new IllegalStateException("No values parsed");
+        }
+        return duration;
+    }
+
+    private static byte[] write(List<Binding> bindings, Lang format) {
+        ResultSet resultSet = ResultSetFactory.create(new QueryIterPlainWrapper(bindings.iterator()), VARIABLES);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResultSetMgr.write(out, resultSet, format);
+        return out.toByteArray();
+    }
+
+    private static List<Binding> bindings(int rows) {
+
+        List<Binding> bindings = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            BindingMap binding = BindingFactory.create();
+            binding.add(Var.alloc("x"), NodeFactory.createURI("http://www.example.org/person/" + i / 10));
+            binding.add(Var.alloc("x_1"), NodeFactory.createURI("http://www.example.org/address/" + i));
+            binding.add(Var.alloc("x_1_1"), NodeFactory.createLiteral(i + " Evergreen Terrace", "en"));
+            Node number = NodeFactory.createLiteral(String.valueOf(i), XSDDatatype.XSDinteger);
+            binding.add(Var.alloc("x_1_2"), number);
+            bindings.add(binding);
+        }
+        return bindings;
+    }
+}
@@ -0,0 +1,119 @@
+package org.hypergraphql.benchmark;
+
+import graphql.parser.Parser;
+import org.hypergraphql.config.system.HGQLConfig;
+import org.hypergraphql.datafetching.ExecutionForest;
+import org.hypergraphql.datafetching.ExecutionForestFactory;
+import org.hypergraphql.datafetching.ExecutionTreeNode;
+import org.hypergraphql.datafetching.services.SPARQLEndpointService;
+import org.hypergraphql.datamodel.HGQLSchema;
+import org.hypergraphql.query.converters.SPARQLServiceConverter;
+import org.hypergraphql.services.HGQLConfigService;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Benchmark of the SPARQL query generation for the VALUES chunks of the sub-queries of a nested query.
+ * Compares the generation of the complete query for each chunk (compileSelectQuery per chunk) with the fill-in of the
+ * precompiled template (getSelectTemplate).
+ * Run with: gradle benchmark -Pbenchmark=SPARQLTemplateBenchmark [-Pa=parentIRIs,iterations]
+ */
+public class SPARQLTemplateBenchmark {
+
+    private static final String CONFIG = "build/resources/test/evaluation/combined_services/config.json";
+    private static final String QUERY = "{Person{firstName lastName address{street city{ _id label(lang:\"de\")}}}}";
+
+    public static void main(String[] args) throws IOException {
+
+        int parentIRIs = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        HGQLConfig config;
+        try (InputStream inputStream = new FileInputStream(CONFIG)) {
+            config = new HGQLConfigService().loadHGQLConfig(CONFIG, inputStream, false);
+        }
+        HGQLSchema schema = config.getHgqlSchema();
+        ExecutionForest forest = new ExecutionForestFactory().getExecutionForest(new Parser().parseDocument(QUERY), schema);
+        List<ExecutionTreeNode> subQueries = new ArrayList<>();
+        collectSubQueries(forest, subQueries);
+        List<Set<String>> chunks = chunks(parentIRIs);
+        SPARQLServiceConverter converter = new SPARQLServiceConverter(schema);
+
+        System.out.println(String.format("Sub-queries: %d, VALUES chunks per sub-query: %d, iterations: %d",
+                subQueries.size(), chunks.size(), iterations));
+        for (ExecutionTreeNode node : subQueries) {
+            for (Set<String> chunk : chunks) {
+                String rebuilt = converter.compileSelectQuery(node.getQuery(), node.getRootType(), node.getService().getId()).fill(chunk);
+                String filled = converter.getSelectTemplate(node.getQuery(), node.getRootType(), node.getService().getId()).fill(chunk);
+                if (!rebuilt.equals(filled)) {
+                    throw new IllegalStateException("Template generates a different query: \n" + rebuilt + "\n" + filled);
+                }
+            }
+        }
+
+        // warm-up
+        run(converter, subQueries, chunks, iterations / 4, true);
+        run(converter, subQueries, chunks, iterations / 4, false);
+
+        long rebuild = run(converter, subQueries, chunks, iterations, true);
+        long template = run(converter, subQueries, chunks, iterations, false);
+        long generated = (long) iterations * subQueries.size() * chunks.size();
+        System.out.println(String.format("Rebuild per chunk:  %8.2f us/query", rebuild / 1000.0 / generated));
+        System.out.println(String.format("Template fill-in:   %8.2f us/query", template / 1000.0 / generated));
+        System.out.println(String.format("Speedup:            %8.2f x", (double) rebuild / template));
+    }
+
+    private static long run(SPARQLServiceConverter converter, List<ExecutionTreeNode> subQueries, List<Set<String>> chunks, int iterations, boolean rebuild) {
+
+        long length = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (ExecutionTreeNode node : subQueries) {
+                for (Set<String> chunk : chunks) {
+                    if (rebuild) {
+                        length += converter.compileSelectQuery(node.getQuery(), node.getRootType(), node.getService().getId()).fill(chunk).length();
+                    } else {
+                        length += converter.getSelectTemplate(node.getQuery(), node.getRootType(), node.getService().getId()).fill(chunk).length();
+                    }
+                }
+            }
+        }
+        long duration = System.nanoTime() - start;
+        if (length == 0) {
+            throw new IllegalStateException("No queries generated");
+        }
+        return duration;
+    }
+
+    private static void collectSubQueries(ExecutionForest forest, List<ExecutionTreeNode> subQueries) {
+        for (ExecutionTreeNode node : forest.getForest()) {
+            if (node.getQuery().isSubQuery()) {
+                subQueries.add(node);
+            }
+            node.getChildrenNodes().values().forEach(children -> collectSubQueries(children, subQueries));
+        }
+    }
+
+    private static List<Set<String>> chunks(int parentIRIs) {
+
+        List<Set<String>> chunks = new ArrayList<>();
+        Set<String> chunk = new HashSet<>();
+        for (int i = 0; i < parentIRIs; i++) {
+            chunk.add("http://www.example.org/resource/" + i);
+            if (chunk.size() == SPARQLEndpointService.VALUES_SIZE_LIMIT) {
+                chunks.add(chunk);
+                chunk = new HashSet<>();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,65 @@
+package org.hypergraphql.config.system;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceConfigTest {
+
+    @Test
+    void options_that_are_not_defined_have_their_default_value() {
+        ServiceConfig config = config("{\"id\": \"dbpedia\", \"type\": \"SPARQLEndpointService\"}");
+        assertEquals("dbpedia", config.getId());
+        assertEquals(ServiceConfig.DEFAULT_CHUNK_SIZE, config.getChunkSize());
+        assertEquals(ServiceConfig.DEFAULT_MAX_CHUNK_SIZE, config.getPerParentThreshold());
+        assertEquals(ServiceConfig.OVERFLOW_QUEUE, config.getOverflow());
+        assertEquals(ServiceConfig.RESULT_FORMAT_XML, config.getResultFormat());
+        assertEquals(ServiceConfig.FETCH_MODE_SELECT, config.getFetchMode());
+        assertTrue(config.isCompression());
+        assertEquals(ServiceConfig.DEFAULT_CACHE_SIZE, config.getCacheSize());
+    }
+
+    @Test
+    void options_are_bound_from_the_service_entry() {
+        ServiceConfig config = config("{\"id\": \"dbpedia\", \"chunkSize\": 50, \"perParentThreshold\": 20, "
+                + "\"maxInFlight\": 4, \"overflow\": \"SHED\", \"compression\": false, \"resultFormat\": \"json\", "
+                + "\"fetchMode\": \"construct\", \"cacheTtl\": 1000}");
+        assertEquals(50, config.getChunkSize());
+        assertEquals(20, config.getPerParentThreshold());
+        assertEquals(4, config.getMaxInFlight());
+        assertEquals(ServiceConfig.OVERFLOW_SHED, config.getOverflow());
+        assertFalse(config.isCompression());
+        assertEquals(ServiceConfig.RESULT_FORMAT_JSON, config.getResultFormat());
+        assertEquals(ServiceConfig.FETCH_MODE_CONSTRUCT, config.getFetchMode());
+        assertEquals(1000, config.getCacheTtl());
+    }
+
+    @Test
+    void chunk_size_bounds_contain_the_chunk_size_regardless_of_the_order_of_the_options() {
+        ServiceConfig config = config("{\"minChunkSize\": 500, \"maxChunkSize\": 200, \"chunkSize\": 300}");
+        assertEquals(300, config.getMinChunkSize());
+        assertEquals(300, config.getMaxChunkSize());
+        assertEquals(300, config.getPerParentThreshold());
+    }
+
+    @Test
+    void invalid_values_keep_the_default_value() {
+        ServiceConfig config = config("{\"chunkSize\": 0, \"timeout\": -1, \"perParentThreshold\": -5, \"overflow\": \"drop\"}");
+        assertEquals(ServiceConfig.DEFAULT_CHUNK_SIZE, config.getChunkSize());
+        assertEquals(ServiceConfig.DEFAULT_TIMEOUT, config.getTimeout());
+        assertEquals(ServiceConfig.DEFAULT_MAX_CHUNK_SIZE, config.getPerParentThreshold());
+        assertEquals(ServiceConfig.OVERFLOW_QUEUE, config.getOverflow());
+    }
+
+    private static ServiceConfig config(String json) {
+        try {
+            return new ObjectMapper().readValue(json, ServiceConfig.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
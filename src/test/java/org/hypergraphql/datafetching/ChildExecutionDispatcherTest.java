@@ -0,0 +1,63 @@
+package org.hypergraphql.datafetching;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.language.Document;
+import graphql.parser.Parser;
+import org.hypergraphql.config.system.ExecutionConfig;
+import org.hypergraphql.datamodel.HGQLSchema;
+import org.hypergraphql.services.HGQLConfigService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChildExecutionDispatcherTest {
+
+    private static HGQLSchema schema;
+    private static Document query;
+
+    @BeforeAll
+    static void loadSchema() {
+        final String configPath = "evaluation/pipelining/config.json";   // friends are queried from a service with chunk size 2
+        schema = new HGQLConfigService().loadHGQLConfig(configPath,
+                ChildExecutionDispatcherTest.class.getClassLoader().getResourceAsStream(configPath), true).getHgqlSchema();
+        query = new Parser().parseDocument("{ Person { label friends { label } } }");
+    }
+
+    @Test
+    void batches_have_the_chunk_size_of_the_child_service() {
+        Map<String, ExecutionForest> childrenNodes = root().getChildrenNodes();
+        String marker = childrenNodes.keySet().iterator().next();
+
+        assertEquals(2, new ChildExecutionDispatcher(childrenNodes, context("{\"pipelining\": true}")).getBatchSize(marker));
+        assertEquals(Integer.MAX_VALUE, new ChildExecutionDispatcher(childrenNodes, context("{\"pipelining\": false}")).getBatchSize(marker));
+    }
+
+    @Test
+    void pipelined_queries_return_the_results_of_the_sequential_execution() {
+        Object sequential = new ExecutionForestFactory().getExecutionForest(query, schema)
+                .generateModel(context("{\"pipelining\": false}")).generateJSON();
+        ExecutionContext context = context("{\"pipelining\": true}");
+        Object pipelined = new ExecutionForestFactory().getExecutionForest(query, schema).generateModel(context).generateJSON();
+
+        assertEquals(Collections.emptyList(), context.getErrors());
+        assertEquals(sequential, pipelined);
+    }
+
+    private ExecutionTreeNode root() {
+        return new ExecutionForestFactory().getExecutionForest(query, schema).getForest().iterator().next();
+    }
+
+    private static ExecutionContext context(String executionConfig) {
+        try {
+            return new ExecutionContext(new ObjectMapper().readValue(executionConfig, ExecutionConfig.class));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.hypergraphql.datafetching;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hypergraphql.config.system.ExecutionConfig;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutionContextTest {
+
+    @Test
+    void context_without_deadline_has_no_time_limit() {
+        ExecutionContext context = new ExecutionContext(1);
+        assertFalse(context.hasDeadline());
+        assertEquals(Long.MAX_VALUE, context.getRemainingMillis());
+        assertEquals(0, context.getTimeLimit(0));
+        assertEquals(500, context.getTimeLimit(500));
+    }
+
+    @Test
+    void time_limit_is_bounded_by_the_deadline() {
+        ExecutionContext context = context("{\"requestConcurrency\": 1, \"timeout\": 60000}");
+        assertTrue(context.hasDeadline());
+        assertEquals(500, context.getTimeLimit(500));
+        long limit = context.getTimeLimit(0);
+        assertTrue(limit > 0 && limit <= 60000);
+    }
+
+    @Test
+    void cancel_aborts_registered_executions_once() {
+        ExecutionContext context = new ExecutionContext(1);
+        AtomicInteger aborts = new AtomicInteger();
+        Runnable running = aborts::incrementAndGet;
+        Runnable finished = aborts::incrementAndGet;
+        assertTrue(context.register(running));
+        assertTrue(context.register(finished));
+        context.unregister(finished);
+        context.cancel("deadline exceeded");
+        context.cancel("deadline exceeded");
+        assertEquals(1, aborts.get());
+        assertTrue(context.isCancelled());
+        assertFalse(context.register(aborts::incrementAndGet));
+        assertEquals(1, context.getErrors().size());
+    }
+
+    @Test
+    void expired_deadline_cancels_the_context() throws InterruptedException {
+        ExecutionContext context = context("{\"requestConcurrency\": 1, \"timeout\": 1}");
+        Thread.sleep(5);
+        assertTrue(context.isCancelled());
+        assertEquals(0, context.getRemainingMillis());
+    }
+
+    @Test
+    void tasks_of_cancelled_requests_are_not_executed() {
+        ExecutionContext context = new ExecutionContext(1);
+        context.cancel("cancelled");
+        AtomicInteger executions = new AtomicInteger();
+        CompletableFuture<Integer> future = ExecutionScheduler.getInstance().submit(executions::incrementAndGet, context);
+        assertThrows(CancellationException.class, future::join);
+        assertEquals(0, executions.get());
+    }
+
+    /**
+     * Creates the context of a request with the given execution configuration (JSON).
+     */
+    private static ExecutionContext context(String executionConfig) {
+        try {
+            return new ExecutionContext(new ObjectMapper().readValue(executionConfig, ExecutionConfig.class));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
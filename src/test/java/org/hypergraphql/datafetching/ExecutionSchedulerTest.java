@@ -0,0 +1,104 @@
+package org.hypergraphql.datafetching;
+
+import org.hypergraphql.config.system.ExecutionConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutionSchedulerTest {
+
+    @Test
+    void submit_runs_task_inline_if_request_budget_is_exhausted() throws ExecutionException, InterruptedException {
+        ExecutionScheduler scheduler = ExecutionScheduler.getInstance();
+        ExecutionContext context = new ExecutionContext(0);
+        Thread caller = Thread.currentThread();
+        Future<Thread> future = scheduler.submit(Thread::currentThread, context);
+        assertTrue(future.isDone());
+        assertEquals(caller, scheduler.await(future));
+    }
+
+    @Test
+    void submit_uses_named_threads() throws ExecutionException, InterruptedException {
+        ExecutionScheduler scheduler = ExecutionScheduler.getInstance();
+        ExecutionContext context = new ExecutionContext(1);
+        Future<String> future = scheduler.submit(() -> Thread.currentThread().getName(), context);
+        String name = scheduler.await(future);
+        assertTrue(name.startsWith("ugql-exec-") || name.equals(Thread.currentThread().getName()));
+        assertEquals(1, context.getAvailableConcurrency());
+    }
+
+    @Test
+    void nested_executions_deeper_than_the_pool_do_not_deadlock() throws ExecutionException, InterruptedException {
+        ExecutionScheduler scheduler = ExecutionScheduler.getInstance();
+        ExecutionContext context = scheduler.createContext();
+        Future<Integer> future = scheduler.submit(() -> nested(scheduler, context, 200), context);
+        assertEquals(200, (int) scheduler.await(future));
+    }
+
+    @Test
+    void submitted_tasks_complete_in_completion_order() {
+        ExecutionScheduler scheduler = ExecutionScheduler.getInstance();
+        ExecutionContext context = scheduler.createContext();
+        CountDownLatch slowTaskRelease = new CountDownLatch(1);
+        List<String> completionOrder = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<Void> slow = scheduler.submit(() -> {
+            slowTaskRelease.await(10, TimeUnit.SECONDS);
+            return "slow";
+        }, context).thenAccept(completionOrder::add);
+        CompletableFuture<Void> fast = scheduler.submit(() -> "fast", context)
+                .thenAccept(completionOrder::add)
+                .thenRun(slowTaskRelease::countDown);
+        CompletableFuture.allOf(slow, fast).join();
+        assertEquals(Arrays.asList("fast", "slow"), completionOrder);
+    }
+
+    @Test
+    void delayed_tasks_are_not_executed_on_the_timer_thread_if_the_queue_is_full() throws Exception {
+        ExecutionScheduler scheduler = new ExecutionScheduler(new ExecutionConfig(1, 1, null, null, null, null, null, null, null, null, null));
+        ExecutionContext context = new ExecutionContext(2);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit(() -> {
+            started.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        }, context);   // occupies the only thread
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        scheduler.submit(() -> true, context);   // fills the queue
+
+        CompletableFuture<String> delayed = new CompletableFuture<>();
+        scheduler.schedule(() -> delayed.complete(Thread.currentThread().getName()), 1);
+        String name = delayed.get(5, TimeUnit.SECONDS);
+        release.countDown();
+        assertTrue(name.startsWith("ugql-overflow-"));
+        assertEquals(1L, scheduler.getMetrics().get("overflowTasks"));
+    }
+
+    @Test
+    void metrics_contain_queue_depth() {
+        assertTrue(ExecutionScheduler.getInstance().getMetrics().containsKey("queueDepth"));
+        assertTrue(ExecutionScheduler.getInstance().getMetrics().containsKey("peakQueueDepth"));
+    }
+
+    private int nested(ExecutionScheduler scheduler, ExecutionContext context, int depth) throws ExecutionException, InterruptedException {
+        if (depth == 0) {
+            return 0;
+        }
+        List<Future<Integer>> children = new ArrayList<>();
+        children.add(scheduler.submit(() -> nested(scheduler, context, depth - 1), context));
+        int sum = 1;
+        for (Future<Integer> child : children) {
+            sum += scheduler.await(child);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,111 @@
+package org.hypergraphql.datafetching;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hypergraphql.config.system.ExecutionConfig;
+import org.hypergraphql.datafetching.services.resultmodel.ObjectResult;
+import org.hypergraphql.query.converters.SPARQLServiceConverter;
+import org.hypergraphql.query.pattern.QueryPattern;
+import org.hypergraphql.query.pattern.QueryPatternBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimitTrackerTest {
+
+    @Test
+    void root_queries_require_offset_plus_limit_entities() {
+        assertEquals(5, LimitTracker.requiredEntities(query(3, 2, null), ExecutionTreeNode.ROOT_TYPE));
+        assertEquals(3, LimitTracker.requiredEntities(query(3, null, null), ExecutionTreeNode.ROOT_TYPE));
+    }
+
+    @Test
+    void ordered_nested_and_unlimited_queries_are_not_tracked() {
+        assertEquals(-1, LimitTracker.requiredEntities(query(3, null, SPARQLServiceConverter.ORDER_ASC), ExecutionTreeNode.ROOT_TYPE));
+        assertEquals(-1, LimitTracker.requiredEntities(query(3, null, null), "Person"));
+        assertEquals(-1, LimitTracker.requiredEntities(query(null, null, null), ExecutionTreeNode.ROOT_TYPE));
+        assertNull(new ExecutionContext(1).getLimitTracker(query(3, null, null), ExecutionTreeNode.ROOT_TYPE));
+    }
+
+    @Test
+    void running_executions_are_aborted_once_the_limit_is_satisfied() {
+        LimitTracker tracker = new LimitTracker(2);
+        AtomicInteger aborted = new AtomicInteger();
+        assertTrue(tracker.register(aborted::incrementAndGet));
+
+        tracker.record(entities("a"));
+        tracker.record(entities("a"));
+        assertFalse(tracker.isSatisfied());
+        assertEquals(0, aborted.get());
+
+        tracker.record(entities("b", "c"));
+        assertTrue(tracker.isSatisfied());
+        assertEquals(1, aborted.get());
+        assertFalse(tracker.register(aborted::incrementAndGet));
+    }
+
+    @Test
+    void selected_entities_and_skipped_services_are_recorded() {
+        LimitTracker tracker = new LimitTracker(2);
+        tracker.record(entities("a", "b"));
+        tracker.skipped("slow");
+
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), tracker.getEntities());
+        assertTrue(tracker.isSkipped("slow"));
+        assertFalse(tracker.isSkipped("fast"));
+    }
+
+    @Test
+    void executions_of_the_same_query_share_the_tracker() {
+        ExecutionContext context = context("{\"requestConcurrency\": 1, \"limitAware\": true}");
+        QueryPattern query = query(1, null, null);
+        LimitTracker tracker = context.getLimitTracker(query, ExecutionTreeNode.ROOT_TYPE);
+        assertNotNull(tracker);
+        assertSame(tracker, context.getLimitTracker(query, ExecutionTreeNode.ROOT_TYPE));
+        assertNotSame(tracker, context.getLimitTracker(query(1, null, null), ExecutionTreeNode.ROOT_TYPE));
+    }
+
+    private ObjectResult entities(String... iris) {
+        ObjectResult result = new ObjectResult("x_1", "Person");
+        for (String iri : iris) {
+            result.addObject(iri);
+        }
+        return result;
+    }
+
+    private QueryPattern query(Integer limit, Integer offset, String order) {
+        Map<String, Object> args = new HashMap<>();
+        if (limit != null) {
+            args.put(SPARQLServiceConverter.LIMIT, limit);
+        }
+        if (offset != null) {
+            args.put(SPARQLServiceConverter.OFFSET, offset);
+        }
+        if (order != null) {
+            args.put(SPARQLServiceConverter.ORDER, order);
+        }
+        return new QueryPatternBuilder()
+                .setName("Person")
+                .setNodeId("x_1")
+                .setArgs(args)
+                .createQueryPattern();
+    }
+
+    /**
+     * Creates the context of a request with the given execution configuration (JSON).
+     */
+    private static ExecutionContext context(String executionConfig) {
+        try {
+            return new ExecutionContext(new ObjectMapper().readValue(executionConfig, ExecutionConfig.class));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
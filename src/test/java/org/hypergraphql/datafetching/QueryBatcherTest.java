@@ -0,0 +1,193 @@
+package org.hypergraphql.datafetching;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.language.Document;
+import graphql.parser.Parser;
+import org.hypergraphql.config.system.ExecutionConfig;
+import org.hypergraphql.config.system.ServiceConfig;
+import org.hypergraphql.datafetching.services.ManifoldService;
+import org.hypergraphql.datafetching.services.SPARQLEndpointService;
+import org.hypergraphql.datamodel.HGQLSchema;
+import org.hypergraphql.query.converters.SPARQLServiceConverter;
+import org.hypergraphql.query.pattern.Query;
+import org.hypergraphql.query.pattern.QueryPattern;
+import org.hypergraphql.query.pattern.QueryPatternBuilder;
+import org.hypergraphql.query.pattern.SubQueriesPattern;
+import org.hypergraphql.services.HGQLConfigService;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryBatcherTest {
+
+    @Test
+    void sub_queries_of_different_branches_have_the_same_shape() {
+        SubQueriesPattern books = subQuery("x_1", "x_1_1", "name", "x_1_2", "label", new HashMap<>());
+        SubQueriesPattern articles = subQuery("x_2", "x_2_1", "label", "x_2_2", "name", new HashMap<>());
+        assertNotNull(QueryBatcher.shape(books));
+        assertEquals(QueryBatcher.shape(books), QueryBatcher.shape(articles));
+    }
+
+    @Test
+    void variables_are_mapped_by_field() {
+        SubQueriesPattern books = subQuery("x_1", "x_1_1", "name", "x_1_2", "label", new HashMap<>());
+        SubQueriesPattern articles = subQuery("x_2", "x_2_1", "label", "x_2_2", "name", new HashMap<>());
+        Map<String, String> variables = QueryBatcher.variables(books, articles);
+        assertEquals("x_2", variables.get("x_1"));
+        assertEquals("x_2_2", variables.get("x_1_1"));
+        assertEquals("x_2_1", variables.get("x_1_2"));
+    }
+
+    @Test
+    void sub_queries_with_different_arguments_have_different_shapes() {
+        Map<String, Object> en = new HashMap<>();
+        en.put("lang", "en");
+        Map<String, Object> de = new HashMap<>();
+        de.put("lang", "de");
+        assertNotEquals(QueryBatcher.shape(subQuery("x_1", "x_1_1", "name", "x_1_2", "label", en)),
+                QueryBatcher.shape(subQuery("x_2", "x_2_1", "name", "x_2_2", "label", de)));
+    }
+
+    @Test
+    void sub_queries_with_limit_are_not_batched() {
+        Map<String, Object> args = new HashMap<>();
+        args.put("limit", 1L);
+        assertNull(QueryBatcher.shape(subQuery("x_1", "x_1_1", "name", "x_1_2", "label", args)));
+    }
+
+    @Test
+    void unordered_root_queries_of_sparql_endpoints_are_batched() {
+        SPARQLEndpointService service = new SPARQLEndpointService();
+        Map<String, Object> limit = new HashMap<>();
+        limit.put(SPARQLServiceConverter.LIMIT, 1L);
+        Map<String, Object> ids = new HashMap<>();
+        ids.put(SPARQLServiceConverter.ID, Collections.singletonList("http://www.example.org/alice"));
+        assertTrue(QueryBatcher.isRootBatchable(service, root(limit)));
+        assertTrue(QueryBatcher.isRootBatchable(service, root(ids)));
+        assertFalse(QueryBatcher.isRootBatchable(service, subQuery("x_1", "x_1_1", "name", "x_1_2", "label", new HashMap<>())));
+        assertFalse(QueryBatcher.isRootBatchable(new ManifoldService(), root(limit)));
+    }
+
+    @Test
+    void ordered_root_queries_and_root_queries_with_many_ids_are_not_batched() {
+        SPARQLEndpointService service = new SPARQLEndpointService();
+        Map<String, Object> order = new HashMap<>();
+        order.put(SPARQLServiceConverter.ORDER, SPARQLServiceConverter.ORDER_ASC);
+        assertFalse(QueryBatcher.isRootBatchable(service, root(order)));
+        List<String> iris = new ArrayList<>();
+        for (int i = 0; i <= service.getChunkSizer().getChunkSize(); i++) {
+            iris.add("http://www.example.org/person_" + i);
+        }
+        Map<String, Object> ids = new HashMap<>();
+        ids.put(SPARQLServiceConverter.ID, iris);
+        assertFalse(QueryBatcher.isRootBatchable(service, root(ids)));
+    }
+
+    @Test
+    void root_queries_of_services_with_a_result_cache_are_not_batched() throws Exception {
+        SPARQLEndpointService service = new SPARQLEndpointService();
+        service.setParameters(new ObjectMapper().readValue("{\"id\": \"cached\", \"cacheTtl\": 1000}", ServiceConfig.class));
+        assertFalse(QueryBatcher.isRootBatchable(service, root(new HashMap<>())));
+    }
+
+    @Test
+    void failures_outside_of_the_executions_are_reported_and_keep_the_batch_members_alive() throws Exception {
+        final String configPath = "evaluation/limit_and_offset/config.json";
+        HGQLSchema schema = new HGQLConfigService().loadHGQLConfig(configPath,
+                QueryBatcherTest.class.getClassLoader().getResourceAsStream(configPath), true).getHgqlSchema();
+        SPARQLEndpointService service = new SPARQLEndpointService() {
+            {
+                id = "failing";
+            }
+
+            @Override
+            protected SPARQLEndpointExecution createExecution(Query query, Set<String> inputSubset, Set<String> markers, HGQLSchema schema, String rootType, ChildExecutionDispatcher dispatcher) {
+                throw new IllegalStateException("query generation failed");
+            }
+        };
+        ExecutionContext context = context("{\"requestConcurrency\": 4, \"batchWindow\": 100}");
+        Set<String> input = Collections.singleton("http://www.example.org/alice");
+        CompletableFuture<TreeExecutionResult> books = context.getBatcher().executeQueryAsync(service,
+                subQuery("x_1", "x_1_1", "name", "x_1_2", "label", new HashMap<>()), input, Collections.emptySet(), "Person", schema, null);
+        CompletableFuture<TreeExecutionResult> articles = context.getBatcher().executeQueryAsync(service,
+                subQuery("x_2", "x_2_1", "label", "x_2_2", "name", new HashMap<>()), input, Collections.emptySet(), "Person", schema, null);
+
+        assertNull(books.get(5, TimeUnit.SECONDS).getFormatedResult());
+        assertNull(articles.get(5, TimeUnit.SECONDS).getFormatedResult());
+        // a slow second sub-query misses the batch window and fails in its own batch with the same error
+        assertEquals(Collections.singleton("Query at service failing failed: query generation failed"), new HashSet<>(context.getErrors()));
+    }
+
+    @Test
+    void batched_root_queries_return_the_results_of_the_unbatched_execution() {
+        final String configPath = "evaluation/root_batching/config.json";   // friends are queried from another service
+        HGQLSchema schema = new HGQLConfigService().loadHGQLConfig(configPath,
+                QueryBatcherTest.class.getClassLoader().getResourceAsStream(configPath), true).getHgqlSchema();
+        // both root fields query the friends of alice and Rust -> equal sub-queries in different branches
+        Document query = new Parser().parseDocument("{ persons: Person { label friends { label } } "
+                + "pair: Person(_id: [\"http://www.example.org/alice\", \"http://www.example.org/Rust\"]) { friends { label } } }");
+
+        Object unbatched = new ExecutionForestFactory().getExecutionForest(query, schema)
+                .generateModel(context("{\"rootBatching\": false}")).generateJSON();
+        long rootBatches = (Long) QueryBatcher.getMetrics().get("rootBatches");
+        long batches = (Long) QueryBatcher.getMetrics().get("batches");
+        ExecutionContext context = context("{\"batchWindow\": 50, \"rootBatching\": true}");
+        Object batched = new ExecutionForestFactory().getExecutionForest(query, schema).generateModel(context).generateJSON();
+
+        assertEquals(rootBatches + 1, QueryBatcher.getMetrics().get("rootBatches"));
+        assertTrue((Long) QueryBatcher.getMetrics().get("batches") > batches);
+        assertEquals(Collections.emptyList(), context.getErrors());
+        assertEquals(unbatched, batched);
+    }
+
+    private QueryPattern root(Map<String, Object> args) {
+        return new QueryPatternBuilder()
+                .setName("Person")
+                .setNodeId("x_1")
+                .setTargetType("Person")
+                .setArgs(args)
+                .createQueryPattern();
+    }
+
+    private SubQueriesPattern subQuery(String parentId, String nodeId1, String name1, String nodeId2, String name2, Map<String, Object> args) {
+        SubQueriesPattern subQuery = new SubQueriesPattern();
+        subQuery.add(field(parentId, nodeId1, name1, args));
+        subQuery.add(field(parentId, nodeId2, name2, args));
+        return subQuery;
+    }
+
+    private QueryPattern field(String parentId, String nodeId, String name, Map<String, Object> args) {
+        return new QueryPatternBuilder()
+                .setName(name)
+                .setAlias(nodeId)
+                .setNodeId(nodeId)
+                .setArgs(args)
+                .setTargetType("String")
+                .setParentId(parentId)
+                .setParentArgs(new HashMap<>())
+                .createQueryPattern();
+    }
+
+    /**
+     * Creates the context of a request with the given execution configuration (JSON).
+     */
+    private static ExecutionContext context(String executionConfig) {
+        try {
+            return new ExecutionContext(new ObjectMapper().readValue(executionConfig, ExecutionConfig.class));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.hypergraphql.datafetching;
+
+import graphql.language.Argument;
+import graphql.language.Field;
+import graphql.parser.Parser;
+import org.hypergraphql.query.pattern.QueryPattern;
+import org.hypergraphql.query.pattern.QueryPatternBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryPlanCacheTest {
+
+    @Test
+    void queries_with_different_argument_values_have_the_same_shape() {
+        QueryShape shape1 = shape("{ Person_GET(limit: 1, offset: 2) { name(lang: \"en\") } }");
+        QueryShape shape2 = shape("{\n  Person_GET(limit: 10, offset: 0) {\n    name(lang: \"de\")\n  }\n}");
+        assertEquals(shape1.getKey(), shape2.getKey());
+        assertEquals(Arrays.asList(1L, 2L, "en"), shape1.getParameters());
+        assertEquals(Arrays.asList(10L, 0L, "de"), shape2.getParameters());
+    }
+
+    @Test
+    void queries_with_different_selections_have_different_shapes() {
+        QueryShape shape1 = shape("{ Person_GET(limit: 1) { name } }");
+        QueryShape shape2 = shape("{ Person_GET(limit: 1) { _id name } }");
+        QueryShape shape3 = shape("{ Person_GET(offset: 1) { name } }");
+        assertNotEquals(shape1.getKey(), shape2.getKey());
+        assertNotEquals(shape1.getKey(), shape3.getKey());
+    }
+
+    @Test
+    void bind_replaces_placeholders_with_argument_values() {
+        QueryShape shape = shape("{ Person_GET_BY_ID(_id: [\"http://example.org/bob\"], limit: 5) { name } }");
+        Field field = (Field) shape.getSelectionSet().getSelections().get(0);
+        Map<String, Object> args = new HashMap<>();
+        for (Argument argument : field.getArguments()) {
+            args.put(argument.getName(), ExecutionTreeNode.getArgValue(argument.getValue()));
+        }
+        QueryPattern plan = new QueryPatternBuilder()
+                .setName(field.getName())
+                .setNodeId("x_1")
+                .setArgs(args)
+                .setParentArgs(args)
+                .createQueryPattern();
+
+        QueryPattern bound = (QueryPattern) QueryShape.bind(plan, shape.getParameters());
+        assertEquals(Arrays.asList("http://example.org/bob"), bound.args.get("_id"));
+        assertEquals(5L, bound.args.get("limit"));
+        assertEquals(5L, bound.parentArgs.get("limit"));
+        assertNotEquals(5L, plan.args.get("limit"));
+    }
+
+    @Test
+    void cache_counts_hits_and_misses() {
+        QueryPlanCache cache = new QueryPlanCache(10);
+        ExecutionForest plan = new ExecutionForest(true);
+        assertSame(plan, cache.getPlan(null, shape("{ Person_GET(limit: 1) { name } }"), () -> plan));
+        assertSame(plan, cache.getPlan(null, shape("{ Person_GET(limit: 2) { name } }"), ExecutionForest::new));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void cache_evicts_least_recently_used_plan() {
+        QueryPlanCache cache = new QueryPlanCache(2);
+        QueryShape shape1 = shape("{ Person_GET { name } }");
+        QueryShape shape2 = shape("{ Person_GET { _id } }");
+        QueryShape shape3 = shape("{ City_GET { label } }");
+        ExecutionForest plan1 = new ExecutionForest(true);
+        cache.getPlan(null, shape1, () -> plan1);
+        cache.getPlan(null, shape2, ExecutionForest::new);
+        cache.getPlan(null, shape1, ExecutionForest::new);
+        cache.getPlan(null, shape3, ExecutionForest::new);
+        assertEquals(2, cache.size());
+        assertSame(plan1, cache.getPlan(null, shape1, ExecutionForest::new));
+        assertEquals(2, cache.getHits());
+        assertEquals(1L, cache.getMetrics().get("evictions"));
+    }
+
+    private QueryShape shape(String query) {
+        return QueryShape.of(new Parser().parseDocument(query));
+    }
+}
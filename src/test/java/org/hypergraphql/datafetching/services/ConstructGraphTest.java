@@ -0,0 +1,131 @@
+package org.hypergraphql.datafetching.services;
+
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.hypergraphql.datafetching.services.resultmodel.ObjectResult;
+import org.hypergraphql.datafetching.services.resultmodel.Result;
+import org.hypergraphql.datafetching.services.resultmodel.ResultDictionary;
+import org.hypergraphql.datamodel.HGQLSchema;
+import org.hypergraphql.query.converters.SPARQLServiceConverter;
+import org.hypergraphql.query.pattern.QueryPattern;
+import org.hypergraphql.query.pattern.QueryPatternBuilder;
+import org.hypergraphql.query.pattern.SubQueriesPattern;
+import org.hypergraphql.services.HGQLConfigService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConstructGraphTest {
+
+    private static final String IRI = "http://www.example.org/";
+
+    private static HGQLSchema schema;
+    private static Model model;
+
+    @BeforeAll
+    static void load() {
+        final String configPath = "evaluation/limit_and_offset/config.json";
+        final InputStream inputStream = ConstructGraphTest.class.getClassLoader().getResourceAsStream(configPath);
+        schema = new HGQLConfigService().loadHGQLConfig(configPath, inputStream, true).getHgqlSchema();
+        model = ModelFactory.createDefaultModel();
+        RDFDataMgr.read(model, ConstructGraphTest.class.getClassLoader().getResourceAsStream("evaluation/limit_and_offset/dataset.ttl"), Lang.TURTLE);
+    }
+
+    @Test
+    void construct_results_are_translated_like_select_results() {
+        SubQueriesPattern query = labelsAndFriends();
+        Set<String> parents = new LinkedHashSet<>(Arrays.asList(IRI + "alice", IRI + "Rust", IRI + "unknown"));
+        SPARQLServiceConverter converter = new SPARQLServiceConverter(schema);
+
+        RowMapper selectMapper = RowMapper.compile(query, schema);
+        Result<?> selected = null;
+        try (QueryExecution execution = QueryExecutionFactory.create(converter.getSelectQuery(query, parents, "Person", "dataset"), model)) {
+            ResultSet results = execution.execSelect();
+            while (results.hasNext()) {
+                selected = selectMapper.append(selected, results.next(), new ResultDictionary());
+            }
+        }
+
+        ConstructGraph graph = new ConstructGraph();
+        try (QueryExecution execution = QueryExecutionFactory.create(converter.getConstructQuery(query, parents, "Person", "dataset"), model)) {
+            execution.execConstructTriples().forEachRemaining(graph::triple);
+        }
+        RowMapper constructMapper = RowMapper.compile(query, schema);
+        Result<?>[] constructed = new Result<?>[1];
+        graph.walk(query, solution -> constructed[0] = constructMapper.append(constructed[0], solution, new ResultDictionary()));
+
+        assertEquals(canonical(((ObjectResult) selected).generateJSON()), canonical(((ObjectResult) constructed[0]).generateJSON()));
+        assertEquals(3, ((ObjectResult) constructed[0]).getObjects().size());   // parents without values are kept
+        // 3 self links, alice: 3 labels and 5 friends, Rust: 1 label and 5 friends, 8 labels of the 6 distinct friends
+        assertEquals(3 + 3 + 5 + 1 + 5 + 8, graph.size());
+    }
+
+    @Test
+    void triples_of_other_predicates_are_ignored() {
+        ConstructGraph graph = new ConstructGraph();
+        graph.triple(Triple.create(NodeFactory.createURI(IRI + "alice"), NodeFactory.createURI(IRI + "label"), NodeFactory.createLiteral("Alice")));
+
+        assertEquals(0, graph.size());
+        List<Object> solutions = new ArrayList<>();
+        graph.walk(labelsAndFriends(), solutions::add);
+        assertTrue(solutions.isEmpty());
+    }
+
+    /**
+     * Query {label friends{label}} of the Person with the variable ?x_1
+     */
+    private SubQueriesPattern labelsAndFriends() {
+        SubQueriesPattern friendFields = new SubQueriesPattern();
+        friendFields.add(field("x_1_2", "x_1_2_1", "label", "String", "Person", null));
+        SubQueriesPattern query = new SubQueriesPattern();
+        query.add(field("x_1", "x_1_1", "label", "String", "Person", null));
+        query.add(field("x_1", "x_1_2", "friends", "Person", "Person", friendFields));
+        return query;
+    }
+
+    private QueryPattern field(String parentId, String nodeId, String name, String targetType, String parentType, SubQueriesPattern fields) {
+        return new QueryPatternBuilder()
+                .setName(name)
+                .setNodeId(nodeId)
+                .setParentId(parentId)
+                .setParentName("Person")
+                .setParentType(parentType)
+                .setTargetType(targetType)
+                .setArgs(new HashMap<>())
+                .setFields(fields)
+                .createQueryPattern();
+    }
+
+    /**
+     * String representation of the given JSON structure that does not depend on the order of lists and maps.
+     */
+    private String canonical(Object json) {
+        if (json instanceof Map) {
+            Map<String, String> sorted = new TreeMap<>();
+            ((Map<?, ?>) json).forEach((key, value) -> sorted.put(key.toString(), canonical(value)));
+            return sorted.toString();
+        } else if (json instanceof List) {
+            return ((List<?>) json).stream().map(this::canonical).sorted().collect(Collectors.toList()).toString();
+        }
+        return String.valueOf(json);
+    }
+}
@@ -0,0 +1,33 @@
+package org.hypergraphql.datafetching.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrequencySketchTest {
+
+    @Test
+    void frequencies_are_counted_up_to_fifteen() {
+        FrequencySketch sketch = new FrequencySketch(100);
+        for (int i = 0; i < 20; i++) {
+            sketch.increment("hot");
+        }
+        sketch.increment("cold");
+        assertEquals(15, sketch.frequency("hot"));
+        assertEquals(1, sketch.frequency("cold"));
+        assertEquals(0, sketch.frequency("unknown"));
+    }
+
+    @Test
+    void counters_are_halved_after_the_sample_size() {
+        FrequencySketch sketch = new FrequencySketch(16);   // aged after 160 additions
+        for (int i = 0; i < 8; i++) {
+            sketch.increment("hot");
+        }
+        for (int i = 0; i < 152; i++) {
+            sketch.increment("key" + i);
+        }
+        assertTrue(sketch.frequency("hot") <= 5);   // 8 halved plus possible collisions
+        assertTrue(sketch.frequency("hot") >= 4);
+    }
+}
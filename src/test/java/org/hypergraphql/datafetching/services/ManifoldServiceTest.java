@@ -0,0 +1,161 @@
+package org.hypergraphql.datafetching.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hypergraphql.config.system.ExecutionConfig;
+import org.hypergraphql.config.system.ServiceConfig;
+import org.hypergraphql.datafetching.ExecutionContext;
+import org.hypergraphql.datafetching.ExecutionTreeNode;
+import org.hypergraphql.datafetching.TreeExecutionResult;
+import org.hypergraphql.datafetching.services.resultmodel.ObjectResult;
+import org.hypergraphql.datamodel.HGQLSchema;
+import org.hypergraphql.query.converters.SPARQLServiceConverter;
+import org.hypergraphql.query.pattern.Query;
+import org.hypergraphql.query.pattern.QueryPattern;
+import org.hypergraphql.query.pattern.QueryPatternBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ManifoldServiceTest {
+
+    @Test
+    void services_are_queried_concurrently() {
+        ManifoldService manifold = manifold(new DelayedService("a", 300, "x:a"), new DelayedService("b", 300, "x:b"),
+                new DelayedService("c", 300, "x:c"));
+        long start = System.currentTimeMillis();
+        TreeExecutionResult result = manifold.executeQuery(null, new HashSet<>(), Collections.singleton("x"), "Query", null, new ExecutionContext(10));
+        long duration = System.currentTimeMillis() - start;
+        assertEquals(3, result.getResultSet().get("x").size());
+        assertTrue(duration < 800, "Services were executed sequentially: " + duration + " ms");
+    }
+
+    @Test
+    void services_exceeding_the_manifold_timeout_are_omitted() {
+        ManifoldService manifold = manifold(new DelayedService("fast", 0, "x:fast"), new DelayedService("slow", 2000, "x:slow"));
+        ExecutionContext context = context("{\"requestConcurrency\": 10, \"manifoldTimeout\": 200}");
+        long start = System.currentTimeMillis();
+        TreeExecutionResult result = manifold.executeQuery(null, new HashSet<>(), Collections.singleton("x"), "Query", null, context);
+        long duration = System.currentTimeMillis() - start;
+        assertEquals(Collections.singleton("x:fast"), result.getResultSet().get("x"));
+        assertTrue(duration < 1500, "Manifold waited for the slow service: " + duration + " ms");
+        assertEquals(1, context.getErrors().size());
+        assertTrue(context.getErrors().get(0).contains("slow"));
+    }
+
+    @Test
+    void running_services_are_queried_for_the_selected_entities_once_the_limit_is_satisfied() {
+        DelayedService slow = new DelayedService("slow", 500, "x:slow");
+        ManifoldService manifold = manifold(new DelayedService("fast", 0, "x:fast"), slow);
+        ExecutionContext context = context("{\"requestConcurrency\": 10, \"limitAware\": true}");
+        Map<String, Object> args = new HashMap<>();
+        args.put(SPARQLServiceConverter.LIMIT, 1);
+        Query query = new QueryPatternBuilder()
+                .setName("Person")
+                .setNodeId("x")
+                .setArgs(args)
+                .createQueryPattern();
+        TreeExecutionResult result = manifold.executeQuery(query, new HashSet<>(), Collections.singleton("x"), ExecutionTreeNode.ROOT_TYPE, null, context);
+
+        // the slow service may hold values of x:fast, it is queried for this entity without limit
+        assertEquals(Collections.singleton("x:fast"), result.getResultSet().get("x"));
+        QueryPattern selection = (QueryPattern) slow.queries.get(slow.queries.size() - 1);
+        assertEquals(Collections.singletonList("x:fast"), selection.args.get(SPARQLServiceConverter.ID));
+        assertFalse(selection.args.containsKey(SPARQLServiceConverter.LIMIT));
+        assertTrue(context.getErrors().isEmpty());
+    }
+
+    @Test
+    void selected_query_queries_the_entities_without_limit_and_offset() {
+        Map<String, Object> args = new HashMap<>();
+        args.put(SPARQLServiceConverter.LIMIT, 2);
+        args.put(SPARQLServiceConverter.OFFSET, 1);
+        args.put(SPARQLServiceConverter.LANG, "en");
+        QueryPattern query = new QueryPatternBuilder()
+                .setName("Person")
+                .setAlias("people")
+                .setNodeId("x")
+                .setArgs(args)
+                .createQueryPattern();
+
+        QueryPattern selection = ManifoldService.selectedQuery(query, Collections.singleton("x:a"));
+        assertEquals(Collections.singletonList("x:a"), selection.args.get(SPARQLServiceConverter.ID));
+        assertEquals("en", selection.args.get(SPARQLServiceConverter.LANG));
+        assertFalse(selection.args.containsKey(SPARQLServiceConverter.LIMIT));
+        assertFalse(selection.args.containsKey(SPARQLServiceConverter.OFFSET));
+        assertEquals("people", selection.alias);
+        assertFalse(query.args.containsKey(SPARQLServiceConverter.ID));   // the arguments of the query are not changed
+    }
+
+    private ManifoldService manifold(Service... services) {
+        ManifoldService manifold = new ManifoldService();
+        Set<Service> serviceSet = new HashSet<>();
+        Collections.addAll(serviceSet, services);
+        manifold.setParameters(serviceSet);
+        return manifold;
+    }
+
+    /**
+     * Service that returns one IRI for the marker x and one entity with this IRI after the given delay. If the query
+     * selects entities by their IRIs (_id argument) the entity is only returned if it is selected.
+     */
+    private static class DelayedService extends Service {
+
+        private final long delay;
+        private final String iri;
+        private final List<Query> queries = new CopyOnWriteArrayList<>();   // received queries
+
+        DelayedService(String id, long delay, String iri) {
+            this.id = id;
+            this.delay = delay;
+            this.iri = iri;
+        }
+
+        @Override
+        public TreeExecutionResult executeQuery(Query query, Set<String> input, Set<String> strings, String rootType, HGQLSchema schema, ExecutionContext context) {
+            queries.add(query);
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            boolean selected = !(query instanceof QueryPattern) || !((QueryPattern) query).args.containsKey(SPARQLServiceConverter.ID)
+                    || ((Collection<?>) ((QueryPattern) query).args.get(SPARQLServiceConverter.ID)).contains(iri);
+            Map<String, Set<String>> resultSet = new HashMap<>();
+            resultSet.put("x", selected ? new HashSet<>(Collections.singleton(iri)) : new HashSet<>());
+            TreeExecutionResult result = new TreeExecutionResult();
+            result.setResultSet(resultSet);
+            ObjectResult object = new ObjectResult("x", "Person");
+            if (selected) {
+                object.addObject(iri);
+            }
+            result.setFormatedResult(object);
+            return result;
+        }
+
+        @Override
+        public void setParameters(ServiceConfig serviceConfig) {
+        }
+    }
+
+    /**
+     * Creates the context of a request with the given execution configuration (JSON).
+     */
+    private static ExecutionContext context(String executionConfig) {
+        try {
+            return new ExecutionContext(new ObjectMapper().readValue(executionConfig, ExecutionConfig.class));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.hypergraphql.datafetching.services;
+
+import org.hypergraphql.datafetching.SPARQLExecutionResult;
+import org.hypergraphql.datafetching.services.resultmodel.ObjectResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultCacheTest {
+
+    private static final String ALICE = "http://www.example.org/alice";
+    private static final String BOB = "http://www.example.org/bob";
+
+    @Test
+    void fresh_results_are_served_from_the_cache() {
+        AtomicLong clock = new AtomicLong(0);
+        ResultCache cache = new ResultCache("service", 10, 1000, 0, clock::get);
+        AtomicInteger executions = new AtomicInteger();
+
+        SPARQLExecutionResult first = cache.execute("query", () -> execute(executions, ALICE), () -> execute(executions, BOB)).join();
+        first.getResult().merge(result(BOB).getResult());   // the caller merges into its own result
+        clock.set(999);
+        SPARQLExecutionResult second = cache.execute("query", () -> execute(executions, BOB), () -> execute(executions, BOB)).join();
+
+        assertEquals(1, executions.get());
+        assertEquals(Collections.singleton(ALICE), ((ObjectResult) second.getResult()).getObjects());
+        assertEquals(1L, cache.getMetrics().get("hits"));
+        assertEquals(1L, cache.getMetrics().get("misses"));
+
+        clock.set(1000);   // expired without stale time
+        SPARQLExecutionResult third = cache.execute("query", () -> execute(executions, BOB), () -> execute(executions, BOB)).join();
+        assertEquals(2, executions.get());
+        assertEquals(Collections.singleton(BOB), ((ObjectResult) third.getResult()).getObjects());
+    }
+
+    @Test
+    void stale_results_are_served_while_they_are_refreshed_once() {
+        AtomicLong clock = new AtomicLong(0);
+        ResultCache cache = new ResultCache("service", 10, 1000, 5000, clock::get);
+        AtomicInteger executions = new AtomicInteger();
+        cache.execute("query", () -> execute(executions, ALICE), () -> execute(executions, ALICE)).join();
+
+        clock.set(2000);
+        CompletableFuture<SPARQLExecutionResult> refresh = new CompletableFuture<>();
+        AtomicInteger refreshes = new AtomicInteger();
+        SPARQLExecutionResult stale = cache.execute("query", () -> execute(executions, BOB), () -> {
+            refreshes.incrementAndGet();
+            return refresh;
+        }).join();
+        cache.execute("query", () -> execute(executions, BOB), () -> {
+            refreshes.incrementAndGet();
+            return refresh;
+        }).join();
+        assertEquals(Collections.singleton(ALICE), ((ObjectResult) stale.getResult()).getObjects());
+        assertEquals(1, refreshes.get());   // the second stale hit does not start another refresh
+        assertEquals(1, executions.get());
+
+        refresh.complete(result(BOB));
+        SPARQLExecutionResult refreshed = cache.execute("query", () -> execute(executions, ALICE), () -> execute(executions, ALICE)).join();
+        assertEquals(Collections.singleton(BOB), ((ObjectResult) refreshed.getResult()).getObjects());
+        assertEquals(2L, cache.getMetrics().get("staleHits"));
+        assertEquals(1L, cache.getMetrics().get("hits"));
+    }
+
+    @Test
+    void incomplete_results_are_not_cached_and_the_least_recently_used_result_is_evicted_for_a_more_frequent_one() {
+        ResultCache cache = new ResultCache("service", 2, 1000, 0, () -> 0);
+        AtomicInteger executions = new AtomicInteger();
+        SPARQLExecutionResult degraded = result(ALICE);
+        degraded.setIncomplete(true);
+        cache.execute("degraded", () -> CompletableFuture.completedFuture(degraded), () -> execute(executions, ALICE)).join();
+        assertEquals(0, cache.size());
+
+        cache.execute("a", () -> execute(executions, ALICE), () -> execute(executions, ALICE)).join();
+        cache.execute("b", () -> execute(executions, ALICE), () -> execute(executions, ALICE)).join();
+        cache.execute("a", () -> execute(executions, ALICE), () -> execute(executions, ALICE)).join();
+        cache.execute("c", () -> execute(executions, ALICE), () -> execute(executions, ALICE)).join();
+        assertEquals(1L, cache.getMetrics().get("rejections"));   // c is not more frequent than b
+        cache.execute("c", () -> execute(executions, ALICE), () -> execute(executions, ALICE)).join();
+        assertEquals(4, executions.get());
+        assertEquals(2, cache.size());
+        assertEquals(1L, cache.getMetrics().get("evictions"));
+
+        cache.execute("a", () -> execute(executions, ALICE), () -> execute(executions, ALICE)).join();
+        cache.execute("c", () -> execute(executions, ALICE), () -> execute(executions, ALICE)).join();
+        assertEquals(4, executions.get());   // b was evicted instead of the recently used a
+    }
+
+    @Test
+    void a_scan_does_not_evict_frequently_used_results() {
+        ResultCache cache = new ResultCache("service", 10, 1000, 0, () -> 0);
+        AtomicInteger executions = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            for (int hot = 0; hot < 10; hot++) {
+                cache.execute("hot" + hot, () -> execute(executions, ALICE), () -> execute(executions, ALICE)).join();
+            }
+        }
+        assertEquals(10, executions.get());
+
+        for (int scan = 0; scan < 100; scan++) {
+            cache.execute("scan" + scan, () -> execute(executions, BOB), () -> execute(executions, BOB)).join();
+        }
+        assertEquals(110, executions.get());
+        for (int hot = 0; hot < 10; hot++) {
+            cache.execute("hot" + hot, () -> execute(executions, ALICE), () -> execute(executions, ALICE)).join();
+        }
+        assertEquals(110, executions.get());   // all hot results are still cached
+        assertEquals(0L, cache.getMetrics().get("evictions"));
+        assertEquals(100L, cache.getMetrics().get("rejections"));
+    }
+
+    @Test
+    void disabled_cache_executes_every_query() {
+        ResultCache cache = new ResultCache("service", 10, 0, 0, () -> 0);
+        AtomicInteger executions = new AtomicInteger();
+        cache.execute("query", () -> execute(executions, ALICE), () -> execute(executions, ALICE)).join();
+        cache.execute("query", () -> execute(executions, ALICE), () -> execute(executions, ALICE)).join();
+        assertFalse(cache.isEnabled());
+        assertEquals(2, executions.get());
+        assertEquals(0, cache.size());
+    }
+
+    private CompletableFuture<SPARQLExecutionResult> execute(AtomicInteger executions, String iri) {
+        executions.incrementAndGet();
+        return CompletableFuture.completedFuture(result(iri));
+    }
+
+    private SPARQLExecutionResult result(String iri) {
+        ObjectResult persons = new ObjectResult("x_1", "Person");
+        persons.addObject(iri);
+        Map<String, Set<String>> resultSet = new HashMap<>();
+        resultSet.put("x_1", new HashSet<>(Collections.singleton(iri)));
+        return new SPARQLExecutionResult(resultSet, persons);
+    }
+}
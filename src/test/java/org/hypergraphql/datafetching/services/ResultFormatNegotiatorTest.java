@@ -0,0 +1,49 @@
+package org.hypergraphql.datafetching.services;
+
+import org.apache.jena.riot.WebContent;
+import org.apache.jena.riot.resultset.ResultSetLang;
+import org.hypergraphql.config.system.ServiceConfig;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultFormatNegotiatorTest {
+
+    @Test
+    void compact_formats_are_requested_with_the_standard_formats_as_fallback() {
+        String accept = new ResultFormatNegotiator("service", ServiceConfig.RESULT_FORMAT_THRIFT).getAcceptHeader();
+        assertTrue(accept.startsWith(WebContent.contentTypeResultsThrift + ","));
+        assertTrue(accept.contains(WebContent.contentTypeResultsXML));
+        assertTrue(accept.contains(WebContent.contentTypeResultsJSON));
+        assertEquals(ResultFormatNegotiator.STANDARD_ACCEPT_HEADER,
+                new ResultFormatNegotiator("service", ServiceConfig.RESULT_FORMAT_XML).getAcceptHeader());
+    }
+
+    @Test
+    void rejected_compact_format_falls_back_to_the_standard_formats() {
+        ResultFormatNegotiator negotiator = new ResultFormatNegotiator("service", ServiceConfig.RESULT_FORMAT_AUTO);
+        assertTrue(negotiator.onNotAcceptable(negotiator.getAcceptHeader()));
+        assertEquals(ResultFormatNegotiator.STANDARD_ACCEPT_HEADER, negotiator.getAcceptHeader());
+        assertFalse(negotiator.onNotAcceptable(negotiator.getAcceptHeader()));
+        assertEquals(true, negotiator.getMetrics().get("compactUnsupported"));
+    }
+
+    @Test
+    void only_parse_failures_of_compact_formats_disable_the_compact_format() {
+        ResultFormatNegotiator negotiator = new ResultFormatNegotiator("service", ServiceConfig.RESULT_FORMAT_TSV);
+        negotiator.onParseFailure(ResultSetLang.SPARQLResultSetXML);
+        assertNotEquals(ResultFormatNegotiator.STANDARD_ACCEPT_HEADER, negotiator.getAcceptHeader());
+        negotiator.onParseFailure(ResultSetLang.SPARQLResultSetTSV);
+        assertEquals(ResultFormatNegotiator.STANDARD_ACCEPT_HEADER, negotiator.getAcceptHeader());
+    }
+
+    @Test
+    void results_are_parsed_according_to_the_content_type() {
+        ResultFormatNegotiator negotiator = new ResultFormatNegotiator("service", ServiceConfig.RESULT_FORMAT_AUTO);
+        assertEquals(ResultSetLang.SPARQLResultSetThrift, negotiator.getLang(WebContent.contentTypeResultsThrift));
+        assertEquals(ResultSetLang.SPARQLResultSetTSV, negotiator.getLang(WebContent.contentTypeTextTSV));
+        assertEquals(ResultSetLang.SPARQLResultSetJSON, negotiator.getLang(WebContent.contentTypeResultsJSON));
+        assertEquals(ResultSetLang.SPARQLResultSetXML, negotiator.getLang(null));
+        assertEquals(ResultSetLang.SPARQLResultSetXML, negotiator.getLang(WebContent.contentTypeTextCSV));
+    }
+}
@@ -0,0 +1,158 @@
+package org.hypergraphql.datafetching.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.RDFNode;
+import org.hypergraphql.datafetching.services.resultmodel.ObjectResult;
+import org.hypergraphql.datafetching.services.resultmodel.Result;
+import org.hypergraphql.datafetching.services.resultmodel.ResultDictionary;
+import org.hypergraphql.datamodel.HGQLSchema;
+import org.hypergraphql.query.pattern.QueryPattern;
+import org.hypergraphql.query.pattern.QueryPatternBuilder;
+import org.hypergraphql.query.pattern.SubQueriesPattern;
+import org.hypergraphql.services.HGQLConfigService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowMapperTest {
+
+    private static final String IRI = "http://example.org/";
+
+    private static HGQLSchema schema;
+
+    @BeforeAll
+    static void loadSchema() {
+        final String configPath = "test_config.json";
+        final InputStream inputStream = RowMapperTest.class.getClassLoader().getResourceAsStream(configPath);
+        schema = new HGQLConfigService().loadHGQLConfig(configPath, inputStream, true).getHgqlSchema();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")   // the generated JSON is a tree of untyped maps and lists
+    void solutions_are_appended_to_the_entities_of_the_result() {
+        RowMapper mapper = RowMapper.compile(personQuery(), schema);
+        ResultDictionary dictionary = new ResultDictionary();
+
+        Result<?> result = null;
+        result = mapper.append(result, solution("Alice", "Alice", "Alicia", "Berlin"), dictionary);
+        result = mapper.append(result, solution("Alice", "Alice", "Alice Liddell", "Berlin"), dictionary);
+        result = mapper.append(result, solution("Bob", "Bob", "Bob", "Paris"), dictionary);
+
+        assertTrue(result instanceof ObjectResult);
+        List<Map<String, Object>> persons = (List<Map<String, Object>>) ((ObjectResult) result).generateJSON().get("Person");
+        assertEquals(2, persons.size());
+        Map<String, Object> alice = persons.stream()
+                .filter(person -> person.get("_id").equals(IRI + "Alice"))
+                .findAny()
+                .orElseThrow(AssertionError::new);
+        assertEquals("Alice", alice.get("name"));
+        assertEquals(2, ((List<?>) alice.get("label")).size());
+        assertEquals("http://dbpedia.org/ontology/Person", alice.get("_type"));
+        Map<String, Object> birthPlace = (Map<String, Object>) alice.get("birthPlace");
+        assertEquals(IRI + "Berlin", birthPlace.get("_id"));
+        assertEquals(Collections.singletonList("Berlin"), birthPlace.get("label"));
+    }
+
+    @Test
+    void unbound_objects_are_not_added() {
+        RowMapper mapper = RowMapper.compile(personQuery(), schema);
+        QuerySolutionMap solution = new QuerySolutionMap();
+        solution.add("x_1", resource("Carol"));
+
+        Result<?> result = mapper.append(null, solution, new ResultDictionary());
+
+        JsonNode carol = new ObjectMapper().valueToTree(result).get(0);
+        assertEquals(IRI + "Carol", carol.get("_id").asText());
+        assertTrue(carol.get("birthPlace").isNull());
+        assertTrue(carol.get("name").isNull());
+    }
+
+    @Test
+    void values_are_interned_in_the_dictionary() {
+        RowMapper mapper = RowMapper.compile(personQuery(), schema);
+        ResultDictionary dictionary = new ResultDictionary();
+
+        Result<?> result = mapper.append(null, solution("Alice", "Alice", "Alice", "Berlin"), dictionary);
+        mapper.append(result, solution("Alice", "Alice", "Alice", "Berlin"), dictionary);
+
+        assertEquals(4, dictionary.size());   // IRIs of Alice and Berlin, literals "Alice" and "Berlin"
+    }
+
+    @Test
+    void cross_product_of_the_field_values_is_estimated_per_entity() {
+        RowMapper mapper = RowMapper.compile(personQuery(), schema);
+        ResultDictionary dictionary = new ResultDictionary();
+
+        Result<?> result = null;
+        result = mapper.append(result, solution("Alice", "Alice", "Alicia", "Berlin"), dictionary);
+        result = mapper.append(result, solution("Alice", "Alice", "Alice Liddell", "Paris"), dictionary);
+        result = mapper.append(result, solution("Bob", "Bob", "Bob", "Paris"), dictionary);
+
+        assertEquals(5, mapper.crossProductRows(result));   // Alice: 2 labels x 2 birthPlaces, Bob: 1
+        assertEquals(0, mapper.crossProductRows(null));
+    }
+
+    @Test
+    void mapper_is_compiled_once_per_query_object() {
+        QueryPattern query = personQuery();
+
+        assertSame(RowMapper.of(query, schema), RowMapper.of(query, schema));
+        assertNotSame(RowMapper.of(query, schema), RowMapper.of(personQuery(), schema));
+    }
+
+    private QuerySolutionMap solution(String person,String name, String label, String city) {
+        QuerySolutionMap solution = new QuerySolutionMap();
+        solution.add("x_1", resource(person));
+        solution.add("x_1_3", ModelFactory.createDefaultModel().createLiteral(name));
+        solution.add("x_1_4", ModelFactory.createDefaultModel().createLiteral(label));
+        solution.add("x_1_5", resource(city));
+        solution.add("x_1_5_2", ModelFactory.createDefaultModel().createLiteral(city));
+        return solution;
+    }
+
+    private RDFNode resource(String name) {
+        return ModelFactory.createDefaultModel().createResource(IRI + name);
+    }
+
+    /**
+     * Query {Person{_id _type name label birthPlace{_id label}}}
+     */
+    private QueryPattern personQuery() {
+        SubQueriesPattern cityFields = new SubQueriesPattern();
+        cityFields.add(field("x_1_5", "x_1_5_1", "_id", "String"));
+        cityFields.add(field("x_1_5", "x_1_5_2", "label", "String"));
+
+        SubQueriesPattern personFields = new SubQueriesPattern();
+        personFields.add(field("x_1", "x_1_1", "_id", "String"));
+        personFields.add(field("x_1", "x_1_2", "_type", "String"));
+        personFields.add(field("x_1", "x_1_3", "name", "String"));
+        personFields.add(field("x_1", "x_1_4", "label", "String"));
+        personFields.add(field("x_1", "x_1_5", "birthPlace", "City", cityFields));
+        return field("null", "x_1", "Person", "Person", personFields);
+    }
+
+    private QueryPattern field(String parentId, String nodeId, String name, String targetType) {
+        return field(parentId, nodeId, name, targetType, null);
+    }
+
+    private QueryPattern field(String parentId, String nodeId, String name, String targetType, SubQueriesPattern fields) {
+        return new QueryPatternBuilder()
+                .setName(name)
+                .setNodeId(nodeId)
+                .setParentId(parentId)
+                .setTargetType(targetType)
+                .setArgs(new HashMap<>())
+                .setFields(fields)
+                .createQueryPattern();
+    }
+}
@@ -0,0 +1,94 @@
+package org.hypergraphql.datafetching.services;
+
+import org.hypergraphql.config.system.ServiceConfig;
+import org.hypergraphql.datafetching.ExecutionContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceBulkheadTest {
+
+    @Test
+    void queued_executions_start_when_a_slot_is_freed() throws Exception {
+        ServiceBulkhead bulkhead = new ServiceBulkhead("service", 1, 10, ServiceConfig.OVERFLOW_QUEUE);
+        ExecutionContext context = new ExecutionContext(4);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        CompletableFuture<Integer> first = bulkhead.submit(() -> {
+            started.countDown();
+            release.await();
+            return executions.incrementAndGet();
+        }, context, () -> -1);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Integer> second = bulkhead.submit(executions::incrementAndGet, context, () -> -1);
+        assertEquals(1, bulkhead.getMetrics().get("inFlight"));
+        assertEquals(1, bulkhead.getMetrics().get("queued"));
+        assertEquals(0, executions.get());
+        release.countDown();
+        assertEquals(1, (int) first.get(5, TimeUnit.SECONDS));
+        assertEquals(2, (int) second.get(5, TimeUnit.SECONDS));
+        Thread.sleep(50);   // the slot is released after the completion of the future
+        assertEquals(0, bulkhead.getMetrics().get("inFlight"));
+        assertEquals(0, bulkhead.getMetrics().get("queued"));
+    }
+
+    @Test
+    void overflow_degrade_omits_the_execution() throws Exception {
+        ServiceBulkhead bulkhead = new ServiceBulkhead("service", 1, 10, ServiceConfig.OVERFLOW_DEGRADE);
+        ExecutionContext context = new ExecutionContext(4);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> first = bulkhead.submit(() -> {
+            release.await();
+            return 1;
+        }, context, () -> -1);
+        assertEquals(-1, (int) bulkhead.submit(() -> 2, context, () -> -1).join());
+        assertEquals(-1, (int) bulkhead.submit(() -> 3, context, () -> -1).join());
+        release.countDown();
+        assertEquals(1, (int) first.get(5, TimeUnit.SECONDS));
+        assertEquals(2L, bulkhead.getMetrics().get("degradedExecutions"));
+        assertEquals(1, context.getErrors().size());
+        assertFalse(context.isCancelled());
+    }
+
+    @Test
+    void overflow_shed_cancels_the_request() throws Exception {
+        ServiceBulkhead bulkhead = new ServiceBulkhead("service", 1, 10, ServiceConfig.OVERFLOW_SHED);
+        ExecutionContext context = new ExecutionContext(4);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> first = bulkhead.submit(() -> {
+            release.await();
+            return 1;
+        }, context, () -> -1);
+        CompletableFuture<Integer> second = bulkhead.submit(() -> 2, context, () -> -1);
+        CompletionException e = assertThrows(CompletionException.class, second::join);
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+        assertTrue(context.isCancelled());
+        release.countDown();
+        assertEquals(1, (int) first.get(5, TimeUnit.SECONDS));
+        assertEquals(1L, bulkhead.getMetrics().get("shedExecutions"));
+    }
+
+    @Test
+    void full_queue_degrades_the_execution() throws Exception {
+        ServiceBulkhead bulkhead = new ServiceBulkhead("service", 1, 1, ServiceConfig.OVERFLOW_QUEUE);
+        ExecutionContext context = new ExecutionContext(4);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> first = bulkhead.submit(() -> {
+            release.await();
+            return 1;
+        }, context, () -> -1);
+        CompletableFuture<Integer> second = bulkhead.submit(() -> 2, context, () -> -1);
+        assertEquals(-1, (int) bulkhead.submit(() -> 3, context, () -> -1).join());
+        release.countDown();
+        assertEquals(1, (int) first.get(5, TimeUnit.SECONDS));
+        assertEquals(2, (int) second.get(5, TimeUnit.SECONDS));
+    }
+}
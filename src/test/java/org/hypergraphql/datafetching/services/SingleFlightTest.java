@@ -0,0 +1,146 @@
+package org.hypergraphql.datafetching.services;
+
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.hypergraphql.datafetching.SPARQLExecutionResult;
+import org.hypergraphql.datafetching.services.resultmodel.ObjectResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final String ALICE = "http://www.example.org/alice";
+    private static final String BOB = "http://www.example.org/bob";
+
+    @Test
+    void concurrent_executions_of_the_same_query_share_one_execution() throws Exception {
+        SingleFlight singleFlight = new SingleFlight("service");
+        CompletableFuture<SPARQLExecutionResult> execution = new CompletableFuture<>();
+        AtomicInteger executions = new AtomicInteger();
+        CompletableFuture<SPARQLExecutionResult> first = singleFlight.execute("query", () -> {
+            executions.incrementAndGet();
+            return execution;
+        });
+        CompletableFuture<SPARQLExecutionResult> second = singleFlight.execute("query", () -> {
+            executions.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        assertEquals(1, singleFlight.getMetrics().get("inFlight"));
+        execution.complete(result(ALICE));
+
+        SPARQLExecutionResult firstResult = first.get(5, TimeUnit.SECONDS);
+        SPARQLExecutionResult secondResult = second.get(5, TimeUnit.SECONDS);
+        assertEquals(1, executions.get());
+        assertEquals(1L, singleFlight.getMetrics().get("coalescedExecutions"));
+        assertEquals(0, singleFlight.getMetrics().get("inFlight"));
+
+        // each caller merges into its own copy
+        assertNotSame(firstResult.getResult(), secondResult.getResult());
+        firstResult.getResult().merge(result(BOB).getResult());
+        firstResult.getResultSet().get("x_1").add(BOB);
+        assertEquals(Collections.singleton(ALICE), ((ObjectResult) secondResult.getResult()).getObjects());
+        assertEquals(Collections.singleton(ALICE), secondResult.getResultSet().get("x_1"));
+    }
+
+    @Test
+    void completed_and_different_queries_are_executed_again() {
+        SingleFlight singleFlight = new SingleFlight("service");
+        AtomicInteger executions = new AtomicInteger();
+        singleFlight.execute("query", () -> CompletableFuture.completedFuture(result(String.valueOf(executions.incrementAndGet())))).join();
+        singleFlight.execute("query", () -> CompletableFuture.completedFuture(result(String.valueOf(executions.incrementAndGet())))).join();
+        CompletableFuture<SPARQLExecutionResult> running = new CompletableFuture<>();
+        singleFlight.execute("query", () -> running);
+        singleFlight.execute("other query", () -> CompletableFuture.completedFuture(result(String.valueOf(executions.incrementAndGet())))).join();
+        assertEquals(3, executions.get());
+        assertEquals(0L, singleFlight.getMetrics().get("coalescedExecutions"));
+    }
+
+    @Test
+    void waiting_executions_are_executed_on_their_own_if_the_shared_execution_fails() throws Exception {
+        SingleFlight singleFlight = new SingleFlight("service");
+        CompletableFuture<SPARQLExecutionResult> execution = new CompletableFuture<>();
+        CompletableFuture<SPARQLExecutionResult> first = singleFlight.execute("query", () -> execution);
+        CompletableFuture<SPARQLExecutionResult> second = singleFlight.execute("query", () -> CompletableFuture.completedFuture(result(BOB)));
+        execution.completeExceptionally(new IllegalStateException("aborted"));
+
+        assertTrue(first.isCompletedExceptionally());
+        assertEquals(Collections.singleton(BOB), ((ObjectResult) second.get(5, TimeUnit.SECONDS).getResult()).getObjects());
+    }
+
+    @Test
+    void concurrent_streamed_executions_replay_the_solutions_of_one_execution() throws Exception {
+        SingleFlight singleFlight = new SingleFlight("service");
+        CompletableFuture<SPARQLExecutionResult> execution = new CompletableFuture<>();
+        AtomicReference<Consumer<QuerySolution>> leader = new AtomicReference<>();
+        List<QuerySolution> first = new ArrayList<>();
+        List<QuerySolution> second = new ArrayList<>();
+        AtomicInteger executions = new AtomicInteger();
+        CompletableFuture<SPARQLExecutionResult> firstExecution = singleFlight.stream("query", first::add, consumer -> {
+            executions.incrementAndGet();
+            leader.set(consumer);
+            return execution;
+        });
+        leader.get().accept(solution(ALICE));
+        CompletableFuture<SPARQLExecutionResult> secondExecution = singleFlight.stream("query", second::add, consumer -> {
+            executions.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        leader.get().accept(solution(BOB));
+        assertTrue(second.isEmpty());   // the solutions are replayed once the execution is complete
+        execution.complete(result(ALICE));
+
+        firstExecution.get(5, TimeUnit.SECONDS);
+        assertNull(secondExecution.get(5, TimeUnit.SECONDS));
+        assertEquals(1, executions.get());
+        assertEquals(first, second);
+        assertEquals(2, second.size());
+        assertEquals(1L, singleFlight.getMetrics().get("coalescedExecutions"));
+    }
+
+    @Test
+    void streamed_executions_are_executed_on_their_own_if_the_shared_result_is_incomplete() throws Exception {
+        SingleFlight singleFlight = new SingleFlight("service");
+        CompletableFuture<SPARQLExecutionResult> execution = new CompletableFuture<>();
+        singleFlight.stream("query", solution -> { }, consumer -> execution);
+        List<QuerySolution> solutions = new ArrayList<>();
+        CompletableFuture<SPARQLExecutionResult> second = singleFlight.stream("query", solutions::add, consumer -> {
+            consumer.accept(solution(BOB));
+            return CompletableFuture.completedFuture(result(BOB));
+        });
+        SPARQLExecutionResult degraded = result(ALICE);
+        degraded.setIncomplete(true);   // e.g. shed by the bulkhead
+        execution.complete(degraded);
+
+        assertEquals(Collections.singleton(BOB), ((ObjectResult) second.get(5, TimeUnit.SECONDS).getResult()).getObjects());
+        assertEquals(1, solutions.size());
+    }
+
+    private QuerySolution solution(String iri) {
+        QuerySolutionMap solution = new QuerySolutionMap();
+        solution.add("x_1", ResourceFactory.createResource(iri));
+        return solution;
+    }
+
+    private SPARQLExecutionResult result(String iri) {
+        ObjectResult persons = new ObjectResult("x_1", "Person");
+        persons.addObject(iri);
+        Map<String, Set<String>> resultSet = new HashMap<>();
+        resultSet.put("x_1", new HashSet<>(Collections.singleton(iri)));
+        return new SPARQLExecutionResult(resultSet, persons);
+    }
+}
@@ -0,0 +1,54 @@
+package org.hypergraphql.datafetching.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValuesChunkSizerTest {
+
+    @Test
+    void fast_chunks_grow_the_chunk_size_up_to_the_maximum() {
+        ValuesChunkSizer sizer = new ValuesChunkSizer(100, 10, 200, 1000, 10000);
+        sizer.recordSuccess(100, 50, 300);
+        assertEquals(125, sizer.getChunkSize());
+        for (int i = 0; i < 10; i++) {
+            sizer.recordSuccess(sizer.getChunkSize(), 50, 300);
+        }
+        assertEquals(200, sizer.getChunkSize());
+    }
+
+    @Test
+    void small_chunks_do_not_grow_the_chunk_size() {
+        ValuesChunkSizer sizer = new ValuesChunkSizer(100, 10, 200, 1000, 10000);
+        sizer.recordSuccess(20, 50, 60);
+        sizer.recordSuccess(0, 50, 60);
+        assertEquals(100, sizer.getChunkSize());
+    }
+
+    @Test
+    void slow_chunks_shrink_the_chunk_size_proportionally() {
+        ValuesChunkSizer sizer = new ValuesChunkSizer(100, 10, 200, 1000, 10000);
+        sizer.recordSuccess(100, 1250, 300);
+        assertEquals(80, sizer.getChunkSize());
+        sizer.recordSuccess(80, 10000, 300);
+        assertEquals(40, sizer.getChunkSize());
+    }
+
+    @Test
+    void failures_and_truncated_results_halve_the_chunk_size_down_to_the_minimum() {
+        ValuesChunkSizer sizer = new ValuesChunkSizer(100, 30, 200, 1000, 10000);
+        sizer.recordSuccess(100, 50, 10000);
+        assertEquals(50, sizer.getChunkSize());
+        sizer.recordFailure(50);
+        assertEquals(30, sizer.getChunkSize());
+        assertEquals(1L, sizer.getMetrics().get("failedChunks"));
+    }
+
+    @Test
+    void equal_bounds_fix_the_chunk_size() {
+        ValuesChunkSizer sizer = new ValuesChunkSizer(100, 100, 100, 1000, 10000);
+        sizer.recordSuccess(100, 10, 10);
+        sizer.recordFailure(100);
+        assertEquals(100, sizer.getChunkSize());
+    }
+}
@@ -1,7 +1,13 @@
 package org.hypergraphql.datafetching.services.resultmodel;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hypergraphql.query.converters.SPARQLServiceConverter;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,7 +35,7 @@ class ObjectResultTest {
         ObjectResult obj = new ObjectResult("?x_1", "ex_Person");
         StringResult name = new StringResult("?x_1_1", "name");
         name.addString(BOB);
-        HashMap<String, Result> bob_fields =  new HashMap<String, Result>();
+        HashMap<String, Result<?>> bob_fields =  new HashMap<String, Result<?>>();
         bob_fields.put("name", name);
         obj.addObject(IRI_BOB, bob_fields);
         assertEquals(bob_fields, obj.getSubfiedldsOfObject(IRI_BOB));
@@ -46,7 +52,7 @@ class ObjectResultTest {
         assertTrue(obj.subfields.get(IRI_BOB).isEmpty());
 
         // Testing insertion of object data to existing entity
-        HashMap<String, Result> bob_fields =  new HashMap<String, Result>();
+        HashMap<String, Result<?>> bob_fields =  new HashMap<String, Result<?>>();
         bob_fields.put("name", name);
         obj.addObject(IRI_BOB, bob_fields);
         assertTrue(obj.subfields.size() == 1);
@@ -65,7 +71,7 @@ class ObjectResultTest {
         // Testing the merging of different subfields for the same entity/IRI
         StringResult address = new StringResult("?x_1_2", "address");
         address.addString("Evergreen Terrace");
-        HashMap<String, Result> bob_fields_2 =  new HashMap<String, Result>();
+        HashMap<String, Result<?>> bob_fields_2 =  new HashMap<String, Result<?>>();
         bob_fields_2.put("address", address);
         obj.addObject(IRI_BOB, bob_fields_2);
         assertTrue(obj.subfields.size() == 1);
@@ -82,7 +88,7 @@ class ObjectResultTest {
         alice_name.addString("Alice");
         StringResult alice_surname = new StringResult("?x_1_2", "surname");
         alice_surname.addString("Rivest");
-        HashMap<String, Result> alice_fields =  new HashMap<String, Result>();
+        HashMap<String, Result<?>> alice_fields =  new HashMap<String, Result<?>>();
         alice_fields.put("name", alice_name);
         alice_fields.put("surname", alice_surname);
         obj.addObject(IRI_ALICE, alice_fields);
@@ -108,7 +114,7 @@ class ObjectResultTest {
         StringResult name = new StringResult("?x_1_1", "name");
         name.addString(BOB);
         name.isList(true);
-        HashMap<String, Result> bob_fields =  new HashMap<String, Result>();
+        HashMap<String, Result<?>> bob_fields =  new HashMap<String, Result<?>>();
         bob_fields.put("name", name);
 
         obj_a.addObject(IRI_BOB, bob_fields);
@@ -134,13 +140,13 @@ class ObjectResultTest {
         // Add field with object as output
         ObjectResult address = new ObjectResult("?x_1_1", "ex_address");
         address.addObject(IRI_ADDR_B);
-        HashMap<String, Result> fields =  new HashMap<String, Result>();
+        HashMap<String, Result<?>> fields =  new HashMap<String, Result<?>>();
         fields.put("ex_address", address);
         obj_a.addObject(IRI_BOB, fields);
 
         StringResult street_b = new StringResult("?x_1_1_1", "street");
         street_b.addString(STREET_B);
-        HashMap<String, Result> subfields_b =  new HashMap<String, Result>();
+        HashMap<String, Result<?>> subfields_b =  new HashMap<String, Result<?>>();
         subfields_b.put("street", street_b);
         address.addObject(IRI_ADDR_B, subfields_b);
 
@@ -163,7 +169,7 @@ class ObjectResultTest {
         ObjectResult obj_a = new ObjectResult("?x_1", "ex_Person");
         StringResult name = new StringResult("?x_1_1", "name");
         name.addString(BOB);
-        HashMap<String, Result> bob_fields =  new HashMap<String, Result>();
+        HashMap<String, Result<?>> bob_fields =  new HashMap<String, Result<?>>();
         bob_fields.put("name", name);
 
         obj_a.addObject(IRI_BOB, bob_fields);
@@ -178,7 +184,7 @@ class ObjectResultTest {
         name_b.addString(BOB_SECOND);
         StringResult address_b = new StringResult("?x_1_2", "address");
         address_b.addString("Evergreen Terrace");
-        HashMap<String, Result> bob_fields_b =  new HashMap<String, Result>();
+        HashMap<String, Result<?>> bob_fields_b =  new HashMap<String, Result<?>>();
         bob_fields_b.put("name", name_b);
         bob_fields_b.put("address", address_b);
 
@@ -188,7 +194,7 @@ class ObjectResultTest {
         alice_name.addString("Alice");
         StringResult alice_surname = new StringResult("?x_1_2", "surname");
         alice_surname.addString("Rivest");
-        HashMap<String, Result> alice_fields =  new HashMap<String, Result>();
+        HashMap<String, Result<?>> alice_fields =  new HashMap<String, Result<?>>();
         alice_fields.put("name", alice_name);
         alice_fields.put("surname", alice_surname);
 
@@ -217,7 +223,7 @@ class ObjectResultTest {
         ObjectResult obj_error = new ObjectResult("?x_1", "ex_Error");
         StringResult error = new StringResult("?x_1_1", "error");
         error.addString(ERROR);
-        HashMap<String, Result> error_fields =  new HashMap<String, Result>();
+        HashMap<String, Result<?>> error_fields =  new HashMap<String, Result<?>>();
         error_fields.put("name", error);
 
         obj_error.addObject(IRI_BOB, error_fields);
@@ -232,20 +238,20 @@ class ObjectResultTest {
         ObjectResult obj_a = new ObjectResult("?x_1", "ex_Person");
         ObjectResult address = new ObjectResult("?x_1_1", "ex_address");
         address.addObject(IRI_ADDR_A);
-        HashMap<String, Result> fields =  new HashMap<String, Result>();
+        HashMap<String, Result<?>> fields =  new HashMap<String, Result<?>>();
         fields.put("ex_address", address);
         obj_a.addObject(IRI_BOB, fields);
 
         ObjectResult address_b = new ObjectResult("?x_1_1", "ex_address");
         StringResult street_b = new StringResult("?x_1_1_1", "street");
         street_b.addString(STREET_B);
-        HashMap<String, Result> subfields_b =  new HashMap<String, Result>();
+        HashMap<String, Result<?>> subfields_b =  new HashMap<String, Result<?>>();
         subfields_b.put("street", street_b);
         address_b.addObject(IRI_ADDR_B, subfields_b);
 
         StringResult street = new StringResult("?x_1_1_1", "street");
         street.addString(STREET_A);
-        HashMap<String, Result> subfields =  new HashMap<String, Result>();
+        HashMap<String, Result<?>> subfields =  new HashMap<String, Result<?>>();
         subfields.put("street", street);
         address_b.addObject(IRI_ADDR_A, subfields);
 
@@ -261,4 +267,117 @@ class ObjectResultTest {
         assertTrue(((StringResult)((ObjectResult) obj_a.subfields.get(IRI_BOB).get("ex_address")).subfields.get(IRI_ADDR_A).get("street")).values.contains(STREET_A));
     }
 
-}
\ No newline at end of file
+    @Test
+    void writeJSON() throws Exception {
+        Map<String, Object> args = new HashMap<>();
+        args.put(SPARQLServiceConverter.ORDER, SPARQLServiceConverter.ORDER_ASC);
+        ObjectResult obj_a = new ObjectResult("?x_1", "ex_Person", "persons", args);
+        obj_a.isList(true);
+        for (String person : new String[]{ALICE, BOB, EVE}) {
+            StringResult name = new StringResult("?x_1_1", "name");
+            name.addString(person);
+            ObjectResult address = new ObjectResult("?x_1_2", "ex_address");
+            StringResult street = new StringResult("?x_1_2_1", "street");
+            street.addString(STREET_A);
+            street.addString(STREET_B);   // not a list, returned as list with an error
+            HashMap<String, Result<?>> address_fields = new HashMap<>();
+            address_fields.put("street", street);
+            address.addObject(IRI_ADDR_A, address_fields);
+            HashMap<String, Result<?>> fields = new HashMap<>();
+            fields.put("name", name);
+            fields.put("ex_address", address);
+            obj_a.addObject(IRI + person, fields);
+        }
+        QueryRootResult root = new QueryRootResult("root", "Query");
+        root.merge(obj_a);
+
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode written = mapper.readTree(mapper.writeValueAsString(root));
+        String writeErrors = root.getErrors();
+        JsonNode generated = mapper.valueToTree(root.generateJSON());
+
+        assertEquals(generated, written);
+        assertEquals(3, written.get("persons").size());
+        assertTrue(written.get("persons").get(0).has("name"));
+        assertEquals(2, written.get("persons").get(0).get("ex_address").get("street").size());
+        assertTrue(writeErrors.startsWith("Schema Error for street"));
+    }
+
+    @Test
+    void mergeOrdered() {
+        Comparator<String> order = ObjectResult.entityOrder(args(SPARQLServiceConverter.ORDER_DESC));
+        ObjectResult chunk_a = persons(IRI + EVE, IRI_ALICE);
+        ObjectResult chunk_b = persons(IRI_BOB, IRI_ALICE);   // Alice in both chunks
+        ObjectResult chunk_c = persons(IRI + "Carol", IRI + "Dave");   // not in order
+
+        ObjectResult merged = (ObjectResult) ObjectResult.mergeOrdered(Arrays.asList(chunk_a, null, chunk_b, chunk_c), order, 4);
+
+        assertEquals(Arrays.asList(IRI + EVE, IRI + "Dave", IRI + "Carol", IRI_BOB), new ArrayList<>(merged.subfields.keySet()));
+
+        // without limit all distinct entities are merged
+        ObjectResult all = (ObjectResult) ObjectResult.mergeOrdered(Arrays.asList(persons(IRI + EVE, IRI_ALICE), persons(IRI_BOB, IRI_ALICE)), order, Long.MAX_VALUE);
+        assertEquals(Arrays.asList(IRI + EVE, IRI_BOB, IRI_ALICE), new ArrayList<>(all.subfields.keySet()));
+        assertNull(ObjectResult.mergeOrdered(Arrays.asList(null, null), order, 4));
+    }
+
+    @Test
+    void mergeOrdered_merges_entities_of_multiple_results() {
+        ObjectResult chunk_a = persons(IRI_ALICE);
+        ObjectResult chunk_b = persons(IRI_ALICE, IRI_BOB);
+        StringResult name = new StringResult("?x_1_1", "name");
+        name.addString(ALICE);
+        chunk_b.subfields.get(IRI_ALICE).put("name", name);
+
+        ObjectResult merged = (ObjectResult) ObjectResult.mergeOrdered(Arrays.asList(chunk_a, chunk_b), Comparator.naturalOrder(), 1);
+
+        assertEquals(1, merged.subfields.size());
+        assertTrue(merged.subfields.get(IRI_ALICE).containsKey("name"));
+        assertTrue(merged.subfields.get(IRI_ALICE).containsKey("surname"));
+    }
+
+    @Test
+    void firstOrdered() {
+        List<String> iris = Arrays.asList("d", "a", "e", "c", "b");
+        assertEquals(Arrays.asList("a", "b"), ObjectResult.firstOrdered(iris, Comparator.naturalOrder(), 2));
+        assertEquals(Arrays.asList("e", "d", "c"), ObjectResult.firstOrdered(iris, Comparator.reverseOrder(), 3));
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), ObjectResult.firstOrdered(iris, Comparator.naturalOrder(), 10));
+        assertTrue(ObjectResult.firstOrdered(iris, Comparator.naturalOrder(), 0).isEmpty());
+    }
+
+    @Test
+    void copy() {
+        ObjectResult persons = persons(IRI_ALICE, IRI_BOB);
+        persons.isList(true);
+        ObjectResult copy = persons.copy();
+        assertEquals(persons.generateJSON(), copy.generateJSON());
+
+        // merging into the copy does not change the original and vice versa
+        copy.merge(persons(IRI + EVE));
+        ((StringResult) copy.subfields.get(IRI_ALICE).get("surname")).addString(ALICE);
+        persons.merge(persons(IRI + "Carol"));
+        assertEquals(Arrays.asList(IRI_ALICE, IRI_BOB, IRI + "Carol"), new ArrayList<>(persons.subfields.keySet()));
+        assertEquals(Arrays.asList(IRI_ALICE, IRI_BOB, IRI + EVE), new ArrayList<>(copy.subfields.keySet()));
+        assertEquals(1, ((StringResult) persons.subfields.get(IRI_ALICE).get("surname")).size());
+        assertEquals(2, ((StringResult) copy.subfields.get(IRI_ALICE).get("surname")).size());
+        assertTrue(copy.isList());
+    }
+
+    private Map<String, Object> args(String order) {
+        Map<String, Object> args = new HashMap<>();
+        args.put(SPARQLServiceConverter.ORDER, order);
+        return args;
+    }
+
+    /**
+     * Persons with the given IRIs in the given order, each with a surname.
+     */
+    private ObjectResult persons(String... iris) {
+        ObjectResult persons = new ObjectResult("?x_1", "ex_Person");
+        for (String iri : iris) {
+            StringResult surname = new StringResult("?x_1_2", "surname");
+            surname.addString(iri);
+            persons.addObject(iri).put("surname", surname);
+        }
+        return persons;
+    }
+}
@@ -0,0 +1,94 @@
+package org.hypergraphql.datafetching.services.resultmodel;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultIndexTest {
+
+    final String IRI = "http://example.org/";
+    final String IRI_ALICE = IRI + "Alice";
+    final String IRI_BOB = IRI + "Bob";
+    final String IRI_ADDR_A = IRI + "addr_a";
+    final String IRI_ADDR_B = IRI + "addr_b";
+    final String IRI_CITY = IRI + "Springfield";
+
+    @Test
+    void results_are_merged_into_all_entities_with_the_same_iri() {
+        ObjectResult persons = persons();
+        ResultIndex index = new ResultIndex(persons);
+
+        index.merge(object("?x_1_1", "ex_address", IRI_ADDR_A, "street", "Evergreen Terrace"));
+        index.merge(object("?x_1_1", "ex_address", IRI_ADDR_A, "zip", "12345"));
+
+        for (String person : new String[]{IRI_ALICE, IRI_BOB}) {
+            Map<String, Result<?>> address = address(persons, person).subfields.get(IRI_ADDR_A);
+            assertTrue(((StringResult) address.get("street")).values.contains("Evergreen Terrace"));
+            assertTrue(((StringResult) address.get("zip")).values.contains("12345"));
+        }
+    }
+
+    @Test
+    void results_are_merged_into_deeper_levels() {
+        ObjectResult persons = persons();
+        ObjectResult city = new ObjectResult("?x_1_1_2", "ex_city");
+        city.addObject(IRI_CITY);
+        address(persons, IRI_BOB).subfields.get(IRI_ADDR_B).put("ex_city", city);
+
+        new ResultIndex(persons).merge(object("?x_1_1_2", "ex_city", IRI_CITY, "label", "Springfield"));
+
+        assertTrue(((StringResult) city.subfields.get(IRI_CITY).get("label")).values.contains("Springfield"));
+    }
+
+    @Test
+    void unknown_entities_are_not_added() {
+        ObjectResult persons = persons();
+
+        new ResultIndex(persons).merge(object("?x_1_1", "ex_address", IRI + "addr_c", "street", "Main Street"));
+
+        assertFalse(address(persons, IRI_ALICE).subfields.containsKey(IRI + "addr_c"));
+        assertFalse(address(persons, IRI_BOB).subfields.containsKey(IRI + "addr_c"));
+    }
+
+    @Test
+    void results_of_the_root_level_are_merged() {
+        ObjectResult persons = persons();
+
+        new ResultIndex(persons).merge(object("?x_1", "ex_Person", IRI_ALICE, "name", "Alice"));
+
+        assertTrue(((StringResult) persons.subfields.get(IRI_ALICE).get("name")).values.contains("Alice"));
+        assertNull(persons.subfields.get(IRI_BOB).get("name"));
+    }
+
+    /**
+     * Alice lives at addr_a, Bob at addr_a and addr_b.
+     */
+    private ObjectResult persons() {
+        ObjectResult persons = new ObjectResult("?x_1", "ex_Person");
+        ObjectResult alice = new ObjectResult("?x_1_1", "ex_address");
+        alice.addObject(IRI_ADDR_A);
+        ObjectResult bob = new ObjectResult("?x_1_1", "ex_address");
+        bob.addObject(IRI_ADDR_A);
+        bob.addObject(IRI_ADDR_B);
+        persons.addObject(IRI_ALICE).put("ex_address", alice);
+        persons.addObject(IRI_BOB).put("ex_address", bob);
+        return persons;
+    }
+
+    private ObjectResult address(ObjectResult persons, String person) {
+        return (ObjectResult) persons.subfields.get(person).get("ex_address");
+    }
+
+    private ObjectResult object(String nodeId, String name, String iri, String field, String value) {
+        ObjectResult object = new ObjectResult(nodeId, name);
+        StringResult string = new StringResult(nodeId + "_1", field);
+        string.addString(value);
+        Map<String, Result<?>> subfields = new HashMap<>();
+        subfields.put(field, string);
+        object.addObject(iri, subfields);
+        return object;
+    }
+}
@@ -1,5 +1,6 @@
 package org.hypergraphql.datafetching.services.resultmodel;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hypergraphql.query.converters.SPARQLServiceConverter;
 import org.junit.jupiter.api.Test;
 
@@ -115,4 +116,30 @@ class StringResultTest {
 
         assertFalse(res_a.values.contains(ERROR));
     }
-}
\ No newline at end of file
+
+    @Test
+    void writeJSON() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        StringResult res = new StringResult("?x_1_1", "name");
+        assertEquals("null", mapper.writeValueAsString(res));
+        res.addString(ALICE);
+        assertEquals("\"" + ALICE + "\"", mapper.writeValueAsString(res));
+
+        // isList=false and |values|>1 => list and error as in generateJSON
+        res.addString(BOB);
+        assertEquals(2, mapper.readTree(mapper.writeValueAsString(res)).size());
+        assertNotEquals("", res.errors);
+
+        StringResult res_list = new StringResult("?x_1_1", "name");
+        res_list.isList(true);
+        res_list.addString(EVE);
+        res_list.addString(BOB);
+        res_list.addString(ALICE);
+        Map<String, Object> arguments = new HashMap<>();
+        arguments.put(SPARQLServiceConverter.ORDER, SPARQLServiceConverter.ORDER_DESC);
+        arguments.put(SPARQLServiceConverter.LIMIT, 2);
+        res_list.args = arguments;
+        assertEquals("[\"" + EVE + "\",\"" + BOB + "\"]", mapper.writeValueAsString(res_list));
+        assertEquals("", res_list.errors);
+    }
+}
@@ -0,0 +1,52 @@
+package org.hypergraphql.datafetching.services.resultmodel;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubfieldMapTest {
+
+    @Test
+    void put_get_and_remove() {
+        SubfieldMap map = new SubfieldMap();
+        StringResult name = new StringResult("?x_1_1", "name");
+        StringResult address = new StringResult("?x_1_2", "address");
+        StringResult other = new StringResult("?x_1_1", "name");
+
+        assertNull(map.put("name", name));
+        assertNull(map.put("address", address));
+        assertEquals(name, map.put(new String("name"), other));   // equal key, other instance
+        assertEquals(2, map.size());
+        assertEquals(other, map.get("name"));
+        assertTrue(map.containsKey("address"));
+        assertFalse(map.containsKey("street"));
+        assertEquals(Arrays.asList("name", "address"), new ArrayList<>(map.keySet()));
+
+        assertEquals(address, map.remove("address"));
+        assertEquals(1, map.size());
+        assertNull(map.get("address"));
+    }
+
+    @Test
+    void equals_and_iterator_remove() {
+        Map<String, Result<?>> fields = new HashMap<>();
+        fields.put("name", new StringResult("?x_1_1", "name"));
+        fields.put("address", new StringResult("?x_1_2", "address"));
+        SubfieldMap map = new SubfieldMap(fields);
+        assertEquals(fields, map);
+
+        Iterator<Map.Entry<String, Result<?>>> iterator = map.entrySet().iterator();
+        iterator.next();
+        iterator.remove();
+        assertEquals(1, map.size());
+        assertTrue(iterator.hasNext());
+        iterator.next();
+        assertFalse(iterator.hasNext());
+    }
+}
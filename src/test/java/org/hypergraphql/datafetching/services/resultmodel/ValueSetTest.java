@@ -0,0 +1,40 @@
+package org.hypergraphql.datafetching.services.resultmodel;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValueSetTest {
+
+    @Test
+    void values_are_distinct_and_in_insertion_order() {
+        ValueSet values = new ValueSet();
+        assertTrue(values.add("Bob"));
+        assertTrue(values.add("Alice"));
+        assertFalse(values.add(new String("Bob")));
+        assertEquals(Arrays.asList("Bob", "Alice"), new ArrayList<>(values));
+        assertEquals(new HashSet<>(Arrays.asList("Alice", "Bob")), values);
+    }
+
+    @Test
+    void large_sets_use_the_index() {
+        ValueSet values = new ValueSet();
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < ValueSet.INDEX_THRESHOLD * 4; i++) {
+            assertTrue(values.add("value" + i));
+            assertFalse(values.add("value" + i));
+            expected.add("value" + i);
+        }
+        assertEquals(expected.size(), values.size());
+        assertEquals(expected, values);
+        values.removeIf(value -> value.endsWith("1"));
+        expected.removeIf(value -> value.endsWith("1"));
+        assertEquals(expected, values);
+        assertTrue(values.add("value1"));
+    }
+}
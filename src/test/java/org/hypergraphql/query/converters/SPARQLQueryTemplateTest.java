@@ -0,0 +1,74 @@
+package org.hypergraphql.query.converters;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SPARQLQueryTemplateTest {
+
+    private static final int PER_PARENT_THRESHOLD = 2;
+
+    @Test
+    void fill_inserts_values_clause_into_all_slots() {
+        SPARQLQueryTemplate template = new SPARQLQueryTemplate("SELECT * WHERE { " + SPARQLQueryTemplate.VALUES_SLOT
+                + "?x_1 <http://example.org/p> ?x_1_1 . OPTIONAL { { SELECT * WHERE { " + SPARQLQueryTemplate.VALUES_SLOT
+                + "?x_1 <http://example.org/q> ?x_1_2 . } LIMIT 1 } } } ", "x_1");
+        Set<String> input = new LinkedHashSet<>(Arrays.asList("http://example.org/a", "http://example.org/b"));
+        String values = "VALUES ?x_1 { <http://example.org/a> <http://example.org/b> } ";
+
+        assertEquals(2, template.getSlots());
+        assertEquals("SELECT * WHERE { " + values + "?x_1 <http://example.org/p> ?x_1_1 . OPTIONAL { { SELECT * WHERE { "
+                + values + "?x_1 <http://example.org/q> ?x_1_2 . } LIMIT 1 } } } ", template.fill(input));
+    }
+
+    @Test
+    void fill_without_slot_returns_the_query() {
+        String query = "SELECT * WHERE { ?x_1 a <http://example.org/Person> } ";
+        SPARQLQueryTemplate template = new SPARQLQueryTemplate(query);
+        assertEquals(0, template.getSlots());
+        assertSame(query, template.fill(new HashSet<>(Collections.singletonList("http://example.org/a"))));
+    }
+
+    @Test
+    void fill_with_empty_input() {
+        SPARQLQueryTemplate template = new SPARQLQueryTemplate(SPARQLQueryTemplate.VALUES_SLOT + "?x_1 ?p ?o .", "x_1");
+        assertEquals("VALUES ?x_1 {  } ?x_1 ?p ?o .", template.fill(new HashSet<>()));
+    }
+
+    @Test
+    void fill_per_parent_clause_with_few_parents() {
+        SPARQLQueryTemplate template = perParentTemplate();
+        Set<String> input = new LinkedHashSet<>(Arrays.asList("http://example.org/a", "http://example.org/b"));
+
+        assertEquals("VALUES ?x_1 { <http://example.org/a> <http://example.org/b> } OPTIONAL { "
+                + "{ { SELECT * WHERE { ?x_1 ?p <http://example.org/a> . } LIMIT 1 } UNION "
+                + "{ SELECT * WHERE { ?x_1 ?p <http://example.org/b> . } LIMIT 1 } } } ", template.fill(input));
+    }
+
+    @Test
+    void fill_per_parent_clause_with_many_parents() {
+        SPARQLQueryTemplate template = perParentTemplate();
+        Set<String> input = new LinkedHashSet<>();
+        for (int i = 0; i <= PER_PARENT_THRESHOLD; i++) {
+            input.add("http://example.org/" + i);
+        }
+
+        String query = template.fill(input);
+        assertTrue(query.endsWith("OPTIONAL { { SELECT ?x_1 ?p WHERE { ?x_1 ?p ?o . } } } "));
+        assertFalse(query.contains(" UNION "));
+        assertFalse(query.contains(SPARQLQueryTemplate.PARENT_SLOT));
+    }
+
+    private SPARQLQueryTemplate perParentTemplate() {
+        return new SPARQLQueryTemplate(SPARQLQueryTemplate.VALUES_SLOT + "OPTIONAL { "
+                + SPARQLQueryTemplate.perParentClause("{ SELECT * WHERE { ?x_1 ?p <" + SPARQLQueryTemplate.PARENT_SLOT + "> . } LIMIT 1 }",
+                "{ SELECT ?x_1 ?p WHERE { ?x_1 ?p ?o . } } ")
+                + "} ", "x_1", PER_PARENT_THRESHOLD);
+    }
+}
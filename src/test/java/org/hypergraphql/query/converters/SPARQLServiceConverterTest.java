@@ -0,0 +1,332 @@
+package org.hypergraphql.query.converters;
+
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.hypergraphql.datafetching.ExecutionTreeNode;
+import org.hypergraphql.datafetching.services.SPARQLEndpointService;
+import org.hypergraphql.config.schema.HGQLVocabulary;
+import org.hypergraphql.config.schema.TypeConfig;
+import org.hypergraphql.datamodel.HGQLSchema;
+import org.hypergraphql.query.pattern.QueryPattern;
+import org.hypergraphql.query.pattern.QueryPatternBuilder;
+import org.hypergraphql.query.pattern.SubQueriesPattern;
+import org.hypergraphql.query.pattern.UnionPattern;
+import org.hypergraphql.services.HGQLConfigService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SPARQLServiceConverterTest {
+
+    private static final String IRI = "http://www.example.org/";
+
+    private static HGQLSchema schema;
+    private static Model model;
+
+    @BeforeAll
+    static void load() {
+        final String configPath = "evaluation/limit_and_offset/config.json";
+        final InputStream inputStream = SPARQLServiceConverterTest.class.getClassLoader().getResourceAsStream(configPath);
+        schema = new HGQLConfigService().loadHGQLConfig(configPath, inputStream, true).getHgqlSchema();
+        model = ModelFactory.createDefaultModel();
+        RDFDataMgr.read(model, SPARQLServiceConverterTest.class.getClassLoader().getResourceAsStream("evaluation/limit_and_offset/dataset.ttl"), Lang.TURTLE);
+    }
+
+    @Test
+    void nested_limit_is_applied_per_parent_with_few_parents() {
+        String query = select(friends(2, 0, null), parents("alice", "Rust"));
+
+        assertTrue(query.contains(" UNION "));
+        assertEquals(firstTwoFriends(), friendsPerParent(query));
+    }
+
+    @Test
+    void nested_limit_is_applied_per_parent_with_many_parents() {
+        Set<String> parents = parents("alice", "Rust");
+        for (int i = 0; i < perParentThreshold(); i++) {
+            parents.add(IRI + "unknown_" + i);
+        }
+        String query = select(friends(2, 0, null), parents);
+
+        assertFalse(query.contains(" UNION "));
+        assertEquals(firstTwoFriends(), friendsPerParent(query));
+    }
+
+    @Test
+    void nested_offset_and_order_are_included_in_the_window() {
+        Set<String> parents = parents("alice");
+        for (int i = 0; i < perParentThreshold(); i++) {
+            parents.add(IRI + "unknown_" + i);
+        }
+        String windowed = select(friends(1, 1, SPARQLServiceConverter.ORDER_DESC), parents);
+        String perParent = select(friends(1, 1, SPARQLServiceConverter.ORDER_DESC), parents("alice"));
+
+        // descending: bob, Rust, Rick, ... -> the window contains the skipped and the selected friend
+        Map<String, Set<String>> expected = new TreeMap<>();
+        expected.put(IRI + "alice", iris("bob", "Rust"));
+        assertEquals(expected, friendsPerParent(windowed));
+        assertEquals(expected, friendsPerParent(perParent));
+    }
+
+    @Test
+    void values_with_the_same_string_value_do_not_share_a_rank() {
+        Resource tie = model.createResource(IRI + "tie");
+        tie.addProperty(model.createProperty(IRI + "label"), "Same", "en")
+                .addProperty(model.createProperty(IRI + "label"), "Same", "de")
+                .addProperty(model.createProperty(IRI + "label"), "Zed");
+        try {
+            Set<String> parents = parents("tie");
+            for (int i = 0; i < perParentThreshold(); i++) {
+                parents.add(IRI + "unknown_" + i);
+            }
+            assertEquals(1, labels(select(labels(1), parents)).size());
+            assertEquals(new TreeSet<>(Arrays.asList("Same@de", "Same@en")), labels(select(labels(2), parents)));
+            assertEquals(labels(select(labels(2), parents("tie"))), labels(select(labels(2), parents)));
+        } finally {
+            model.removeAll(tie, null, null);
+        }
+    }
+
+    @Test
+    void multi_valued_sibling_fields_are_queried_as_union_branches() {
+        SubQueriesPattern query = new SubQueriesPattern();
+        query.add(field("x_1_1", "label", "String"));
+        query.add(field("x_1_2", "friends", "Person"));
+        String sparql = select(query, parents("alice"));
+
+        assertTrue(sparql.contains(" UNION "));
+        int rows = 0;
+        Set<String> values = new TreeSet<>();
+        try (QueryExecution execution = QueryExecutionFactory.create(sparql, model)) {
+            ResultSet results = execution.execSelect();
+            while (results.hasNext()) {
+                QuerySolution solution = results.next();
+                rows++;
+                solution.varNames().forEachRemaining(var -> values.add(var + "=" + solution.get(var)));
+            }
+        }
+        assertEquals(3 + 5, rows);   // 3 labels plus 5 friends instead of 3 x 5
+        assertEquals(1 + 3 + 5, values.size());
+    }
+
+    @Test
+    void root_queries_are_queried_as_union_branches() {
+        Map<String, Object> ids = new HashMap<>();
+        ids.put(SPARQLServiceConverter.ID, Arrays.asList(IRI + "alice", IRI + "Rust"));
+        QueryPattern byId = root("x_1", ids);
+        Map<String, Object> limit = new HashMap<>();
+        limit.put(SPARQLServiceConverter.LIMIT, 2);
+        QueryPattern limited = root("x_2", limit);
+        SPARQLServiceConverter converter = new SPARQLServiceConverter(schema);
+        String sparql = converter.getSelectQuery(new UnionPattern(Arrays.asList(byId, limited)), new LinkedHashSet<>(), ExecutionTreeNode.ROOT_TYPE, "dataset");
+
+        assertTrue(sparql.contains(" UNION "));
+        Map<String, Set<String>> expected = new TreeMap<>();
+        expected.putAll(valuesPerRoot(converter.getSelectQuery(byId, parents("alice", "Rust"), ExecutionTreeNode.ROOT_TYPE, "dataset")));
+        expected.putAll(valuesPerRoot(converter.getSelectQuery(limited, new LinkedHashSet<>(), ExecutionTreeNode.ROOT_TYPE, "dataset")));
+        assertEquals(2, expected.size());
+        assertEquals(expected, valuesPerRoot(sparql));
+    }
+
+    @Test
+    void sameAs_types_of_the_schema_are_not_changed_by_the_queries() throws IOException {
+        final String configPath = "build/resources/test/evaluation/sameAs/config.json";   // the mapping of the schema extraction is read from the file system
+        HGQLSchema sameAsSchema;
+        try (InputStream inputStream = new FileInputStream(configPath)) {
+            sameAsSchema = new HGQLConfigService().loadHGQLConfig(configPath, inputStream, false).getHgqlSchema();
+        }
+        TypeConfig type = sameAsSchema.getTypes().values().stream()
+                .filter(typeConfig -> !typeConfig.getSameAs().isEmpty())
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No type with sameAs types"));
+        type.getSameAs().remove(type.getName());   // the extraction adds the type itself, which hides an added type
+        Set<String> sameAs = new HashSet<>(type.getSameAs());
+        Map<String, Object> ids = new HashMap<>();
+        ids.put(SPARQLServiceConverter.ID, Arrays.asList(IRI + "alice"));
+        QueryPattern query = new QueryPatternBuilder()
+                .setName(type.getName())
+                .setNodeId("x_1")
+                .setTargetType(type.getName())
+                .setArgs(ids)
+                .createQueryPattern();
+
+        new SPARQLServiceConverter(sameAsSchema).getSelectQuery(query, new LinkedHashSet<>(), ExecutionTreeNode.ROOT_TYPE, "dataset_1");
+        assertEquals(sameAs, type.getSameAs());
+    }
+
+    /**
+     * First two friends of alice and Rust in ascending order of their IRIs.
+     */
+    private Map<String, Set<String>> firstTwoFriends() {
+        Map<String, Set<String>> expected = new TreeMap<>();
+        expected.put(IRI + "alice", iris("Eve", "Morty"));
+        expected.put(IRI + "Rust", iris("Eve", "Morty"));
+        return expected;
+    }
+
+    private String select(SubQueriesPattern query, Set<String> parents) {
+        return new SPARQLServiceConverter(schema).getSelectQuery(query, parents, "Person", "dataset");
+    }
+
+    /**
+     * Query {friends(limit, offset, order)} of the Person with the variable ?x_1
+     */
+    private SubQueriesPattern friends(int limit, int offset, String order) {
+        Map<String, Object> args = new HashMap<>();
+        args.put(SPARQLServiceConverter.LIMIT, limit);
+        args.put(SPARQLServiceConverter.OFFSET, offset);
+        if (order != null) {
+            args.put(SPARQLServiceConverter.ORDER, order);
+        }
+        SubQueriesPattern query = new SubQueriesPattern();
+        query.add(new QueryPatternBuilder()
+                .setName("friends")
+                .setNodeId("x_1_1")
+                .setParentId("x_1")
+                .setTargetType("Person")
+                .setArgs(args)
+                .createQueryPattern());
+        return query;
+    }
+
+    /**
+     * Query {label{_value(limit)}} of the Person with the variable ?x_1
+     */
+    private SubQueriesPattern labels(int limit) {
+        Map<String, Object> args = new HashMap<>();
+        args.put(SPARQLServiceConverter.LIMIT, limit);
+        SubQueriesPattern value = new SubQueriesPattern();
+        value.add(new QueryPatternBuilder()
+                .setName(HGQLVocabulary.HGQL_SCALAR_LITERAL_VALUE_GQL_NAME)
+                .setNodeId("x_1_1")
+                .setParentId("x_1")
+                .setArgs(args)
+                .createQueryPattern());
+        SubQueriesPattern query = new SubQueriesPattern();
+        query.add(new QueryPatternBuilder()
+                .setName("label")
+                .setNodeId("x_1_1")
+                .setParentId("x_1")
+                .setParentType("Person")
+                .setTargetType(HGQLVocabulary.HGQL_SCALAR_LITERAL_GQL_NAME)
+                .setArgs(new HashMap<>())
+                .setFields(value)
+                .createQueryPattern());
+        return query;
+    }
+
+    private QueryPattern field(String nodeId, String name, String targetType) {
+        return new QueryPatternBuilder()
+                .setName(name)
+                .setNodeId(nodeId)
+                .setParentId("x_1")
+                .setParentType("Person")
+                .setTargetType(targetType)
+                .setArgs(new HashMap<>())
+                .createQueryPattern();
+    }
+
+    /**
+     * Root query {Person{label}} with the given variable and arguments.
+     */
+    private QueryPattern root(String nodeId, Map<String, Object> args) {
+        SubQueriesPattern fields = new SubQueriesPattern();
+        fields.add(new QueryPatternBuilder()
+                .setName("label")
+                .setNodeId(nodeId + "_1")
+                .setParentId(nodeId)
+                .setParentType("Person")
+                .setTargetType("String")
+                .setArgs(new HashMap<>())
+                .createQueryPattern());
+        return new QueryPatternBuilder()
+                .setName("Person")
+                .setNodeId(nodeId)
+                .setTargetType("Person")
+                .setArgs(args)
+                .setFields(fields)
+                .createQueryPattern();
+    }
+
+    /**
+     * Bindings of the solutions of the given query grouped by the bound root variable x_1 or x_2.
+     */
+    private Map<String, Set<String>> valuesPerRoot(String query) {
+        Map<String, Set<String>> values = new TreeMap<>();
+        try (QueryExecution execution = QueryExecutionFactory.create(query, model)) {
+            ResultSet results = execution.execSelect();
+            while (results.hasNext()) {
+                QuerySolution solution = results.next();
+                String root = solution.contains("x_1") ? "x_1" : "x_2";
+                assertFalse(solution.contains("x_1") && solution.contains("x_2"));
+                solution.varNames().forEachRemaining(var -> values.computeIfAbsent(root, k -> new TreeSet<>()).add(var + "=" + solution.get(var)));
+            }
+        }
+        return values;
+    }
+
+    private Map<String, Set<String>> friendsPerParent(String query) {
+        Map<String, Set<String>> friends = new TreeMap<>();
+        try (QueryExecution execution = QueryExecutionFactory.create(query, model)) {
+            ResultSet results = execution.execSelect();
+            while (results.hasNext()) {
+                QuerySolution solution = results.next();
+                if (solution.contains("x_1_1")) {
+                    friends.computeIfAbsent(solution.getResource("x_1").getURI(), k -> new TreeSet<>())
+                            .add(solution.getResource("x_1_1").getURI());
+                }
+            }
+        }
+        return friends;
+    }
+
+    private Set<String> labels(String query) {
+        Set<String> labels = new TreeSet<>();
+        try (QueryExecution execution = QueryExecutionFactory.create(query, model)) {
+            ResultSet results = execution.execSelect();
+            while (results.hasNext()) {
+                QuerySolution solution = results.next();
+                if (solution.contains("x_1_1")) {
+                    labels.add(solution.getLiteral("x_1_1").toString());
+                }
+            }
+        }
+        return labels;
+    }
+
+    private int perParentThreshold() {
+        return ((SPARQLEndpointService) schema.getServiceList().get("dataset")).getPerParentThreshold();
+    }
+
+    private Set<String> parents(String... names) {
+        Set<String> parents = new LinkedHashSet<>();
+        Arrays.stream(names).forEach(name -> parents.add(IRI + name));
+        return parents;
+    }
+
+    private Set<String> iris(String... names) {
+        Set<String> iris = new TreeSet<>();
+        Arrays.stream(names).forEach(name -> iris.add(IRI + name));
+        return iris;
+    }
+}
@@ -0,0 +1,32 @@
+package org.hypergraphql.services;
+
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HGQLRequestServiceTest {
+
+    @Test
+    void only_requests_without_data_are_bad_requests() {
+        List<GraphQLError> errors = new ArrayList<>();
+        errors.add(GraphqlErrorBuilder.newError().message("Validation error").build());
+        Map<String, Object> invalid = new HashMap<>();
+        invalid.put("errors", errors);
+        assertTrue(HGQLRequestService.isBadRequest(invalid));
+
+        Map<String, Object> partial = new HashMap<>(invalid);   // e.g. a failed service or an exceeded deadline
+        partial.put("data", new HashMap<>());
+        assertFalse(HGQLRequestService.isBadRequest(partial));
+
+        Map<String, Object> empty = new HashMap<>();
+        empty.put("errors", new ArrayList<>());
+        assertFalse(HGQLRequestService.isBadRequest(empty));
+    }
+}
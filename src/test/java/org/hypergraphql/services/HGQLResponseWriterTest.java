@@ -0,0 +1,56 @@
+package org.hypergraphql.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import org.hypergraphql.datafetching.services.resultmodel.ObjectResult;
+import org.hypergraphql.datafetching.services.resultmodel.Result;
+import org.hypergraphql.datafetching.services.resultmodel.StringResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HGQLResponseWriterTest {
+
+    @Test
+    void results_and_transformation_errors_are_written() throws Exception {
+        ObjectResult person = new ObjectResult("?x_1", "ex_Person");
+        StringResult name = new StringResult("?x_1_1", "name");
+        name.addString("Alice");
+        name.addString("Bob");   // not a list, results in an error
+        Map<String, Result<?>> fields = new HashMap<>();
+        fields.put("name", name);
+        person.addObject("http://example.org/person", fields);
+
+        Map<String, Object> data = new HashMap<>();
+        HGQLQueryService.putResults(data, person);
+        data.put("@context", new HashMap<>());
+        List<GraphQLError> errors = new ArrayList<>();
+        errors.add(GraphqlErrorBuilder.newError().message("Service failed").build());
+        Map<String, Object> result = new HashMap<>();
+        result.put("errors", errors);
+        result.put("extensions", new HashMap<>());
+        result.put("data", data);
+
+        assertFalse(HGQLRequestService.isBadRequest(result));   // the status is chosen before the transformation errors are known
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HGQLResponseWriter.write(result, out);
+        String response = out.toString("UTF-8");
+        JsonNode json = new ObjectMapper().readTree(response);
+
+        assertTrue(response.startsWith("{\"data\""));
+        assertEquals(2, json.get("data").get("ex_Person").get("name").size());
+        assertEquals(2, json.get("errors").size());
+        assertEquals("Service failed", json.get("errors").get(0).get("message").asText());
+        assertTrue(json.get("errors").get(1).get("message").asText().startsWith("Schema Error for name"));
+        assertTrue(json.has("extensions"));
+        assertEquals(1, errors.size());
+    }
+}
@@ -0,0 +1,39 @@
+package org.hypergraphql.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadsTest {
+
+    @Test
+    void thread_factory_creates_named_threads_if_supported() {
+
+        if (VirtualThreads.isSupported()) {
+            ThreadFactory factory = VirtualThreads.threadFactory("test-");
+            Thread thread = factory.newThread(() -> { });
+            assertEquals("test-1", thread.getName());
+        } else {
+            assertThrows(UnsupportedOperationException.class, () -> VirtualThreads.threadFactory("test-"));
+        }
+    }
+
+    @Test
+    void thread_per_task_executor_runs_each_task_on_a_new_virtual_thread() throws Exception {
+
+        if (VirtualThreads.isSupported()) {
+            ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("test-");
+            Future<String> first = executor.submit(() -> Thread.currentThread().getName());
+            Future<String> second = executor.submit(() -> Thread.currentThread().getName());
+            assertNotEquals(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+            executor.shutdown();
+        } else {
+            assertThrows(UnsupportedOperationException.class, () -> VirtualThreads.newThreadPerTaskExecutor("test-"));
+        }
+    }
+}